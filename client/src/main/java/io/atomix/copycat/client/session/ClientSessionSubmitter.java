@@ -125,6 +125,8 @@ final class ClientSessionSubmitter {
       .withSession(state.getSessionId())
       .withSequence(state.getCommandRequest())
       .withIndex(state.getResponseIndex())
+      .withMaxStaleness(query.maxStaleness())
+      .withMaxStaleEntries(query.maxStaleEntries())
       .withQuery(query)
       .build();
     submitQuery(request, future);
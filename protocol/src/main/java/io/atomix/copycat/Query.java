@@ -78,10 +78,10 @@ public interface Query<T> extends Operation<T> {
      * linearizable {@link Query} is submitted to the Raft cluster with linearizable consistency,
      * it must be forwarded to the current cluster leader. For lease-based linearizability, the leader will determine whether
      * it's safe to apply the query to its state machine based on the last time it successfully contacted a majority of the
-     * cluster. If the leader contacted a majority of the cluster within the last election timeout, it assumes that no other
-     * member could have since become the leader and immediately applies the query to its state machine. Alternatively, if it
-     * hasn't contacted a majority of the cluster within an election timeout, the leader will handle the query as if it were
-     * submitted with {@link #LINEARIZABLE} consistency.
+     * cluster. If the leader contacted a majority of the cluster within the last election timeout, less a configured bound on
+     * clock drift, it assumes that no other member could have since become the leader and immediately applies the query to its
+     * state machine. Alternatively, if it hasn't contacted a majority of the cluster within that time, the leader will handle
+     * the query as if it were submitted with {@link #LINEARIZABLE} consistency.
      */
     LINEARIZABLE_LEASE,
 
@@ -95,7 +95,19 @@ public interface Query<T> extends Operation<T> {
      * in the process of contacting a majority of the cluster, it will queue the {@link Query} to
      * be processed on the next round trip. This allows the leader to batch expensive quorum based reads for efficiency.
      */
-    LINEARIZABLE
+    LINEARIZABLE,
+
+    /**
+     * Enforces sequential query consistency with bounded staleness.
+     * <p>
+     * Bounded staleness queries are {@link #SEQUENTIAL} queries that are guaranteed to reflect the state of the
+     * cluster within a bound specified by the query. When a bounded staleness {@link Query} is submitted to a follower,
+     * the follower will apply the query to its state machine only if its state machine has applied all entries the
+     * leader reported as committed within the query's {@link Query#maxStaleness() maximum staleness}, and its state
+     * machine is within the query's {@link Query#maxStaleEntries() maximum stale entries} of the leader's latest commit
+     * index. Otherwise, the query is forwarded to the leader and handled as a {@link #LINEARIZABLE_LEASE} query.
+     */
+    BOUNDED_STALENESS
 
   }
 
@@ -115,4 +127,33 @@ public interface Query<T> extends Operation<T> {
     return null;
   }
 
+  /**
+   * Returns the maximum staleness of the query in milliseconds.
+   * <p>
+   * The maximum staleness applies only to queries with {@link ConsistencyLevel#BOUNDED_STALENESS} consistency.
+   * A follower's state is current as of the last time the leader reported a commit index no greater than the
+   * follower's last applied index. The query will only be applied by a follower whose state was current within the
+   * maximum staleness, so the query reflects every entry the leader had committed at that time. Merely hearing from
+   * the leader within the maximum staleness is not sufficient if the follower has not applied the leader's commits.
+   * By default, queries may be stale by up to one second.
+   *
+   * @return The maximum staleness of the query in milliseconds.
+   */
+  default long maxStaleness() {
+    return 1000;
+  }
+
+  /**
+   * Returns the maximum number of committed entries the query may not reflect.
+   * <p>
+   * The maximum stale entries applies only to queries with {@link ConsistencyLevel#BOUNDED_STALENESS} consistency.
+   * The query will only be applied by a follower whose state machine is within the given number of entries of the
+   * last commit index received from the leader. By default, the number of stale entries is not bounded.
+   *
+   * @return The maximum number of committed entries the query may not reflect.
+   */
+  default long maxStaleEntries() {
+    return Long.MAX_VALUE;
+  }
+
 }
@@ -37,7 +37,9 @@ import java.util.Objects;
  * Query requests should always be submitted to the server to which the client is connected. The provided
  * query's {@link Query#consistency() consistency level} will be used to determine how the query should be
  * handled. If the query is received by a follower, it may be evaluated on that node if the consistency level
- * is {@link Query.ConsistencyLevel#SEQUENTIAL}, otherwise it will be forwarded to the cluster leader.
+ * is {@link Query.ConsistencyLevel#SEQUENTIAL}, or if the consistency level is {@link Query.ConsistencyLevel#BOUNDED_STALENESS}
+ * and the node is within the request's {@link #maxStaleness()} and {@link #maxStaleEntries()} bounds, otherwise it
+ * will be forwarded to the cluster leader.
  * Queries are always guaranteed to see state progress monotonically within a single {@link #session()}
  * even when switching servers.
  *
@@ -66,6 +68,8 @@ public class QueryRequest extends OperationRequest {
   }
 
   private long index;
+  private long maxStaleness;
+  private long maxStaleEntries;
   private Query query;
 
   /**
@@ -77,6 +81,28 @@ public class QueryRequest extends OperationRequest {
     return index;
   }
 
+  /**
+   * Returns the maximum staleness of a bounded staleness query in milliseconds.
+   * <p>
+   * A follower may evaluate the query only if it has applied every entry the leader reported as committed within
+   * the maximum staleness, i.e. the last time the leader reported a commit index no greater than the follower's last
+   * applied index is no older than the maximum staleness.
+   *
+   * @return The maximum staleness of the query in milliseconds.
+   */
+  public long maxStaleness() {
+    return maxStaleness;
+  }
+
+  /**
+   * Returns the maximum number of committed entries a bounded staleness query may not reflect.
+   *
+   * @return The maximum number of committed entries the query may not reflect.
+   */
+  public long maxStaleEntries() {
+    return maxStaleEntries;
+  }
+
   /**
    * Returns the query.
    *
@@ -95,13 +121,17 @@ public class QueryRequest extends OperationRequest {
   public void readObject(BufferInput<?> buffer, Serializer serializer) {
     super.readObject(buffer, serializer);
     index = buffer.readLong();
+    maxStaleness = buffer.readLong();
+    maxStaleEntries = buffer.readLong();
     query = serializer.readObject(buffer);
   }
 
   @Override
   public void writeObject(BufferOutput<?> buffer, Serializer serializer) {
     super.writeObject(buffer, serializer);
-    buffer.writeLong(index);
+    buffer.writeLong(index)
+      .writeLong(maxStaleness)
+      .writeLong(maxStaleEntries);
     serializer.writeObject(query, buffer);
   }
 
@@ -123,7 +153,7 @@ public class QueryRequest extends OperationRequest {
 
   @Override
   public String toString() {
-    return String.format("%s[session=%d, sequence=%d, index=%d, query=%s]", getClass().getSimpleName(), session, sequence, index, query);
+    return String.format("%s[session=%d, sequence=%d, index=%d, maxStaleness=%d, maxStaleEntries=%d, query=%s]", getClass().getSimpleName(), session, sequence, index, maxStaleness, maxStaleEntries, query);
   }
 
   /**
@@ -146,6 +176,30 @@ public class QueryRequest extends OperationRequest {
       return this;
     }
 
+    /**
+     * Sets the maximum staleness of a bounded staleness query.
+     *
+     * @param maxStaleness The maximum staleness of the query in milliseconds.
+     * @return The request builder.
+     * @throws IllegalArgumentException if {@code maxStaleness} is negative
+     */
+    public Builder withMaxStaleness(long maxStaleness) {
+      request.maxStaleness = Assert.argNot(maxStaleness, maxStaleness < 0, "maxStaleness cannot be negative");
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of committed entries a bounded staleness query may not reflect.
+     *
+     * @param maxStaleEntries The maximum number of committed entries the query may not reflect.
+     * @return The request builder.
+     * @throws IllegalArgumentException if {@code maxStaleEntries} is negative
+     */
+    public Builder withMaxStaleEntries(long maxStaleEntries) {
+      request.maxStaleEntries = Assert.argNot(maxStaleEntries, maxStaleEntries < 0, "maxStaleEntries cannot be negative");
+      return this;
+    }
+
     /**
      * Sets the request query.
      *
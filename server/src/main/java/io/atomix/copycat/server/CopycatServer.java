@@ -32,6 +32,7 @@ import io.atomix.copycat.protocol.ClientRequestTypeResolver;
 import io.atomix.copycat.protocol.ClientResponseTypeResolver;
 import io.atomix.copycat.server.cluster.Cluster;
 import io.atomix.copycat.server.cluster.Member;
+import io.atomix.copycat.server.state.BatchMetrics;
 import io.atomix.copycat.server.state.ConnectionManager;
 import io.atomix.copycat.server.state.ServerContext;
 import io.atomix.copycat.server.storage.Log;
@@ -47,6 +48,7 @@ import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.function.Consumer;
@@ -379,6 +381,19 @@ public class CopycatServer {
     return context.getCluster();
   }
 
+  /**
+   * Returns metrics for the batches of entries sent by this server to each remote member of the cluster.
+   * <p>
+   * The leader replicates entries to each member in batches whose size grows while the member is behind the leader
+   * and shrinks once the member has caught up. Batches are only sent while this server is the leader, so metrics
+   * for other servers reflect the last time this server was the leader.
+   *
+   * @return A map of remote cluster members to the metrics for batches sent to each member.
+   */
+  public Map<Member, BatchMetrics> batchMetrics() {
+    return context.getBatchMetrics();
+  }
+
   /**
    * Returns the server's binary serializer which is shared among the protocol, state machine, and storage.
    * <p>
@@ -857,6 +872,11 @@ public class CopycatServer {
     private static final Duration DEFAULT_HEARTBEAT_INTERVAL = Duration.ofMillis(250);
     private static final Duration DEFAULT_SESSION_TIMEOUT = Duration.ofMillis(5000);
     private static final Duration DEFAULT_GLOBAL_SUSPEND_TIMEOUT = Duration.ofHours(1);
+    private static final Duration DEFAULT_MAX_CLOCK_DRIFT = Duration.ofMillis(100);
+    private static final int DEFAULT_MAX_APPENDS_PER_FOLLOWER = 2;
+    private static final int DEFAULT_MAX_APPEND_BYTES_PER_FOLLOWER = 1024 * 1024;
+    private static final int DEFAULT_MIN_BATCH_SIZE = 1024 * 4;
+    private static final int DEFAULT_MAX_BATCH_SIZE = 1024 * 1024;
 
     private String name = DEFAULT_NAME;
     private Member.Type type = Member.Type.ACTIVE;
@@ -871,6 +891,11 @@ public class CopycatServer {
     private Duration heartbeatInterval = DEFAULT_HEARTBEAT_INTERVAL;
     private Duration sessionTimeout = DEFAULT_SESSION_TIMEOUT;
     private Duration globalSuspendTimeout = DEFAULT_GLOBAL_SUSPEND_TIMEOUT;
+    private Duration maxClockDrift = DEFAULT_MAX_CLOCK_DRIFT;
+    private int maxAppendsPerFollower = DEFAULT_MAX_APPENDS_PER_FOLLOWER;
+    private int maxAppendBytesPerFollower = DEFAULT_MAX_APPEND_BYTES_PER_FOLLOWER;
+    private int minBatchSize = DEFAULT_MIN_BATCH_SIZE;
+    private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
 
     private Builder(Address clientAddress, Address serverAddress) {
       this.clientAddress = Assert.notNull(clientAddress, "clientAddress");
@@ -1033,6 +1058,93 @@ public class CopycatServer {
       return this;
     }
 
+    /**
+     * Sets the maximum clock drift between servers over the course of an election timeout, returning the builder
+     * for method chaining.
+     * <p>
+     * The leader serves {@link io.atomix.copycat.Query.ConsistencyLevel#LINEARIZABLE_LEASE} queries without contacting
+     * the rest of the cluster while it holds a lease. The lease begins when the leader sends an append request that is
+     * later acknowledged by a majority of the cluster, and it lasts for an election timeout less the maximum clock drift,
+     * since followers will not elect a new leader within an election timeout of hearing from the current leader.
+     * The lease is only safe if the drift between clocks over an election timeout is within this bound.
+     *
+     * @param maxClockDrift The maximum clock drift between servers.
+     * @return The server builder.
+     * @throws NullPointerException if {@code maxClockDrift} is null
+     * @throws IllegalArgumentException if {@code maxClockDrift} is negative
+     */
+    public Builder withMaxClockDrift(Duration maxClockDrift) {
+      Assert.notNull(maxClockDrift, "maxClockDrift");
+      this.maxClockDrift = Assert.argNot(maxClockDrift, maxClockDrift.isNegative(), "maxClockDrift cannot be negative");
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of outstanding append requests per follower, returning the builder for method chaining.
+     * <p>
+     * The leader pipelines {@link io.atomix.copycat.server.protocol.AppendRequest}s to each follower, sending new batches
+     * of entries before responses to earlier batches have been received. The pipelining window dictates the maximum
+     * number of requests that may be outstanding to a single follower at any given time. Increasing the window can
+     * improve replication throughput over high latency links. If a follower rejects an append request, the leader
+     * falls back to sending a single request at a time until the follower's log has converged.
+     *
+     * @param maxAppendsPerFollower The maximum number of outstanding append requests per follower.
+     * @return The server builder.
+     * @throws IllegalArgumentException if {@code maxAppendsPerFollower} is not positive
+     */
+    public Builder withMaxAppendsPerFollower(int maxAppendsPerFollower) {
+      this.maxAppendsPerFollower = Assert.arg(maxAppendsPerFollower, maxAppendsPerFollower > 0, "maxAppendsPerFollower must be positive");
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of entry bytes in flight per follower, returning the builder for method chaining.
+     * <p>
+     * In addition to the number of outstanding requests, the pipelining window to each follower is bounded by the
+     * total size of the entries in outstanding requests. Once the number of bytes in flight to a follower exceeds
+     * the limit, no new requests will be sent until earlier requests have completed.
+     *
+     * @param maxAppendBytesPerFollower The maximum number of entry bytes in flight per follower.
+     * @return The server builder.
+     * @throws IllegalArgumentException if {@code maxAppendBytesPerFollower} is not positive
+     */
+    public Builder withMaxAppendBytesPerFollower(int maxAppendBytesPerFollower) {
+      this.maxAppendBytesPerFollower = Assert.arg(maxAppendBytesPerFollower, maxAppendBytesPerFollower > 0, "maxAppendBytesPerFollower must be positive");
+      return this;
+    }
+
+    /**
+     * Sets the minimum size of a batch of entries sent to a follower, returning the builder for method chaining.
+     * <p>
+     * The size of batches sent to each follower adapts to the follower's progress. Once a follower has caught up
+     * to the leader's log, batches shrink back toward the minimum batch size to keep replication latency low.
+     *
+     * @param minBatchSize The minimum size of a batch of entries sent to a follower in bytes.
+     * @return The server builder.
+     * @throws IllegalArgumentException if {@code minBatchSize} is not positive
+     */
+    public Builder withMinBatchSize(int minBatchSize) {
+      this.minBatchSize = Assert.arg(minBatchSize, minBatchSize > 0, "minBatchSize must be positive");
+      return this;
+    }
+
+    /**
+     * Sets the maximum size of a batch of entries sent to a follower, returning the builder for method chaining.
+     * <p>
+     * While a follower is behind the leader, the size of batches sent to the follower grows up to the maximum batch
+     * size so long as the follower's round trip times remain within the heartbeat interval. The maximum batch size is
+     * also used as the chunk size when replicating snapshots. Note that a single entry larger than the maximum batch
+     * size will still be sent in a batch of its own.
+     *
+     * @param maxBatchSize The maximum size of a batch of entries sent to a follower in bytes.
+     * @return The server builder.
+     * @throws IllegalArgumentException if {@code maxBatchSize} is not positive
+     */
+    public Builder withMaxBatchSize(int maxBatchSize) {
+      this.maxBatchSize = Assert.arg(maxBatchSize, maxBatchSize > 0, "maxBatchSize must be positive");
+      return this;
+    }
+
     /**
      * @throws ConfigurationException if a state machine, members or transport are not configured
      */
@@ -1079,7 +1191,12 @@ public class CopycatServer {
       context.setElectionTimeout(electionTimeout)
         .setHeartbeatInterval(heartbeatInterval)
         .setSessionTimeout(sessionTimeout)
-        .setGlobalSuspendTimeout(globalSuspendTimeout);
+        .setGlobalSuspendTimeout(globalSuspendTimeout)
+        .setMaxClockDrift(maxClockDrift)
+        .setMaxAppendsPerFollower(maxAppendsPerFollower)
+        .setMaxAppendBytesPerFollower(maxAppendBytesPerFollower)
+        .setMinBatchSize(Math.min(minBatchSize, maxBatchSize))
+        .setMaxBatchSize(maxBatchSize);
 
       return new CopycatServer(name, clientTransport, serverTransport, context);
     }
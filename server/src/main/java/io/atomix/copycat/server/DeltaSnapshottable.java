@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server;
+
+import io.atomix.copycat.server.storage.snapshot.SnapshotReader;
+
+/**
+ * Support for taking delta snapshots of {@link StateMachine} state.
+ * <p>
+ * State machines with large but slowly changing state can implement this interface in place of
+ * {@link Snapshottable} to take delta snapshots. A delta snapshot stores only the changes to the state machine
+ * state since a prior snapshot. Servers take up to
+ * {@link io.atomix.copycat.server.storage.Storage#maxSnapshotDeltas() maxSnapshotDeltas} delta snapshots on top of
+ * each full snapshot before taking a new full snapshot to replace the chain, and install a delta snapshot by
+ * installing the full snapshot followed by each delta in the chain. Full snapshots are taken and installed as
+ * they are for any other {@link Snapshottable} state machine.
+ * <p>
+ * <pre>
+ *   {@code
+ *   public class MyStateMachine extends StateMachine implements DeltaSnapshottable {
+ *     private PersistentMap<String, Versioned<String>> map;
+ *
+ *     public View delta(long index) {
+ *       PersistentMap<String, Versioned<String>> changes = map.filter(value -> value.index() > index);
+ *       return writer -> writer.writeObject(changes);
+ *     }
+ *
+ *     public void installDelta(SnapshotReader reader) {
+ *       map = map.putAll(reader.readObject());
+ *     }
+ *   }
+ *   }
+ * </pre>
+ *
+ * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
+ */
+public interface DeltaSnapshottable extends Snapshottable {
+
+  /**
+   * Captures a point-in-time view of the changes to the state machine state since the snapshot at the given index.
+   * <p>
+   * This method is called on the state machine thread when a snapshot is taken and a prior snapshot exists. If a
+   * view is returned, it's written to a delta snapshot on a background thread in the same manner as views returned
+   * by {@link #capture()}, and the delta is later installed via {@link #installDelta(SnapshotReader)} after the
+   * snapshot at the given index. The view must include all changes since the given index, including the removal of
+   * state. Because snapshots may be discarded before they're completed, state machines should not assume that the
+   * given index is the index of the last delta returned by this method. If {@code null} is returned, a full
+   * snapshot is taken.
+   *
+   * @param index The index of the snapshot on which the delta is based.
+   * @return A view of the changes since the given index or {@code null} to take a full snapshot.
+   */
+  View delta(long index);
+
+  /**
+   * Installs a delta snapshot of the state machine state.
+   * <p>
+   * Delta snapshots are installed in index order after the full snapshot on which they're based has been
+   * {@link #install(SnapshotReader) installed}. Implementations should read precisely what views returned by
+   * {@link #delta(long)} write.
+   *
+   * @param reader The delta snapshot reader.
+   */
+  void installDelta(SnapshotReader reader);
+
+}
@@ -89,6 +89,27 @@ import io.atomix.copycat.server.storage.snapshot.SnapshotWriter;
  * and other commands, and state machine implementations should take care not to overwrite non-snapshot command
  * state with snapshots. For simpler state machines, <em>users should use either snapshotting or log cleaning
  * but not both</em>.
+ * <p>
+ * By default, snapshots are written on the state machine thread, and no commands are applied to the state machine
+ * until the snapshot has been written. State machines with large state can instead write snapshots asynchronously
+ * by implementing {@link #capture()}. The state machine captures a cheap point-in-time {@link View view} of its
+ * state on the state machine thread, such as an immutable or copy-on-write copy of its data structures, and the
+ * view is written to the snapshot on a background thread while commands continue to be applied.
+ * <p>
+ * <pre>
+ *   {@code
+ *   public class MyStateMachine extends StateMachine implements Snapshottable {
+ *     private PersistentMap<String, String> map;
+ *
+ *     public View capture() {
+ *       PersistentMap<String, String> view = map;
+ *       return writer -> writer.writeObject(view);
+ *     }
+ *   }
+ *   }
+ * </pre>
+ * State machines with large but slowly changing state can also take delta snapshots by implementing
+ * {@link DeltaSnapshottable} instead.
  *
  * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
  */
@@ -110,6 +131,21 @@ public interface Snapshottable {
    */
   void snapshot(SnapshotWriter writer);
 
+  /**
+   * Captures a point-in-time view of the state machine state to be written to a snapshot asynchronously.
+   * <p>
+   * This method is called on the state machine thread in place of {@link #snapshot(SnapshotWriter)} when a snapshot
+   * is taken. The returned view is written to the snapshot on a background thread while subsequent commands are
+   * applied to the state machine, so the view must not be affected by changes to the state machine state after this
+   * method returns. The snapshot is completed once the view has been written. By default, this method returns
+   * {@code null}, in which case the snapshot is written synchronously via {@link #snapshot(SnapshotWriter)}.
+   *
+   * @return A view of the state machine state or {@code null} to write the snapshot synchronously.
+   */
+  default View capture() {
+    return null;
+  }
+
   /**
    * Installs a snapshot of the state machine state.
    * <p>
@@ -125,4 +161,22 @@ public interface Snapshottable {
    */
   void install(SnapshotReader reader);
 
+  /**
+   * Point-in-time view of state machine state to be written to a snapshot.
+   */
+  @FunctionalInterface
+  interface View {
+
+    /**
+     * Writes the view to a snapshot.
+     * <p>
+     * This method is called on a background thread, concurrently with the application of commands to the
+     * state machine.
+     *
+     * @param writer The snapshot writer.
+     */
+    void snapshot(SnapshotWriter writer);
+
+  }
+
 }
@@ -20,7 +20,9 @@ import io.atomix.catalyst.buffer.BufferOutput;
 import io.atomix.catalyst.serializer.Serializer;
 import io.atomix.catalyst.util.Assert;
 import io.atomix.copycat.protocol.AbstractRequest;
+import io.atomix.copycat.server.storage.ChecksumType;
 import io.atomix.copycat.server.storage.entry.Entry;
+import io.atomix.copycat.server.storage.entry.RawEntry;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -139,8 +141,13 @@ public class AppendRequest extends AbstractRequest {
 
     buffer.writeInt(entries.size());
     for (Entry entry : entries) {
-      buffer.writeLong(entry.getIndex()).writeLong(entry.getTerm());
-      serializer.writeObject(entry, buffer);
+      RawEntry raw = RawEntry.of(entry, serializer);
+      buffer.writeLong(raw.getIndex())
+        .writeLong(raw.getTerm())
+        .writeByte(raw.checksumType().id())
+        .writeUnsignedInt(raw.checksum())
+        .writeInt(raw.bytes().length)
+        .write(raw.bytes());
     }
   }
 
@@ -158,9 +165,11 @@ public class AppendRequest extends AbstractRequest {
     for (int i = 0; i < numEntries; i++) {
       long index = buffer.readLong();
       long term = buffer.readLong();
-      Entry entry = serializer.readObject(buffer);
-      entry.setIndex(index).setTerm(term);
-      entries.add(entry);
+      ChecksumType checksumType = ChecksumType.forId(buffer.readByte());
+      long checksum = buffer.readUnsignedInt();
+      byte[] bytes = new byte[buffer.readInt()];
+      buffer.read(bytes);
+      entries.add(new RawEntry(checksumType, checksum, bytes).setIndex(index).setTerm(term));
     }
   }
 
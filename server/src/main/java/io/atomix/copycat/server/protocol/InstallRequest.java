@@ -20,6 +20,7 @@ import io.atomix.catalyst.buffer.BufferOutput;
 import io.atomix.catalyst.serializer.Serializer;
 import io.atomix.catalyst.util.Assert;
 import io.atomix.copycat.protocol.AbstractRequest;
+import io.atomix.copycat.server.storage.CompressionType;
 
 import java.util.Arrays;
 import java.util.Objects;
@@ -33,6 +34,11 @@ import java.util.Objects;
  * the follower, the snapshot is reconstructed based on the provided {@link #offset()} and other
  * metadata. The last install request will be sent with {@link #complete()} being {@code true} to
  * indicate that all chunks of the snapshot have been sent.
+ * <p>
+ * Delta snapshots are sent with the {@link #base()} index of the snapshot on which they're based. Leaders
+ * send the chain of snapshots from the last full snapshot through the delta in index order, and followers
+ * reject delta snapshots for which they don't have the base snapshot. Compressed snapshots are sent as they're
+ * stored along with their {@link #compression()} type, and followers store the received bytes as-is.
  *
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
@@ -60,6 +66,8 @@ public class InstallRequest extends AbstractRequest {
   private long term;
   private int leader;
   protected long index;
+  protected long base;
+  protected CompressionType compression = CompressionType.NONE;
   protected int offset;
   protected byte[] data;
   protected boolean complete;
@@ -91,6 +99,24 @@ public class InstallRequest extends AbstractRequest {
     return index;
   }
 
+  /**
+   * Returns the index of the snapshot on which the snapshot is based.
+   *
+   * @return The base snapshot index or {@code 0} if the snapshot is a full snapshot.
+   */
+  public long base() {
+    return base;
+  }
+
+  /**
+   * Returns the compression type of the snapshot data.
+   *
+   * @return The snapshot compression type.
+   */
+  public CompressionType compression() {
+    return compression;
+  }
+
   /**
    * Returns the offset of the snapshot chunk.
    *
@@ -123,9 +149,11 @@ public class InstallRequest extends AbstractRequest {
     buffer.writeLong(term)
       .writeInt(leader)
       .writeLong(index)
+      .writeByte(compression.id())
       .writeInt(offset)
       .writeBoolean(complete);
     serializer.writeObject(data, buffer);
+    buffer.writeLong(base);
   }
 
   @Override
@@ -133,14 +161,16 @@ public class InstallRequest extends AbstractRequest {
     term = buffer.readLong();
     leader = buffer.readInt();
     index = buffer.readLong();
+    compression = CompressionType.forId(buffer.readByte());
     offset = buffer.readInt();
     complete = buffer.readBoolean();
     data = serializer.<byte[]>readObject(buffer);
+    base = buffer.readLong();
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(getClass(), term, leader, index, offset, complete, data);
+    return Objects.hash(getClass(), term, leader, index, base, compression, offset, complete, data);
   }
 
   @Override
@@ -150,6 +180,8 @@ public class InstallRequest extends AbstractRequest {
       return request.term == term
         && request.leader == leader
         && request.index == index
+        && request.base == base
+        && request.compression == compression
         && request.offset == offset
         && request.complete == complete
         && Arrays.equals(request.data, data);
@@ -159,7 +191,7 @@ public class InstallRequest extends AbstractRequest {
 
   @Override
   public String toString() {
-    return String.format("%s[term=%d, leader=%d, index=%d, offset=%d, data=%s, complete=%b]", getClass().getSimpleName(), term, leader, index, offset, data, complete);
+    return String.format("%s[term=%d, leader=%d, index=%d, base=%d, compression=%s, offset=%d, data=%s, complete=%b]", getClass().getSimpleName(), term, leader, index, base, compression, offset, data, complete);
   }
 
   /**
@@ -205,6 +237,29 @@ public class InstallRequest extends AbstractRequest {
       return this;
     }
 
+    /**
+     * Sets the index of the snapshot on which the snapshot is based.
+     *
+     * @param base The base snapshot index or {@code 0} for a full snapshot.
+     * @return The request builder.
+     */
+    public Builder withBase(long base) {
+      request.base = Assert.argNot(base, base < 0, "base must be positive");
+      return this;
+    }
+
+    /**
+     * Sets the compression type of the snapshot data.
+     *
+     * @param compression The snapshot compression type.
+     * @return The request builder.
+     * @throws NullPointerException if {@code compression} is null
+     */
+    public Builder withCompression(CompressionType compression) {
+      request.compression = Assert.notNull(compression, "compression");
+      return this;
+    }
+
     /**
      * Sets the request offset.
      *
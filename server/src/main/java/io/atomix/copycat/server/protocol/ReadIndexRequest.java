@@ -0,0 +1,133 @@
+/*
+ * Copyright 2017-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.protocol;
+
+import io.atomix.catalyst.buffer.BufferInput;
+import io.atomix.catalyst.buffer.BufferOutput;
+import io.atomix.catalyst.serializer.Serializer;
+import io.atomix.copycat.protocol.AbstractRequest;
+
+import java.util.Objects;
+
+/**
+ * Server read index request.
+ * <p>
+ * Read index requests are sent by followers to the leader to determine the index at which linearizable queries
+ * can be applied to the follower's state machine. The leader responds with its commit index once it has verified
+ * that it is still the leader, and the follower applies all queries received prior to sending the request once
+ * its state machine has applied the returned index. If {@link #lease()} is {@code true}, the leader may verify
+ * its leadership using its lease rather than by contacting a majority of the cluster.
+ *
+ * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
+ */
+public class ReadIndexRequest extends AbstractRequest {
+
+  /**
+   * Returns a new read index request builder.
+   *
+   * @return A new read index request builder.
+   */
+  public static Builder builder() {
+    return new Builder(new ReadIndexRequest());
+  }
+
+  /**
+   * Returns a read index request builder for an existing request.
+   *
+   * @param request The request to build.
+   * @return The read index request builder.
+   */
+  public static Builder builder(ReadIndexRequest request) {
+    return new Builder(request);
+  }
+
+  private boolean lease;
+
+  /**
+   * Returns a boolean indicating whether the leader may verify its leadership using its lease.
+   *
+   * @return Indicates whether the leader may verify its leadership using its lease.
+   */
+  public boolean lease() {
+    return lease;
+  }
+
+  @Override
+  public void readObject(BufferInput<?> buffer, Serializer serializer) {
+    lease = buffer.readBoolean();
+  }
+
+  @Override
+  public void writeObject(BufferOutput<?> buffer, Serializer serializer) {
+    buffer.writeBoolean(lease);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(getClass(), lease);
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (object instanceof ReadIndexRequest) {
+      ReadIndexRequest request = (ReadIndexRequest) object;
+      return request.lease == lease;
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s[lease=%b]", getClass().getSimpleName(), lease);
+  }
+
+  /**
+   * Read index request builder.
+   */
+  public static class Builder extends AbstractRequest.Builder<Builder, ReadIndexRequest> {
+    protected Builder(ReadIndexRequest request) {
+      super(request);
+    }
+
+    /**
+     * Sets whether the leader may verify its leadership using its lease.
+     *
+     * @param lease Whether the leader may verify its leadership using its lease.
+     * @return The read index request builder.
+     */
+    public Builder withLease(boolean lease) {
+      request.lease = lease;
+      return this;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(request);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      return object instanceof Builder && ((Builder) object).request.equals(request);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s[request=%s]", getClass().getCanonicalName(), request);
+    }
+
+  }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2017-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.protocol;
+
+import io.atomix.catalyst.buffer.BufferInput;
+import io.atomix.catalyst.buffer.BufferOutput;
+import io.atomix.catalyst.serializer.Serializer;
+import io.atomix.catalyst.util.Assert;
+import io.atomix.copycat.error.CopycatError;
+import io.atomix.copycat.protocol.AbstractResponse;
+import io.atomix.copycat.protocol.Response;
+
+import java.util.Objects;
+
+/**
+ * Server read index response.
+ * <p>
+ * Read index responses are sent by the leader in response to read index requests once it has verified its
+ * leadership. The {@link #index()} is the leader's commit index at the time the request was received, and
+ * queries received by the follower prior to sending the request can be applied once the follower's state
+ * machine has applied the index.
+ *
+ * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
+ */
+public class ReadIndexResponse extends AbstractResponse {
+
+  /**
+   * Returns a new read index response builder.
+   *
+   * @return A new read index response builder.
+   */
+  public static Builder builder() {
+    return new Builder(new ReadIndexResponse());
+  }
+
+  /**
+   * Returns a read index response builder for an existing response.
+   *
+   * @param response The response to build.
+   * @return The read index response builder.
+   */
+  public static Builder builder(ReadIndexResponse response) {
+    return new Builder(response);
+  }
+
+  private long index;
+
+  /**
+   * Returns the index after which linearizable queries can be applied.
+   *
+   * @return The index after which linearizable queries can be applied.
+   */
+  public long index() {
+    return index;
+  }
+
+  @Override
+  public void readObject(BufferInput<?> buffer, Serializer serializer) {
+    status = Response.Status.forId(buffer.readByte());
+    if (status == Response.Status.OK) {
+      error = null;
+      index = buffer.readLong();
+    } else {
+      error = CopycatError.forId(buffer.readByte());
+    }
+  }
+
+  @Override
+  public void writeObject(BufferOutput<?> buffer, Serializer serializer) {
+    buffer.writeByte(status.id());
+    if (status == Response.Status.OK) {
+      buffer.writeLong(index);
+    } else {
+      buffer.writeByte(error.id());
+    }
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(getClass(), status, index);
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (object instanceof ReadIndexResponse) {
+      ReadIndexResponse response = (ReadIndexResponse) object;
+      return response.status == status
+        && response.index == index;
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s[status=%s, error=%s, index=%d]", getClass().getSimpleName(), status, error, index);
+  }
+
+  /**
+   * Read index response builder.
+   */
+  public static class Builder extends AbstractResponse.Builder<Builder, ReadIndexResponse> {
+    protected Builder(ReadIndexResponse response) {
+      super(response);
+    }
+
+    /**
+     * Sets the response index.
+     *
+     * @param index The index after which linearizable queries can be applied.
+     * @return The read index response builder.
+     * @throws IllegalArgumentException if {@code index} is negative
+     */
+    public Builder withIndex(long index) {
+      response.index = Assert.argNot(index, index < 0, "index cannot be negative");
+      return this;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(response);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      return object instanceof Builder && ((Builder) object).response.equals(response);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s[response=%s]", getClass().getCanonicalName(), response);
+    }
+
+  }
+
+}
@@ -20,15 +20,16 @@ import io.atomix.catalyst.util.Assert;
 import io.atomix.copycat.protocol.Response;
 import io.atomix.copycat.server.CopycatServer;
 import io.atomix.copycat.server.protocol.*;
+import io.atomix.copycat.server.storage.LogReader;
 import io.atomix.copycat.server.storage.entry.Entry;
 import io.atomix.copycat.server.storage.snapshot.Snapshot;
-import io.atomix.copycat.server.storage.snapshot.SnapshotReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Abstract appender.
@@ -36,7 +37,6 @@ import java.util.List;
  * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
  */
 abstract class AbstractAppender implements AutoCloseable {
-  private static final int MAX_BATCH_SIZE = 1024 * 32;
   protected final Logger logger = LoggerFactory.getLogger(getClass());
   protected final ServerContext context;
   protected boolean open = true;
@@ -114,29 +114,52 @@ abstract class AbstractAppender implements AutoCloseable {
     // Build a list of entries to send to the member.
     List<Entry> entries = new ArrayList<>((int) Math.min(8, lastIndex - index + 1));
 
-    // Build a list of entries up to the MAX_BATCH_SIZE. Note that entries in the log may
+    // Build a list of entries up to the member's batch size. Note that entries in the log may
     // be null if they've been compacted and the member to which we're sending entries is just
     // joining the cluster or is otherwise far behind. Null entries are simply skipped and not
     // counted towards the size of the batch.
-    // If there exists an entry in the log with size >= MAX_BATCH_SIZE the logic ensures that
+    // If there exists an entry in the log with size >= the batch size the logic ensures that
     // entry will be sent in a batch of size one
+    final int batchSize = member.getBatchSize();
     int size = 0;
+    long nextIndex = index;
+    boolean truncated = false;
+
+    // Position the member's log reader at the starting index. Entries are read sequentially from the reader,
+    // so sending consecutive batches to the member doesn't require looking up each entry in the log.
+    LogReader reader = member.getLogReader();
+    if (reader == null) {
+      reader = context.getLog().createRawReader(index);
+      member.setLogReader(reader);
+    }
+    reader.reset(index);
 
     // Iterate through remaining entries in the log up to the last index.
     for (long i = index; i <= lastIndex; i++) {
-      // Get the entry from the log and append it if it's not null. Entries in the log can be null
+      // Read the raw entry from the log and append it if it's not null. Entries in the log can be null
       // if they've been cleaned or compacted from the log. Each entry sent in the append request
-      // has a unique index to handle gaps in the log.
-      Entry entry = context.getLog().get(i);
+      // has a unique index to handle gaps in the log. Raw entries are replicated without being
+      // deserialized and reserialized.
+      Entry entry = reader.next();
       if (entry != null) {
-        if (!entries.isEmpty() && size + entry.size() > MAX_BATCH_SIZE) {
+        if (!entries.isEmpty() && size + entry.size() > batchSize) {
+          // Reset the reader so the entry can be read again in the next batch.
+          entry.release();
+          reader.reset(i);
+          truncated = true;
           break;
         }
         size += entry.size();
         entries.add(entry);
       }
+      nextIndex = i + 1;
     }
 
+    // Adapt the member's batch size according to the number of entries remaining to be sent and whether
+    // the batch was cut off by the batch size.
+    member.recordBatch(size, Math.max(context.getLog().lastIndex() - nextIndex + 1, 0), truncated);
+    logger.trace("{} - Built batch of {} bytes for {}, next batch size {}", context.getCluster().member().address(), size, member, member.getBatchSize());
+
     // Release the previous entry back to the entry pool.
     if (prevEntry != null) {
       prevEntry.release();
@@ -166,10 +189,24 @@ abstract class AbstractAppender implements AutoCloseable {
    * Connects to the member and sends a commit message.
    */
   protected void sendAppendRequest(MemberState member, AppendRequest request) {
-    // Start the append to the member.
-    member.startAppend();
+    CompletableFuture<Connection> connectionFuture = context.getConnections().getConnection(member.getMember().address());
+
+    // If the connection to the member has not yet been established, requests queued behind the connection future
+    // may be sent out of order once it completes. Send this request alone and wait for its response before
+    // sending further batches to the member.
+    boolean connected = connectionFuture.isDone() && !connectionFuture.isCompletedExceptionally();
+    if (!connected) {
+      member.appendFailed();
+    }
 
-    context.getConnections().getConnection(member.getMember().address()).whenComplete((connection, error) -> {
+    // Start the append to the member. If more entries remain to be sent after this request, the request is
+    // pipelined, and the next batch can be sent to the member without waiting for a response.
+    long bytes = requestSize(request);
+    boolean pipelined = connected && !request.entries().isEmpty()
+      && request.entries().get(request.entries().size() - 1).getIndex() < context.getLog().lastIndex();
+    member.startAppend(bytes, pipelined);
+
+    connectionFuture.whenComplete((connection, error) -> {
       context.checkThread();
 
       if (open) {
@@ -177,7 +214,7 @@ abstract class AbstractAppender implements AutoCloseable {
           sendAppendRequest(connection, member, request);
         } else {
           // Complete the append to the member.
-          member.completeAppend();
+          member.completeAppend(bytes);
 
           // Trigger reactions to the request failure.
           handleAppendRequestFailure(member, request, error);
@@ -191,6 +228,7 @@ abstract class AbstractAppender implements AutoCloseable {
    */
   protected void sendAppendRequest(Connection connection, MemberState member, AppendRequest request) {
     long timestamp = System.nanoTime();
+    long bytes = requestSize(request);
 
     logger.trace("{} - Sending {} to {}", context.getCluster().member().address(), request, member.getMember().address());
     connection.<AppendRequest, AppendResponse>sendAndReceive(request).whenComplete((response, error) -> {
@@ -198,14 +236,20 @@ abstract class AbstractAppender implements AutoCloseable {
 
       // Complete the append to the member.
       if (!request.entries().isEmpty()) {
-        member.completeAppend(System.nanoTime() - timestamp);
+        member.completeAppend(bytes, System.nanoTime() - timestamp);
       } else {
-        member.completeAppend();
+        member.completeAppend(bytes);
       }
 
       if (open) {
         if (error == null) {
           logger.trace("{} - Received {} from {}", context.getCluster().member().address(), response, member.getMember().address());
+
+          // If the member accepted the request's term, it will not elect another leader until an election timeout
+          // after it received the request, so record the time at which the request was sent as the member's lease time.
+          if (response.status() == Response.Status.OK && response.term() == request.term()) {
+            member.setLeaseTime(timestamp);
+          }
           handleAppendResponse(member, request, response);
         } else {
           handleAppendResponseFailure(member, request, error);
@@ -219,10 +263,24 @@ abstract class AbstractAppender implements AutoCloseable {
     }
   }
 
+  /**
+   * Returns the total size of the entries in the given request.
+   */
+  private static long requestSize(AppendRequest request) {
+    long size = 0;
+    for (Entry entry : request.entries()) {
+      size += entry.size();
+    }
+    return size;
+  }
+
   /**
    * Handles an append failure.
    */
   protected void handleAppendRequestFailure(MemberState member, AppendRequest request, Throwable error) {
+    // Send a single request to the member once it can be reached again.
+    member.appendFailed();
+
     // Log the failed attempt to contact the member.
     failAttempt(member, error);
   }
@@ -231,6 +289,9 @@ abstract class AbstractAppender implements AutoCloseable {
    * Handles an append failure.
    */
   protected void handleAppendResponseFailure(MemberState member, AppendRequest request, Throwable error) {
+    // Send a single request to the member once it can be reached again.
+    member.appendFailed();
+
     // Log the failed attempt to contact the member.
     failAttempt(member, error);
   }
@@ -326,8 +387,17 @@ abstract class AbstractAppender implements AutoCloseable {
    * Updates the match index when a response is received.
    */
   protected void updateMatchIndex(MemberState member, AppendResponse response) {
-    // If the replica returned a valid match index then update the existing match index.
-    member.setMatchIndex(response.logIndex());
+    // If the replica returned a valid match index then update the existing match index. Because append requests
+    // are pipelined, responses can be received out of order, so the match index is only ever increased here.
+    if (response.logIndex() > member.getMatchIndex()) {
+      member.setMatchIndex(response.logIndex());
+    }
+
+    // If the match index surpassed the next index (e.g. after the next index was reset while later requests were
+    // in flight), advance the next index to avoid resending entries the member already has.
+    if (member.getMatchIndex() >= member.getNextIndex()) {
+      member.setNextIndex(member.getMatchIndex() + 1);
+    }
   }
 
   /**
@@ -476,37 +546,67 @@ abstract class AbstractAppender implements AutoCloseable {
 
   /**
    * Builds an install request for the given member.
+   * <p>
+   * Chunks are read sequentially from the member's {@link SnapshotStream}, which is opened when a snapshot is first
+   * sent to the member and held open until the snapshot has been installed or the install fails. If the current
+   * snapshot is a delta snapshot, the chain of snapshots from the last full snapshot is sent in index order,
+   * starting after the last snapshot in the chain that has been installed on the member.
+   *
+   * @return The install request or {@code null} if all chunks of the snapshot have already been sent.
    */
   protected InstallRequest buildInstallRequest(MemberState member) {
-    Snapshot snapshot = context.getSnapshotStore().currentSnapshot();
-    if (member.getNextSnapshotIndex() != snapshot.index()) {
-      member.setNextSnapshotIndex(snapshot.index()).setNextSnapshotOffset(0);
+    Snapshot snapshot = nextSnapshot(member);
+    SnapshotStream stream = member.getSnapshotStream();
+    if (stream == null || stream.index() != snapshot.index()) {
+      stream = new SnapshotStream(snapshot, context.getMaxBatchSize());
+      member.setSnapshotStream(stream);
+    }
+
+    if (!stream.hasNext()) {
+      return null;
     }
 
-    InstallRequest request;
-    synchronized (snapshot) {
-      // Open a new snapshot reader.
-      try (SnapshotReader reader = snapshot.reader()) {
-        // Skip to the next batch of bytes according to the snapshot chunk size and current offset.
-        reader.skip(member.getNextSnapshotOffset() * MAX_BATCH_SIZE);
-        byte[] data = new byte[Math.min(MAX_BATCH_SIZE, (int) reader.remaining())];
-        reader.read(data);
-
-        // Create the install request, indicating whether this is the last chunk of data based on the number
-        // of bytes remaining in the buffer.
-        ServerMember leader = context.getLeader();
-        request = InstallRequest.builder()
-          .withTerm(context.getTerm())
-          .withLeader(leader != null ? leader.id() : 0)
-          .withIndex(member.getNextSnapshotIndex())
-          .withOffset(member.getNextSnapshotOffset())
-          .withData(data)
-          .withComplete(!reader.hasRemaining())
-          .build();
+    // Read the next chunk from the stream, indicating whether this is the last chunk of data based on the number
+    // of bytes remaining in the snapshot.
+    int offset = stream.nextOffset();
+    byte[] data = stream.next();
+    ServerMember leader = context.getLeader();
+    return InstallRequest.builder()
+      .withTerm(context.getTerm())
+      .withLeader(leader != null ? leader.id() : 0)
+      .withIndex(stream.index())
+      .withBase(snapshot.base())
+      .withCompression(snapshot.compression())
+      .withOffset(offset)
+      .withData(data)
+      .withComplete(stream.isComplete())
+      .build();
+  }
+
+  /**
+   * Returns the next snapshot in the chain of the current snapshot to send to the member.
+   */
+  private Snapshot nextSnapshot(MemberState member) {
+    List<Snapshot> chain = context.getSnapshotStore().chain(context.getSnapshotStore().currentSnapshot());
+    for (int i = chain.size() - 1; i > 0; i--) {
+      if (chain.get(i - 1).index() == member.getSnapshotIndex()) {
+        return chain.get(i);
       }
     }
+    return chain.get(0);
+  }
 
-    return request;
+  /**
+   * Sends as many chunks of the current snapshot to the member as can be in flight at once.
+   */
+  protected void installSnapshot(MemberState member) {
+    while (member.canInstall()) {
+      InstallRequest request = buildInstallRequest(member);
+      if (request == null) {
+        break;
+      }
+      sendInstallRequest(member, request);
+    }
   }
 
   /**
@@ -538,12 +638,19 @@ abstract class AbstractAppender implements AutoCloseable {
    */
   protected void sendInstallRequest(Connection connection, MemberState member, InstallRequest request) {
     logger.trace("{} - Sending {} to {}", context.getCluster().member().address(), request, member.getMember().serverAddress());
+    SnapshotStream stream = member.getSnapshotStream();
+    long time = System.nanoTime();
     connection.<InstallRequest, InstallResponse>sendAndReceive(request).whenComplete((response, error) -> {
       context.checkThread();
 
       // Complete the install to the member.
       member.completeInstall();
 
+      // Adapt the chunk size of the stream according to the round trip time of the chunk.
+      if (error == null && response.status() == Response.Status.OK && stream != null && stream == member.getSnapshotStream()) {
+        stream.acknowledge(System.nanoTime() - time, context.getHeartbeatInterval().toNanos());
+      }
+
       if (open) {
         if (error == null) {
           logger.trace("{} - Received {} from {}", context.getCluster().member().address(), response, member.getMember().serverAddress());
@@ -562,6 +669,10 @@ abstract class AbstractAppender implements AutoCloseable {
    * Handles an install request failure.
    */
   protected void handleInstallRequestFailure(MemberState member, InstallRequest request, Throwable error) {
+    // Close the member's snapshot stream to resend the snapshot from the start once a connection to the
+    // member is re-established.
+    member.setSnapshotStream(null);
+
     // Log the failed attempt to contact the member.
     failAttempt(member, error);
   }
@@ -570,9 +681,9 @@ abstract class AbstractAppender implements AutoCloseable {
    * Handles an install response failure.
    */
   protected void handleInstallResponseFailure(MemberState member, InstallRequest request, Throwable error) {
-    // Reset the member's snapshot index and offset to resend the snapshot from the start
+    // Close the member's snapshot stream to resend the snapshot from the start
     // once a connection to the member is re-established.
-    member.setNextSnapshotIndex(0).setNextSnapshotOffset(0);
+    member.setSnapshotStream(null);
 
     // Log the failed attempt to contact the member.
     failAttempt(member, error);
@@ -597,16 +708,11 @@ abstract class AbstractAppender implements AutoCloseable {
     // Reset the member failure count and update the member's status if necessary.
     succeedAttempt(member);
 
-    // If the install request was completed successfully, set the member's snapshotIndex and reset
-    // the next snapshot index/offset.
+    // If the install request was completed successfully, set the member's snapshotIndex and close
+    // the snapshot stream.
     if (request.complete()) {
       member.setSnapshotIndex(request.index())
-        .setNextSnapshotIndex(0)
-        .setNextSnapshotOffset(0);
-    }
-    // If more install requests remain, increment the member's snapshot offset.
-    else {
-      member.setNextSnapshotOffset(request.offset() + 1);
+        .setSnapshotStream(null);
     }
 
     // Recursively append entries to the member.
@@ -619,7 +725,13 @@ abstract class AbstractAppender implements AutoCloseable {
   @SuppressWarnings("unused")
   protected void handleInstallResponseError(MemberState member, InstallRequest request, InstallResponse response) {
     logger.warn("{} - Failed to install {}", context.getCluster().member().address(), member.getMember().serverAddress());
-    member.setNextSnapshotIndex(0).setNextSnapshotOffset(0);
+    member.setSnapshotStream(null);
+
+    // If a delta snapshot was rejected, the member may be missing the base snapshot, so resend the chain from
+    // the full snapshot.
+    if (request.base() > 0) {
+      member.setSnapshotIndex(0);
+    }
   }
 
   @Override
@@ -44,7 +44,22 @@ abstract class ActiveState extends PassiveState {
     // assign that term and leader to the current context and transition to follower.
     boolean transition = updateTermAndLeader(request.term(), request.leader());
 
-    CompletableFuture<AppendResponse> future = CompletableFuture.completedFuture(logResponse(handleAppend(request)));
+    AppendResponse response = handleAppend(request);
+
+    // If group commit is enabled, the appended entries must be flushed to disk before they're acknowledged since the
+    // leader counts them towards commitment. The log is flushed on the log's storage thread, and the response is sent
+    // once the flush is complete with the index up to which the log is durable.
+    CompletableFuture<AppendResponse> future;
+    if (response.status() == Response.Status.OK && response.succeeded() && context.getLog().needsFlush()) {
+      future = context.getLog().flushAsync().thenApplyAsync(index -> logResponse(AppendResponse.builder()
+        .withStatus(Response.Status.OK)
+        .withTerm(response.term())
+        .withSucceeded(true)
+        .withLogIndex(Math.min(response.logIndex(), index))
+        .build()), context.getThreadContext().executor());
+    } else {
+      future = CompletableFuture.completedFuture(logResponse(response));
+    }
 
     // If a transition is required then transition back to the follower state.
     // If the node is already a follower then the transition will be ignored.
@@ -62,7 +77,7 @@ abstract class ActiveState extends PassiveState {
         .withStatus(Response.Status.OK)
         .withTerm(context.getTerm())
         .withSucceeded(false)
-        .withLogIndex(context.getLog().lastIndex())
+        .withLogIndex(rejectedIndex(context.getLog().lastIndex()))
         .build();
     } else if (request.logIndex() != 0 && context.getLog().lastIndex() != 0 && request.logIndex() > context.getLog().lastIndex()) {
       LOGGER.debug("{} - Rejected {}: Previous index ({}) is greater than the local log's last index ({})", context.getCluster().member().address(), request, request.logIndex(), context.getLog().lastIndex());
@@ -70,7 +85,7 @@ abstract class ActiveState extends PassiveState {
         .withStatus(Response.Status.OK)
         .withTerm(context.getTerm())
         .withSucceeded(false)
-        .withLogIndex(context.getLog().lastIndex())
+        .withLogIndex(rejectedIndex(context.getLog().lastIndex()))
         .build();
     }
 
@@ -82,13 +97,24 @@ abstract class ActiveState extends PassiveState {
         .withStatus(Response.Status.OK)
         .withTerm(context.getTerm())
         .withSucceeded(false)
-        .withLogIndex(request.logIndex() <= context.getLog().lastIndex() ? request.logIndex() - 1 : context.getLog().lastIndex())
+        .withLogIndex(rejectedIndex(request.logIndex() <= context.getLog().lastIndex() ? request.logIndex() - 1 : context.getLog().lastIndex()))
         .build();
     } else {
       return appendEntries(request);
     }
   }
 
+  /**
+   * Returns the last index to report to the leader when an append request is rejected.
+   * <p>
+   * Pipelined requests can arrive before the entries appended by earlier requests have been flushed to disk.
+   * The leader resets the member's match index from the index in a rejected response, so the index is bounded
+   * by the log's flushed index to prevent unflushed entries from being counted towards commitment.
+   */
+  private long rejectedIndex(long index) {
+    return Math.min(index, context.getLog().flushedIndex());
+  }
+
   @Override
   protected AppendResponse appendEntries(AppendRequest request) {
     // Get the last entry index or default to the request log index.
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2017-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.state;
+
+/**
+ * Point-in-time metrics for the batches of entries sent to a member of the cluster.
+ * <p>
+ * The leader replicates entries to each member in batches whose size adapts to the member's lag and round trip
+ * times. Batch metrics are only updated while the local server is the leader. The current {@link #batchSize()} and
+ * {@link #lastBatchSize()} are reset when the member's replication state is reset at the start of a leader's term.
+ *
+ * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
+ */
+public final class BatchMetrics {
+  private final int batchSize;
+  private final long lastBatchSize;
+  private final long averageBatchSize;
+  private final long batchCount;
+
+  BatchMetrics(int batchSize, long lastBatchSize, long averageBatchSize, long batchCount) {
+    this.batchSize = batchSize;
+    this.lastBatchSize = lastBatchSize;
+    this.averageBatchSize = averageBatchSize;
+    this.batchCount = batchCount;
+  }
+
+  /**
+   * Returns the target size of the next batch of entries to send to the member.
+   *
+   * @return The target size of the next batch of entries in bytes.
+   */
+  public int batchSize() {
+    return batchSize;
+  }
+
+  /**
+   * Returns the size of the last non-empty batch of entries sent to the member.
+   *
+   * @return The size of the last batch of entries in bytes.
+   */
+  public long lastBatchSize() {
+    return lastBatchSize;
+  }
+
+  /**
+   * Returns the average size of the non-empty batches of entries sent to the member.
+   *
+   * @return The average size of batches of entries in bytes.
+   */
+  public long averageBatchSize() {
+    return averageBatchSize;
+  }
+
+  /**
+   * Returns the total number of non-empty batches of entries sent to the member.
+   *
+   * @return The total number of batches of entries sent to the member.
+   */
+  public long batchCount() {
+    return batchCount;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s[batchSize=%d, lastBatchSize=%d, averageBatchSize=%d, batchCount=%d]", getClass().getSimpleName(), batchSize, lastBatchSize, averageBatchSize, batchCount);
+  }
+
+}
@@ -55,9 +55,7 @@ final class FollowerAppender extends AbstractAppender {
     if (context.getSnapshotStore().currentSnapshot() != null
       && context.getSnapshotStore().currentSnapshot().index() >= member.getNextIndex()
       && context.getSnapshotStore().currentSnapshot().index() > member.getSnapshotIndex()) {
-      if (member.canInstall()) {
-        sendInstallRequest(member, buildInstallRequest(member));
-      }
+      installSnapshot(member);
     }
     // If no AppendRequest is already being sent, send an AppendRequest.
     else if (member.canAppend() && hasMoreEntries(member)) {
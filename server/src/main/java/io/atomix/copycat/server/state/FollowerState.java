@@ -16,6 +16,7 @@
 package io.atomix.copycat.server.state;
 
 import io.atomix.catalyst.concurrent.Scheduled;
+import io.atomix.copycat.protocol.Response;
 import io.atomix.copycat.server.CopycatServer;
 import io.atomix.copycat.server.protocol.*;
 import io.atomix.copycat.server.storage.entry.Entry;
@@ -172,9 +173,63 @@ final class FollowerState extends ActiveState {
     }
   }
 
+  /**
+   * Records the time at which a request from the leader was accepted if the request is from the current term.
+   */
+  private void updateLeaderTime(long term) {
+    if (term == context.getTerm() && context.getLeader() != null) {
+      context.setLeaderTime(System.nanoTime());
+    }
+  }
+
+  /**
+   * Returns a boolean indicating whether the leader's lease must be respected for the given candidate.
+   * <p>
+   * The leader serves lease-based queries for an election timeout after a majority of the cluster accepted its
+   * request, so votes must not be granted to any other candidate within an election timeout of accepting a
+   * request from the leader or of the server being started. The time is tracked by the server context rather than
+   * the follower, so a follower created by stepping down or losing an election is only bound by requests the server
+   * actually accepted from a leader.
+   */
+  private boolean isLeaderLeased(int candidate) {
+    ServerMember leader = context.getLeader();
+    long leaderTime = context.getLeaderTime();
+    return (leader == null || leader.id() != candidate)
+      && leaderTime != 0 && System.nanoTime() - leaderTime < context.getElectionTimeout().toNanos();
+  }
+
+  @Override
+  public CompletableFuture<PollResponse> poll(PollRequest request) {
+    if (isLeaderLeased(request.candidate())) {
+      logRequest(request);
+      LOGGER.debug("{} - Rejected {}: leader lease has not expired", context.getCluster().member().address(), request);
+      return CompletableFuture.completedFuture(logResponse(PollResponse.builder()
+        .withStatus(Response.Status.OK)
+        .withTerm(context.getTerm())
+        .withAccepted(false)
+        .build()));
+    }
+    return super.poll(request);
+  }
+
+  @Override
+  public CompletableFuture<VoteResponse> vote(VoteRequest request) {
+    if (isLeaderLeased(request.candidate())) {
+      logRequest(request);
+      LOGGER.debug("{} - Rejected {}: leader lease has not expired", context.getCluster().member().address(), request);
+      return CompletableFuture.completedFuture(logResponse(VoteResponse.builder()
+        .withStatus(Response.Status.OK)
+        .withTerm(context.getTerm())
+        .withVoted(false)
+        .build()));
+    }
+    return super.vote(request);
+  }
+
   @Override
   public CompletableFuture<InstallResponse> install(InstallRequest request) {
     CompletableFuture<InstallResponse> future = super.install(request);
+    updateLeaderTime(request.term());
     resetHeartbeatTimeout();
     return future;
   }
@@ -182,6 +237,7 @@ final class FollowerState extends ActiveState {
   @Override
   public CompletableFuture<ConfigureResponse> configure(ConfigureRequest request) {
     CompletableFuture<ConfigureResponse> future = super.configure(request);
+    updateLeaderTime(request.term());
     resetHeartbeatTimeout();
     return future;
   }
@@ -190,7 +246,8 @@ final class FollowerState extends ActiveState {
   public CompletableFuture<AppendResponse> append(AppendRequest request) {
     CompletableFuture<AppendResponse> future = super.append(request);
 
-    // Reset the heartbeat timeout.
+    // Record the leader contact and reset the heartbeat timeout.
+    updateLeaderTime(request.term());
     resetHeartbeatTimeout();
 
     // Send AppendEntries requests to passive members if necessary.
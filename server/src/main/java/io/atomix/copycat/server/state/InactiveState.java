@@ -123,6 +123,11 @@ class InactiveState extends AbstractState {
     return Futures.exceptionalFuture(new IllegalStateException("inactive state"));
   }
 
+  @Override
+  public CompletableFuture<ReadIndexResponse> readIndex(ReadIndexRequest request) {
+    return Futures.exceptionalFuture(new IllegalStateException("inactive state"));
+  }
+
   @Override
   public CompletableFuture<CommandResponse> command(CommandRequest request) {
     return Futures.exceptionalFuture(new IllegalStateException("inactive state"));
@@ -27,10 +27,11 @@ import io.atomix.copycat.server.protocol.ConfigureResponse;
 import io.atomix.copycat.server.protocol.InstallRequest;
 import io.atomix.copycat.server.protocol.InstallResponse;
 
+import java.time.Duration;
 import java.time.Instant;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -45,18 +46,21 @@ final class LeaderAppender extends AbstractAppender {
 
   private final LeaderState leader;
   private final long leaderTime;
+  private final long leaseStartTime;
   private final long leaderIndex;
   private final long heartbeatInterval;
   private long heartbeatTime;
   private int heartbeatFailures;
   private CompletableFuture<Long> heartbeatFuture;
   private CompletableFuture<Long> nextHeartbeatFuture;
-  private final Map<Long, CompletableFuture<Long>> appendFutures = new HashMap<>();
+  private boolean flushing;
+  private final TreeMap<Long, CompletableFuture<Long>> appendFutures = new TreeMap<>();
 
   LeaderAppender(LeaderState leader) {
     super(leader.context);
     this.leader = Assert.notNull(leader, "leader");
     this.leaderTime = System.currentTimeMillis();
+    this.leaseStartTime = System.nanoTime();
     this.leaderIndex = context.getLog().nextIndex();
     this.heartbeatTime = leaderTime;
     this.heartbeatInterval = context.getHeartbeatInterval().toMillis();
@@ -139,23 +143,42 @@ final class LeaderAppender extends AbstractAppender {
     if (index == 0)
       return appendEntries();
 
-    if (index <= context.getCommitIndex())
+    // If the entry has been committed but has not yet been flushed to disk on commit, the future is completed
+    // once the flush started by the commit is complete.
+    if (index <= context.getCommitIndex()) {
+      if (context.getStorage().flushOnCommit() && index > context.getLog().durableCommitIndex()) {
+        return appendFutures.computeIfAbsent(index, i -> new CompletableFuture<>());
+      }
       return CompletableFuture.completedFuture(index);
+    }
+
+    // If group commit is enabled, ensure the entry is flushed to disk in the next batch. The index cannot
+    // count towards commitment on the leader until it has been flushed.
+    scheduleFlush();
+
+    // If the entry has not yet been flushed to disk, it can't be committed until a quorum of servers
+    // including or excluding the leader have persisted the entry.
+    if (index > context.getLog().flushedIndex()) {
+      return appendFutures.computeIfAbsent(index, i -> {
+        for (MemberState member : context.getClusterState().getActiveMemberStates()) {
+          appendEntries(member);
+        }
+        return new CompletableFuture<>();
+      });
+    }
 
     // If there are no other stateful servers in the cluster, immediately commit the index.
     if (context.getClusterState().getActiveMemberStates().isEmpty() && context.getClusterState().getPassiveMemberStates().isEmpty()) {
-      long previousCommitIndex = context.getCommitIndex();
       context.setCommitIndex(index);
       context.setGlobalIndex(index);
-      completeCommits(previousCommitIndex, index);
+      completeCommits(index);
       return CompletableFuture.completedFuture(index);
     }
     // If there are no other active members in the cluster, update the commit index and complete the commit.
     // The updated commit index will be sent to passive/reserve members on heartbeats.
     else if (context.getClusterState().getActiveMemberStates().isEmpty()) {
-      long previousCommitIndex = context.getCommitIndex();
       context.setCommitIndex(index);
-      completeCommits(previousCommitIndex, index);
+      completeCommits(index);
       return CompletableFuture.completedFuture(index);
     }
 
@@ -204,9 +227,7 @@ final class LeaderAppender extends AbstractAppender {
     else if (member.getMember().type() == Member.Type.ACTIVE && context.getSnapshotStore().currentSnapshot() != null
       && context.getSnapshotStore().currentSnapshot().index() >= member.getNextIndex()
       && context.getSnapshotStore().currentSnapshot().index() > member.getSnapshotIndex()) {
-      if (member.canInstall()) {
-        sendInstallRequest(member, buildInstallRequest(member));
-      }
+      installSnapshot(member);
     }
     // If no AppendRequest is already being sent, send an AppendRequest.
     else if (member.canAppend()) {
@@ -237,6 +258,44 @@ final class LeaderAppender extends AbstractAppender {
     return System.currentTimeMillis();
   }
 
+  /**
+   * Returns a boolean indicating whether the leader holds a lease over the cluster.
+   * <p>
+   * The leader holds a lease once an entry from its term has been committed and for an election timeout, less the
+   * maximum clock drift, after sending an append request that was accepted by a majority of the cluster. Followers
+   * will not vote for another candidate within an election timeout of accepting a request from the leader, so no
+   * other leader can be elected while the lease is held.
+   *
+   * @return Indicates whether the leader holds a lease over the cluster.
+   */
+  public boolean hasLease() {
+    if (context.getCommitIndex() < leaderIndex) {
+      return false;
+    }
+    return leaseAge(System.nanoTime()) < context.getElectionTimeout().toNanos() - context.getMaxClockDrift().toNanos();
+  }
+
+  /**
+   * Returns the number of nanoseconds since the last request accepted by a majority of the cluster was sent.
+   * <p>
+   * This is calculated in the same manner as the {@link #heartbeatTime() heartbeat time}, but using the time at which
+   * requests accepted by each member were sent rather than the time at which responses were received. Lease times
+   * are {@link System#nanoTime()} values, so they're compared by their age rather than their value, and requests
+   * sent before this leader's term began are ignored.
+   */
+  private long leaseAge(long currentTime) {
+    int quorumIndex = quorumIndex();
+    if (quorumIndex >= 0) {
+      return context.getClusterState().getActiveMemberStates().stream()
+        .mapToLong(m -> m.getLeaseTime() != 0 && m.getLeaseTime() - leaseStartTime >= 0 ? currentTime - m.getLeaseTime() : Long.MAX_VALUE)
+        .sorted()
+        .skip(quorumIndex)
+        .findFirst()
+        .orElse(Long.MAX_VALUE);
+    }
+    return 0;
+  }
+
   /**
    * Sets a commit time or fails the commit if a quorum of successful responses cannot be achieved.
    */
@@ -277,6 +336,7 @@ final class LeaderAppender extends AbstractAppender {
     heartbeatFuture = nextHeartbeatFuture;
     nextHeartbeatFuture = null;
     updateGlobalIndex();
+    updateCacheIndex();
     if (heartbeatFuture != null) {
       heartbeatTime = System.currentTimeMillis();
       for (MemberState member : context.getClusterState().getRemoteMemberStates()) {
@@ -305,6 +365,75 @@ final class LeaderAppender extends AbstractAppender {
     context.setGlobalIndex(globalMatchIndex);
   }
 
+  /**
+   * Pins the log's entry cache to the entries that have yet to be replicated or applied.
+   * <p>
+   * The cache is pinned to the lowest nextIndex of all available followers or the next index to be applied to
+   * the state machine, whichever is lower, so cached entries are reused for all followers catching up from the
+   * slowest follower onward. Members that have been unavailable longer than the global suspend timeout are
+   * ignored, as with the global index.
+   */
+  private void updateCacheIndex() {
+    long currentTime = System.currentTimeMillis();
+    long nextIndex = context.getClusterState().getRemoteMemberStates().stream()
+      .filter(m -> m.getMember().type() != Member.Type.RESERVE && (m.getMember().status() == Member.Status.AVAILABLE || currentTime - m.getMember().updated().toEpochMilli() < context.getGlobalSuspendTimeout().toMillis()))
+      .mapToLong(MemberState::getNextIndex)
+      .min()
+      .orElse(Long.MAX_VALUE);
+    context.getLog().cache().pin(Math.min(nextIndex, context.getStateMachine().getLastApplied() + 1));
+  }
+
+  /**
+   * Schedules a group flush of the log if entries are waiting to be flushed to disk.
+   * <p>
+   * When group commit is enabled, entries appended to the log within a single event loop turn (or within the
+   * configured group commit latency) are flushed to disk together. Only a single flush is scheduled at any given
+   * time, and once the flush is complete commit futures are checked against the new flushed index.
+   */
+  private void scheduleFlush() {
+    if (!flushing && context.getLog().needsFlush()) {
+      flushing = true;
+      Duration latency = context.getStorage().groupCommitLatency();
+      if (latency.isZero()) {
+        context.getThreadContext().execute(this::flushEntries);
+      } else {
+        context.getThreadContext().schedule(latency, this::flushEntries);
+      }
+    }
+  }
+
+  /**
+   * Flushes a batch of entries to disk and checks whether any futures can be completed.
+   * <p>
+   * The log is flushed on the log's storage thread. Once the flush is complete, commit futures are checked against
+   * the new flushed index and another flush is scheduled if more entries were appended during the flush.
+   */
+  private void flushEntries() {
+    context.checkThread();
+    if (!open) {
+      flushing = false;
+      return;
+    }
+
+    // The log may already have been flushed if the batch size was reached during an append.
+    if (!context.getLog().needsFlush()) {
+      flushing = false;
+      commitEntries();
+      return;
+    }
+
+    context.getLog().flushAsync().whenCompleteAsync((index, error) -> {
+      flushing = false;
+      if (open) {
+        if (error != null) {
+          logger.warn("{} - Failed to flush log", context.getCluster().member().address(), error);
+        }
+        commitEntries();
+        scheduleFlush();
+      }
+    }, context.getThreadContext().executor());
+  }
+
   /**
    * Checks whether any futures can be completed.
    */
@@ -321,14 +450,28 @@ final class LeaderAppender extends AbstractAppender {
     // ensure all commit futures are completed and cleared.
     if (members.isEmpty()) {
       long previousCommitIndex = context.getCommitIndex();
-      long commitIndex = context.getLog().lastIndex();
-      context.setCommitIndex(commitIndex);
-      completeCommits(previousCommitIndex, commitIndex);
+      long commitIndex = context.getLog().flushedIndex();
+      if (commitIndex > previousCommitIndex) {
+        context.setCommitIndex(commitIndex);
+        if (context.getClusterState().getPassiveMemberStates().isEmpty()) {
+          context.setGlobalIndex(commitIndex);
+        }
+        completeCommits(commitIndex);
+      }
       return;
     }
 
-    // Calculate the current commit index as the median matchIndex.
-    long commitIndex = members.get(quorumIndex()).getMatchIndex();
+    // Calculate the current commit index as the median matchIndex. The leader's own log counts towards the
+    // quorum only up to the index that has been flushed to disk. If the leader's flushed index is behind the
+    // quorum member's matchIndex, the commit index is bounded by the next member's matchIndex or the leader's
+    // flushed index, whichever is greater.
+    int quorumIndex = quorumIndex();
+    long commitIndex = members.get(quorumIndex).getMatchIndex();
+    long flushedIndex = context.getLog().flushedIndex();
+    if (flushedIndex < commitIndex) {
+      long nextMatchIndex = quorumIndex + 1 < members.size() ? members.get(quorumIndex + 1).getMatchIndex() : 0;
+      commitIndex = Math.max(flushedIndex, nextMatchIndex);
+    }
 
     // If the commit index has increased then update the commit index. Note that in order to ensure
     // the leader completeness property holds, we verify that the commit index is greater than or equal to
@@ -336,19 +479,37 @@ final class LeaderAppender extends AbstractAppender {
     long previousCommitIndex = context.getCommitIndex();
     if (commitIndex > 0 && commitIndex > previousCommitIndex && (leaderIndex > 0 && commitIndex >= leaderIndex)) {
       context.setCommitIndex(commitIndex);
-      completeCommits(previousCommitIndex, commitIndex);
+      completeCommits(commitIndex);
     }
   }
 
   /**
    * Completes append entries attempts up to the given index.
+   * <p>
+   * If committed entries are flushed on commit, commits are only completed once the entries have been flushed to
+   * disk. The remaining commits are completed once the flush started by the commit is complete.
    */
-  private void completeCommits(long previousCommitIndex, long commitIndex) {
-    for (long i = previousCommitIndex + 1; i <= commitIndex; i++) {
-      CompletableFuture<Long> future = appendFutures.remove(i);
-      if (future != null) {
-        future.complete(i);
+  private void completeCommits(long commitIndex) {
+    long completeIndex = commitIndex;
+    if (context.getStorage().flushOnCommit() && commitIndex > context.getLog().durableCommitIndex()) {
+      CompletableFuture<Long> future = context.getLog().flushAsync(commitIndex);
+      if (!future.isDone()) {
+        future.whenCompleteAsync((flushedIndex, error) -> {
+          if (open) {
+            if (error == null) {
+              completeCommits(context.getCommitIndex());
+            } else {
+              logger.warn("{} - Failed to flush log", context.getCluster().member().address(), error);
+            }
+          }
+        }, context.getThreadContext().executor());
       }
+      completeIndex = Math.min(commitIndex, context.getLog().durableCommitIndex());
+    }
+
+    while (!appendFutures.isEmpty() && appendFutures.firstKey() <= completeIndex) {
+      Map.Entry<Long, CompletableFuture<Long>> entry = appendFutures.pollFirstEntry();
+      entry.getValue().complete(entry.getKey());
     }
   }
 
@@ -420,6 +581,13 @@ final class LeaderAppender extends AbstractAppender {
       context.setTerm(response.term()).setLeader(0);
       context.transition(CopycatServer.State.FOLLOWER);
     }
+    // If the request preceded the member's known match index, the rejection is a stale response to a pipelined
+    // request that has since been superseded by a successful append, so ignore it.
+    else if (request.logIndex() < member.getMatchIndex()) {
+      if (hasMoreEntries(member)) {
+        appendEntries(member);
+      }
+    }
     // If the response failed, the follower should have provided the correct last index in their log. This helps
     // us converge on the matchIndex faster than by simply decrementing nextIndex one index at a time.
     else {
@@ -529,4 +697,14 @@ final class LeaderAppender extends AbstractAppender {
     super.handleInstallResponseFailure(member, request, error);
   }
 
+  @Override
+  public void close() {
+    super.close();
+
+    // Unpin the entry cache once the server is no longer replicating entries to followers.
+    if (!context.getLog().isClosed()) {
+      context.getLog().cache().pin(0);
+    }
+  }
+
 }
@@ -453,6 +453,42 @@ final class LeaderState extends ActiveState {
     }
   }
 
+  @Override
+  public CompletableFuture<ReadIndexResponse> readIndex(ReadIndexRequest request) {
+    context.checkThread();
+    logRequest(request);
+
+    // The commit index can't be used as a read index until an entry from the leader's term has been committed,
+    // since prior to that the leader may not know the latest committed index.
+    long commitIndex = context.getCommitIndex();
+    if (commitIndex < appender.index()) {
+      return CompletableFuture.completedFuture(logResponse(ReadIndexResponse.builder()
+        .withStatus(Response.Status.ERROR)
+        .withError(CopycatError.Type.QUERY_ERROR)
+        .build()));
+    }
+
+    // If the request allows the leader to use its lease and the lease is held, respond immediately.
+    // Otherwise, verify the leader's leadership with a heartbeat to a majority of the cluster.
+    if (request.lease() && appender.hasLease()) {
+      return CompletableFuture.completedFuture(logResponse(ReadIndexResponse.builder()
+        .withStatus(Response.Status.OK)
+        .withIndex(commitIndex)
+        .build()));
+    }
+
+    return appender.appendEntries()
+      .thenApply(index -> ReadIndexResponse.builder()
+        .withStatus(Response.Status.OK)
+        .withIndex(commitIndex)
+        .build())
+      .exceptionally(error -> ReadIndexResponse.builder()
+        .withStatus(Response.Status.ERROR)
+        .withError(CopycatError.Type.QUERY_ERROR)
+        .build())
+      .thenApply(this::logResponse);
+  }
+
   @Override
   public CompletableFuture<AppendResponse> append(final AppendRequest request) {
     context.checkThread();
@@ -573,6 +609,7 @@ final class LeaderState extends ActiveState {
       case SEQUENTIAL:
         return queryLocal(entry);
       case LINEARIZABLE_LEASE:
+      case BOUNDED_STALENESS:
         return queryBoundedLinearizable(entry);
       case LINEARIZABLE:
         return queryLinearizable(entry);
@@ -584,11 +621,16 @@ final class LeaderState extends ActiveState {
   /**
    * Executes a bounded linearizable query.
    * <p>
-   * Bounded linearizable queries succeed as long as this server remains the leader. This is possible
-   * since the leader will step down in the event it fails to contact a majority of the cluster.
+   * Bounded linearizable queries are applied without contacting the rest of the cluster as long as the leader
+   * holds a lease, since no other leader can be elected until the lease expires. If the lease has expired, the
+   * query is handled as a linearizable query, and the heartbeat that verifies the leader's leadership renews
+   * the lease for subsequent queries.
    */
   private CompletableFuture<QueryResponse> queryBoundedLinearizable(QueryEntry entry) {
-    return sequenceAndApply(entry);
+    if (appender.hasLease()) {
+      return sequenceAndApply(entry);
+    }
+    return queryLinearizable(entry);
   }
 
   /**
@@ -17,6 +17,7 @@ package io.atomix.copycat.server.state;
 
 import io.atomix.catalyst.util.Assert;
 import io.atomix.copycat.server.storage.Log;
+import io.atomix.copycat.server.storage.LogReader;
 
 /**
  * Cluster member state.
@@ -24,43 +25,59 @@ import io.atomix.copycat.server.storage.Log;
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
 final class MemberState {
-  private static final int MAX_APPENDS = 2;
   private final ServerMember member;
+  private final ClusterState cluster;
   private long term;
   private long configIndex;
   private long snapshotIndex;
-  private long nextSnapshotIndex;
-  private int nextSnapshotOffset;
+  private SnapshotStream snapshotStream;
   private long matchIndex;
   private long nextIndex;
   private long heartbeatTime;
   private long heartbeatStartTime;
+  private long leaseTime;
   private int appending;
+  private long appendBytes;
   private boolean appendSucceeded;
+  private boolean appendPipelined;
   private long appendTime;
+  private volatile int batchSize;
+  private volatile long lastBatchSize;
+  private volatile long batchCount;
+  private volatile long batchBytes;
   private boolean configuring;
-  private boolean installing;
+  private int installing;
   private int failures;
+  private LogReader reader;
   private final TimeBuffer timeBuffer = new TimeBuffer(8);
 
   public MemberState(ServerMember member, ClusterState cluster) {
     this.member = Assert.notNull(member, "member").setCluster(cluster);
+    this.cluster = cluster;
   }
 
   /**
    * Resets the member state.
    */
   void resetState(Log log) {
-    nextSnapshotIndex = 0;
-    nextSnapshotOffset = 0;
+    setSnapshotStream(null);
     matchIndex = 0;
     nextIndex = log.lastIndex() + 1;
+    if (reader != null) {
+      reader.close();
+      reader = null;
+    }
     heartbeatTime = 0;
     heartbeatStartTime = 0;
+    leaseTime = 0;
     appending = 0;
+    appendBytes = 0;
+    appendPipelined = false;
+    batchSize = 0;
+    lastBatchSize = 0;
     timeBuffer.reset();
     configuring = false;
-    installing = false;
+    installing = 0;
     appendSucceeded = false;
     failures = 0;
   }
@@ -74,6 +91,26 @@ final class MemberState {
     return member;
   }
 
+  /**
+   * Returns the reader with which entries are read from the log for replication to the member.
+   *
+   * @return The member's log reader or {@code null} if no reader has been opened.
+   */
+  LogReader getLogReader() {
+    return reader;
+  }
+
+  /**
+   * Sets the reader with which entries are read from the log for replication to the member.
+   *
+   * @param reader The member's log reader.
+   * @return The member state.
+   */
+  MemberState setLogReader(LogReader reader) {
+    this.reader = reader;
+    return this;
+  }
+
   /**
    * Returns the member term.
    *
@@ -135,42 +172,25 @@ final class MemberState {
   }
 
   /**
-   * Returns the member's next snapshot index.
+   * Returns the stream with which a snapshot is being sent to the member.
    *
-   * @return The member's next snapshot index.
+   * @return The member's snapshot stream or {@code null} if no snapshot is being sent.
    */
-  long getNextSnapshotIndex() {
-    return nextSnapshotIndex;
+  SnapshotStream getSnapshotStream() {
+    return snapshotStream;
   }
 
   /**
-   * Sets the member's next snapshot index.
+   * Sets the stream with which a snapshot is being sent to the member, closing the previous stream.
    *
-   * @param nextSnapshotIndex The member's next snapshot index.
+   * @param snapshotStream The member's snapshot stream.
    * @return The member state.
    */
-  MemberState setNextSnapshotIndex(long nextSnapshotIndex) {
-    this.nextSnapshotIndex = nextSnapshotIndex;
-    return this;
-  }
-
-  /**
-   * Returns the member's snapshot offset.
-   *
-   * @return The member's snapshot offset.
-   */
-  int getNextSnapshotOffset() {
-    return nextSnapshotOffset;
-  }
-
-  /**
-   * Sets the member's snapshot offset.
-   *
-   * @param nextSnapshotOffset The member's snapshot offset.
-   * @return The member state.
-   */
-  MemberState setNextSnapshotOffset(int nextSnapshotOffset) {
-    this.nextSnapshotOffset = nextSnapshotOffset;
+  MemberState setSnapshotStream(SnapshotStream snapshotStream) {
+    if (this.snapshotStream != null && this.snapshotStream != snapshotStream) {
+      this.snapshotStream.close();
+    }
+    this.snapshotStream = snapshotStream;
     return this;
   }
 
@@ -216,11 +236,42 @@ final class MemberState {
 
   /**
    * Returns a boolean indicating whether an append request can be sent to the member.
+   * <p>
+   * Append requests are pipelined to the member up to the configured maximum number of requests and bytes in
+   * flight. If the last append to the member failed, only a single request may be outstanding at any given time.
+   * When the member is caught up, pipelined requests are spaced over the average round trip time to allow entries
+   * to be batched. When the member is behind the leader, full batches are sent as quickly as the window allows.
    *
    * @return Indicates whether an append request can be sent to the member.
    */
   boolean canAppend() {
-    return appending == 0 || (appendSucceeded && appending < MAX_APPENDS && System.nanoTime() - (timeBuffer.average() / MAX_APPENDS) >= appendTime);
+    if (appending == 0) {
+      return true;
+    }
+
+    int maxAppends = cluster.getContext().getMaxAppendsPerFollower();
+    return appendSucceeded
+      && appending < maxAppends
+      && appendBytes < cluster.getContext().getMaxAppendBytesPerFollower()
+      && (appendPipelined || System.nanoTime() - (timeBuffer.average() / maxAppends) >= appendTime);
+  }
+
+  /**
+   * Returns the number of append requests currently outstanding to the member.
+   *
+   * @return The number of append requests currently outstanding to the member.
+   */
+  int getAppending() {
+    return appending;
+  }
+
+  /**
+   * Returns the number of entry bytes currently in flight to the member.
+   *
+   * @return The number of entry bytes currently in flight to the member.
+   */
+  long getAppendBytes() {
+    return appendBytes;
   }
 
   /**
@@ -255,10 +306,14 @@ final class MemberState {
   /**
    * Starts an append request to the member.
    *
+   * @param bytes The number of entry bytes in the request.
+   * @param pipelined Whether more entries remain to be sent to the member after the request.
    * @return The member state.
    */
-  MemberState startAppend() {
+  MemberState startAppend(long bytes, boolean pipelined) {
     appending++;
+    appendBytes += bytes;
+    appendPipelined = pipelined;
     appendTime = System.nanoTime();
     return this;
   }
@@ -266,22 +321,105 @@ final class MemberState {
   /**
    * Completes an append request to the member.
    *
+   * @param bytes The number of entry bytes in the request.
    * @return The member state.
    */
-  MemberState completeAppend() {
+  MemberState completeAppend(long bytes) {
     appending--;
+    appendBytes = Math.max(appendBytes - bytes, 0);
     return this;
   }
 
   /**
    * Completes an append request to the member.
    *
-   * @param time The time in milliseconds for the append.
+   * @param bytes The number of entry bytes in the request.
+   * @param time The time in nanoseconds for the append.
    * @return The member state.
    */
-  MemberState completeAppend(long time) {
+  MemberState completeAppend(long bytes, long time) {
     timeBuffer.record(time);
-    return completeAppend();
+    return completeAppend(bytes);
+  }
+
+  /**
+   * Returns the target size of the next batch of entries to send to the member.
+   *
+   * @return The target size of the next batch of entries to send to the member in bytes.
+   */
+  int getBatchSize() {
+    return batchSize > 0 ? batchSize : cluster.getContext().getMinBatchSize();
+  }
+
+  /**
+   * Returns the size of the last batch of entries sent to the member.
+   *
+   * @return The size of the last batch of entries sent to the member in bytes.
+   */
+  long getLastBatchSize() {
+    return lastBatchSize;
+  }
+
+  /**
+   * Returns the total number of non-empty batches sent to the member.
+   *
+   * @return The total number of non-empty batches sent to the member.
+   */
+  long getBatchCount() {
+    return batchCount;
+  }
+
+  /**
+   * Returns the average size of batches sent to the member.
+   *
+   * @return The average size of batches sent to the member in bytes.
+   */
+  long getAverageBatchSize() {
+    return batchCount > 0 ? batchBytes / batchCount : 0;
+  }
+
+  /**
+   * Returns a point-in-time view of the metrics for batches sent to the member.
+   *
+   * @return The member's batch metrics.
+   */
+  BatchMetrics getBatchMetrics() {
+    return new BatchMetrics(getBatchSize(), getLastBatchSize(), getAverageBatchSize(), getBatchCount());
+  }
+
+  /**
+   * Records a batch of entries sent to the member and adapts the size of the next batch.
+   * <p>
+   * While the member is behind the leader and batches are being cut off by the batch size, the batch size is doubled
+   * up to the configured maximum so long as the average round trip time to the member remains within the heartbeat
+   * interval. If round trips exceed the heartbeat interval, batches are halved to avoid starving the member of
+   * heartbeats. Once the member has caught up to the leader, the batch size shrinks back toward the configured minimum
+   * to keep replication latency low at the head of the log.
+   *
+   * @param bytes The size of the batch in bytes.
+   * @param lag The number of entries remaining to be sent to the member after the batch.
+   * @param truncated Whether the batch was cut off by the batch size before reaching the last entry to send.
+   * @return The member state.
+   */
+  MemberState recordBatch(long bytes, long lag, boolean truncated) {
+    if (bytes > 0) {
+      lastBatchSize = bytes;
+      batchCount++;
+      batchBytes += bytes;
+    }
+
+    ServerContext context = cluster.getContext();
+    int currentSize = getBatchSize();
+    if (truncated) {
+      if (timeBuffer.average() <= context.getHeartbeatInterval().toNanos()) {
+        batchSize = (int) Math.min((long) currentSize * 2, context.getMaxBatchSize());
+      } else {
+        batchSize = Math.max(currentSize / 2, context.getMinBatchSize());
+      }
+    } else if (lag == 0) {
+      batchSize = Math.max(currentSize / 2, context.getMinBatchSize());
+    }
+    return this;
   }
 
   /**
@@ -315,11 +453,30 @@ final class MemberState {
 
   /**
    * Returns a boolean indicating whether an install request can be sent to the member.
+   * <p>
+   * Only a single install request is sent until the member has acknowledged the first chunk of a snapshot, since
+   * requests sent while a connection is being established may be sent out of order. Thereafter, up to
+   * {@link ServerContext#getMaxAppendsPerFollower()} chunks may be in flight to the member at once.
    *
    * @return Indicates whether an install request can be sent to the member.
    */
   boolean canInstall() {
-    return !installing;
+    if (installing == 0) {
+      return true;
+    }
+    return snapshotStream != null
+      && snapshotStream.acknowledged() > 0
+      && snapshotStream.hasNext()
+      && installing < cluster.getContext().getMaxAppendsPerFollower();
+  }
+
+  /**
+   * Returns the number of install requests currently outstanding to the member.
+   *
+   * @return The number of install requests currently outstanding to the member.
+   */
+  int getInstalling() {
+    return installing;
   }
 
   /**
@@ -328,7 +485,7 @@ final class MemberState {
    * @return The member state.
    */
   MemberState startInstall() {
-    installing = true;
+    installing++;
     return this;
   }
 
@@ -338,7 +495,7 @@ final class MemberState {
    * @return The member state.
    */
   MemberState completeInstall() {
-    installing = false;
+    installing = Math.max(installing - 1, 0);
     return this;
   }
 
@@ -362,6 +519,31 @@ final class MemberState {
     return this;
   }
 
+  /**
+   * Returns the member lease time.
+   * <p>
+   * The lease time is the {@link System#nanoTime()} at which the most recent append request accepted by the member
+   * was sent, or {@code 0} if no request has been accepted.
+   *
+   * @return The member lease time.
+   */
+  long getLeaseTime() {
+    return leaseTime;
+  }
+
+  /**
+   * Sets the member lease time.
+   *
+   * @param leaseTime The time at which an append request accepted by the member was sent.
+   * @return The member state.
+   */
+  MemberState setLeaseTime(long leaseTime) {
+    if (this.leaseTime == 0 || leaseTime - this.leaseTime > 0) {
+      this.leaseTime = leaseTime;
+    }
+    return this;
+  }
+
   /**
    * Returns the member heartbeat start time.
    *
@@ -26,14 +26,19 @@ import io.atomix.copycat.server.protocol.AppendRequest;
 import io.atomix.copycat.server.protocol.AppendResponse;
 import io.atomix.copycat.server.protocol.InstallRequest;
 import io.atomix.copycat.server.protocol.InstallResponse;
+import io.atomix.copycat.server.protocol.ReadIndexRequest;
+import io.atomix.copycat.server.protocol.ReadIndexResponse;
 import io.atomix.copycat.server.session.ServerSession;
 import io.atomix.copycat.server.storage.entry.Entry;
 import io.atomix.copycat.server.storage.entry.QueryEntry;
 import io.atomix.copycat.server.storage.snapshot.Snapshot;
 import io.atomix.copycat.server.storage.snapshot.SnapshotWriter;
 
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -44,6 +49,10 @@ import java.util.stream.Collectors;
 class PassiveState extends ReserveState {
   private Snapshot pendingSnapshot;
   private int nextSnapshotOffset;
+  private long leaderCommitIndex;
+  private final TreeMap<Long, Long> leaderCommitTimes = new TreeMap<>();
+  private final ReadIndexBatch linearizableReadIndex = new ReadIndexBatch(false);
+  private final ReadIndexBatch leaseReadIndex = new ReadIndexBatch(true);
 
   public PassiveState(ServerContext context) {
     super(context);
@@ -130,10 +139,27 @@ class PassiveState extends ReserveState {
         .withLogIndex(context.getLog().lastIndex())
         .build();
     } else {
+      // Record the leader's commit index and the time at which it was received for bounded staleness queries.
+      recordLeaderCommit(request.commitIndex(), System.nanoTime());
       return checkGlobalIndex(request);
     }
   }
 
+  /**
+   * Records the time at which the given leader commit index was received.
+   * <p>
+   * Receipt times are retained only for commit indexes that the state machine has not yet applied and for the
+   * greatest commit index it has applied, since older receipt times can no longer bound the staleness of its state.
+   */
+  private void recordLeaderCommit(long commitIndex, long time) {
+    leaderCommitIndex = Math.max(leaderCommitIndex, commitIndex);
+    leaderCommitTimes.put(commitIndex, time);
+    Long appliedIndex = leaderCommitTimes.floorKey(context.getStateMachine().getLastApplied());
+    if (appliedIndex != null) {
+      leaderCommitTimes.headMap(appliedIndex).clear();
+    }
+  }
+
   /**
    * Checks whether the log needs to be truncated based on the globalIndex.
    */
@@ -232,36 +258,96 @@ class PassiveState extends ReserveState {
     context.checkThread();
     logRequest(request);
 
+    // If this server has not yet applied entries up to the client's session ID, forward the
+    // query to the leader. This ensures that a follower does not tell the client its session
+    // doesn't exist if the follower hasn't had a chance to see the session's registration entry.
+    if (context.getStateMachine().getLastApplied() < request.session()) {
+      LOGGER.trace("{} - State out of sync, forwarding query to leader", context.getCluster().member().address());
+      return queryForward(request);
+    }
+
+    // If the commit index is not in the log then we've fallen too far behind the leader to perform a local query.
+    // Forward the request to the leader.
+    if (context.getLog().lastIndex() < context.getCommitIndex()) {
+      LOGGER.trace("{} - State out of sync, forwarding query to leader", context.getCluster().member().address());
+      return queryForward(request);
+    }
+
     // If the query was submitted with RYW or monotonic read consistency, attempt to apply the query to the local state machine.
-    if (request.query().consistency() == Query.ConsistencyLevel.SEQUENTIAL) {
+    Query.ConsistencyLevel consistency = request.query().consistency();
+    if (consistency == Query.ConsistencyLevel.SEQUENTIAL) {
+      return queryLocal(createQueryEntry(request, request.index())).thenApply(this::logResponse);
+    }
 
-      // If this server has not yet applied entries up to the client's session ID, forward the
-      // query to the leader. This ensures that a follower does not tell the client its session
-      // doesn't exist if the follower hasn't had a chance to see the session's registration entry.
-      if (context.getStateMachine().getLastApplied() < request.session()) {
-        LOGGER.trace("{} - State out of sync, forwarding query to leader", context.getCluster().member().address());
-        return queryForward(request);
+    // If the query was submitted with bounded staleness consistency, apply the query to the local state machine
+    // only if the local state is within the query's staleness bounds. Otherwise, forward the query to the leader.
+    if (consistency == Query.ConsistencyLevel.BOUNDED_STALENESS) {
+      if (isWithinStalenessBounds(request)) {
+        return queryLocal(createQueryEntry(request, request.index())).thenApply(this::logResponse);
       }
+      LOGGER.trace("{} - State outside staleness bounds, forwarding query to leader", context.getCluster().member().address());
+      return queryForward(request);
+    }
 
-      // If the commit index is not in the log then we've fallen too far behind the leader to perform a local query.
-      // Forward the request to the leader.
-      if (context.getLog().lastIndex() < context.getCommitIndex()) {
-        LOGGER.trace("{} - State out of sync, forwarding query to leader", context.getCluster().member().address());
+    // For linearizable queries, request a read index from the leader and apply the query to the local state
+    // machine once the read index has been applied. If a read index can't be obtained, forward the query.
+    if (context.getLeader() == null) {
+      return queryForward(request);
+    }
+    return readIndex(consistency == Query.ConsistencyLevel.LINEARIZABLE_LEASE)
+      .handle((index, error) -> {
+        if (error == null) {
+          return queryLocal(createQueryEntry(request, Math.max(request.index(), index))).thenApply(this::logResponse);
+        }
+        LOGGER.trace("{} - Failed to obtain read index, forwarding query to leader", context.getCluster().member().address());
         return queryForward(request);
-      }
+      }).thenCompose(future -> future);
+  }
 
-      QueryEntry entry = context.getLog().create(QueryEntry.class)
-        .setIndex(request.index())
-        .setTerm(context.getTerm())
-        .setTimestamp(System.currentTimeMillis())
-        .setSession(request.session())
-        .setSequence(request.sequence())
-        .setQuery(request.query());
+  /**
+   * Returns a boolean indicating whether the local state is within the staleness bounds of the given request.
+   *
+   * @see #isWithinStalenessBounds(QueryRequest, long)
+   */
+  boolean isWithinStalenessBounds(QueryRequest request) {
+    return isWithinStalenessBounds(request, System.nanoTime());
+  }
 
-      return queryLocal(entry).thenApply(this::logResponse);
-    } else {
-      return queryForward(request);
-    }
+  /**
+   * Returns a boolean indicating whether the local state is within the staleness bounds of the given request at
+   * the given {@link System#nanoTime()}.
+   * <p>
+   * The local state was current as of the last time the leader reported a commit index no greater than the state
+   * machine's last applied index. The state is within the bounds if that time is within the request's maximum
+   * staleness and the state machine has applied entries within the request's maximum stale entries of the leader's
+   * latest commit index.
+   */
+  boolean isWithinStalenessBounds(QueryRequest request, long currentTime) {
+    long lastApplied = context.getStateMachine().getLastApplied();
+    Map.Entry<Long, Long> commitTime = leaderCommitTimes.floorEntry(lastApplied);
+    return commitTime != null
+      && currentTime - commitTime.getValue() <= TimeUnit.MILLISECONDS.toNanos(request.maxStaleness())
+      && leaderCommitIndex - lastApplied <= request.maxStaleEntries();
+  }
+
+  /**
+   * Creates a query entry for the given request to be applied after the given index.
+   */
+  private QueryEntry createQueryEntry(QueryRequest request, long index) {
+    return context.getLog().create(QueryEntry.class)
+      .setIndex(index)
+      .setTerm(context.getTerm())
+      .setTimestamp(System.currentTimeMillis())
+      .setSession(request.session())
+      .setSequence(request.sequence())
+      .setQuery(request.query());
+  }
+
+  /**
+   * Requests a read index from the leader.
+   */
+  CompletableFuture<Long> readIndex(boolean lease) {
+    return lease ? leaseReadIndex.readIndex() : linearizableReadIndex.readIndex();
   }
 
   /**
@@ -417,8 +503,9 @@ class PassiveState extends ReserveState {
     // will be responsible in sending the correct snapshot to this server. Leaders must dictate
     // where snapshots must be sent since entries can still legitimately exist prior to the snapshot,
     // and so snapshots aren't simply sent at the beginning of the follower's log, but rather the
-    // leader dictates when a snapshot needs to be sent.
-    if (pendingSnapshot != null && request.index() != pendingSnapshot.index()) {
+    // leader dictates when a snapshot needs to be sent. Leaders resend snapshots from the first chunk after
+    // a failure, so a request for the first chunk of the pending snapshot restarts the snapshot as well.
+    if (pendingSnapshot != null && (request.index() != pendingSnapshot.index() || request.offset() == 0)) {
       pendingSnapshot.close();
       pendingSnapshot.delete();
       pendingSnapshot = null;
@@ -435,25 +522,46 @@ class PassiveState extends ReserveState {
           .build()));
       }
 
-      pendingSnapshot = context.getSnapshotStore().createSnapshot(request.index());
+      // Delta snapshots can only be installed on top of the snapshot on which they're based. If the base
+      // snapshot doesn't exist, reject the request and the leader will resend the chain from the full snapshot.
+      if (request.base() > 0 && context.getSnapshotStore().snapshot(request.base()) == null) {
+        return CompletableFuture.completedFuture(logResponse(InstallResponse.builder()
+          .withStatus(Response.Status.ERROR)
+          .withError(CopycatError.Type.ILLEGAL_MEMBER_STATE_ERROR)
+          .build()));
+      }
+
+      pendingSnapshot = context.getSnapshotStore().createSnapshot(request.index(), request.base(), request.compression());
       nextSnapshotOffset = 0;
     }
 
-    // If the request offset is greater than the next expected snapshot offset, fail the request.
-    if (request.offset() > nextSnapshotOffset) {
+    // If the request offset is not the next expected snapshot offset, fail the request. The leader
+    // will resend the snapshot from the first chunk.
+    if (request.offset() != nextSnapshotOffset) {
       return CompletableFuture.completedFuture(logResponse(InstallResponse.builder()
         .withStatus(Response.Status.ERROR)
         .withError(CopycatError.Type.ILLEGAL_MEMBER_STATE_ERROR)
         .build()));
     }
 
-    // Write the data to the snapshot.
-    try (SnapshotWriter writer = pendingSnapshot.writer()) {
+    // Write the data to the snapshot. Compressed snapshots are sent as they're stored, so the data is written as-is.
+    try (SnapshotWriter writer = pendingSnapshot.rawWriter()) {
       writer.write(request.data());
     }
 
     // If the snapshot is complete, store the snapshot and reset state, otherwise update the next snapshot offset.
+    // If the base of a delta snapshot was removed while the delta was being received, discard the delta.
     if (request.complete()) {
+      if (pendingSnapshot.isDelta() && context.getSnapshotStore().snapshot(pendingSnapshot.base()) == null) {
+        pendingSnapshot.close();
+        pendingSnapshot.delete();
+        pendingSnapshot = null;
+        nextSnapshotOffset = 0;
+        return CompletableFuture.completedFuture(logResponse(InstallResponse.builder()
+          .withStatus(Response.Status.ERROR)
+          .withError(CopycatError.Type.ILLEGAL_MEMBER_STATE_ERROR)
+          .build()));
+      }
       pendingSnapshot.complete();
       pendingSnapshot = null;
       nextSnapshotOffset = 0;
@@ -473,7 +581,91 @@ class PassiveState extends ReserveState {
       pendingSnapshot.delete();
       pendingSnapshot = null;
     }
+    linearizableReadIndex.close();
+    leaseReadIndex.close();
     return super.close();
   }
 
+  /**
+   * Batches read index requests to the leader.
+   * <p>
+   * Only a single read index request is outstanding to the leader at any given time, and all queries that
+   * arrive while a request is outstanding share the next request. Queries can't share an outstanding request,
+   * since the index returned by the leader may not reflect writes completed before the queries arrived.
+   */
+  private final class ReadIndexBatch {
+    private final boolean lease;
+    private CompletableFuture<Long> future;
+    private CompletableFuture<Long> nextFuture;
+
+    private ReadIndexBatch(boolean lease) {
+      this.lease = lease;
+    }
+
+    /**
+     * Returns a future to be completed with a read index from the leader.
+     */
+    CompletableFuture<Long> readIndex() {
+      if (future == null) {
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        this.future = future;
+        sendRequest(future);
+        return future;
+      } else if (nextFuture == null) {
+        nextFuture = new CompletableFuture<>();
+      }
+      return nextFuture;
+    }
+
+    /**
+     * Sends a read index request to the leader, completing the given future with the response.
+     */
+    private void sendRequest(CompletableFuture<Long> future) {
+      if (context.getLeader() == null) {
+        future.completeExceptionally(new IllegalStateException("no leader"));
+        completeRequest();
+        return;
+      }
+
+      ReadIndexRequest request = ReadIndexRequest.builder()
+        .withLease(lease)
+        .build();
+      PassiveState.this.<ReadIndexRequest, ReadIndexResponse>forward(request).whenCompleteAsync((response, error) -> {
+        if (error != null) {
+          future.completeExceptionally(error);
+        } else if (response.status() == Response.Status.OK) {
+          future.complete(response.index());
+        } else {
+          future.completeExceptionally(response.error().createException());
+        }
+        completeRequest();
+      }, context.getThreadContext().executor());
+    }
+
+    /**
+     * Completes the outstanding request, sending the next request if any queries are waiting on it.
+     */
+    private void completeRequest() {
+      future = nextFuture;
+      nextFuture = null;
+      if (future != null && isOpen()) {
+        sendRequest(future);
+      }
+    }
+
+    /**
+     * Fails any pending read index requests.
+     */
+    void close() {
+      if (future != null) {
+        future.completeExceptionally(new IllegalStateException("state closed"));
+        future = null;
+      }
+      if (nextFuture != null) {
+        nextFuture.completeExceptionally(new IllegalStateException("state closed"));
+        nextFuture = null;
+      }
+    }
+  }
+
 }
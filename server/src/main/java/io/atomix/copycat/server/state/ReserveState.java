@@ -90,6 +90,17 @@ class ReserveState extends InactiveState {
       .build()));
   }
 
+  @Override
+  public CompletableFuture<ReadIndexResponse> readIndex(ReadIndexRequest request) {
+    context.checkThread();
+    logRequest(request);
+
+    return CompletableFuture.completedFuture(logResponse(ReadIndexResponse.builder()
+      .withStatus(Response.Status.ERROR)
+      .withError(CopycatError.Type.ILLEGAL_MEMBER_STATE_ERROR)
+      .build()));
+  }
+
   @Override
   public CompletableFuture<CommandResponse> command(CommandRequest request) {
     context.checkThread();
@@ -39,6 +39,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.function.Consumer;
@@ -74,9 +76,15 @@ public class ServerContext implements AutoCloseable {
   private Duration sessionTimeout = Duration.ofMillis(5000);
   private Duration heartbeatInterval = Duration.ofMillis(150);
   private Duration globalSuspendTimeout = Duration.ofHours(1);
+  private Duration maxClockDrift = Duration.ofMillis(100);
+  private int maxAppendsPerFollower = 2;
+  private int maxAppendBytesPerFollower = 1024 * 1024;
+  private int minBatchSize = 1024 * 4;
+  private int maxBatchSize = 1024 * 1024;
   private volatile int leader;
   private volatile long term;
   private int lastVotedFor;
+  private long leaderTime;
   private long commitIndex;
   private long globalIndex;
 
@@ -239,6 +247,119 @@ public class ServerContext implements AutoCloseable {
     return this;
   }
 
+  /**
+   * Returns the maximum clock drift between servers.
+   *
+   * @return The maximum clock drift between servers.
+   */
+  public Duration getMaxClockDrift() {
+    return maxClockDrift;
+  }
+
+  /**
+   * Sets the maximum clock drift between servers.
+   *
+   * @param maxClockDrift The maximum clock drift between servers.
+   * @return The Raft context.
+   */
+  public ServerContext setMaxClockDrift(Duration maxClockDrift) {
+    this.maxClockDrift = Assert.notNull(maxClockDrift, "maxClockDrift");
+    return this;
+  }
+
+  /**
+   * Returns the maximum number of outstanding append requests per follower.
+   *
+   * @return The maximum number of outstanding append requests per follower.
+   */
+  public int getMaxAppendsPerFollower() {
+    return maxAppendsPerFollower;
+  }
+
+  /**
+   * Sets the maximum number of outstanding append requests per follower.
+   *
+   * @param maxAppendsPerFollower The maximum number of outstanding append requests per follower.
+   * @return The Raft context.
+   */
+  public ServerContext setMaxAppendsPerFollower(int maxAppendsPerFollower) {
+    this.maxAppendsPerFollower = Assert.arg(maxAppendsPerFollower, maxAppendsPerFollower > 0, "maxAppendsPerFollower must be positive");
+    return this;
+  }
+
+  /**
+   * Returns the maximum number of entry bytes in flight per follower.
+   *
+   * @return The maximum number of entry bytes in flight per follower.
+   */
+  public int getMaxAppendBytesPerFollower() {
+    return maxAppendBytesPerFollower;
+  }
+
+  /**
+   * Sets the maximum number of entry bytes in flight per follower.
+   *
+   * @param maxAppendBytesPerFollower The maximum number of entry bytes in flight per follower.
+   * @return The Raft context.
+   */
+  public ServerContext setMaxAppendBytesPerFollower(int maxAppendBytesPerFollower) {
+    this.maxAppendBytesPerFollower = Assert.arg(maxAppendBytesPerFollower, maxAppendBytesPerFollower > 0, "maxAppendBytesPerFollower must be positive");
+    return this;
+  }
+
+  /**
+   * Returns the minimum size of a batch of entries sent to a follower.
+   *
+   * @return The minimum size of a batch of entries sent to a follower.
+   */
+  public int getMinBatchSize() {
+    return minBatchSize;
+  }
+
+  /**
+   * Sets the minimum size of a batch of entries sent to a follower.
+   *
+   * @param minBatchSize The minimum size of a batch of entries sent to a follower.
+   * @return The Raft context.
+   */
+  public ServerContext setMinBatchSize(int minBatchSize) {
+    this.minBatchSize = Assert.arg(minBatchSize, minBatchSize > 0, "minBatchSize must be positive");
+    return this;
+  }
+
+  /**
+   * Returns the maximum size of a batch of entries sent to a follower.
+   *
+   * @return The maximum size of a batch of entries sent to a follower.
+   */
+  public int getMaxBatchSize() {
+    return maxBatchSize;
+  }
+
+  /**
+   * Sets the maximum size of a batch of entries sent to a follower.
+   *
+   * @param maxBatchSize The maximum size of a batch of entries sent to a follower.
+   * @return The Raft context.
+   */
+  public ServerContext setMaxBatchSize(int maxBatchSize) {
+    this.maxBatchSize = Assert.arg(maxBatchSize, maxBatchSize > 0, "maxBatchSize must be positive");
+    return this;
+  }
+
+  /**
+   * Returns metrics for the batches of entries sent to each remote member of the cluster.
+   *
+   * @return A map of remote cluster members to the metrics for batches sent to each member.
+   */
+  public Map<Member, BatchMetrics> getBatchMetrics() {
+    Map<Member, BatchMetrics> metrics = new HashMap<>();
+    for (MemberState member : cluster.getRemoteMemberStates()) {
+      metrics.put(member.getMember(), member.getBatchMetrics());
+    }
+    return metrics;
+  }
+
   /**
    * Sets the state leader.
    *
@@ -358,6 +479,27 @@ public class ServerContext implements AutoCloseable {
     return lastVotedFor;
   }
 
+  /**
+   * Sets the time at which a request from the leader was last accepted.
+   *
+   * @param leaderTime The time at which a request from the leader was last accepted, in nanoseconds.
+   * @return The Raft context.
+   */
+  ServerContext setLeaderTime(long leaderTime) {
+    this.leaderTime = leaderTime;
+    return this;
+  }
+
+  /**
+   * Returns the time at which a request from the leader was last accepted.
+   *
+   * @return The time at which a request from the leader was last accepted, in nanoseconds, or {@code 0} if no
+   *         request from a leader has been accepted since the server was started.
+   */
+  long getLeaderTime() {
+    return leaderTime;
+  }
+
   /**
    * Sets the commit index.
    *
@@ -551,6 +693,7 @@ public class ServerContext implements AutoCloseable {
     connection.handler(AppendRequest.class, (Function<AppendRequest, CompletableFuture<AppendResponse>>) request -> state.append(request));
     connection.handler(PollRequest.class, (Function<PollRequest, CompletableFuture<PollResponse>>) request -> state.poll(request));
     connection.handler(VoteRequest.class, (Function<VoteRequest, CompletableFuture<VoteResponse>>) request -> state.vote(request));
+    connection.handler(ReadIndexRequest.class, (Function<ReadIndexRequest, CompletableFuture<ReadIndexResponse>>) request -> state.readIndex(request));
     connection.handler(CommandRequest.class, (Function<CommandRequest, CompletableFuture<CommandResponse>>) request -> state.command(request));
     connection.handler(QueryRequest.class, (Function<QueryRequest, CompletableFuture<QueryResponse>>) request -> state.query(request));
 
@@ -597,6 +740,12 @@ public class ServerContext implements AutoCloseable {
 
     LOGGER.info("{} - Transitioning to {}", cluster.member().address(), state);
 
+    // A server that's being started may have accepted requests from a leader before it was restarted, so treat
+    // the leader as having been contacted when the server leaves the inactive state.
+    if (this.state.type() == CopycatServer.State.INACTIVE) {
+      leaderTime = System.nanoTime();
+    }
+
     // Close the old state.
     try {
       this.state.close().get();
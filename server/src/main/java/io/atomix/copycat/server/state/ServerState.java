@@ -140,6 +140,14 @@ public interface ServerState extends Managed<ServerState> {
    */
   CompletableFuture<VoteResponse> vote(VoteRequest request);
 
+  /**
+   * Handles a read index request.
+   *
+   * @param request The request to handle.
+   * @return A completable future to be completed with the request response.
+   */
+  CompletableFuture<ReadIndexResponse> readIndex(ReadIndexRequest request);
+
   /**
    * Handles a command request.
    *
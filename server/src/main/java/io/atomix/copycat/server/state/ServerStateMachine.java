@@ -15,16 +15,19 @@
  */
 package io.atomix.copycat.server.state;
 
+import io.atomix.catalyst.concurrent.CatalystThreadFactory;
 import io.atomix.catalyst.concurrent.ComposableFuture;
 import io.atomix.catalyst.concurrent.Futures;
 import io.atomix.catalyst.concurrent.ThreadContext;
 import io.atomix.catalyst.util.Assert;
 import io.atomix.copycat.error.InternalException;
 import io.atomix.copycat.error.UnknownSessionException;
+import io.atomix.copycat.server.DeltaSnapshottable;
 import io.atomix.copycat.server.Snapshottable;
 import io.atomix.copycat.server.StateMachine;
 import io.atomix.copycat.server.session.SessionListener;
 import io.atomix.copycat.server.storage.Log;
+import io.atomix.copycat.server.storage.LogReader;
 import io.atomix.copycat.server.storage.entry.*;
 import io.atomix.copycat.server.storage.snapshot.Snapshot;
 import io.atomix.copycat.server.storage.snapshot.SnapshotReader;
@@ -33,13 +36,20 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Internal server state machine.
  * <p>
  * The internal state machine handles application of commands to the user provided {@link StateMachine}
  * and keeps track of internal state like sessions and the various indexes relevant to log compaction.
+ * <p>
+ * Snapshots are written on the state machine thread unless the state machine {@link Snapshottable#capture() captures}
+ * a view of its state or {@link DeltaSnapshottable#delta(long) the changes} since the last snapshot, in which case the
+ * view is written on a background snapshot thread. Either way, a pending snapshot is only completed once it has been fully written.
  *
  * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
  */
@@ -48,16 +58,19 @@ final class ServerStateMachine implements AutoCloseable {
   private final StateMachine stateMachine;
   private final ServerContext state;
   private final Log log;
+  private final LogReader reader;
   private final ServerStateMachineExecutor executor;
   private final ServerCommitPool commits;
   private volatile long lastApplied;
   private long lastCompleted;
-  private volatile Snapshot pendingSnapshot;
+  private volatile CompletableFuture<Snapshot> pendingSnapshot;
+  private ExecutorService snapshotExecutor;
 
   ServerStateMachine(StateMachine stateMachine, ServerContext state, ThreadContext executor) {
     this.stateMachine = Assert.notNull(stateMachine, "stateMachine");
     this.state = Assert.notNull(state, "state");
     this.log = state.getLog();
+    this.reader = log.createReader(1);
     this.executor = new ServerStateMachineExecutor(new ServerStateMachineContext(state.getConnections(), new ServerSessionManager(state)), executor);
     this.commits = new ServerCommitPool(log, this.executor.context().sessions());
     init();
@@ -88,19 +101,91 @@ final class ServerStateMachine implements AutoCloseable {
     Snapshot currentSnapshot = state.getSnapshotStore().currentSnapshot();
     if (pendingSnapshot == null && stateMachine instanceof Snapshottable
       && (currentSnapshot == null || (log.compactor().compactIndex() > currentSnapshot.index() && lastApplied > currentSnapshot.index()))) {
-      pendingSnapshot = state.getSnapshotStore().createSnapshot(lastApplied);
+      long index = lastApplied;
+
+      // If the state machine supports delta snapshots and the chain of delta snapshots on top of the last full
+      // snapshot has room for another delta, attempt to take a delta of the current snapshot. Otherwise, take a
+      // full snapshot to replace the chain.
+      long base = stateMachine instanceof DeltaSnapshottable && currentSnapshot != null
+        && state.getSnapshotStore().chain(currentSnapshot).size() <= state.getStorage().maxSnapshotDeltas() ? currentSnapshot.index() : 0;
+
+      CompletableFuture<Snapshot> future = new CompletableFuture<>();
+      pendingSnapshot = future;
 
       // Write the snapshot data. Note that we don't complete the snapshot here since the completion
       // of a snapshot is predicated on session events being received by clients up to the snapshot index.
-      LOGGER.info("{} - Taking snapshot {}", state.getCluster().member().address(), pendingSnapshot.index());
+      LOGGER.info("{} - Taking snapshot {}", state.getCluster().member().address(), index);
       executor.executor().execute(() -> {
-        synchronized (pendingSnapshot) {
-          try (SnapshotWriter writer = pendingSnapshot.writer()) {
-            ((Snapshottable) stateMachine).snapshot(writer);
+        // If the state machine captures a view of the changes since the base snapshot, write a delta snapshot.
+        // Otherwise, if the state machine captures a view of its state, write the view in the background.
+        // Otherwise, write the snapshot synchronously in the state machine thread.
+        try {
+          Snapshottable snapshottable = (Snapshottable) stateMachine;
+          Snapshottable.View delta = base > 0 ? ((DeltaSnapshottable) stateMachine).delta(base) : null;
+          if (delta != null) {
+            Snapshot snapshot = state.getSnapshotStore().createSnapshot(index, base);
+            getSnapshotExecutor().execute(() -> writeSnapshot(snapshot, delta, future));
+          } else {
+            Snapshot snapshot = state.getSnapshotStore().createSnapshot(index);
+            Snapshottable.View view = snapshottable.capture();
+            if (view != null) {
+              getSnapshotExecutor().execute(() -> writeSnapshot(snapshot, view, future));
+            } else {
+              writeSnapshot(snapshot, snapshottable::snapshot, future);
+            }
           }
+        } catch (Exception e) {
+          future.completeExceptionally(e);
         }
       });
+
+      // Once the snapshot has been written, attempt to complete it in the server thread.
+      future.whenComplete((result, error) -> state.getThreadContext().execute(() -> {
+        if (error != null) {
+          LOGGER.warn("{} - Failed to write snapshot {}", state.getCluster().member().address(), index, error);
+        }
+        if (log.isOpen()) {
+          completeSnapshot();
+        }
+      }));
+    }
+  }
+
+  /**
+   * Writes a view of the state machine state to the given snapshot, completing the given future once written.
+   */
+  private void writeSnapshot(Snapshot snapshot, Snapshottable.View view, CompletableFuture<Snapshot> future) {
+    try {
+      synchronized (snapshot) {
+        try (SnapshotWriter writer = snapshot.writer()) {
+          view.snapshot(writer);
+        }
+      }
+      future.complete(snapshot);
+    } catch (Exception e) {
+      snapshot.close();
+      snapshot.delete();
+      future.completeExceptionally(e);
+    }
+  }
+
+  /**
+   * Returns a future to be completed once the pending snapshot has been written.
+   *
+   * @return The pending snapshot future or {@code null} if no snapshot is pending.
+   */
+  CompletableFuture<Snapshot> getPendingSnapshot() {
+    return pendingSnapshot;
+  }
+
+  /**
+   * Returns the executor on which captured snapshot views are written, creating it if necessary.
+   */
+  private synchronized ExecutorService getSnapshotExecutor() {
+    if (snapshotExecutor == null) {
+      snapshotExecutor = Executors.newSingleThreadExecutor(new CatalystThreadFactory("copycat-snapshot-%d"));
     }
+    return snapshotExecutor;
   }
 
   /**
@@ -122,11 +207,20 @@ final class ServerStateMachine implements AutoCloseable {
       // synchronize on the snapshot object. In practice, this probably isn't even necessary and could prove
       // to be an expensive operation. Snapshots can be read concurrently with separate SnapshotReaders since
       // memory snapshots are copied to the reader and file snapshots open a separate FileBuffer for each reader.
+      // Delta snapshots are installed by installing the full snapshot on which they're based followed by each
+      // delta in the chain.
       LOGGER.info("{} - Installing snapshot {}", state.getCluster().member().address(), currentSnapshot.index());
+      List<Snapshot> chain = state.getSnapshotStore().chain(currentSnapshot);
       executor.executor().execute(() -> {
-        synchronized (currentSnapshot) {
-          try (SnapshotReader reader = currentSnapshot.reader()) {
-            ((Snapshottable) stateMachine).install(reader);
+        for (Snapshot snapshot : chain) {
+          synchronized (snapshot) {
+            try (SnapshotReader reader = snapshot.reader()) {
+              if (snapshot.isDelta()) {
+                ((DeltaSnapshottable) stateMachine).installDelta(reader);
+              } else {
+                ((Snapshottable) stateMachine).install(reader);
+              }
+            }
           }
         }
       });
@@ -148,18 +242,34 @@ final class ServerStateMachine implements AutoCloseable {
   private void completeSnapshot() {
     state.checkThread();
 
+    // If the pending snapshot is still being written, wait for the write to complete. If the snapshot
+    // failed to be written, discard it so another snapshot can be taken. The failure is logged once the
+    // write completes.
+    CompletableFuture<Snapshot> future = pendingSnapshot;
+    if (future == null || !future.isDone()) {
+      return;
+    } else if (future.isCompletedExceptionally()) {
+      pendingSnapshot = null;
+      return;
+    }
+
     // If a snapshot is pending to be persisted and the last completed index is greater than the
-    // waiting snapshot index and no current or newer snapshot exists,
-    // persist the snapshot and update the last snapshot index.
-    if (pendingSnapshot != null && lastCompleted > pendingSnapshot.index()) {
-      long snapshotIndex = pendingSnapshot.index();
+    // waiting snapshot index and no current or newer snapshot exists, persist the snapshot and update the
+    // last snapshot index. Delta snapshots are discarded if the snapshot on which they're based no longer exists.
+    Snapshot snapshot = future.join();
+    if (lastCompleted > snapshot.index()) {
+      long snapshotIndex = snapshot.index();
       LOGGER.debug("{} - Completing snapshot {}", state.getCluster().member().address(), snapshotIndex);
-      synchronized (pendingSnapshot) {
+      synchronized (snapshot) {
         Snapshot currentSnapshot = state.getSnapshotStore().currentSnapshot();
-        if (currentSnapshot == null || snapshotIndex > currentSnapshot.index()) {
-          pendingSnapshot.complete();
+        if (snapshot.isDelta() && state.getSnapshotStore().snapshot(snapshot.base()) == null) {
+          LOGGER.debug("{} - Discarding pending snapshot at index {} since base snapshot {} no longer exists", state.getCluster().member().address(), snapshotIndex, snapshot.base());
+          snapshot.close();
+          snapshot.delete();
+        } else if (currentSnapshot == null || snapshotIndex > currentSnapshot.index()) {
+          snapshot.complete();
         } else {
-          LOGGER.debug("{} - Discarding pending snapshot at index {} since the current snapshot is at index {}", state.getCluster().member().address(), pendingSnapshot.index(), currentSnapshot.index());
+          LOGGER.debug("{} - Discarding pending snapshot at index {} since the current snapshot is at index {}", state.getCluster().member().address(), snapshotIndex, currentSnapshot.index());
         }
         pendingSnapshot = null;
       }
@@ -273,9 +383,25 @@ final class ServerStateMachine implements AutoCloseable {
 
     // If the effective commit index is greater than the last index applied to the state machine then apply remaining entries.
     long lastIndex = Math.min(index, log.lastIndex());
+
+    // If committed entries are flushed on commit, only apply entries that have been flushed to disk. The remaining
+    // entries are applied once the flush started by the commit is complete.
+    if (state.getStorage().flushOnCommit() && lastIndex > log.durableCommitIndex()) {
+      CompletableFuture<Long> future = log.flushAsync(lastIndex);
+      if (!future.isDone()) {
+        future.whenCompleteAsync((flushedIndex, error) -> {
+          if (error == null) {
+            applyAll(index);
+          }
+        }, state.getThreadContext().executor());
+      }
+      lastIndex = Math.min(lastIndex, log.durableCommitIndex());
+    }
+
     if (lastIndex > lastApplied) {
+      reader.reset(lastApplied + 1);
       for (long i = lastApplied + 1; i <= lastIndex; i++) {
-        Entry entry = log.get(i);
+        Entry entry = reader.next();
         if (entry != null) {
           apply(entry).whenComplete((result, error) -> entry.release());
         }
@@ -303,7 +429,7 @@ final class ServerStateMachine implements AutoCloseable {
 
       // Read the entry from the log. If the entry is non-null them apply the entry, otherwise
       // simply update the last applied index and return a null result.
-      try (Entry entry = log.get(index)) {
+      try (Entry entry = reader.reset(index).next()) {
         if (entry != null) {
           return apply(entry);
         } else {
@@ -983,7 +1109,13 @@ final class ServerStateMachine implements AutoCloseable {
 
   @Override
   public void close() {
+    reader.close();
     executor.close();
+    synchronized (this) {
+      if (snapshotExecutor != null) {
+        snapshotExecutor.shutdown();
+      }
+    }
   }
 
   /**
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2017-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.state;
+
+import io.atomix.catalyst.util.Assert;
+import io.atomix.copycat.server.storage.snapshot.Snapshot;
+import io.atomix.copycat.server.storage.snapshot.SnapshotReader;
+
+/**
+ * Streams a snapshot to a single member in chunks.
+ * <p>
+ * The snapshot stream holds a single {@link SnapshotReader} open for the duration of the install, so each chunk
+ * is read once from the reader's current position rather than reopening the snapshot and skipping to the chunk.
+ * Chunks are numbered sequentially from {@code 0}, and the receiving member appends chunks to its pending snapshot
+ * in order. Because chunks are identified by number rather than byte offset, a stream can't be rewound. If a chunk
+ * fails, the stream is closed and the snapshot is resent from the first chunk, which the receiver treats as a restart.
+ * <p>
+ * Chunk sizes adapt to the member's round trip time. Starting from the configured maximum batch size, the chunk
+ * size is doubled up to {@link #MAX_CHUNK_SIZE} while chunks are acknowledged within the heartbeat interval and
+ * halved back toward the maximum batch size when they're not.
+ *
+ * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
+ */
+final class SnapshotStream implements AutoCloseable {
+  static final int MAX_CHUNK_SIZE = 1024 * 1024 * 8;
+
+  private final Snapshot snapshot;
+  private final SnapshotReader reader;
+  private final int minChunkSize;
+  private final int maxChunkSize;
+  private int chunkSize;
+  private int nextOffset;
+  private int acknowledged;
+
+  /**
+   * @param snapshot The snapshot to stream.
+   * @param chunkSize The initial size of each chunk in bytes.
+   */
+  SnapshotStream(Snapshot snapshot, int chunkSize) {
+    this.snapshot = Assert.notNull(snapshot, "snapshot");
+    this.minChunkSize = Assert.arg(chunkSize, chunkSize > 0, "chunkSize must be positive");
+    this.maxChunkSize = Math.max(chunkSize, (int) Math.min(chunkSize * 8L, MAX_CHUNK_SIZE));
+    this.chunkSize = chunkSize;
+    synchronized (snapshot) {
+      this.reader = snapshot.rawReader();
+    }
+  }
+
+  /**
+   * Returns the index of the snapshot being streamed.
+   *
+   * @return The snapshot index.
+   */
+  long index() {
+    return snapshot.index();
+  }
+
+  /**
+   * Returns the number of the next chunk to be sent.
+   *
+   * @return The next chunk offset.
+   */
+  int nextOffset() {
+    return nextOffset;
+  }
+
+  /**
+   * Returns the number of chunks that have been acknowledged by the member.
+   *
+   * @return The number of acknowledged chunks.
+   */
+  int acknowledged() {
+    return acknowledged;
+  }
+
+  /**
+   * Returns the current chunk size.
+   *
+   * @return The size of the next chunk in bytes.
+   */
+  int chunkSize() {
+    return chunkSize;
+  }
+
+  /**
+   * Returns a boolean indicating whether chunks remain to be sent.
+   * <p>
+   * At least one chunk is sent for every snapshot, even if the snapshot is empty.
+   *
+   * @return Indicates whether chunks remain to be sent.
+   */
+  boolean hasNext() {
+    return nextOffset == 0 || reader.hasRemaining();
+  }
+
+  /**
+   * Reads the next chunk from the snapshot.
+   *
+   * @return The next chunk of snapshot bytes.
+   */
+  byte[] next() {
+    byte[] data = new byte[(int) Math.min(chunkSize, reader.remaining())];
+    reader.read(data);
+    nextOffset++;
+    return data;
+  }
+
+  /**
+   * Returns a boolean indicating whether the last chunk has been read from the snapshot.
+   *
+   * @return Indicates whether the snapshot has been completely read.
+   */
+  boolean isComplete() {
+    return nextOffset > 0 && !reader.hasRemaining();
+  }
+
+  /**
+   * Records an acknowledged chunk and adapts the size of the following chunks.
+   *
+   * @param time The round trip time of the chunk in nanoseconds.
+   * @param target The target round trip time in nanoseconds.
+   */
+  void acknowledge(long time, long target) {
+    acknowledged++;
+    if (time <= target) {
+      chunkSize = (int) Math.min((long) chunkSize * 2, maxChunkSize);
+    } else {
+      chunkSize = Math.max(chunkSize / 2, minChunkSize);
+    }
+  }
+
+  @Override
+  public void close() {
+    reader.close();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s[index=%d, nextOffset=%d, acknowledged=%d, chunkSize=%d]", getClass().getSimpleName(), index(), nextOffset, acknowledged, chunkSize);
+  }
+
+}
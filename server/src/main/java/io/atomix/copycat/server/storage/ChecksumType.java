@@ -0,0 +1,148 @@
+/*
+ * Copyright 2017-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.storage;
+
+import io.atomix.copycat.server.storage.util.Crc32c;
+import io.atomix.copycat.server.storage.util.XxHash64;
+
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+
+/**
+ * {@link Log} entry checksum algorithms.
+ * <p>
+ * Each entry written to a {@link Segment} is stored with a 32-bit checksum of the serialized entry bytes. The
+ * checksum is used to detect partially written entries when a segment is recovered and corrupt entries when the
+ * segment is read. The checksum type is configured per {@link Storage} and is recorded in the
+ * {@link SegmentDescriptor} of each segment, so segments written with different checksum types can be read from
+ * the same log. Segments written before the checksum type was recorded in the descriptor use {@link #CRC32}.
+ *
+ * @see Storage.Builder#withChecksumType(ChecksumType)
+ *
+ * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
+ */
+public enum ChecksumType {
+
+  /**
+   * Checksums entries with the JDK's {@link CRC32} implementation.
+   * <p>
+   * This is the default checksum type and the checksum type of segments written by earlier versions.
+   */
+  CRC32(0) {
+    @Override
+    public Checksum newChecksum() {
+      return new CRC32();
+    }
+  },
+
+  /**
+   * Checksums entries with the CRC-32C (Castagnoli) polynomial.
+   * <p>
+   * CRC-32C has better error detection properties than {@link #CRC32} for the same checksum length.
+   */
+  CRC32C(1) {
+    @Override
+    public Checksum newChecksum() {
+      return new Crc32c();
+    }
+  },
+
+  /**
+   * Checksums entries with the 64-bit xxHash algorithm, storing the low 32 bits of the hash.
+   * <p>
+   * xxHash is a non-cryptographic hash that's typically faster to compute than either CRC in pure Java.
+   */
+  XXHASH64(2) {
+    @Override
+    public Checksum newChecksum() {
+      return new XxHash64();
+    }
+  },
+
+  /**
+   * Does not checksum entries.
+   * <p>
+   * Entries are stored with a checksum of {@code 0} and are never verified. <em>Partially written entries can't
+   * be detected when recovering segments written with no checksum</em>, so this should only be used where the
+   * underlying storage guarantees the integrity of writes or with {@link StorageLevel#MEMORY} storage.
+   */
+  NONE(3) {
+    @Override
+    public Checksum newChecksum() {
+      return new Checksum() {
+        @Override
+        public void update(int b) {
+        }
+
+        @Override
+        public void update(byte[] bytes, int offset, int length) {
+        }
+
+        @Override
+        public long getValue() {
+          return 0;
+        }
+
+        @Override
+        public void reset() {
+        }
+      };
+    }
+  };
+
+  /**
+   * Returns the checksum type for the given identifier.
+   *
+   * @param id The checksum type identifier.
+   * @return The checksum type.
+   * @throws IllegalArgumentException if {@code id} is not a valid checksum type identifier
+   */
+  public static ChecksumType forId(int id) {
+    for (ChecksumType type : values()) {
+      if (type.id == id) {
+        return type;
+      }
+    }
+    throw new IllegalArgumentException("unknown checksum type: " + id);
+  }
+
+  private final int id;
+
+  ChecksumType(int id) {
+    this.id = id;
+  }
+
+  /**
+   * Returns the checksum type identifier.
+   * <p>
+   * The identifier is the value stored in segment descriptors and is stable across versions.
+   *
+   * @return The checksum type identifier.
+   */
+  public int id() {
+    return id;
+  }
+
+  /**
+   * Returns a new checksum instance.
+   * <p>
+   * Checksum instances are not thread safe.
+   *
+   * @return A new checksum instance.
+   */
+  public abstract Checksum newChecksum();
+
+}
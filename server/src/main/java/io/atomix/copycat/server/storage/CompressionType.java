@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.storage;
+
+import io.atomix.copycat.server.storage.util.Lz4;
+
+/**
+ * {@link Segment} and snapshot block compression algorithms.
+ * <p>
+ * Compacted segments can be written as a sequence of compressed blocks of entries. The compression type is
+ * configured per {@link Storage} and is recorded in the {@link SegmentDescriptor} of each segment, so segments
+ * written with and without compression can be read from the same log. Segments written before the compression type
+ * was recorded in the descriptor are not compressed. Snapshots are compressed in the same block format, and their
+ * compression type is recorded in the {@link io.atomix.copycat.server.storage.snapshot.SnapshotDescriptor}.
+ *
+ * @see Storage.Builder#withCompactionCompression(CompressionType)
+ * @see Storage.Builder#withSnapshotCompression(CompressionType)
+ *
+ * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
+ */
+public enum CompressionType {
+
+  /**
+   * Does not compress segments.
+   * <p>
+   * Entries are written to segments as-is. This is the default compression type.
+   */
+  NONE(0) {
+    @Override
+    public int maxCompressedLength(int length) {
+      return length;
+    }
+
+    @Override
+    public int compress(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOffset) {
+      System.arraycopy(src, srcOffset, dst, dstOffset, srcLength);
+      return srcLength;
+    }
+
+    @Override
+    public void decompress(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOffset, int dstLength) {
+      if (srcLength != dstLength) {
+        throw new IllegalArgumentException("malformed block");
+      }
+      System.arraycopy(src, srcOffset, dst, dstOffset, srcLength);
+    }
+  },
+
+  /**
+   * Compresses segment blocks with the {@link Lz4 LZ4} block format.
+   * <p>
+   * LZ4 favors compression and decompression speed over compression ratio.
+   */
+  LZ4(1) {
+    @Override
+    public int maxCompressedLength(int length) {
+      return Lz4.maxCompressedLength(length);
+    }
+
+    @Override
+    public int compress(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOffset) {
+      return Lz4.compress(src, srcOffset, srcLength, dst, dstOffset);
+    }
+
+    @Override
+    public void decompress(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOffset, int dstLength) {
+      Lz4.decompress(src, srcOffset, srcLength, dst, dstOffset, dstLength);
+    }
+  };
+
+  /**
+   * Returns the compression type for the given identifier.
+   *
+   * @param id The compression type identifier.
+   * @return The compression type.
+   * @throws IllegalArgumentException if {@code id} is not a valid compression type identifier
+   */
+  public static CompressionType forId(int id) {
+    for (CompressionType type : values()) {
+      if (type.id == id) {
+        return type;
+      }
+    }
+    throw new IllegalArgumentException("unknown compression type: " + id);
+  }
+
+  private final int id;
+
+  CompressionType(int id) {
+    this.id = id;
+  }
+
+  /**
+   * Returns the compression type identifier.
+   * <p>
+   * The identifier is the value stored in segment descriptors and is stable across versions.
+   *
+   * @return The compression type identifier.
+   */
+  public int id() {
+    return id;
+  }
+
+  /**
+   * Returns the maximum compressed length of the given number of bytes.
+   *
+   * @param length The number of bytes to compress.
+   * @return The maximum length of the compressed bytes.
+   */
+  public abstract int maxCompressedLength(int length);
+
+  /**
+   * Compresses the given bytes.
+   *
+   * @param src The bytes to compress.
+   * @param srcOffset The offset of the bytes to compress.
+   * @param srcLength The number of bytes to compress.
+   * @param dst The array to which to write the compressed bytes.
+   * @param dstOffset The offset at which to write the compressed bytes.
+   * @return The length of the compressed bytes.
+   */
+  public abstract int compress(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOffset);
+
+  /**
+   * Decompresses the given bytes.
+   *
+   * @param src The compressed bytes.
+   * @param srcOffset The offset of the compressed bytes.
+   * @param srcLength The length of the compressed bytes.
+   * @param dst The array to which to write the decompressed bytes.
+   * @param dstOffset The offset at which to write the decompressed bytes.
+   * @param dstLength The decompressed length of the bytes.
+   * @throws IllegalArgumentException if the compressed bytes are malformed
+   */
+  public abstract void decompress(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOffset, int dstLength);
+
+}
@@ -21,9 +21,12 @@ import io.atomix.catalyst.concurrent.CatalystThreadFactory;
 import io.atomix.copycat.server.storage.compaction.Compaction;
 import io.atomix.copycat.server.storage.compaction.Compactor;
 import io.atomix.copycat.server.storage.entry.Entry;
+import io.atomix.copycat.server.storage.entry.RawEntry;
 import io.atomix.copycat.server.storage.entry.TypedEntryPool;
-import io.atomix.copycat.server.storage.util.EntryBuffer;
+import io.atomix.copycat.server.storage.util.EntryCache;
+import io.atomix.copycat.server.storage.util.RateMeter;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
 
 /**
@@ -118,8 +121,14 @@ public class Log implements AutoCloseable {
   private final Storage storage;
   final SegmentManager segments;
   private final Compactor compactor;
-  private final EntryBuffer entryBuffer;
+  final EntryCache entryCache;
   private final TypedEntryPool entryPool = new TypedEntryPool();
+  private final RateMeter flushMeter = new RateMeter();
+  private final Object flushLock = new Object();
+  private volatile long flushedIndex;
+  private long flushingIndex;
+  private CompletableFuture<Long> flushFuture;
+  private volatile long truncations;
   private boolean open = true;
 
   /**
@@ -129,7 +138,9 @@ public class Log implements AutoCloseable {
     this.storage = Assert.notNull(storage, "storage");
     this.segments = new SegmentManager(name, storage, serializer);
     this.compactor = new Compactor(storage, segments, Executors.newScheduledThreadPool(storage.compactionThreads(), new CatalystThreadFactory("copycat-compactor-%d")));
-    this.entryBuffer = new EntryBuffer(storage.entryBufferSize());
+    this.entryCache = new EntryCache(storage.entryCacheSize());
+    this.flushedIndex = lastIndex();
+    this.flushingIndex = flushedIndex;
   }
 
   /**
@@ -141,6 +152,20 @@ public class Log implements AutoCloseable {
     return compactor;
   }
 
+  /**
+   * Returns the log entry cache.
+   * <p>
+   * The entry cache holds recently appended and recently read entries in memory. Entries read via {@link #get(long)},
+   * {@link #getRaw(long)}, and {@link LogReader}s are read through the cache, so entries read for one reader can be
+   * reused by others. The cache can be {@link EntryCache#pin(long) pinned} to the window of entries that are still
+   * likely to be read, and exposes hit and miss metrics.
+   *
+   * @return The log entry cache.
+   */
+  public EntryCache cache() {
+    return entryCache;
+  }
+
   /**
    * Returns the log entry serializer.
    *
@@ -253,7 +278,6 @@ public class Log implements AutoCloseable {
   private Segment currentSegment() {
     Segment segment = segments.currentSegment();
     if (segment.isFull()) {
-      segments.currentSegment().flush();
       segment = segments.nextSegment();
     }
     return segment;
@@ -290,12 +314,70 @@ public class Log implements AutoCloseable {
     Assert.notNull(entry, "entry");
     assertIsOpen();
 
-    // Append the entry to the appropriate segment.
-    long index = currentSegment().append(entry);
-    entryBuffer.append(entry);
+    // Append the entry to the appropriate segment. Raw entries are written to the segment as-is and are
+    // not cached since they cannot be read as typed entries.
+    long index;
+    if (entry instanceof RawEntry) {
+      index = currentSegment().appendRaw((RawEntry) entry);
+    } else {
+      index = currentSegment().append(entry);
+      entryCache.put(entry);
+    }
+    segments.recordAppend(entry.size());
+
+    // If group commit is enabled and the batch of unflushed entries is full, flush the log in the background.
+    if (storage.groupCommit() && index - flushingIndex >= storage.groupCommitBatchSize()) {
+      flushAsync();
+    }
     return index;
   }
 
+  /**
+   * Returns the index of the last entry known to have been flushed to disk.
+   * <p>
+   * When {@link Storage#groupCommit() group commit} is enabled, the flushed index is the highest index for which
+   * all entries have been flushed to disk by {@link #flush()}. Servers should only count entries up to the flushed
+   * index towards the commitment of entries. When group commit is disabled, the flushed index is always equal to
+   * the {@link #lastIndex()}.
+   *
+   * @return The index of the last entry flushed to disk.
+   * @throws IllegalStateException If the log is not open.
+   */
+  public long flushedIndex() {
+    assertIsOpen();
+    return storage.groupCommit() ? Math.min(flushedIndex, lastIndex()) : lastIndex();
+  }
+
+  /**
+   * Returns a boolean value indicating whether the log contains entries that have not been flushed to disk.
+   * <p>
+   * This method always returns {@code false} if {@link Storage#groupCommit() group commit} is disabled.
+   *
+   * @return Indicates whether the log contains entries that have not been flushed to disk.
+   * @throws IllegalStateException If the log is not open.
+   */
+  public boolean needsFlush() {
+    return flushedIndex() < lastIndex();
+  }
+
+  /**
+   * Returns the total number of times the log has been flushed to disk.
+   *
+   * @return The total number of times the log has been flushed to disk.
+   */
+  public long flushCount() {
+    return flushMeter.count();
+  }
+
+  /**
+   * Returns the number of times per second the log has been flushed to disk.
+   *
+   * @return The number of times per second the log has been flushed to disk.
+   */
+  public long flushRate() {
+    return flushMeter.rate();
+  }
+
   /**
    * Returns the term for the entry at the given index.
    * <p>
@@ -313,10 +395,13 @@ public class Log implements AutoCloseable {
     assertIsOpen();
     assertValidIndex(index);
 
-    Segment segment = segments.segment(index);
+    Segment segment = segments.acquireSegment(index);
     Assert.index(segment != null, "invalid index: " + index);
-
-    return segment.term(index);
+    try {
+      return segment.term(index);
+    } finally {
+      segment.releaseReference();
+    }
   }
 
   /**
@@ -344,16 +429,33 @@ public class Log implements AutoCloseable {
     assertIsOpen();
     assertValidIndex(index);
 
-    Segment segment = segments.segment(index);
+    // Acquire a reference to the segment so it's not deleted if it's replaced by compaction during the read.
+    Segment segment = segments.acquireSegment(index);
     Assert.index(segment != null, "invalid index: " + index);
+    try {
+      // Get the entry from the cache or the segment. If the entry hasn't already been compacted from the segment,
+      // it will be non-null. Entries read from the segment are cached for subsequent reads.
+      T entry = entryCache.get(index);
+      if (entry == null) {
+        entry = segment.get(index);
+        if (entry != null) {
+          entryCache.put(entry);
+        }
+      }
 
-    // Get the entry from the segment. If the entry hasn't already been compacted from the segment,
-    // it will be non-null.
-    T entry = entryBuffer.get(index);
-    if (entry == null) {
-      entry = segment.get(index);
+      return filter(segment, index, entry);
+    } finally {
+      segment.releaseReference();
     }
+  }
 
+  /**
+   * Filters the given entry according to its compaction mode, returning {@code null} if the entry should not be
+   * exposed to the Raft algorithm.
+   * <p>
+   * Entries that are filtered are released.
+   */
+  <T extends Entry> T filter(Segment segment, long index, T entry) {
     // For non-null entries, we determine whether the entry should be exposed to the Raft algorithm
     // based on the type of entry and whether it has been released.
     if (entry != null) {
@@ -397,10 +499,94 @@ public class Log implements AutoCloseable {
         default:
           break;
       }
+      entry.release();
     }
     return null;
   }
 
+  /**
+   * Returns a boolean value indicating whether entries at the given index are visible regardless of their type.
+   * <p>
+   * Entries after the minor and snapshot indexes have not been compacted, so they can be read without being
+   * filtered according to their compaction mode.
+   */
+  boolean isUncompacted(long index) {
+    return index > compactor.minorIndex() && index > compactor.snapshotIndex();
+  }
+
+  /**
+   * Gets an entry from the log at the given index in its stored, serialized form.
+   * <p>
+   * Raw entries are read from the log without being deserialized, allowing them to be replicated to and appended
+   * by other logs without being reserialized. Because the visibility of entries that may have been compacted depends
+   * on the entry type, if the entry at the given index falls within the compacted portion of the log, the entry
+   * will be read and filtered via {@link #get(long)} and the typed entry will be returned instead.
+   *
+   * @param index The index of the entry to get.
+   * @return The entry at the given index or {@code null} if the entry doesn't exist.
+   * @throws IllegalStateException If the log is not open.
+   * @throws IndexOutOfBoundsException If the given index is not within the bounds of the log.
+   */
+  public Entry getRaw(long index) {
+    assertIsOpen();
+    assertValidIndex(index);
+
+    // Entries after the minor and snapshot indexes are visible regardless of their type.
+    if (isUncompacted(index)) {
+      Entry entry = entryCache.getRaw(index);
+      if (entry == null) {
+        Segment segment = segments.acquireSegment(index);
+        Assert.index(segment != null, "invalid index: " + index);
+        try {
+          entry = segment.getRaw(index);
+        } finally {
+          segment.releaseReference();
+        }
+        if (entry != null) {
+          entryCache.put(entry);
+        }
+      }
+      return entry;
+    }
+    return get(index);
+  }
+
+  /**
+   * Creates a reader for the log starting at the given index.
+   * <p>
+   * Log readers stream entries sequentially from the log, keeping track of the current segment and position
+   * between reads. Each reader is independent of other readers, and readers are not thread safe.
+   *
+   * @param index The index from which to begin reading.
+   * @return The log reader.
+   * @throws IllegalStateException If the log is not open.
+   */
+  public LogReader createReader(long index) {
+    assertIsOpen();
+    return new LogReader(this, index, false);
+  }
+
+  /**
+   * Creates a reader for the log that reads {@link RawEntry raw entries} starting at the given index.
+   * <p>
+   * Raw entries are read according to the same rules as {@link #getRaw(long)}.
+   *
+   * @param index The index from which to begin reading.
+   * @return The log reader.
+   * @throws IllegalStateException If the log is not open.
+   */
+  public LogReader createRawReader(long index) {
+    assertIsOpen();
+    return new LogReader(this, index, true);
+  }
+
+  /**
+   * Returns the number of times the log has been truncated.
+   */
+  long truncations() {
+    return truncations;
+  }
+
   /**
    * Returns a boolean value indicating whether the given index is within the bounds of the log.
    * <p>
@@ -428,8 +614,15 @@ public class Log implements AutoCloseable {
     if (!validIndex(index))
       return false;
 
-    Segment segment = segments.segment(index);
-    return segment != null && segment.contains(index);
+    Segment segment = segments.acquireSegment(index);
+    if (segment == null) {
+      return false;
+    }
+    try {
+      return segment.contains(index);
+    } finally {
+      segment.releaseReference();
+    }
   }
 
   /**
@@ -444,14 +637,22 @@ public class Log implements AutoCloseable {
     assertIsOpen();
     assertValidIndex(index);
 
-    Segment segment = segments.segment(index);
+    Segment segment = segments.acquireSegment(index);
     Assert.index(segment != null, "invalid index: " + index);
-    segment.release(index);
+    try {
+      segment.release(index);
+    } finally {
+      segment.releaseReference();
+    }
     return this;
   }
 
   /**
    * Commits entries up to the given index to the log.
+   * <p>
+   * If the storage is configured to {@link Storage#flushOnCommit() flush on commit}, committed entries are
+   * flushed to disk on the log's storage thread without blocking the calling thread. Committed entries are
+   * durable once the {@link #durableCommitIndex()} reaches the committed index.
    *
    * @param index The index up to which to commit entries.
    * @return The log.
@@ -463,12 +664,28 @@ public class Log implements AutoCloseable {
       assertValidIndex(index);
       segments.commitIndex(index);
       if (storage.flushOnCommit()) {
-        segments.currentSegment().flush();
+        flushAsync(index);
       }
     }
     return this;
   }
 
+  /**
+   * Returns the index up to which committed entries are durable.
+   * <p>
+   * If the storage is configured to {@link Storage#flushOnCommit() flush on commit}, the durable commit index is
+   * advanced once the flush started by {@link #commit(long)} is complete. Otherwise, committed entries are
+   * considered durable as soon as they're committed.
+   *
+   * @return The index up to which committed entries are durable.
+   * @throws IllegalStateException If the log is not open.
+   */
+  public long durableCommitIndex() {
+    assertIsOpen();
+    long commitIndex = segments.commitIndex();
+    return storage.flushOnCommit() ? Math.min(commitIndex, flushedIndex) : commitIndex;
+  }
+
   /**
    * Skips the given number of entries.
    * <p>
@@ -525,18 +742,79 @@ public class Log implements AutoCloseable {
         segments.removeSegment(segment);
       }
     }
-    entryBuffer.clear();
+    entryCache.truncate(index);
+    flushingIndex = Math.min(flushingIndex, index);
+    synchronized (flushLock) {
+      flushedIndex = Math.min(flushedIndex, index);
+      truncations++;
+    }
     return this;
   }
 
   /**
    * Flushes the log to disk.
+   * <p>
+   * The log is flushed on the log's storage thread, and this method blocks until the flush is complete. To flush
+   * the log without blocking, use {@link #flushAsync()}.
    *
    * @throws IllegalStateException If the log is not open.
    */
   public void flush() {
+    flushAsync().join();
+  }
+
+  /**
+   * Flushes the log to disk asynchronously.
+   * <p>
+   * Entries are flushed to disk on the log's storage thread so the calling thread can continue writing to the log
+   * while the flush is in progress. All entries appended before this method is called will be flushed, and flushes
+   * are completed in the order in which they're requested. Once the flush is complete, the {@link #flushedIndex()}
+   * is updated and the returned future is completed with the index up to which the log is durable. If the log is
+   * truncated while the flush is in progress, the flushed index will not be increased beyond the truncated index.
+   *
+   * @return A future to be completed with the index of the last entry flushed to disk.
+   * @throws IllegalStateException If the log is not open.
+   */
+  public CompletableFuture<Long> flushAsync() {
+    assertIsOpen();
+    Segment segment = segments.currentSegment();
+    long index = lastIndex();
+    long truncations = this.truncations;
+    flushingIndex = Math.max(flushingIndex, index);
+    CompletableFuture<Long> future = segments.runAsync(() -> {
+      long startTime = System.nanoTime();
+      segment.flush();
+      segments.recordFlush(System.nanoTime() - startTime);
+      synchronized (flushLock) {
+        if (this.truncations == truncations) {
+          flushedIndex = Math.max(flushedIndex, index);
+        }
+      }
+      flushMeter.mark();
+    }).thenApply(v -> flushedIndex);
+    flushFuture = future;
+    return future;
+  }
+
+  /**
+   * Flushes the log to disk up to the given index asynchronously.
+   * <p>
+   * If entries up to the given index are already being flushed, the returned future is completed once the pending
+   * flush is complete. Otherwise, a new flush is started. Note that if the log is truncated while the flush is in
+   * progress, the {@link #flushedIndex()} may not reach the given index once the returned future is completed.
+   *
+   * @param index The index up to which to flush the log.
+   * @return A future to be completed with the index of the last entry flushed to disk.
+   * @throws IllegalStateException If the log is not open.
+   */
+  public CompletableFuture<Long> flushAsync(long index) {
     assertIsOpen();
-    segments.currentSegment().flush();
+    if (flushedIndex >= index) {
+      return CompletableFuture.completedFuture(flushedIndex);
+    } else if (flushingIndex >= index && flushFuture != null) {
+      return flushFuture;
+    }
+    return flushAsync();
   }
 
   /**
@@ -550,6 +828,7 @@ public class Log implements AutoCloseable {
     flush();
     compactor.close();
     segments.close();
+    entryCache.clear();
     open = false;
   }
 
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.storage;
+
+import io.atomix.catalyst.util.Assert;
+import io.atomix.copycat.server.storage.entry.Entry;
+
+import static io.atomix.catalyst.buffer.Bytes.INTEGER;
+
+/**
+ * Sequential log reader.
+ * <p>
+ * The log reader is a cursor that streams entries forward through a {@link Log}. Rather than looking up the
+ * segment and position of each entry as {@link Log#get(long)} does, the reader keeps track of its current
+ * {@link Segment} and the position of the next entry within the segment between reads, reading entries in
+ * the order in which they're stored. Gaps in compacted segments are skipped without any additional lookups.
+ * <p>
+ * Entries are read one index at a time via {@link #next()}. As with {@link Log#get(long)}, if the entry at the
+ * next index has been compacted from the log, {@code null} will be returned. Readers can be repositioned via
+ * {@link #reset(long)}. Resetting the reader to its current index or to the index of the last entry read is
+ * inexpensive, but resetting the reader to any other index requires the reader to seek to the entry.
+ * <p>
+ * Entries are read through the log's {@link Log#cache() entry cache}, so entries read by one reader, such as
+ * entries replicated to one follower, can be returned to other readers without being read from disk again.
+ * <p>
+ * Readers detect log truncation and segments that have been replaced by compaction and seek to the next entry
+ * as necessary. Readers hold a {@link Segment#acquire() reference} to the segment from which they're reading, so
+ * a segment replaced by compaction isn't deleted while it's being read. Readers must be {@link #close() closed} to
+ * release the reference. Log readers are not thread safe, but any number of readers may be opened on a single log.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class LogReader implements AutoCloseable {
+  private final Log log;
+  private final boolean raw;
+  private Segment segment;
+  private long position;
+  private long lastPosition = -1;
+  private long nextIndex;
+  private long truncations = -1;
+  private Entry pending;
+
+  LogReader(Log log, long index, boolean raw) {
+    this.log = Assert.notNull(log, "log");
+    this.raw = raw;
+    this.nextIndex = index;
+  }
+
+  /**
+   * Returns the index of the next entry to be read.
+   *
+   * @return The index of the next entry to be read.
+   */
+  public long nextIndex() {
+    return nextIndex;
+  }
+
+  /**
+   * Returns a boolean indicating whether the log contains an index at or after the next index.
+   *
+   * @return Indicates whether the log contains an index at or after the next index.
+   */
+  public boolean hasNext() {
+    return nextIndex <= log.lastIndex();
+  }
+
+  /**
+   * Reads the entry at the next index and advances the reader to the following index.
+   * <p>
+   * Entries returned by this method are reference counted and must be released by the caller.
+   *
+   * @return The entry at the next index or {@code null} if the entry doesn't exist.
+   * @throws IllegalStateException If the log is not open.
+   * @throws IndexOutOfBoundsException If the next index is not within the bounds of the log.
+   */
+  @SuppressWarnings("unchecked")
+  public <T extends Entry> T next() {
+    Assert.state(log.isOpen(), "log is not open");
+    Assert.index(nextIndex >= log.firstIndex() && nextIndex <= log.lastIndex(), "invalid index: %s", nextIndex);
+
+    long index = nextIndex;
+    Entry entry = read(index);
+    nextIndex++;
+    return (T) filter(index, entry);
+  }
+
+  /**
+   * Resets the reader to the given index.
+   *
+   * @param index The index to which to reset the reader.
+   * @return The log reader.
+   */
+  public LogReader reset(long index) {
+    if (index == nextIndex) {
+      return this;
+    }
+
+    // If the reader is being reset to the last entry read, simply reset the position to the entry's position.
+    if (index == nextIndex - 1 && lastPosition != -1) {
+      releasePending();
+      position = lastPosition;
+      lastPosition = -1;
+      nextIndex = index;
+      return this;
+    }
+
+    nextIndex = index;
+    setSegment(null);
+    releasePending();
+    return this;
+  }
+
+  /**
+   * Reads the stored entry at the given index.
+   */
+  private Entry read(long index) {
+    // If the log has been truncated or the current segment has been replaced by compaction, seek to the index.
+    if (segment == null || segment.isRetired() || !segment.isOpen() || truncations != log.truncations()) {
+      seek(index);
+    }
+
+    // If an entry after the index was already read, the index is a gap in the log.
+    lastPosition = -1;
+    if (pending != null) {
+      if (pending.getIndex() > index) {
+        return null;
+      } else if (pending.getIndex() == index) {
+        Entry entry = pending;
+        pending = null;
+        lastPosition = position - INTEGER - entry.size();
+        log.entryCache.put(entry);
+        return entry;
+      }
+      releasePending();
+    }
+
+    // Recently appended or read entries may be held in the log's entry cache. Cached entries are only used if
+    // the entry at the current position has the same index, so the reader can skip the entry in the segment.
+    Entry cached = raw ? log.entryCache.getRaw(index) : log.entryCache.get(index);
+    if (cached != null) {
+      long nextPosition = segment.skip(position, index);
+      if (nextPosition != -1) {
+        lastPosition = position;
+        position = nextPosition;
+        return cached;
+      }
+      cached.release();
+    }
+
+    while (segment != null) {
+      Entry entry = segment.readAt(position, raw);
+      if (entry != null) {
+        long entryPosition = position;
+        position += INTEGER + entry.size();
+        if (entry.getIndex() == index) {
+          lastPosition = entryPosition;
+          log.entryCache.put(entry);
+          return entry;
+        } else if (entry.getIndex() > index) {
+          pending = entry;
+          return null;
+        }
+        entry.release();
+      } else if (!segment.isOpen()) {
+        seek(index);
+      } else if (index > segment.lastIndex()) {
+        // If the index is beyond the end of the segment, move on to the next segment.
+        Segment nextSegment = log.segments.acquireSegment(index);
+        if (nextSegment == null) {
+          return null;
+        } else if (nextSegment == segment) {
+          nextSegment.releaseReference();
+          return null;
+        }
+        setSegment(nextSegment);
+        position = 0;
+      } else {
+        return null;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Seeks to the given index.
+   */
+  private void seek(long index) {
+    releasePending();
+    truncations = log.truncations();
+    setSegment(log.segments.acquireSegment(index));
+    position = segment != null ? segment.seek(index) : 0;
+  }
+
+  /**
+   * Sets the segment from which to read, releasing the reference to the previous segment.
+   */
+  private void setSegment(Segment segment) {
+    if (this.segment != null) {
+      this.segment.releaseReference();
+    }
+    this.segment = segment;
+  }
+
+  /**
+   * Filters the given entry according to its compaction mode.
+   */
+  private Entry filter(long index, Entry entry) {
+    if (entry == null) {
+      return null;
+    }
+
+    // Raw entries can only be filtered by index. If the entry may have been compacted, read the typed entry.
+    if (raw) {
+      if (log.isUncompacted(index)) {
+        return entry;
+      }
+      entry.release();
+      return log.get(index);
+    }
+    return log.filter(segment, index, entry);
+  }
+
+  /**
+   * Releases the pending entry.
+   */
+  private void releasePending() {
+    if (pending != null) {
+      pending.release();
+      pending = null;
+    }
+  }
+
+  @Override
+  public void close() {
+    releasePending();
+    setSegment(null);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s[nextIndex=%d]", getClass().getSimpleName(), nextIndex);
+  }
+
+}
@@ -15,13 +15,16 @@
  */
 package io.atomix.copycat.server.storage;
 
-import java.util.zip.CRC32;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
 import java.util.zip.Checksum;
 
 import io.atomix.catalyst.buffer.*;
 import io.atomix.catalyst.serializer.Serializer;
 import io.atomix.catalyst.util.Assert;
 import io.atomix.copycat.server.storage.entry.Entry;
+import io.atomix.copycat.server.storage.entry.RawEntry;
 import io.atomix.copycat.server.storage.index.OffsetIndex;
 import io.atomix.copycat.server.storage.util.OffsetPredicate;
 import io.atomix.copycat.server.storage.util.TermIndex;
@@ -46,8 +49,10 @@ import static io.atomix.catalyst.buffer.Bytes.LONG;
  * the Raft consensus algorithm, readers should typically benefit from O(1) lookups.
  * <p>
  * When a segment is constructed, the segment will attempt to rebuild its index from the underlying segment
- * {@link Buffer}. This is done by reading a 32-bit length and 64-bit offset for each entry. Once the segment
- * has been built, new entries will be {@link #append(Entry) appended} at the end of the segment.
+ * {@link Buffer}. If the segment's {@link SegmentIndex} was sealed, the index is opened over the existing index
+ * file. Otherwise, the index is rebuilt by reading a 32-bit length and 64-bit offset for each entry, validating
+ * each entry's checksum only if the segment is the most recent segment in the log. Once the segment has been
+ * built, new entries will be {@link #append(Entry) appended} at the end of the segment.
  * <p>
  * Additionally, segments are responsible for keeping track of entries that have been {@link #release(long) released}.
  * Entry liveness is tracked in an internal {@link io.atomix.catalyst.buffer.util.BitArray} with a size equal
@@ -61,6 +66,20 @@ import static io.atomix.catalyst.buffer.Bytes.LONG;
  *   <li>Required 8-bit term flag</li>
  *   <li>Optional 64-bit term</li>
  * </ul>
+ * The entry checksum is computed over the serialized entry bytes with the {@link SegmentDescriptor#checksumType()
+ * checksum type} recorded in the segment's descriptor. 64-bit checksums are truncated to their low 32 bits.
+ * Checksums are verified when entries are read unless read verification is disabled by
+ * {@link Storage#verifyChecksumsOnRead()}, in which case checksums are only verified when the segment is recovered.
+ * <p>
+ * If the segment descriptor specifies a {@link SegmentDescriptor#compressionType() compression type}, entries are
+ * stored in compressed blocks by {@link SegmentBlocks} rather than directly in the segment buffer. Entry positions
+ * in compressed segments are positions in the decompressed sequence of entries, so the segment index and the entry
+ * format are the same for compressed and uncompressed segments.
+ * <p>
+ * Segments are reference counted. The {@link SegmentManager} holds a reference to each segment in the log, and
+ * readers {@link #acquire() acquire} a reference for as long as they read from the segment. When a segment is
+ * removed from the log, it's {@link #retire() retired} rather than closed, and the segment is closed and deleted
+ * once the last reference to it has been released.
  *
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
@@ -70,31 +89,208 @@ public class Segment implements AutoCloseable {
   private final Serializer serializer;
   private final Buffer buffer;
   private final HeapBuffer memory = HeapBuffer.allocate();
+  private final Checksum checksum;
+  private final boolean verifyReads;
+  private final ThreadLocal<ReadContext> readContext;
+  private final StampedLock lock = new StampedLock();
+  private final boolean concurrentReads;
+  private final SegmentIndex index;
+  private final SegmentBlocks blocks;
   private final OffsetIndex offsetIndex;
   private final OffsetPredicate offsetPredicate;
-  private final TermIndex termIndex = new TermIndex();
+  private final TermIndex termIndex;
   private final SegmentManager manager;
+  private final AtomicInteger references = new AtomicInteger(1);
   private long skip = 0;
-  private boolean open = true;
+  private volatile boolean open = true;
+  private volatile boolean retired;
 
   /**
    * @throws NullPointerException if any argument is null
    */
-  Segment(SegmentFile file, Buffer buffer, SegmentDescriptor descriptor, OffsetIndex offsetIndex, OffsetPredicate offsetPredicate, Serializer serializer, SegmentManager manager) {
+  Segment(SegmentFile file, Buffer buffer, SegmentDescriptor descriptor, SegmentIndex index, OffsetPredicate offsetPredicate, Serializer serializer, SegmentManager manager) {
+    this(file, buffer, descriptor, index, offsetPredicate, serializer, manager, true);
+  }
+
+  /**
+   * @param validate Whether to validate entry checksums if the index must be rebuilt from the segment entries.
+   * @throws NullPointerException if any argument is null
+   */
+  Segment(SegmentFile file, Buffer buffer, SegmentDescriptor descriptor, SegmentIndex index, OffsetPredicate offsetPredicate, Serializer serializer, SegmentManager manager, boolean validate) {
     this.serializer = Assert.notNull(serializer, "serializer");
     this.file = Assert.notNull(file, "file");
     this.buffer = Assert.notNull(buffer, "buffer");
     this.descriptor = Assert.notNull(descriptor, "descriptor");
-    this.offsetIndex = Assert.notNull(offsetIndex, "offsetIndex");
+    this.index = Assert.notNull(index, "index");
+    this.offsetIndex = index.offsetIndex();
+    this.termIndex = index.termIndex();
     this.offsetPredicate = Assert.notNull(offsetPredicate, "offsetPredicate");
     this.manager = Assert.notNull(manager, "manager");
-    buildIndex();
+    this.checksum = descriptor.checksumType().newChecksum();
+    this.verifyReads = manager.storage().verifyChecksumsOnRead() && descriptor.checksumType() != ChecksumType.NONE;
+    this.readContext = ThreadLocal.withInitial(() -> new ReadContext(serializer.clone(), descriptor.checksumType().newChecksum()));
+    // File buffers read through a shared file pointer, so reads must be serialized with each other and with writes.
+    this.concurrentReads = !(root(buffer) instanceof FileBuffer);
+    this.blocks = descriptor.compressionType() != CompressionType.NONE
+      ? new SegmentBlocks(buffer, descriptor.compressionType(), manager.storage().compressionBlockSize(), manager.blockCache())
+      : null;
+    buildIndex(validate);
+  }
+
+  /**
+   * Opens the sealed index if possible, otherwise builds the index from the segment bytes.
+   */
+  private void buildIndex(boolean validate) {
+    if (index.isSealed()) {
+      long position = index.position();
+      if (isIndexValid(position)) {
+        if (blocks == null) {
+          buffer.position(position);
+        }
+        return;
+      }
+      index.reset();
+    }
+
+    if (blocks != null) {
+      indexBlocks(validate);
+    } else if (validate) {
+      validateIndex();
+    } else {
+      scanIndex();
+    }
+  }
+
+  /**
+   * Verifies that the sealed index describes the segment by checking the header of the last indexed entry
+   * and that no entries have been written after the end of the index.
+   */
+  private boolean isIndexValid(long position) {
+    if (blocks != null) {
+      return isBlockIndexValid(position);
+    }
+    if (position >= buffer.capacity()) {
+      return false;
+    }
+    if (offsetIndex.isEmpty()) {
+      return position == 0 && buffer.readInt(0) == 0;
+    }
+
+    long lastOffset = offsetIndex.lastOffset();
+    long lastPosition = offsetIndex.position(lastOffset);
+    return lastPosition >= 0
+      && buffer.readInt(lastPosition) == position - lastPosition - INTEGER
+      && buffer.readLong(lastPosition + INTEGER + INTEGER) == lastOffset
+      && (position + INTEGER > buffer.capacity() || buffer.readInt(position) == 0);
+  }
+
+  /**
+   * Verifies that the sealed index describes the entries in a compressed segment.
+   */
+  private boolean isBlockIndexValid(long position) {
+    if (position != blocks.end()) {
+      return false;
+    }
+    if (offsetIndex.isEmpty()) {
+      return position == 0;
+    }
+
+    long lastOffset = offsetIndex.lastOffset();
+    long lastPosition = offsetIndex.position(lastOffset);
+    try {
+      return lastPosition >= 0
+        && blocks.readInt(lastPosition) == position - lastPosition - INTEGER
+        && blocks.readLong(lastPosition + INTEGER + INTEGER) == lastOffset;
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Builds the index from the entries in the blocks of a compressed segment.
+   * <p>
+   * Each block is decompressed in turn. If {@code validate} is {@code true}, the checksum of each entry is verified.
+   * A malformed block or invalid entry ends the index.
+   */
+  private void indexBlocks(boolean validate) {
+    ReadContext context = readContext.get();
+    long position = 0;
+    try {
+      int length = blocks.readInt(position);
+      while (length > 0) {
+        HeapBuffer memory = context.read(blocks, position + INTEGER, length);
+        long checksum = memory.readUnsignedInt();
+        long offset = memory.readLong();
+        Long term = memory.readBoolean() ? memory.readLong() : null;
+
+        if (validate) {
+          int entryPosition = (int) memory.position();
+          if (checksum != checksum(context.checksum, context.array, entryPosition, length - entryPosition)) {
+            break;
+          }
+        }
+
+        if (term != null) {
+          termIndex.index(offset, term);
+        }
+        offsetIndex.index(offset, position);
+
+        position += INTEGER + length;
+        length = blocks.readInt(position);
+      }
+    } catch (IllegalArgumentException e) {
+      // The block containing the entry at the current position is malformed, so the index ends at the position.
+    }
+  }
+
+  /**
+   * Builds the index from the segment bytes without validating entry checksums.
+   * <p>
+   * Only entry headers are read. Entry bodies are skipped, so the index can be built without reading and
+   * checksumming the full contents of the segment.
+   */
+  private void scanIndex() {
+    // Read the current buffer position.
+    long position = buffer.mark().position();
+
+    // Read the first entry length.
+    int length = buffer.readInt();
+
+    // While the length is non-zero...
+    while (length > 0) {
+      // Skip the 32-bit entry checksum.
+      buffer.skip(INTEGER);
+
+      // Read the 64-bit entry offset.
+      long offset = buffer.readLong();
+
+      // If the term is set on the entry, read the term.
+      boolean hasTerm = buffer.readBoolean();
+      if (hasTerm) {
+        termIndex.index(offset, buffer.readLong());
+      }
+
+      // Index the entry offset.
+      offsetIndex.index(offset, position);
+
+      // Skip the entry bytes.
+      buffer.skip(length - INTEGER - LONG - BOOLEAN - (hasTerm ? LONG : 0));
+
+      // Store the next entry start position.
+      position = buffer.position();
+
+      // Read the next entry length.
+      length = buffer.mark().readInt();
+    }
+
+    // Reset the buffer back to the start of the next entry.
+    buffer.reset();
   }
 
   /**
-   * Builds the index from the segment bytes.
+   * Builds the index from the segment bytes, validating the checksum of each entry.
    */
-  private void buildIndex() {
+  private void validateIndex() {
     // Read the current buffer position.
     long position = buffer.mark().position();
 
@@ -122,12 +318,8 @@ public class Segment implements AutoCloseable {
       int entryPosition = (int) memory.position();
       int entryLength = length - entryPosition;
 
-      // Compute the checksum for the entry bytes.
-      Checksum crc32 = new CRC32();
-      crc32.update(memory.array(), entryPosition, entryLength);
-
-      // If the computed checksum equals the stored checksum...
-      if (checksum == crc32.getValue()) {
+      // If the computed checksum for the entry bytes equals the stored checksum...
+      if (checksum == checksum(this.checksum, memory.array(), entryPosition, entryLength)) {
         // If the entry contained a term, index the term.
         if (term != null) {
           termIndex.index(offset, term);
@@ -180,6 +372,80 @@ public class Segment implements AutoCloseable {
     return open;
   }
 
+  /**
+   * Acquires a reference to the segment.
+   * <p>
+   * A reference can't be acquired once the segment has been retired and all prior references have been released,
+   * in which case the segment has been or is being deleted. Each acquired reference must be released via
+   * {@link #releaseReference()}.
+   *
+   * @return Indicates whether a reference was acquired.
+   */
+  public boolean acquire() {
+    for (;;) {
+      int references = this.references.get();
+      if (references == 0) {
+        return false;
+      }
+      if (this.references.compareAndSet(references, references + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Releases a reference to the segment.
+   * <p>
+   * If the segment has been retired and this is the last reference to the segment, the segment is closed and deleted.
+   */
+  public void releaseReference() {
+    if (references.decrementAndGet() == 0) {
+      dispose();
+    }
+  }
+
+  /**
+   * Returns the number of references to the segment.
+   *
+   * @return The number of references to the segment.
+   */
+  public int references() {
+    return references.get();
+  }
+
+  /**
+   * Retires the segment once it has been removed from the log.
+   * <p>
+   * The reference held by the segment manager is released, so the segment is closed and deleted immediately if no
+   * readers hold references to it, or otherwise once the last reader releases its reference.
+   */
+  public synchronized void retire() {
+    if (!retired) {
+      retired = true;
+      manager.retired(this);
+      releaseReference();
+    }
+  }
+
+  /**
+   * Returns a boolean indicating whether the segment has been retired.
+   *
+   * @return Indicates whether the segment has been retired.
+   */
+  public boolean isRetired() {
+    return retired;
+  }
+
+  /**
+   * Closes and deletes the segment if it's still open.
+   */
+  synchronized void dispose() {
+    if (open) {
+      close();
+      delete();
+    }
+  }
+
   /**
    * Returns a boolean value indicating whether the segment is empty.
    * <p>
@@ -203,6 +469,18 @@ public class Segment implements AutoCloseable {
     return descriptor.version() > 1;
   }
 
+  /**
+   * Returns a boolean value indicating whether the segment's index is sealed.
+   * <p>
+   * The index of a persistent segment is sealed once the segment has been completely written. Sealed indexes
+   * are reopened without rebuilding them when the segment is loaded.
+   *
+   * @return Indicates whether the segment's index is sealed.
+   */
+  public boolean isSealed() {
+    return index.isSealed();
+  }
+
   /**
    * Returns a boolean value indicating whether the segment is full.
    * <p>
@@ -225,7 +503,7 @@ public class Segment implements AutoCloseable {
    * @return The size of the segment in bytes.
    */
   public long size() {
-    return buffer.offset() + buffer.position();
+    return buffer.offset() + (blocks != null ? blocks.size() : buffer.position());
   }
 
   /**
@@ -337,6 +615,7 @@ public class Segment implements AutoCloseable {
   public long append(Entry entry) {
     Assert.notNull(entry, "entry");
     Assert.stateNot(isFull(), "segment is full");
+    unseal();
 
     long index = nextIndex();
     Assert.index(index == entry.getIndex(), "inconsistent index: %s", entry.getIndex());
@@ -381,9 +660,7 @@ public class Segment implements AutoCloseable {
     entry.setSize(totalLength);
 
     // Compute the checksum for the entry.
-    Checksum crc32 = new CRC32();
-    crc32.update(memory.array(), headerLength, entryLength);
-    long checksum = crc32.getValue();
+    long checksum = checksum(this.checksum, memory.array(), headerLength, entryLength);
 
     // Rewind the in-memory buffer and write the length, checksum, and offset.
     memory.rewind()
@@ -398,8 +675,17 @@ public class Segment implements AutoCloseable {
     }
 
     // Write the entry length and entry to the segment.
-    buffer.writeInt(totalLength)
-      .write(memory.rewind());
+    if (blocks != null) {
+      position = appendBlock(memory.array(), 0, totalLength);
+    } else {
+      long stamp = lockWrite(INTEGER + totalLength);
+      try {
+        buffer.writeInt(totalLength)
+          .write(memory.rewind());
+      } finally {
+        unlockWrite(stamp);
+      }
+    }
 
     // Index the offset, position, and length.
     offsetIndex.index(offset, position);
@@ -415,6 +701,106 @@ public class Segment implements AutoCloseable {
     return index;
   }
 
+  /**
+   * Appends a raw entry to the segment.
+   * <p>
+   * The serialized entry bytes and checksum are written to the segment as-is, bypassing serialization of the entry.
+   * Only the segment-specific entry header (the offset and term) is written by the segment. If the entry's checksum
+   * was computed with a different checksum type than the segment's, the checksum is recomputed for the segment.
+   *
+   * @param entry The raw entry to append.
+   * @return The appended entry index.
+   * @throws NullPointerException if {@code entry} is null
+   * @throws IllegalStateException if the segment is full
+   * @throws IndexOutOfBoundsException if the {@code entry} index does not match the next index
+   */
+  public long appendRaw(RawEntry entry) {
+    Assert.notNull(entry, "entry");
+    Assert.stateNot(isFull(), "segment is full");
+    unseal();
+
+    long index = nextIndex();
+    Assert.index(index == entry.getIndex(), "inconsistent index: %s", entry.getIndex());
+
+    // Calculate the offset of the entry.
+    long offset = relativeOffset(index);
+
+    // Get the term from the entry and the highest term in the index.
+    long term = entry.getTerm();
+    long lastTerm = termIndex.term();
+
+    // The entry term must be positive and >= the last term in the segment.
+    Assert.arg(term > 0 && term >= lastTerm, "term must be monotonically increasing");
+
+    // Record the starting position of the new entry.
+    long position = buffer.position();
+
+    // Determine whether to skip writing the term to the segment.
+    boolean skipTerm = term == lastTerm;
+
+    // Calculate the total length of the entry from the header length and the length of the raw bytes.
+    int headerLength = INTEGER + LONG + BOOLEAN + (skipTerm ? 0 : LONG);
+    int totalLength = headerLength + entry.bytes().length;
+
+    // Set the entry size.
+    entry.setSize(totalLength);
+
+    // Use the entry's checksum if it was computed with this segment's checksum type.
+    long checksum = entry.checksumType() == descriptor.checksumType()
+      ? entry.checksum()
+      : checksum(this.checksum, entry.bytes(), 0, entry.bytes().length);
+
+    // Write the entry length, checksum, offset, and term to the in-memory buffer.
+    memory.clear()
+      .writeInt(totalLength)
+      .writeUnsignedInt(checksum)
+      .writeLong(offset);
+    if (skipTerm) {
+      memory.writeBoolean(false);
+    } else {
+      memory.writeBoolean(true).writeLong(term);
+    }
+
+    // Write the header and the raw entry bytes to the segment.
+    if (blocks != null) {
+      memory.write(entry.bytes());
+      position = appendBlock(memory.array(), INTEGER, totalLength);
+    } else {
+      long stamp = lockWrite(INTEGER + totalLength);
+      try {
+        buffer.write(memory.flip())
+          .write(entry.bytes());
+      } finally {
+        unlockWrite(stamp);
+      }
+    }
+
+    // Index the offset and position.
+    offsetIndex.index(offset, position);
+
+    // If the entry term is greater than the last indexed term, index the term.
+    if (term > lastTerm) {
+      termIndex.index(offset, term);
+    }
+
+    // Reset skip to zero since we wrote a new entry.
+    skip = 0;
+
+    return index;
+  }
+
+  /**
+   * Appends an entry to the blocks of a compressed segment, returning the position of the entry.
+   */
+  private long appendBlock(byte[] bytes, int offset, int length) {
+    long stamp = lock.writeLock();
+    try {
+      return blocks.append(bytes, offset, length);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
   /**
    * Reads the term for the entry at the given index.
    *
@@ -435,61 +821,257 @@ public class Segment implements AutoCloseable {
 
   /**
    * Reads the entry at the given index.
+   * <p>
+   * Reads do not block the segment writer or other readers. Each reading thread reads entries through its own
+   * scratch buffer and checksum. Memory and mapped segments are read with absolute reads directly from the
+   * underlying buffer. File segments must serialize reads since file buffers read through a shared file pointer.
    *
    * @param index The index from which to read the entry.
    * @return The entry at the given index.
    * @throws IllegalStateException if the segment is not open or {@code index} is inconsistent with the entry
    */
-  public synchronized <T extends Entry> T get(long index) {
-    assertSegmentOpen();
-    checkRange(index);
+  public <T extends Entry> T get(long index) {
+    return get(index, false);
+  }
 
-    // Get the offset of the index within this segment.
-    long offset = relativeOffset(index);
+  /**
+   * Reads the raw entry at the given index.
+   * <p>
+   * The stored entry bytes are verified against the stored checksum but are not deserialized.
+   *
+   * @param index The index from which to read the entry.
+   * @return The raw entry at the given index or {@code null} if the entry doesn't exist or is corrupt.
+   * @throws IllegalStateException if the segment is not open or {@code index} is inconsistent with the entry
+   */
+  public RawEntry getRaw(long index) {
+    return get(index, true);
+  }
+
+  /**
+   * Reads the entry at the given index.
+   */
+  private <T extends Entry> T get(long index, boolean raw) {
+    long stamp = lockRead();
+    try {
+      assertSegmentOpen();
+      checkRange(index);
+
+      // Get the offset of the index within this segment.
+      long offset = relativeOffset(index);
+
+      // Get the start position of the entry from the memory index.
+      long position = offsetIndex.position(offset);
+      if (position == -1) {
+        return null;
+      }
 
-    // Get the start position of the entry from the memory index.
-    long position = offsetIndex.position(offset);
+      // Read and verify the entry bytes. If the entry is present and valid, read the entry.
+      ReadContext context = readContext.get();
+      if (readEntry(position, context)) {
+        Assert.state(context.offset == offset, "inconsistent index: %s", index);
+        return readEntry(index, context, raw);
+      }
+      return null;
+    } finally {
+      lock.unlock(stamp);
+    }
+  }
 
-    // If the index contained the entry, read the entry from the buffer.
-    if (position != -1) {
+  /**
+   * Reads the entry stored at the given position in the segment.
+   * <p>
+   * This method allows segments to be read sequentially by position without looking up entry positions in the
+   * segment's offset index. The position of the next entry in the segment is the given position plus
+   * {@link io.atomix.catalyst.buffer.Bytes#INTEGER} plus the {@link Entry#size() size} of the returned entry.
+   *
+   * @param position The position of the entry in the segment.
+   * @param raw Whether to read the entry as a {@link RawEntry}.
+   * @return The entry at the given position or {@code null} if the segment is closed or no valid entry exists
+   *         at the given position.
+   */
+  <T extends Entry> T readAt(long position, boolean raw) {
+    long stamp = lockRead();
+    try {
+      if (!open || position + INTEGER > end()) {
+        return null;
+      }
 
-      // Read the length of the entry.
-      int length = buffer.readInt(position);
+      ReadContext context = readContext.get();
+      if (readEntry(position, context)) {
+        long index = descriptor.index() + context.offset;
+        if (index <= lastIndex()) {
+          return readEntry(index, context, raw);
+        }
+      }
+      return null;
+    } finally {
+      lock.unlock(stamp);
+    }
+  }
 
-      // Read the entry into memory.
-      try (Buffer slice = buffer.slice(position + INTEGER, length)) {
-        slice.read(memory.clear().limit(length));
-        memory.flip();
+  /**
+   * Skips the entry stored at the given position in the segment if it has the given index.
+   * <p>
+   * This is used to advance past entries that were read from the log's entry cache rather than from the segment.
+   *
+   * @param position The position of the entry in the segment.
+   * @param index The expected index of the entry at the given position.
+   * @return The position of the next entry, or {@code -1} if the segment is closed or the entry at the given
+   *         position does not have the given index.
+   */
+  long skip(long position, long index) {
+    long stamp = lockRead();
+    try {
+      if (!open || position + INTEGER + INTEGER + LONG > end()) {
+        return -1;
       }
 
-      // Read the checksum of the entry.
-      long checksum = memory.readUnsignedInt();
+      int length = readInt(position);
+      if (length == 0 || descriptor.index() + readLong(position + INTEGER + INTEGER) != index) {
+        return -1;
+      }
+      return position + INTEGER + length;
+    } finally {
+      lock.unlock(stamp);
+    }
+  }
 
-      // Verify that the entry at the given offset matches.
-      long entryOffset = memory.readLong();
-      Assert.state(entryOffset == offset, "inconsistent index: %s", index);
+  /**
+   * Returns the position of the first entry in the segment with an index greater than or equal to the given index.
+   * <p>
+   * If the entry at the given index is not present in the segment, entry headers are scanned from the start of
+   * the segment to find the next entry.
+   *
+   * @param index The index to find.
+   * @return The position of the first entry with an index greater than or equal to the given index.
+   */
+  long seek(long index) {
+    long stamp = lockRead();
+    try {
+      assertSegmentOpen();
+      long offset = relativeOffset(index);
+      long position = offsetIndex.position(offset);
+      if (position != -1) {
+        return position;
+      }
 
-      // Skip the term if necessary.
-      if (memory.readBoolean()) {
-        memory.skip(LONG);
+      position = 0;
+      long end = end();
+      while (position + INTEGER + INTEGER + LONG <= end) {
+        int length = readInt(position);
+        if (length == 0 || readLong(position + INTEGER + INTEGER) >= offset) {
+          break;
+        }
+        position += INTEGER + length;
       }
+      return position;
+    } finally {
+      lock.unlock(stamp);
+    }
+  }
 
-      // Calculate the entry position and length.
-      int entryPosition = (int) memory.position();
-      int entryLength = length - entryPosition;
+  /**
+   * Deserializes the entry read into the given read context.
+   */
+  @SuppressWarnings("unchecked")
+  private <T extends Entry> T readEntry(long index, ReadContext context, boolean raw) {
+    long offset = context.offset;
+    if (raw) {
+      byte[] bytes = Arrays.copyOfRange(context.array, (int) context.memory.position(), context.length);
+      return (T) new RawEntry(descriptor.checksumType(), context.storedChecksum, bytes)
+        .setIndex(index)
+        .setTerm(termIndex.lookup(offset))
+        .setSize(context.length);
+    }
 
-      // Compute the checksum for the entry bytes.
-      Checksum crc32 = new CRC32();
-      crc32.update(memory.array(), entryPosition, entryLength);
+    T entry = context.serializer.readObject(context.memory);
+    entry.setIndex(index).setTerm(termIndex.lookup(offset)).setSize(context.length);
+    return entry;
+  }
 
-      // If the stored checksum equals the computed checksum, return the entry.
-      if (checksum == crc32.getValue()) {
-        T entry = serializer.readObject(memory);
-        entry.setIndex(index).setTerm(termIndex.lookup(offset)).setSize(length);
-        return entry;
+  /**
+   * Reads the entry at the given position into the given read context and verifies the entry checksum if read
+   * verification is enabled.
+   * <p>
+   * If the entry is valid, the context's scratch buffer is positioned at the start of the serialized entry bytes,
+   * and the entry's offset and length are stored in the context.
+   *
+   * @return Indicates whether a valid entry was read.
+   */
+  private boolean readEntry(long position, ReadContext context) {
+    // Read the length of the entry.
+    int length;
+    HeapBuffer memory;
+    if (blocks != null) {
+      // Read the entry from the decompressed block that contains it. If the block is malformed, the entry is corrupt.
+      try {
+        length = blocks.readInt(position);
+        if (length <= 0) {
+          return false;
+        }
+        memory = context.read(blocks, position + INTEGER, length);
+      } catch (IllegalArgumentException e) {
+        return false;
+      }
+    } else {
+      length = buffer.readInt(position);
+      if (length <= 0) {
+        return false;
       }
+
+      // Read the entry into the reader's scratch buffer with an absolute read.
+      memory = context.read(buffer, position + INTEGER, length);
     }
-    return null;
+    context.length = length;
+
+    // Read the checksum and offset of the entry.
+    long checksum = memory.readUnsignedInt();
+    context.storedChecksum = checksum;
+    context.offset = memory.readLong();
+
+    // Skip the term if necessary.
+    if (memory.readBoolean()) {
+      memory.skip(LONG);
+    }
+
+    // Calculate the entry position and length.
+    int entryPosition = (int) memory.position();
+    int entryLength = length - entryPosition;
+
+    // Compute the checksum for the entry bytes and compare it to the stored checksum.
+    return !verifyReads || checksum == checksum(context.checksum, context.array, entryPosition, entryLength);
+  }
+
+  /**
+   * Computes the checksum of the given bytes as stored in the segment.
+   * <p>
+   * Checksums are stored as 32-bit unsigned integers, so 64-bit checksums are truncated to their low 32 bits.
+   */
+  private static long checksum(Checksum checksum, byte[] bytes, int offset, int length) {
+    checksum.reset();
+    checksum.update(bytes, offset, length);
+    return checksum.getValue() & 0xFFFFFFFFL;
+  }
+
+  /**
+   * Returns the position following the last entry in the segment.
+   */
+  private long end() {
+    return blocks != null ? blocks.end() : buffer.position();
+  }
+
+  /**
+   * Reads a 32-bit integer at the given entry position.
+   */
+  private int readInt(long position) {
+    return blocks != null ? blocks.readInt(position) : buffer.readInt(position);
+  }
+
+  /**
+   * Reads a 64-bit integer at the given entry position.
+   */
+  private long readLong(long position) {
+    return blocks != null ? blocks.readLong(position) : buffer.readLong(position);
   }
 
   /**
@@ -598,47 +1180,133 @@ public class Segment implements AutoCloseable {
     skip = Math.max(skip - diff, 0);
 
     if (offset < lastOffset) {
-      long position = offsetIndex.truncate(offset);
-      buffer.position(position)
-        .zero(position)
-        .flush();
-      termIndex.truncate(offset);
+      Assert.state(blocks == null, "cannot truncate compressed segment");
+      unseal();
+      long stamp = lock.writeLock();
+      try {
+        long position = offsetIndex.truncate(offset);
+        buffer.position(position)
+          .zero(position)
+          .flush();
+        termIndex.truncate(offset);
+      } finally {
+        lock.unlockWrite(stamp);
+      }
     }
     return this;
   }
 
   /**
    * Flushes the segment buffers to disk.
+   * <p>
+   * Segments may be flushed from a storage thread concurrently with writes to the segment. Flushes don't lock out
+   * readers or writers, but the segment will not be closed while it's being flushed, and flushing a closed segment
+   * has no effect.
    *
    * @return The segment.
    */
-  public Segment flush() {
-    buffer.flush();
-    offsetIndex.flush();
+  public synchronized Segment flush() {
+    if (open) {
+      if (blocks != null) {
+        long stamp = lock.writeLock();
+        try {
+          blocks.flush();
+        } finally {
+          lock.unlockWrite(stamp);
+        }
+      }
+      buffer.flush();
+      index.flush();
+      offsetPredicate.flush();
+    }
     return this;
   }
 
   @Override
-  public void close() {
-    buffer.close();
-    offsetIndex.close();
-    offsetPredicate.close();
-    descriptor.close();
-    open = false;
+  public synchronized void close() {
+    long stamp = lock.writeLock();
+    try {
+      if (blocks != null) {
+        blocks.flush();
+        blocks.close();
+      }
+      buffer.close();
+      index.close();
+      offsetPredicate.close();
+      descriptor.close();
+      open = false;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Seals the segment's index.
+   * <p>
+   * The segment is flushed to disk and the index is sealed. When the segment is next loaded, the sealed index
+   * will be opened rather than rebuilt from the segment's entries. The index will be unsealed if the segment is
+   * modified after it has been sealed.
+   */
+  void seal() {
+    long stamp = lock.writeLock();
+    try {
+      if (open && !index.isSealed()) {
+        if (blocks != null) {
+          blocks.flush();
+        }
+        buffer.flush();
+        index.seal(end());
+      }
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Seals the segment's index if the segment is full.
+   * <p>
+   * This is used to seal segments on a storage thread once they've been rolled over. Because the segment may be
+   * truncated and written again before it's sealed, the segment is only sealed if it's still full. The segment is
+   * flushed before the write lock is acquired so readers are not locked out while the segment is being flushed.
+   */
+  void sealIfFull() {
+    flush();
+    long stamp = lock.writeLock();
+    try {
+      if (open && isFull() && !index.isSealed()) {
+        if (blocks != null) {
+          blocks.flush();
+        }
+        buffer.flush();
+        index.seal(end());
+      }
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Unseals the segment's index prior to modifying the segment.
+   */
+  private void unseal() {
+    if (index.isSealed()) {
+      index.unseal();
+    }
   }
 
   /**
    * Deletes the segment.
    */
   public void delete() {
-    Buffer buffer = this.buffer instanceof SlicedBuffer ? ((SlicedBuffer) this.buffer).root() : this.buffer;
+    Buffer buffer = root(this.buffer);
     if (buffer instanceof FileBuffer) {
       ((FileBuffer) buffer).delete();
     } else if (buffer instanceof MappedBuffer) {
       ((MappedBuffer) buffer).delete();
     }
 
-    offsetIndex.delete();
+    index.delete();
+    SegmentIndex.delete(file.releases());
   }
 
   @Override
@@ -649,4 +1317,97 @@ public class Segment implements AutoCloseable {
   private void assertSegmentOpen() {
     Assert.state(isOpen(), "segment not open");
   }
+
+  /**
+   * Acquires a read lock on the segment.
+   * <p>
+   * Readers of memory and mapped segments share the lock, so reads only block while the writer is resizing or
+   * truncating the segment buffer. Readers of file segments acquire the lock exclusively.
+   */
+  private long lockRead() {
+    return concurrentReads ? lock.readLock() : lock.writeLock();
+  }
+
+  /**
+   * Acquires a write lock on the segment if writing the given number of bytes may move the segment buffer.
+   * <p>
+   * Appends that fit within the current capacity of a memory or mapped segment don't affect the bytes of entries
+   * that have already been written, so they proceed without locking out readers.
+   *
+   * @return The lock stamp or {@code 0} if no lock was acquired.
+   */
+  private long lockWrite(int length) {
+    if (!concurrentReads || buffer.position() + length > buffer.capacity()) {
+      return lock.writeLock();
+    }
+    return 0;
+  }
+
+  /**
+   * Releases a write lock acquired by {@link #lockWrite(int)}.
+   */
+  private void unlockWrite(long stamp) {
+    if (stamp != 0) {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Returns the root of the given buffer.
+   */
+  private static Buffer root(Buffer buffer) {
+    return buffer instanceof SlicedBuffer ? ((SlicedBuffer) buffer).root() : buffer;
+  }
+
+  /**
+   * Per-thread segment read context.
+   * <p>
+   * The read context holds the scratch buffer into which entries are read, a reusable checksum, and a serializer
+   * with which to deserialize entries, allowing multiple threads to read from a segment without allocating or
+   * sharing state on each read.
+   */
+  private static final class ReadContext {
+    private final Serializer serializer;
+    private final Checksum checksum;
+    private byte[] array = new byte[1024];
+    private HeapBuffer memory = HeapBuffer.wrap(array);
+    private long storedChecksum;
+    private long offset;
+    private int length;
+
+    private ReadContext(Serializer serializer, Checksum checksum) {
+      this.serializer = serializer;
+      this.checksum = checksum;
+    }
+
+    /**
+     * Reads the given number of bytes at the given position in the given buffer into the scratch buffer.
+     */
+    private HeapBuffer read(Buffer buffer, long position, int length) {
+      ensureCapacity(length);
+      buffer.read(position, array, 0, length);
+      memory.clear().limit(length);
+      return memory;
+    }
+
+    /**
+     * Reads the given number of bytes at the given position in the given blocks into the scratch buffer.
+     */
+    private HeapBuffer read(SegmentBlocks blocks, long position, int length) {
+      ensureCapacity(length);
+      blocks.read(position, array, 0, length);
+      memory.clear().limit(length);
+      return memory;
+    }
+
+    /**
+     * Grows the scratch buffer if necessary to hold the given number of bytes.
+     */
+    private void ensureCapacity(int length) {
+      if (array.length < length) {
+        array = new byte[Math.max(length, array.length * 2)];
+        memory = HeapBuffer.wrap(array);
+      }
+    }
+  }
 }
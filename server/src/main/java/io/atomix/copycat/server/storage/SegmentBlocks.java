@@ -0,0 +1,290 @@
+/*
+ * Copyright 2017-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.storage;
+
+import io.atomix.catalyst.buffer.Buffer;
+import io.atomix.catalyst.buffer.HeapBuffer;
+import io.atomix.catalyst.util.Assert;
+import io.atomix.copycat.server.storage.util.BlockCache;
+
+import java.util.Arrays;
+
+import static io.atomix.catalyst.buffer.Bytes.INTEGER;
+
+/**
+ * Compressed block storage for a {@link Segment}.
+ * <p>
+ * Compressed segments store entries in a sequence of compressed blocks rather than directly in the segment buffer.
+ * Each block holds a sequence of complete entries in the normal segment entry format, and entries never span
+ * blocks. Blocks are written to the segment buffer in the following format:
+ * <ul>
+ *   <li>Required 32-bit signed decompressed block length</li>
+ *   <li>Required 32-bit signed compressed block length</li>
+ *   <li>The compressed block bytes</li>
+ * </ul>
+ * If compression does not reduce the size of a block, the block is stored uncompressed with equal lengths.
+ * <p>
+ * Entries in compressed segments are addressed by their position in the decompressed sequence of entries, so
+ * segment indexes store the same positions for compressed and uncompressed segments. The block storage maps
+ * positions to blocks through an in-memory index of the decompressed and stored positions of each block, which
+ * is rebuilt by reading block headers when the segment is loaded. Reading an entry decompresses only the block
+ * that contains it. Decompressed blocks are cached in the shared {@link BlockCache}, and each reading thread
+ * retains the last block it read so sequential reads don't look up the cache for every entry.
+ * <p>
+ * Entries appended to the segment are buffered in memory until the buffered block reaches the configured block
+ * size, at which point the block is compressed and written to the segment buffer. The buffered block is written
+ * when the segment is {@link #flush() flushed}. Block storage is not thread safe. Writes must be exclusive of
+ * reads, and the segment is responsible for locking.
+ *
+ * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
+ */
+final class SegmentBlocks {
+  private static final int HEADER_LENGTH = INTEGER + INTEGER;
+
+  private final Buffer buffer;
+  private final CompressionType compressionType;
+  private final int blockSize;
+  private final BlockCache cache;
+  private final HeapBuffer pending = HeapBuffer.allocate();
+  private final ThreadLocal<Block> lastBlock = new ThreadLocal<>();
+  private long[] blocks = new long[32];
+  private int count;
+  private long pendingPosition;
+
+  /**
+   * Opens the block storage over the given buffer, indexing the blocks that have already been written to it.
+   *
+   * @param buffer The segment buffer.
+   * @param compressionType The block compression type.
+   * @param blockSize The size of the decompressed blocks to write.
+   * @param cache The cache in which to store decompressed blocks.
+   * @throws NullPointerException if any argument is null
+   */
+  SegmentBlocks(Buffer buffer, CompressionType compressionType, int blockSize, BlockCache cache) {
+    this.buffer = Assert.notNull(buffer, "buffer");
+    this.compressionType = Assert.notNull(compressionType, "compressionType");
+    this.blockSize = Assert.arg(blockSize, blockSize > 0, "blockSize must be positive");
+    this.cache = Assert.notNull(cache, "cache");
+
+    // Index the blocks by reading the header of each block. A block with a missing or invalid header ends the segment.
+    long position = 0;
+    long blockPosition = 0;
+    while (position + HEADER_LENGTH <= buffer.maxCapacity()) {
+      int length = buffer.readInt(position);
+      int compressedLength = buffer.readInt(position + INTEGER);
+      if (length <= 0 || compressedLength <= 0 || position + HEADER_LENGTH + compressedLength > buffer.maxCapacity()) {
+        break;
+      }
+      index(blockPosition, position);
+      blockPosition += length;
+      position += HEADER_LENGTH + compressedLength;
+    }
+    buffer.position(position);
+    pendingPosition = blockPosition;
+  }
+
+  /**
+   * Returns the number of blocks that have been written to the segment buffer.
+   *
+   * @return The number of written blocks.
+   */
+  int count() {
+    return count;
+  }
+
+  /**
+   * Returns the position following the last entry in the decompressed sequence of entries.
+   *
+   * @return The end position of the entries.
+   */
+  long end() {
+    return pendingPosition + pending.position();
+  }
+
+  /**
+   * Returns the number of bytes used by the segment, including the size of the buffered block.
+   *
+   * @return The size of the blocks in bytes.
+   */
+  long size() {
+    return buffer.position() + pending.position();
+  }
+
+  /**
+   * Appends an entry to the buffered block, writing the buffered block first if the entry does not fit.
+   *
+   * @param bytes The array containing the entry, excluding its length.
+   * @param offset The offset of the entry in the array.
+   * @param length The length of the entry.
+   * @return The position of the entry.
+   */
+  long append(byte[] bytes, int offset, int length) {
+    if (pending.position() > 0 && pending.position() + INTEGER + length > blockSize) {
+      flush();
+    }
+    long position = end();
+    pending.writeInt(length).write(bytes, offset, length);
+    return position;
+  }
+
+  /**
+   * Compresses the buffered block and writes it to the segment buffer.
+   */
+  void flush() {
+    int length = (int) pending.position();
+    if (length == 0) {
+      return;
+    }
+
+    byte[] compressed = new byte[compressionType.maxCompressedLength(length)];
+    int compressedLength = compressionType.compress(pending.array(), 0, length, compressed, 0);
+
+    long position = buffer.position();
+    buffer.writeInt(length);
+    if (compressedLength < length) {
+      buffer.writeInt(compressedLength).write(compressed, 0, compressedLength);
+    } else {
+      buffer.writeInt(length).write(pending.array(), 0, length);
+    }
+
+    index(pendingPosition, position);
+    pendingPosition += length;
+    pending.clear();
+  }
+
+  /**
+   * Reads a 32-bit integer at the given position, returning {@code 0} if the position is past the end of the entries.
+   */
+  int readInt(long position) {
+    if (position + INTEGER > end()) {
+      return 0;
+    }
+    Block block = block(position);
+    return block.buffer.readInt(position - block.position);
+  }
+
+  /**
+   * Reads a 64-bit integer at the given position, returning {@code 0} if the position is past the end of the entries.
+   */
+  long readLong(long position) {
+    if (position + Long.BYTES > end()) {
+      return 0;
+    }
+    Block block = block(position);
+    return block.buffer.readLong(position - block.position);
+  }
+
+  /**
+   * Reads bytes at the given position into the given array.
+   *
+   * @throws IllegalArgumentException if the block containing the bytes is malformed
+   */
+  void read(long position, byte[] bytes, int offset, int length) {
+    Block block = block(position);
+    block.buffer.read(position - block.position, bytes, offset, length);
+  }
+
+  /**
+   * Returns the block containing the given position.
+   */
+  private Block block(long position) {
+    if (position >= pendingPosition) {
+      return new Block(pendingPosition, pending);
+    }
+
+    Block block = lastBlock.get();
+    if (block != null && position >= block.position && position < block.position + block.buffer.capacity()) {
+      return block;
+    }
+
+    int index = find(position);
+    byte[] bytes = cache.get(this, index);
+    if (bytes == null) {
+      bytes = decompress(index);
+      cache.put(this, index, bytes);
+    }
+    block = new Block(blocks[index * 2], HeapBuffer.wrap(bytes));
+    lastBlock.set(block);
+    return block;
+  }
+
+  /**
+   * Reads and decompresses the block with the given number.
+   */
+  private byte[] decompress(int index) {
+    long position = blocks[index * 2 + 1];
+    int length = buffer.readInt(position);
+    int compressedLength = buffer.readInt(position + INTEGER);
+    byte[] compressed = new byte[compressedLength];
+    buffer.read(position + HEADER_LENGTH, compressed, 0, compressedLength);
+    if (compressedLength == length) {
+      return compressed;
+    }
+    byte[] bytes = new byte[length];
+    compressionType.decompress(compressed, 0, compressedLength, bytes, 0, length);
+    return bytes;
+  }
+
+  /**
+   * Indexes a block with the given decompressed position at the given buffer position.
+   */
+  private void index(long blockPosition, long position) {
+    if (count * 2 == blocks.length) {
+      blocks = Arrays.copyOf(blocks, blocks.length * 2);
+    }
+    blocks[count * 2] = blockPosition;
+    blocks[count * 2 + 1] = position;
+    count++;
+  }
+
+  /**
+   * Returns the number of the last block with a decompressed position less than or equal to the given position.
+   */
+  private int find(long position) {
+    int lo = 0;
+    int hi = count - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      if (blocks[mid * 2] <= position) {
+        lo = mid + 1;
+      } else {
+        hi = mid - 1;
+      }
+    }
+    return hi;
+  }
+
+  /**
+   * Removes the segment's blocks from the block cache.
+   */
+  void close() {
+    cache.remove(this);
+  }
+
+  /**
+   * A decompressed block and its position in the decompressed sequence of entries.
+   */
+  private static final class Block {
+    private final long position;
+    private final Buffer buffer;
+
+    private Block(long position, Buffer buffer) {
+      this.position = position;
+      this.buffer = buffer;
+    }
+  }
+
+}
@@ -42,6 +42,12 @@ import io.atomix.catalyst.util.Assert;
  *   <li>{@code locked} (8-bit boolean) - A boolean indicating whether the segment is locked. Segments will be locked once
  *   all entries have been committed to the segment. The lock state of each segment is used to determine log compaction
  *   and recovery behavior.</li>
+ *   <li>{@code checksumType} (8-bit signed integer) - The {@link ChecksumType} identifier of the algorithm with which
+ *   entries in the segment are checksummed. Segments written before the checksum type was recorded store {@code 0},
+ *   which is {@link ChecksumType#CRC32}.</li>
+ *   <li>{@code compressionType} (8-bit signed integer) - The {@link CompressionType} identifier of the algorithm with
+ *   which the segment's entry blocks are compressed. Segments written before the compression type was recorded store
+ *   {@code 0}, which is {@link CompressionType#NONE}.</li>
  * </ul>
  * The remainder of the 64 segment header bytes are reserved for future metadata.
  *
@@ -58,6 +64,8 @@ public final class SegmentDescriptor implements AutoCloseable {
   private static final int MAX_ENTRIES_LENGTH = Bytes.INTEGER; // 32-bit signed integer
   private static final int     UPDATED_LENGTH = Bytes.LONG;    // 64-bit signed integer
   private static final int      LOCKED_LENGTH = Bytes.BOOLEAN; // 8-bit boolean
+  private static final int    CHECKSUM_LENGTH = Bytes.BYTE;    // 8-bit signed integer
+  private static final int COMPRESSION_LENGTH = Bytes.BYTE;    // 8-bit signed integer
 
   // The positions of each field in the header.
   private static final long          ID_POSITION = 0;                                         // 0
@@ -67,6 +75,8 @@ public final class SegmentDescriptor implements AutoCloseable {
   private static final long MAX_ENTRIES_POSITION = MAX_SIZE_POSITION + MAX_SIZE_LENGTH;       // 28
   private static final long     UPDATED_POSITION = MAX_ENTRIES_POSITION + MAX_ENTRIES_LENGTH; // 32
   private static final long      LOCKED_POSITION = UPDATED_POSITION + UPDATED_LENGTH;         // 40
+  private static final long    CHECKSUM_POSITION = LOCKED_POSITION + LOCKED_LENGTH;           // 41
+  private static final long COMPRESSION_POSITION = CHECKSUM_POSITION + CHECKSUM_LENGTH;        // 42
 
   /**
    * Returns a descriptor builder.
@@ -98,9 +108,12 @@ public final class SegmentDescriptor implements AutoCloseable {
   private final int maxEntries;
   private volatile long updated;
   private volatile boolean locked;
+  private final ChecksumType checksumType;
+  private final CompressionType compressionType;
 
   /**
    * @throws NullPointerException if {@code buffer} is null
+   * @throws DescriptorException if the descriptor's checksum or compression type is unknown
    */
   public SegmentDescriptor(Buffer buffer) {
     this.buffer = Assert.notNull(buffer, "buffer");
@@ -111,6 +124,18 @@ public final class SegmentDescriptor implements AutoCloseable {
     this.maxEntries = buffer.readInt();
     this.updated = buffer.readLong();
     this.locked = buffer.readBoolean();
+    int checksumType = buffer.readByte();
+    try {
+      this.checksumType = ChecksumType.forId(checksumType);
+    } catch (IllegalArgumentException e) {
+      throw new DescriptorException(e, "unknown checksum type for segment %d: %d", id, checksumType);
+    }
+    int compressionType = buffer.readByte();
+    try {
+      this.compressionType = CompressionType.forId(compressionType);
+    } catch (IllegalArgumentException e) {
+      throw new DescriptorException(e, "unknown compression type for segment %d: %d", id, compressionType);
+    }
     buffer.skip(BYTES - buffer.position()); // 64 bytes reserved for the header
   }
 
@@ -168,6 +193,26 @@ public final class SegmentDescriptor implements AutoCloseable {
     return maxEntries;
   }
 
+  /**
+   * Returns the algorithm with which entries in the segment are checksummed.
+   *
+   * @return The segment checksum type.
+   */
+  public ChecksumType checksumType() {
+    return checksumType;
+  }
+
+  /**
+   * Returns the algorithm with which the segment's entry blocks are compressed.
+   * <p>
+   * If the compression type is {@link CompressionType#NONE}, entries are stored directly in the segment.
+   *
+   * @return The segment compression type.
+   */
+  public CompressionType compressionType() {
+    return compressionType;
+  }
+
   /**
    * Returns last time the segment was updated.
    * <p>
@@ -223,6 +268,8 @@ public final class SegmentDescriptor implements AutoCloseable {
       .writeInt(maxEntries)
       .writeLong(updated)
       .writeBoolean(locked)
+      .writeByte(checksumType.id())
+      .writeByte(compressionType.id())
       .skip(BYTES - buffer.position())
       .flush();
     return this;
@@ -246,7 +293,7 @@ public final class SegmentDescriptor implements AutoCloseable {
 
   @Override
   public String toString() {
-    return String.format("%s[id=%d, version=%d, index=%d, updated=%d, locked=%b]", getClass().getSimpleName(), id, version, index, updated, locked);
+    return String.format("%s[id=%d, version=%d, index=%d, updated=%d, locked=%b, checksumType=%s, compressionType=%s]", getClass().getSimpleName(), id, version, index, updated, locked, checksumType, compressionType);
   }
 
   /**
@@ -314,6 +361,30 @@ public final class SegmentDescriptor implements AutoCloseable {
       return this;
     }
 
+    /**
+     * Sets the algorithm with which entries in the segment are checksummed.
+     *
+     * @param checksumType The segment checksum type.
+     * @return The segment descriptor builder.
+     * @throws NullPointerException if {@code checksumType} is null
+     */
+    public Builder withChecksumType(ChecksumType checksumType) {
+      buffer.writeByte(41, Assert.notNull(checksumType, "checksumType").id());
+      return this;
+    }
+
+    /**
+     * Sets the algorithm with which the segment's entry blocks are compressed.
+     *
+     * @param compressionType The segment compression type.
+     * @return The segment descriptor builder.
+     * @throws NullPointerException if {@code compressionType} is null
+     */
+    public Builder withCompressionType(CompressionType compressionType) {
+      buffer.writeByte(42, Assert.notNull(compressionType, "compressionType").id());
+      return this;
+    }
+
     /**
      * Builds the segment descriptor.
      *
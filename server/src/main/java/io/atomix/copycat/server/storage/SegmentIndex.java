@@ -0,0 +1,308 @@
+/*
+ * Copyright 2017-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.storage;
+
+import io.atomix.catalyst.buffer.Buffer;
+import io.atomix.catalyst.buffer.HeapBuffer;
+import io.atomix.catalyst.buffer.MappedBuffer;
+import io.atomix.catalyst.util.Assert;
+import io.atomix.copycat.server.storage.index.DelegatingOffsetIndex;
+import io.atomix.copycat.server.storage.index.MappedOffsetIndex;
+import io.atomix.copycat.server.storage.index.OffsetIndex;
+import io.atomix.copycat.server.storage.util.TermIndex;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Offset and term indexes for a {@link Segment}.
+ * <p>
+ * Indexes for persistent segments are stored in a memory-mapped index file alongside the segment file. The index
+ * file consists of a {@link #HEADER_BYTES} byte header followed by a fixed size region for the {@link OffsetIndex}
+ * and a fixed size region for the {@link TermIndex}, each large enough to index {@link SegmentDescriptor#maxEntries()}
+ * entries. Index files are sparse, so only the regions that have been written consume disk space, and because the
+ * indexes are read from the mapped file rather than copied to the heap, they consume almost no heap.
+ * <p>
+ * Once a segment has been completely written, the index is {@link #seal(long) sealed} by writing the size of each
+ * index and the position of the end of the segment to the header. When a sealed index is reopened, the indexes are
+ * read directly from the file in O(1) time rather than rebuilt by scanning the segment. Sealed indexes must be
+ * {@link #unseal() unsealed} before the segment is modified. Indexes for memory segments are stored on the heap
+ * and are never sealed.
+ * <p>
+ * The index file header is stored in the following binary format:
+ * <ul>
+ *   <li>32-bit signed index format version</li>
+ *   <li>64-bit signed segment ID</li>
+ *   <li>64-bit signed segment version</li>
+ *   <li>64-bit signed segment index</li>
+ *   <li>8-bit boolean sealed flag</li>
+ *   <li>32-bit signed offset index size</li>
+ *   <li>32-bit signed term index size</li>
+ *   <li>64-bit signed position of the end of the segment</li>
+ * </ul>
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+final class SegmentIndex implements AutoCloseable {
+  static final int HEADER_BYTES = 64;
+  private static final int FORMAT_VERSION = 1;
+  private static final int TERM_ENTRY_BYTES = 16;
+
+  private static final int FORMAT_POSITION = 0;
+  private static final int ID_POSITION = FORMAT_POSITION + 4;
+  private static final int VERSION_POSITION = ID_POSITION + 8;
+  private static final int INDEX_POSITION = VERSION_POSITION + 8;
+  private static final int SEALED_POSITION = INDEX_POSITION + 8;
+  private static final int OFFSETS_POSITION = SEALED_POSITION + 1;
+  private static final int TERMS_POSITION = OFFSETS_POSITION + 4;
+  private static final int END_POSITION = TERMS_POSITION + 4;
+
+  /**
+   * Creates an in-memory segment index.
+   *
+   * @param descriptor The segment descriptor.
+   * @return The segment index.
+   */
+  static SegmentIndex createMemoryIndex(SegmentDescriptor descriptor) {
+    OffsetIndex offsetIndex = new DelegatingOffsetIndex(HeapBuffer.allocate(Math.min(1024 * 1024, descriptor.maxEntries()), OffsetIndex.size(descriptor.maxEntries())));
+    return new SegmentIndex(null, null, offsetIndex, new TermIndex());
+  }
+
+  /**
+   * Creates a new memory-mapped segment index, overwriting any existing index file.
+   *
+   * @param file The index file.
+   * @param descriptor The segment descriptor.
+   * @return The segment index.
+   */
+  static SegmentIndex createMappedIndex(File file, SegmentDescriptor descriptor) {
+    return createMappedIndex(file, allocate(file, descriptor.maxEntries()), descriptor);
+  }
+
+  /**
+   * Creates a new memory-mapped segment index in a buffer that was previously {@link #allocate(File, int) allocated}.
+   *
+   * @param file The index file.
+   * @param buffer The allocated index buffer.
+   * @param descriptor The segment descriptor.
+   * @return The segment index.
+   */
+  static SegmentIndex createMappedIndex(File file, MappedBuffer buffer, SegmentDescriptor descriptor) {
+    writeHeader(buffer, descriptor);
+    return open(file, buffer, descriptor, 0, 0);
+  }
+
+  /**
+   * Opens a memory-mapped segment index.
+   * <p>
+   * If the index file was sealed for the given segment, the indexes will be opened over the existing index entries.
+   * Otherwise, the index will be empty.
+   *
+   * @param file The index file.
+   * @param descriptor The segment descriptor.
+   * @return The segment index.
+   */
+  static SegmentIndex loadMappedIndex(File file, SegmentDescriptor descriptor) {
+    MappedBuffer buffer = allocate(file, descriptor.maxEntries());
+    if (buffer.readInt(FORMAT_POSITION) == FORMAT_VERSION
+      && buffer.readLong(ID_POSITION) == descriptor.id()
+      && buffer.readLong(VERSION_POSITION) == descriptor.version()
+      && buffer.readLong(INDEX_POSITION) == descriptor.index()
+      && buffer.readBoolean(SEALED_POSITION)) {
+      return open(file, buffer, descriptor, buffer.readInt(OFFSETS_POSITION), buffer.readInt(TERMS_POSITION));
+    }
+    writeHeader(buffer, descriptor);
+    return open(file, buffer, descriptor, 0, 0);
+  }
+
+  /**
+   * Allocates a mapped index buffer for a segment with the given maximum number of entries.
+   *
+   * @param file The index file.
+   * @param maxEntries The maximum number of entries in the segment.
+   * @return The mapped index buffer.
+   */
+  static MappedBuffer allocate(File file, int maxEntries) {
+    long size = HEADER_BYTES + MappedOffsetIndex.size(maxEntries) + (long) maxEntries * TERM_ENTRY_BYTES;
+    return MappedBuffer.allocate(file, size, size);
+  }
+
+  /**
+   * Writes an unsealed header for the given segment.
+   */
+  private static void writeHeader(Buffer buffer, SegmentDescriptor descriptor) {
+    buffer.writeInt(FORMAT_POSITION, FORMAT_VERSION)
+      .writeLong(ID_POSITION, descriptor.id())
+      .writeLong(VERSION_POSITION, descriptor.version())
+      .writeLong(INDEX_POSITION, descriptor.index())
+      .writeBoolean(SEALED_POSITION, false)
+      .writeInt(OFFSETS_POSITION, 0)
+      .writeInt(TERMS_POSITION, 0)
+      .writeLong(END_POSITION, 0)
+      .flush();
+  }
+
+  /**
+   * Opens the indexes over the given mapped buffer.
+   */
+  private static SegmentIndex open(File file, MappedBuffer buffer, SegmentDescriptor descriptor, int offsets, int terms) {
+    long offsetsSize = MappedOffsetIndex.size(descriptor.maxEntries());
+    long termsSize = (long) descriptor.maxEntries() * TERM_ENTRY_BYTES;
+    OffsetIndex offsetIndex = new MappedOffsetIndex(buffer.slice(HEADER_BYTES, offsetsSize), offsets);
+    TermIndex termIndex = new TermIndex(buffer.slice(HEADER_BYTES + offsetsSize, termsSize), terms);
+    return new SegmentIndex(file, buffer, offsetIndex, termIndex);
+  }
+
+  private final File file;
+  private final Buffer buffer;
+  private final OffsetIndex offsetIndex;
+  private final TermIndex termIndex;
+  private volatile boolean sealed;
+
+  private SegmentIndex(File file, Buffer buffer, OffsetIndex offsetIndex, TermIndex termIndex) {
+    this.file = file;
+    this.buffer = buffer;
+    this.offsetIndex = Assert.notNull(offsetIndex, "offsetIndex");
+    this.termIndex = Assert.notNull(termIndex, "termIndex");
+    this.sealed = buffer != null && buffer.readBoolean(SEALED_POSITION);
+  }
+
+  /**
+   * Returns the segment offset index.
+   *
+   * @return The segment offset index.
+   */
+  OffsetIndex offsetIndex() {
+    return offsetIndex;
+  }
+
+  /**
+   * Returns the segment term index.
+   *
+   * @return The segment term index.
+   */
+  TermIndex termIndex() {
+    return termIndex;
+  }
+
+  /**
+   * Returns a boolean indicating whether the index is sealed.
+   *
+   * @return Indicates whether the index is sealed.
+   */
+  boolean isSealed() {
+    return sealed;
+  }
+
+  /**
+   * Returns the position of the end of the segment recorded when the index was sealed.
+   *
+   * @return The position of the end of the segment.
+   */
+  long position() {
+    return buffer != null ? buffer.readLong(END_POSITION) : 0;
+  }
+
+  /**
+   * Seals the index.
+   * <p>
+   * The index entries are flushed to disk before the header is written, so a sealed header never describes
+   * index entries that have not been persisted.
+   *
+   * @param position The position of the end of the segment.
+   */
+  void seal(long position) {
+    if (buffer != null && !sealed) {
+      buffer.writeInt(OFFSETS_POSITION, offsetIndex.size())
+        .writeInt(TERMS_POSITION, termIndex.size())
+        .writeLong(END_POSITION, position)
+        .flush();
+      buffer.writeBoolean(SEALED_POSITION, true).flush();
+      sealed = true;
+    }
+  }
+
+  /**
+   * Unseals the index.
+   * <p>
+   * The index must be unsealed before the segment is modified, so the index will be rebuilt if the segment
+   * is reopened before it's sealed again.
+   */
+  void unseal() {
+    if (buffer != null && sealed) {
+      buffer.writeBoolean(SEALED_POSITION, false).flush();
+      sealed = false;
+    }
+  }
+
+  /**
+   * Clears the index.
+   */
+  void reset() {
+    unseal();
+    offsetIndex.truncate(-1);
+    termIndex.truncate(-1);
+  }
+
+  /**
+   * Flushes the index to disk.
+   */
+  void flush() {
+    offsetIndex.flush();
+  }
+
+  @Override
+  public void close() {
+    if (buffer != null) {
+      buffer.close();
+    } else {
+      offsetIndex.close();
+    }
+  }
+
+  /**
+   * Deletes the index.
+   */
+  void delete() {
+    if (file != null) {
+      delete(file);
+    } else {
+      offsetIndex.delete();
+    }
+  }
+
+  /**
+   * Deletes the given index file.
+   * <p>
+   * Missing files are ignored, so this is also used to delete a segment's release file.
+   *
+   * @param file The index file to delete.
+   */
+  static void delete(File file) {
+    try {
+      Files.deleteIfExists(file.toPath());
+    } catch (IOException e) {
+      // Ignore the exception.
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s[file=%s, sealed=%b]", getClass().getSimpleName(), file != null ? file.getName() : null, sealed);
+  }
+
+}
@@ -19,39 +19,72 @@ import io.atomix.catalyst.buffer.Buffer;
 import io.atomix.catalyst.buffer.FileBuffer;
 import io.atomix.catalyst.buffer.HeapBuffer;
 import io.atomix.catalyst.buffer.MappedBuffer;
+import io.atomix.catalyst.concurrent.CatalystThreadFactory;
 import io.atomix.catalyst.serializer.Serializer;
 import io.atomix.catalyst.util.Assert;
-import io.atomix.copycat.server.storage.index.DelegatingOffsetIndex;
-import io.atomix.copycat.server.storage.index.OffsetIndex;
+import io.atomix.copycat.server.storage.util.BlockCache;
 import io.atomix.copycat.server.storage.util.OffsetPredicate;
+import io.atomix.copycat.server.storage.util.RateMeter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.nio.ByteOrder;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
-import java.util.NavigableMap;
+import java.util.Set;
 import java.util.TreeMap;
-import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Manages creation and deletion of {@link Segment}s of the {@link Log}.
  * <p>
  * The segment manager keeps track of segments in a given {@link Log} and provides an interface to loading, retrieving,
  * and compacting those segments.
+ * <p>
+ * Persistent logs have a dedicated storage thread on which segment files are allocated, segments are sealed, and
+ * the log is flushed to disk, so slow disk operations don't block the thread writing to the log. The file for the
+ * next segment is preallocated to its full {@link Storage#maxSegmentSize()} (up to {@link #MAX_PREALLOCATED_SIZE}
+ * bytes) on the storage thread while the current segment is being written. When the current segment fills up, the
+ * preallocated file is used for the next segment, so rolling over to a new segment doesn't create, grow, or remap
+ * files on the append path. Preallocated files that were never used have unlocked descriptors and are deleted
+ * when the log is reopened.
+ * <p>
+ * Segments are stored in an immutable {@link SegmentTable}. Changes to the set of segments, such as rolling over to
+ * a new segment or replacing segments after compaction, publish a copy of the table, so segments can be looked up
+ * without locking while the table is being changed. Segments that are removed from the table are
+ * {@link Segment#retire() retired} and are only closed and deleted once readers have released their
+ * {@link Segment#acquire() references} to them.
  *
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
 public class SegmentManager implements AutoCloseable {
   private static final Logger LOGGER = LoggerFactory.getLogger(SegmentManager.class);
   private static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+  static final int MAX_PREALLOCATED_SIZE = 1024 * 1024 * 32;
   
   private final String name;
   private final Storage storage;
   private final Serializer serializer;
-  private final NavigableMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
-  private Segment currentSegment;
+  private final Set<Segment> retiredSegments = ConcurrentHashMap.newKeySet();
+  private volatile SegmentTable segments = SegmentTable.EMPTY;
+  private final ExecutorService ioExecutor;
+  private final BlockCache blockCache;
+  private final RateMeter appendMeter = new RateMeter();
+  private volatile long flushLatency;
+  private Future<SegmentAllocation> nextAllocation;
+  private volatile Segment currentSegment;
   private long commitIndex;
 
   /**
@@ -61,7 +94,10 @@ public class SegmentManager implements AutoCloseable {
     this.name = Assert.notNull(name, "name");
     this.storage = Assert.notNull(storage, "storage");
     this.serializer = Assert.notNull(serializer, "serializer");
+    this.ioExecutor = storage.level() != StorageLevel.MEMORY ? Executors.newSingleThreadExecutor(new CatalystThreadFactory("copycat-storage-%d")) : null;
+    this.blockCache = new BlockCache(storage.blockCacheSize());
     open();
+    preallocate();
   }
 
   /**
@@ -73,6 +109,15 @@ public class SegmentManager implements AutoCloseable {
     return storage;
   }
 
+  /**
+   * Returns the cache of blocks decompressed from compressed segments.
+   *
+   * @return The block cache.
+   */
+  public BlockCache blockCache() {
+    return blockCache;
+  }
+
   /**
    * Returns the entry serializer.
    *
@@ -102,18 +147,62 @@ public class SegmentManager implements AutoCloseable {
     return commitIndex;
   }
 
+  /**
+   * Records bytes appended to the log.
+   *
+   * @param bytes The number of bytes appended.
+   */
+  void recordAppend(long bytes) {
+    appendMeter.mark(bytes);
+  }
+
+  /**
+   * Returns the rate at which entries are being appended to the log.
+   * <p>
+   * Entries written to segments by compaction are not counted.
+   *
+   * @return The append rate in bytes per second.
+   */
+  public long appendRate() {
+    return appendMeter.rate();
+  }
+
+  /**
+   * Records the latency of a log flush.
+   * <p>
+   * The flush latency is smoothed with an exponentially weighted moving average so a single slow flush doesn't
+   * dominate the recorded latency.
+   *
+   * @param latency The flush latency in nanoseconds.
+   */
+  void recordFlush(long latency) {
+    long flushLatency = this.flushLatency;
+    this.flushLatency = flushLatency == 0 ? latency : flushLatency + (latency - flushLatency) / 4;
+  }
+
+  /**
+   * Returns the average latency of recent log flushes.
+   *
+   * @return The average flush latency in nanoseconds.
+   */
+  public long flushLatency() {
+    return flushLatency;
+  }
+
   /**
    * Opens the segments.
    */
-  private void open() {
+  private synchronized void open() {
     // Load existing log segments from disk.
+    SegmentTable segments = SegmentTable.EMPTY;
     for (Segment segment : loadSegments()) {
-      segments.put(segment.descriptor().index(), segment);
+      segments = segments.put(segment);
     }
+    this.segments = segments;
 
     // If a segment doesn't already exist, create an initial segment starting at index 1.
     if (!segments.isEmpty()) {
-      currentSegment = segments.lastEntry().getValue();
+      currentSegment = segments.last();
     } else {
       SegmentDescriptor descriptor = SegmentDescriptor.builder()
         .withId(1)
@@ -121,6 +210,7 @@ public class SegmentManager implements AutoCloseable {
         .withIndex(1)
         .withMaxSegmentSize(storage.maxSegmentSize())
         .withMaxEntries(storage.maxEntriesPerSegment())
+        .withChecksumType(storage.checksumType())
         .build();
 
       descriptor.lock();
@@ -129,7 +219,7 @@ public class SegmentManager implements AutoCloseable {
       currentSegment.descriptor().update(System.currentTimeMillis());
       currentSegment.descriptor().lock();
 
-      segments.put(1L, currentSegment);
+      this.segments = segments.put(currentSegment);
     }
   }
 
@@ -165,12 +255,13 @@ public class SegmentManager implements AutoCloseable {
         .withIndex(1)
         .withMaxSegmentSize(storage.maxSegmentSize())
         .withMaxEntries(storage.maxEntriesPerSegment())
+        .withChecksumType(storage.checksumType())
         .build();
       descriptor.lock();
 
       currentSegment = createSegment(descriptor);
 
-      segments.put(1L, currentSegment);
+      segments = segments.put(currentSegment);
     }
   }
 
@@ -179,10 +270,9 @@ public class SegmentManager implements AutoCloseable {
    * 
    * @throws IllegalStateException if the segment manager is not open
    */
-  public synchronized Segment firstSegment() {
+  public Segment firstSegment() {
     assertOpen();
-    Map.Entry<Long, Segment> segment = segments.firstEntry();
-    return segment != null ? segment.getValue() : null;
+    return segments.first();
   }
 
   /**
@@ -190,10 +280,9 @@ public class SegmentManager implements AutoCloseable {
    * 
    * @throws IllegalStateException if the segment manager is not open
    */
-  public synchronized Segment lastSegment() {
+  public Segment lastSegment() {
     assertOpen();
-    Map.Entry<Long, Segment> segment = segments.lastEntry();
-    return segment != null ? segment.getValue() : null;
+    return segments.last();
   }
 
   /**
@@ -204,6 +293,11 @@ public class SegmentManager implements AutoCloseable {
    */
   public synchronized Segment nextSegment() {
     assertOpen();
+
+    // Seal the current segment on the storage thread since no more entries will be written to it.
+    Segment previousSegment = currentSegment;
+    runAsync(previousSegment::sealIfFull);
+
     Segment lastSegment = lastSegment();
     SegmentDescriptor descriptor = SegmentDescriptor.builder()
       .withId(lastSegment != null ? lastSegment.descriptor().id() + 1 : 1)
@@ -211,22 +305,107 @@ public class SegmentManager implements AutoCloseable {
       .withIndex(currentSegment.lastIndex() + 1)
       .withMaxSegmentSize(storage.maxSegmentSize())
       .withMaxEntries(storage.maxEntriesPerSegment())
+      .withChecksumType(storage.checksumType())
       .build();
     descriptor.lock();
 
-    currentSegment = createSegment(descriptor);
+    // If the file for the next segment was preallocated, use it. Otherwise, create a new segment file. The
+    // preallocated file may be for a different segment if the log was truncated after it was allocated.
+    SegmentAllocation allocation = awaitAllocation();
+    if (allocation != null && allocation.id == descriptor.id()) {
+      currentSegment = createSegment(allocation, descriptor);
+    } else {
+      if (allocation != null) {
+        allocation.delete();
+      }
+      currentSegment = createSegment(descriptor);
+    }
+
+    segments = segments.put(currentSegment);
 
-    segments.put(descriptor.index(), currentSegment);
+    // Begin preallocating the file for the following segment.
+    preallocate();
     return currentSegment;
   }
 
+  /**
+   * Runs the given task on the storage thread.
+   * <p>
+   * Storage tasks are run in the order in which they're submitted. For memory logs, which don't have a storage
+   * thread, the task is run synchronously.
+   *
+   * @param task The task to run.
+   * @return A future to be completed once the task has been run.
+   */
+  CompletableFuture<Void> runAsync(Runnable task) {
+    if (ioExecutor == null) {
+      task.run();
+      return CompletableFuture.completedFuture(null);
+    }
+    return CompletableFuture.runAsync(task, ioExecutor);
+  }
+
+  /**
+   * Preallocates the file for the segment following the last segment in the background.
+   */
+  private void preallocate() {
+    if (ioExecutor != null) {
+      long id = lastSegment().descriptor().id() + 1;
+      nextAllocation = ioExecutor.submit(() -> allocate(id));
+    }
+  }
+
+  /**
+   * Waits for the pending segment preallocation to complete, returning the preallocated segment files or
+   * {@code null} if no files were preallocated.
+   */
+  private SegmentAllocation awaitAllocation() {
+    Future<SegmentAllocation> future = nextAllocation;
+    nextAllocation = null;
+    if (future == null) {
+      return null;
+    }
+
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    } catch (ExecutionException e) {
+      LOGGER.warn("Failed to preallocate segment", e.getCause());
+      return null;
+    }
+  }
+
+  /**
+   * Allocates a segment file and index file for the given segment ID at their full sizes.
+   * <p>
+   * Files are extended to the maximum segment size, up to {@link #MAX_PREALLOCATED_SIZE}, and mapped segments are
+   * mapped once at that size, so segments don't need to be resized or remapped while entries are being appended.
+   */
+  private SegmentAllocation allocate(long id) {
+    File segmentFile = SegmentFile.createSegmentFile(name, storage.directory(), id, 1);
+    File indexFile = new SegmentFile(segmentFile).index();
+
+    int size = Math.min(storage.maxSegmentSize(), MAX_PREALLOCATED_SIZE);
+    Buffer buffer;
+    if (storage.level() == StorageLevel.MAPPED) {
+      buffer = MappedBuffer.allocate(segmentFile, size, Integer.MAX_VALUE);
+    } else {
+      buffer = FileBuffer.allocate(segmentFile, size, Integer.MAX_VALUE);
+    }
+    SegmentAllocation allocation = new SegmentAllocation(id, segmentFile, buffer, indexFile, SegmentIndex.allocate(indexFile, storage.maxEntriesPerSegment()));
+    LOGGER.debug("Preallocated segment: {} ({})", id, segmentFile.getName());
+    return allocation;
+  }
+
   /**
    * Returns the collection of segments.
    *
    * @return An ordered collection of segments.
    */
   public Collection<Segment> segments() {
-    return segments.values();
+    return segments.segments();
   }
 
   /**
@@ -235,63 +414,94 @@ public class SegmentManager implements AutoCloseable {
    * @return A reverse ordered collection of segments.
    */
   public Collection<Segment> reverseSegments() {
-    return segments.descendingMap().values();
+    return segments.reverseSegments();
   }
 
   /**
    * Returns the segment for the given index.
+   * <p>
+   * The segment is looked up without locking. Callers that read from the segment while it may be concurrently
+   * replaced by compaction should use {@link #acquireSegment(long)} instead.
    *
    * @param index The index for which to return the segment.
    * @throws IllegalStateException if the segment manager is not open
    */
-  public synchronized Segment segment(long index) {
+  public Segment segment(long index) {
     assertOpen();
-    // Check if the current segment contains the given index first in order to prevent an unnecessary map lookup.
+    // Check if the current segment contains the given index first in order to prevent an unnecessary table lookup.
+    Segment currentSegment = this.currentSegment;
     if (currentSegment != null && currentSegment.validIndex(index))
       return currentSegment;
 
-    // If the index is in another segment, get the entry with the next lowest first index.
-    Map.Entry<Long, Segment> segment = segments.floorEntry(index);
-    return segment != null ? segment.getValue() : null;
+    // If the index is in another segment, get the segment with the next lowest first index.
+    return segments.floor(index);
   }
 
   /**
-   * Inserts a segment.
+   * Returns the segment for the given index with a {@link Segment#acquire() reference} acquired.
+   * <p>
+   * The segment won't be closed or deleted until the reference is {@link Segment#releaseReference() released},
+   * even if it's replaced by compaction in the meantime.
    *
-   * @param segment The segment to insert.
-   * @throws IllegalStateException if the segment is unknown
+   * @param index The index for which to return the segment.
+   * @return The segment or {@code null} if no segment contains the given index.
+   * @throws IllegalStateException if the segment manager is not open
+   */
+  public Segment acquireSegment(long index) {
+    for (;;) {
+      Segment segment = segment(index);
+      if (segment == null || segment.acquire()) {
+        return segment;
+      }
+    }
+  }
+
+  /**
+   * Replaces a set of segments with a single segment.
+   * <p>
+   * The replaced segments are not closed. Once the caller has finished with them, the replaced segments should be
+   * {@link Segment#retire() retired}.
+   *
+   * @param segments The segments to replace.
+   * @param segment The segment with which to replace the given segments.
+   * @throws IllegalArgumentException if any of the segments to replace is unknown
    */
   public synchronized void replaceSegments(Collection<Segment> segments, Segment segment) {
     // Update the segment descriptor and lock the segment.
     segment.descriptor().update(System.currentTimeMillis());
     segment.descriptor().lock();
 
-    // Iterate through old segments and remove them from the segments list.
-    for (Segment oldSegment : segments) {
-      if (!this.segments.containsKey(oldSegment.index())) {
-        throw new IllegalArgumentException("unknown segment at index: " + oldSegment.index());
-      }
-      this.segments.remove(oldSegment.index());
-    }
-
-    // Put the new segment in the segments list.
-    this.segments.put(segment.index(), segment);
+    // Seal the new segment since it has been completely written, and publish a table with the old segments replaced.
+    SegmentTable table = this.segments.replace(segments, segment);
+    segment.seal();
+    this.segments = table;
 
     resetCurrentSegment();
   }
 
   /**
    * Removes a segment.
+   * <p>
+   * Segments are removed when the log is truncated. Because the segment's files may be reused by the next segment
+   * appended to the log, the segment is closed and deleted immediately rather than retired.
    *
    * @param segment The segment to remove.
    */
   public synchronized void removeSegment(Segment segment) {
-    segments.remove(segment.index());
+    segments = segments.remove(segment.index());
     segment.close();
     segment.delete();
     resetCurrentSegment();
   }
 
+  /**
+   * Tracks a retired segment until it's deleted or the segment manager is closed.
+   */
+  void retired(Segment segment) {
+    retiredSegments.removeIf(s -> !s.isOpen());
+    retiredSegments.add(segment);
+  }
+
   /**
    * Creates a new segment.
    */
@@ -319,7 +529,7 @@ public class SegmentManager implements AutoCloseable {
     File segmentFile = SegmentFile.createSegmentFile(name, storage.directory(), descriptor.id(), descriptor.version());
     Buffer buffer = FileBuffer.allocate(segmentFile, Math.min(DEFAULT_BUFFER_SIZE, descriptor.maxSegmentSize()), Integer.MAX_VALUE);
     descriptor.copyTo(buffer);
-    Segment segment = new Segment(new SegmentFile(segmentFile), buffer.slice(), descriptor, createIndex(descriptor), new OffsetPredicate(), serializer.clone(), this);
+    Segment segment = new Segment(new SegmentFile(segmentFile), buffer.slice(), descriptor, createIndex(segmentFile, descriptor), createPredicate(segmentFile, descriptor), serializer.clone(), this);
     LOGGER.debug("Created segment: {}", segment);
     return segment;
   }
@@ -331,11 +541,22 @@ public class SegmentManager implements AutoCloseable {
     File segmentFile = SegmentFile.createSegmentFile(name, storage.directory(), descriptor.id(), descriptor.version());
     Buffer buffer = MappedBuffer.allocate(segmentFile, Math.min(DEFAULT_BUFFER_SIZE, descriptor.maxSegmentSize()), Integer.MAX_VALUE);
     descriptor.copyTo(buffer);
-    Segment segment = new Segment(new SegmentFile(segmentFile), buffer.slice(), descriptor, createIndex(descriptor), new OffsetPredicate(), serializer.clone(), this);
+    Segment segment = new Segment(new SegmentFile(segmentFile), buffer.slice(), descriptor, createIndex(segmentFile, descriptor), createPredicate(segmentFile, descriptor), serializer.clone(), this);
     LOGGER.debug("Created segment: {}", segment);
     return segment;
   }
 
+  /**
+   * Creates a new segment in a preallocated segment file.
+   */
+  private Segment createSegment(SegmentAllocation allocation, SegmentDescriptor descriptor) {
+    descriptor.copyTo(allocation.buffer);
+    SegmentIndex index = SegmentIndex.createMappedIndex(allocation.indexFile, allocation.indexBuffer, descriptor);
+    Segment segment = new Segment(new SegmentFile(allocation.file), allocation.buffer.slice(), descriptor, index, createPredicate(allocation.file, descriptor), serializer.clone(), this);
+    LOGGER.debug("Created preallocated segment: {}", segment);
+    return segment;
+  }
+
   /**
    * Creates a new segment.
    */
@@ -343,7 +564,7 @@ public class SegmentManager implements AutoCloseable {
     File segmentFile = SegmentFile.createSegmentFile(name, storage.directory(), descriptor.id(), descriptor.version());
     Buffer buffer = HeapBuffer.allocate(Math.min(DEFAULT_BUFFER_SIZE, descriptor.maxSegmentSize()), Integer.MAX_VALUE);
     descriptor.copyTo(buffer);
-    Segment segment = new Segment(new SegmentFile(segmentFile), buffer.slice(), descriptor, createIndex(descriptor), new OffsetPredicate(), serializer.clone(), this);
+    Segment segment = new Segment(new SegmentFile(segmentFile), buffer.slice(), descriptor, createIndex(segmentFile, descriptor), createPredicate(segmentFile, descriptor), serializer.clone(), this);
     LOGGER.debug("Created segment: {}", segment);
     return segment;
   }
@@ -352,13 +573,20 @@ public class SegmentManager implements AutoCloseable {
    * Loads a segment.
    */
   public Segment loadSegment(long segmentId, long segmentVersion) {
+    return loadSegment(segmentId, segmentVersion, true);
+  }
+
+  /**
+   * Loads a segment, validating entry checksums only if {@code validate} is {@code true}.
+   */
+  private Segment loadSegment(long segmentId, long segmentVersion, boolean validate) {
     switch (storage.level()) {
       case MEMORY:
-        return loadMemorySegment(segmentId, segmentVersion);
+        return loadMemorySegment(segmentId, segmentVersion, validate);
       case MAPPED:
-        return loadMappedSegment(segmentId, segmentVersion);
+        return loadMappedSegment(segmentId, segmentVersion, validate);
       case DISK:
-        return loadDiskSegment(segmentId, segmentVersion);
+        return loadDiskSegment(segmentId, segmentVersion, validate);
       default:
         throw new AssertionError();
     }
@@ -367,11 +595,11 @@ public class SegmentManager implements AutoCloseable {
   /**
    * Loads a segment.
    */
-  private Segment loadDiskSegment(long segmentId, long segmentVersion) {
+  private Segment loadDiskSegment(long segmentId, long segmentVersion, boolean validate) {
     File file = SegmentFile.createSegmentFile(name, storage.directory(), segmentId, segmentVersion);
     Buffer buffer = FileBuffer.allocate(file, Math.min(DEFAULT_BUFFER_SIZE, storage.maxSegmentSize()), Integer.MAX_VALUE);
     SegmentDescriptor descriptor = new SegmentDescriptor(buffer);
-    Segment segment = new Segment(new SegmentFile(file), buffer.position(SegmentDescriptor.BYTES).slice(), descriptor, createIndex(descriptor), new OffsetPredicate(), serializer.clone(), this);
+    Segment segment = new Segment(new SegmentFile(file), buffer.position(SegmentDescriptor.BYTES).slice(), descriptor, loadIndex(file, descriptor), loadPredicate(file, descriptor), serializer.clone(), this, validate);
     LOGGER.debug("Loaded file segment: {} ({})", descriptor.id(), file.getName());
     return segment;
   }
@@ -379,11 +607,11 @@ public class SegmentManager implements AutoCloseable {
   /**
    * Loads a segment.
    */
-  private Segment loadMappedSegment(long segmentId, long segmentVersion) {
+  private Segment loadMappedSegment(long segmentId, long segmentVersion, boolean validate) {
     File file = SegmentFile.createSegmentFile(name, storage.directory(), segmentId, segmentVersion);
     Buffer buffer = MappedBuffer.allocate(file, Math.min(DEFAULT_BUFFER_SIZE, storage.maxSegmentSize()), Integer.MAX_VALUE);
     SegmentDescriptor descriptor = new SegmentDescriptor(buffer);
-    Segment segment = new Segment(new SegmentFile(file), buffer.position(SegmentDescriptor.BYTES).slice(), descriptor, createIndex(descriptor), new OffsetPredicate(), serializer.clone(), this);
+    Segment segment = new Segment(new SegmentFile(file), buffer.position(SegmentDescriptor.BYTES).slice(), descriptor, loadIndex(file, descriptor), loadPredicate(file, descriptor), serializer.clone(), this, validate);
     LOGGER.debug("Loaded mapped segment: {} ({})", descriptor.id(), file.getName());
     return segment;
   }
@@ -391,24 +619,69 @@ public class SegmentManager implements AutoCloseable {
   /**
    * Loads a segment.
    */
-  private Segment loadMemorySegment(long segmentId, long segmentVersion) {
+  private Segment loadMemorySegment(long segmentId, long segmentVersion, boolean validate) {
     File file = SegmentFile.createSegmentFile(name, storage.directory(), segmentId, segmentVersion);
     Buffer buffer = HeapBuffer.allocate(Math.min(DEFAULT_BUFFER_SIZE, storage.maxSegmentSize()), Integer.MAX_VALUE);
     SegmentDescriptor descriptor = new SegmentDescriptor(buffer);
-    Segment segment = new Segment(new SegmentFile(file), buffer.position(SegmentDescriptor.BYTES).slice(), descriptor, createIndex(descriptor), new OffsetPredicate(), serializer.clone(), this);
+    Segment segment = new Segment(new SegmentFile(file), buffer.position(SegmentDescriptor.BYTES).slice(), descriptor, loadIndex(file, descriptor), loadPredicate(file, descriptor), serializer.clone(), this, validate);
     LOGGER.debug("Loaded memory segment: {}", descriptor.id());
     return segment;
   }
 
   /**
-   * Creates an in memory segment index.
+   * Creates a new segment index.
+   * <p>
+   * Indexes for persistent segments are memory-mapped from an index file stored alongside the segment file.
+   */
+  private SegmentIndex createIndex(File segmentFile, SegmentDescriptor descriptor) {
+    if (storage.level() == StorageLevel.MEMORY) {
+      return SegmentIndex.createMemoryIndex(descriptor);
+    }
+    return SegmentIndex.createMappedIndex(new SegmentFile(segmentFile).index(), descriptor);
+  }
+
+  /**
+   * Loads a segment index, opening the existing index file if it was sealed.
+   */
+  private SegmentIndex loadIndex(File segmentFile, SegmentDescriptor descriptor) {
+    if (storage.level() == StorageLevel.MEMORY) {
+      return SegmentIndex.createMemoryIndex(descriptor);
+    }
+    return SegmentIndex.loadMappedIndex(new SegmentFile(segmentFile).index(), descriptor);
+  }
+
+  /**
+   * Creates a new offset predicate, discarding any existing release file.
+   * <p>
+   * Predicates for persistent segments are memory-mapped from a release file stored alongside the segment file.
+   */
+  private OffsetPredicate createPredicate(File segmentFile, SegmentDescriptor descriptor) {
+    if (storage.level() == StorageLevel.MEMORY) {
+      return new OffsetPredicate();
+    }
+    File file = new SegmentFile(segmentFile).releases();
+    SegmentIndex.delete(file);
+    return loadPredicate(segmentFile, descriptor);
+  }
+
+  /**
+   * Loads an offset predicate, restoring the entries previously released from the segment.
    */
-  private OffsetIndex createIndex(SegmentDescriptor descriptor) {
-    return new DelegatingOffsetIndex(HeapBuffer.allocate(Math.min(DEFAULT_BUFFER_SIZE, descriptor.maxEntries()), OffsetIndex.size(descriptor.maxEntries())));
+  private OffsetPredicate loadPredicate(File segmentFile, SegmentDescriptor descriptor) {
+    if (storage.level() == StorageLevel.MEMORY) {
+      return new OffsetPredicate();
+    }
+    long size = OffsetPredicate.size(descriptor.maxEntries());
+    return new OffsetPredicate(MappedBuffer.allocate(new SegmentFile(segmentFile).releases(), size, size));
   }
 
   /**
    * Loads all segments from disk.
+   * <p>
+   * Segment descriptors are read first to determine which segments are valid. Valid segments are then loaded and
+   * indexed in parallel on a bounded pool of {@link Storage#recoveryThreads()} threads. Only the most recent segment
+   * in the log validates the checksums of its entries while being indexed, since it's the only segment to which
+   * entries may have been partially written. Earlier segments are trusted.
    *
    * @return A collection of segments for the log.
    */
@@ -416,12 +689,12 @@ public class SegmentManager implements AutoCloseable {
     // Ensure log directories are created.
     storage.directory().mkdirs();
 
-    TreeMap<Long, Segment> segments = new TreeMap<>();
+    List<SegmentDescriptor> descriptors = new ArrayList<>();
 
     // Iterate through all files in the log directory.
     for (File file : storage.directory().listFiles(File::isFile)) {
 
-      // If the file looks like a segment file, attempt to load the segment.
+      // If the file looks like a segment file, read the segment descriptor.
       if (SegmentFile.isSegmentFile(name, file)) {
         SegmentFile segmentFile = new SegmentFile(file);
         SegmentDescriptor descriptor = new SegmentDescriptor(FileBuffer.allocate(file, SegmentDescriptor.BYTES));
@@ -429,64 +702,70 @@ public class SegmentManager implements AutoCloseable {
         // Valid segments will have been locked. Segments that resulting from failures during log cleaning will be
         // unlocked and should ultimately be deleted from disk.
         if (descriptor.locked()) {
-
-          // Load the segment.
-          Segment segment = loadSegment(descriptor.id(), descriptor.version());
-
-          // If a segment with an equal or lower index has already been loaded, ensure this segment is not superseded
-          // by the earlier segment. This can occur due to segments being combined during log compaction.
-          Map.Entry<Long, Segment> previousEntry = segments.floorEntry(segment.index());
-          if (previousEntry != null) {
-
-            // If an existing descriptor exists with a lower index than this segment's first index, check to determine
-            // whether this segment's first index is contained in that existing index. If it is, determine which segment
-            // should take precedence based on segment versions.
-            Segment previousSegment = previousEntry.getValue();
-
-            // If the two segments start at the same index, the segment with the higher version number is used.
-            if (previousSegment.index() == segment.index()) {
-              if (segment.descriptor().version() > previousSegment.descriptor().version()) {
-                LOGGER.debug("Replaced segment {} with newer version: {} ({})", previousSegment.descriptor().id(), segment.descriptor().version(), segmentFile.file().getName());
-                segments.remove(previousEntry.getKey());
-                previousSegment.close();
-                previousSegment.delete();
-              } else {
-                segment.close();
-                segment.delete();
-                continue;
-              }
-            }
-            // If the existing segment's entries overlap with the loaded segment's entries, the existing segment always
-            // supersedes the loaded segment. Log compaction processes ensure this is always the case.
-            else if (previousSegment.index() + previousSegment.length() > segment.index()) {
-              segment.close();
-              segment.delete();
-              continue;
-            }
-          }
-
-          // Add the segment to the segments list.
-          LOGGER.debug("Found segment: {} ({})", segment.descriptor().id(), segmentFile.file().getName());
-          segments.put(segment.index(), segment);
-
-          // Ensure any segments later in the log with which this segment overlaps are removed.
-          Map.Entry<Long, Segment> nextEntry = segments.higherEntry(segment.index());
-          while (nextEntry != null) {
-            if (nextEntry.getValue().index() < segment.index() + segment.length()) {
-              segments.remove(nextEntry.getKey());
-              nextEntry = segments.higherEntry(segment.index());
-            } else {
-              break;
-            }
-          }
-
-          descriptor.close();
+          descriptors.add(descriptor);
         }
         // If the segment descriptor wasn't locked, close and delete the descriptor.
         else {
           LOGGER.debug("Deleting unlocked segment: {}-{} ({})", descriptor.id(), descriptor.version(), segmentFile.file().getName());
           descriptor.close();
           descriptor.delete();
+          SegmentIndex.delete(segmentFile.index());
+          SegmentIndex.delete(segmentFile.releases());
+        }
+      }
+    }
+
+    // Sort the descriptors by index and version. The last descriptor is the most recent segment in the log.
+    descriptors.sort(Comparator.comparingLong(SegmentDescriptor::index).thenComparingLong(SegmentDescriptor::version));
+
+    TreeMap<Long, Segment> segments = new TreeMap<>();
+
+    // Load and index the segments in parallel.
+    for (Segment segment : loadSegments(descriptors)) {
+      // If a segment with an equal or lower index has already been loaded, ensure this segment is not superseded
+      // by the earlier segment. This can occur due to segments being combined during log compaction.
+      Map.Entry<Long, Segment> previousEntry = segments.floorEntry(segment.index());
+      if (previousEntry != null) {
+
+        // If an existing descriptor exists with a lower index than this segment's first index, check to determine
+        // whether this segment's first index is contained in that existing index. If it is, determine which segment
+        // should take precedence based on segment versions.
+        Segment previousSegment = previousEntry.getValue();
+
+        // If the two segments start at the same index, the segment with the higher version number is used.
+        if (previousSegment.index() == segment.index()) {
+          if (segment.descriptor().version() > previousSegment.descriptor().version()) {
+            LOGGER.debug("Replaced segment {} with newer version: {} ({})", previousSegment.descriptor().id(), segment.descriptor().version(), segment.file().file().getName());
+            segments.remove(previousEntry.getKey());
+            previousSegment.close();
+            previousSegment.delete();
+          } else {
+            segment.close();
+            segment.delete();
+            continue;
+          }
+        }
+        // If the existing segment's entries overlap with the loaded segment's entries, the existing segment always
+        // supersedes the loaded segment. Log compaction processes ensure this is always the case.
+        else if (previousSegment.index() + previousSegment.length() > segment.index()) {
+          segment.close();
+          segment.delete();
+          continue;
+        }
+      }
+
+      // Add the segment to the segments list.
+      LOGGER.debug("Found segment: {} ({})", segment.descriptor().id(), segment.file().file().getName());
+      segments.put(segment.index(), segment);
+
+      // Ensure any segments later in the log with which this segment overlaps are removed.
+      Map.Entry<Long, Segment> nextEntry = segments.higherEntry(segment.index());
+      while (nextEntry != null) {
+        if (nextEntry.getValue().index() < segment.index() + segment.length()) {
+          segments.remove(nextEntry.getKey());
+          nextEntry = segments.higherEntry(segment.index());
+        } else {
+          break;
         }
       }
     }
@@ -505,13 +784,82 @@ public class SegmentManager implements AutoCloseable {
     return segments.values();
   }
 
+  /**
+   * Loads the segments for the given descriptors in parallel.
+   * <p>
+   * Descriptors are closed once their segments have been loaded. The returned segments are in the same order
+   * as the given descriptors.
+   */
+  private List<Segment> loadSegments(List<SegmentDescriptor> descriptors) {
+    if (descriptors.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(storage.recoveryThreads(), descriptors.size()), new CatalystThreadFactory("copycat-recovery-%d"));
+    try {
+      List<CompletableFuture<Segment>> futures = new ArrayList<>(descriptors.size());
+      for (int i = 0; i < descriptors.size(); i++) {
+        SegmentDescriptor descriptor = descriptors.get(i);
+        boolean validate = i == descriptors.size() - 1;
+        futures.add(CompletableFuture.supplyAsync(() -> {
+          try {
+            return loadSegment(descriptor.id(), descriptor.version(), validate);
+          } finally {
+            descriptor.close();
+          }
+        }, executor));
+      }
+
+      List<Segment> segments = new ArrayList<>(futures.size());
+      RuntimeException error = null;
+      for (CompletableFuture<Segment> future : futures) {
+        try {
+          segments.add(future.join());
+        } catch (CompletionException e) {
+          if (error == null) {
+            error = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new StorageException(e.getCause());
+          }
+        }
+      }
+
+      // If any segment failed to load, close the segments that were loaded successfully.
+      if (error != null) {
+        segments.forEach(Segment::close);
+        throw error;
+      }
+      return segments;
+    } finally {
+      executor.shutdown();
+    }
+  }
+
   @Override
-  public void close() {
-    segments.values().forEach(s -> {
+  public synchronized void close() {
+    // Wait for pending storage tasks to complete and delete the unused preallocated segment file.
+    if (ioExecutor != null) {
+      SegmentAllocation allocation = awaitAllocation();
+      if (allocation != null) {
+        allocation.delete();
+      }
+      ioExecutor.shutdown();
+      try {
+        ioExecutor.awaitTermination(1, TimeUnit.MINUTES);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    segments.segments().forEach(s -> {
       LOGGER.trace("Closing segment: {}", s.descriptor().id());
+      s.seal();
       s.close();
     });
+
+    // Delete retired segments to which readers still hold references.
+    retiredSegments.forEach(Segment::dispose);
+    retiredSegments.clear();
     currentSegment = null;
+    blockCache.clear();
   }
 
   @Override
@@ -519,4 +867,33 @@ public class SegmentManager implements AutoCloseable {
     return String.format("%s[directory=%s, segments=%d]", getClass().getSimpleName(), storage.directory(), segments.size());
   }
 
+  /**
+   * Preallocated segment file and index file.
+   */
+  private static final class SegmentAllocation {
+    private final long id;
+    private final File file;
+    private final Buffer buffer;
+    private final File indexFile;
+    private final MappedBuffer indexBuffer;
+
+    private SegmentAllocation(long id, File file, Buffer buffer, File indexFile, MappedBuffer indexBuffer) {
+      this.id = id;
+      this.file = file;
+      this.buffer = buffer;
+      this.indexFile = indexFile;
+      this.indexBuffer = indexBuffer;
+    }
+
+    /**
+     * Closes and deletes the allocated files.
+     */
+    private void delete() {
+      buffer.close();
+      indexBuffer.close();
+      file.delete();
+      indexFile.delete();
+    }
+  }
+
 }
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2017-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable, versioned table of the segments in the log.
+ * <p>
+ * The segment table stores segments in an array sorted by their first {@link Segment#index() index}. Segments are
+ * looked up by binary searching a parallel array of first indexes. Tables are never modified once created. Instead,
+ * each modification returns a copy of the table with the next version number, so the {@link SegmentManager} can
+ * publish a new table while readers continue to look up segments in the table they already hold without locking.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+final class SegmentTable {
+  static final SegmentTable EMPTY = new SegmentTable(new Segment[0], 0);
+
+  private final Segment[] segments;
+  private final long[] indexes;
+  private final long version;
+
+  private SegmentTable(Segment[] segments, long version) {
+    this.segments = segments;
+    this.indexes = new long[segments.length];
+    for (int i = 0; i < segments.length; i++) {
+      indexes[i] = segments[i].index();
+    }
+    this.version = version;
+  }
+
+  /**
+   * Returns the version of the table.
+   *
+   * @return The version of the table.
+   */
+  long version() {
+    return version;
+  }
+
+  /**
+   * Returns the number of segments in the table.
+   *
+   * @return The number of segments in the table.
+   */
+  int size() {
+    return segments.length;
+  }
+
+  /**
+   * Returns a boolean indicating whether the table contains no segments.
+   *
+   * @return Indicates whether the table is empty.
+   */
+  boolean isEmpty() {
+    return segments.length == 0;
+  }
+
+  /**
+   * Returns the first segment in the table.
+   *
+   * @return The first segment or {@code null} if the table is empty.
+   */
+  Segment first() {
+    return segments.length > 0 ? segments[0] : null;
+  }
+
+  /**
+   * Returns the last segment in the table.
+   *
+   * @return The last segment or {@code null} if the table is empty.
+   */
+  Segment last() {
+    return segments.length > 0 ? segments[segments.length - 1] : null;
+  }
+
+  /**
+   * Returns the segment with the greatest first index less than or equal to the given index.
+   *
+   * @param index The index for which to look up the segment.
+   * @return The segment or {@code null} if no segment starts at or before the given index.
+   */
+  Segment floor(long index) {
+    int i = floorIndex(index);
+    return i != -1 ? segments[i] : null;
+  }
+
+  /**
+   * Returns a boolean indicating whether the table contains a segment starting at the given index.
+   *
+   * @param index The first index of the segment.
+   * @return Indicates whether the table contains a segment starting at the given index.
+   */
+  boolean contains(long index) {
+    int i = floorIndex(index);
+    return i != -1 && indexes[i] == index;
+  }
+
+  /**
+   * Returns an ordered, unmodifiable list of the segments in the table.
+   *
+   * @return An ordered list of segments.
+   */
+  List<Segment> segments() {
+    return Collections.unmodifiableList(Arrays.asList(segments));
+  }
+
+  /**
+   * Returns a reverse ordered list of the segments in the table.
+   *
+   * @return A reverse ordered list of segments.
+   */
+  List<Segment> reverseSegments() {
+    List<Segment> segments = new ArrayList<>(this.segments.length);
+    for (int i = this.segments.length - 1; i >= 0; i--) {
+      segments.add(this.segments[i]);
+    }
+    return segments;
+  }
+
+  /**
+   * Returns a copy of the table with the given segment added, replacing any segment starting at the same index.
+   *
+   * @param segment The segment to add.
+   * @return The updated table.
+   */
+  SegmentTable put(Segment segment) {
+    int i = floorIndex(segment.index());
+    Segment[] segments;
+    if (i != -1 && indexes[i] == segment.index()) {
+      segments = this.segments.clone();
+      segments[i] = segment;
+    } else {
+      segments = new Segment[this.segments.length + 1];
+      System.arraycopy(this.segments, 0, segments, 0, i + 1);
+      segments[i + 1] = segment;
+      System.arraycopy(this.segments, i + 1, segments, i + 2, this.segments.length - i - 1);
+    }
+    return new SegmentTable(segments, version + 1);
+  }
+
+  /**
+   * Returns a copy of the table with the segment starting at the given index removed.
+   *
+   * @param index The first index of the segment to remove.
+   * @return The updated table.
+   */
+  SegmentTable remove(long index) {
+    int i = floorIndex(index);
+    if (i == -1 || indexes[i] != index) {
+      return this;
+    }
+    Segment[] segments = new Segment[this.segments.length - 1];
+    System.arraycopy(this.segments, 0, segments, 0, i);
+    System.arraycopy(this.segments, i + 1, segments, i, this.segments.length - i - 1);
+    return new SegmentTable(segments, version + 1);
+  }
+
+  /**
+   * Returns a copy of the table with the given segments replaced by a single segment.
+   *
+   * @param oldSegments The segments to replace.
+   * @param segment The segment with which to replace the given segments.
+   * @return The updated table.
+   * @throws IllegalArgumentException if the table does not contain one of the segments to replace
+   */
+  SegmentTable replace(Collection<Segment> oldSegments, Segment segment) {
+    List<Segment> segments = new ArrayList<>(Arrays.asList(this.segments));
+    for (Segment oldSegment : oldSegments) {
+      if (!contains(oldSegment.index())) {
+        throw new IllegalArgumentException("unknown segment at index: " + oldSegment.index());
+      }
+      segments.removeIf(s -> s.index() == oldSegment.index());
+    }
+
+    int i = 0;
+    while (i < segments.size() && segments.get(i).index() < segment.index()) {
+      i++;
+    }
+    segments.add(i, segment);
+    return new SegmentTable(segments.toArray(new Segment[segments.size()]), version + 1);
+  }
+
+  /**
+   * Returns the position of the segment with the greatest first index less than or equal to the given index.
+   */
+  private int floorIndex(long index) {
+    int lo = 0;
+    int hi = indexes.length - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      if (indexes[mid] <= index) {
+        lo = mid + 1;
+      } else {
+        hi = mid - 1;
+      }
+    }
+    return hi;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s[version=%d, segments=%d]", getClass().getSimpleName(), version, segments.length);
+  }
+
+}
@@ -64,24 +64,53 @@ public class Storage {
   private static final int DEFAULT_MAX_SEGMENT_SIZE = 1024 * 1024 * 32;
   private static final int DEFAULT_MAX_ENTRIES_PER_SEGMENT = 1024 * 1024;
   private static final int DEFAULT_ENTRY_BUFFER_SIZE = 1024;
+  private static final long DEFAULT_ENTRY_CACHE_SIZE = 1024 * 1024 * 16;
+  private static final ChecksumType DEFAULT_CHECKSUM_TYPE = ChecksumType.CRC32;
+  private static final boolean DEFAULT_VERIFY_CHECKSUMS_ON_READ = true;
+  private static final CompressionType DEFAULT_COMPACTION_COMPRESSION = CompressionType.NONE;
+  private static final CompressionType DEFAULT_SNAPSHOT_COMPRESSION = CompressionType.NONE;
+  private static final int DEFAULT_COMPRESSION_BLOCK_SIZE = 1024 * 64;
+  private static final long DEFAULT_BLOCK_CACHE_SIZE = 1024 * 1024 * 8;
   private static final boolean DEFAULT_FLUSH_ON_COMMIT = false;
+  private static final boolean DEFAULT_GROUP_COMMIT = false;
+  private static final int DEFAULT_GROUP_COMMIT_BATCH_SIZE = 1024;
+  private static final Duration DEFAULT_GROUP_COMMIT_LATENCY = Duration.ZERO;
   private static final boolean DEFAULT_RETAIN_STALE_SNAPSHOTS = false;
+  private static final int DEFAULT_MAX_SNAPSHOT_DELTAS = 8;
   private static final int DEFAULT_COMPACTION_THREADS = max(1, Runtime.getRuntime().availableProcessors() / 2);
+  private static final int DEFAULT_RECOVERY_THREADS = Runtime.getRuntime().availableProcessors();
   private static final Duration DEFAULT_MINOR_COMPACTION_INTERVAL = Duration.ofMinutes(1);
   private static final Duration DEFAULT_MAJOR_COMPACTION_INTERVAL = Duration.ofHours(1);
   private static final double DEFAULT_COMPACTION_THRESHOLD = 0.5;
+  private static final long DEFAULT_COMPACTION_RATE = 0;
+  private static final long DEFAULT_COMPACTION_BACKOFF_APPEND_RATE = 0;
+  private static final Duration DEFAULT_COMPACTION_BACKOFF_FLUSH_LATENCY = Duration.ZERO;
 
   private StorageLevel storageLevel = StorageLevel.DISK;
   private File directory = new File(DEFAULT_DIRECTORY);
   private int maxSegmentSize = DEFAULT_MAX_SEGMENT_SIZE;
   private int maxEntriesPerSegment = DEFAULT_MAX_ENTRIES_PER_SEGMENT;
-  private int entryBufferSize = DEFAULT_ENTRY_BUFFER_SIZE;
+  private long entryCacheSize = DEFAULT_ENTRY_CACHE_SIZE;
+  private ChecksumType checksumType = DEFAULT_CHECKSUM_TYPE;
+  private boolean verifyChecksumsOnRead = DEFAULT_VERIFY_CHECKSUMS_ON_READ;
+  private CompressionType compactionCompression = DEFAULT_COMPACTION_COMPRESSION;
+  private CompressionType snapshotCompression = DEFAULT_SNAPSHOT_COMPRESSION;
+  private int compressionBlockSize = DEFAULT_COMPRESSION_BLOCK_SIZE;
+  private long blockCacheSize = DEFAULT_BLOCK_CACHE_SIZE;
   private boolean flushOnCommit = DEFAULT_FLUSH_ON_COMMIT;
+  private boolean groupCommit = DEFAULT_GROUP_COMMIT;
+  private int groupCommitBatchSize = DEFAULT_GROUP_COMMIT_BATCH_SIZE;
+  private Duration groupCommitLatency = DEFAULT_GROUP_COMMIT_LATENCY;
   private boolean retainStaleSnapshots = DEFAULT_RETAIN_STALE_SNAPSHOTS;
+  private int maxSnapshotDeltas = DEFAULT_MAX_SNAPSHOT_DELTAS;
   private int compactionThreads = DEFAULT_COMPACTION_THREADS;
+  private int recoveryThreads = DEFAULT_RECOVERY_THREADS;
   private Duration minorCompactionInterval = DEFAULT_MINOR_COMPACTION_INTERVAL;
   private Duration majorCompactionInterval = DEFAULT_MAJOR_COMPACTION_INTERVAL;
   private double compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+  private long compactionRate = DEFAULT_COMPACTION_RATE;
+  private long compactionBackoffAppendRate = DEFAULT_COMPACTION_BACKOFF_APPEND_RATE;
+  private Duration compactionBackoffFlushLatency = DEFAULT_COMPACTION_BACKOFF_FLUSH_LATENCY;
 
   public Storage() {
   }
@@ -170,13 +199,94 @@ public class Storage {
   /**
    * Returns the entry buffer size.
    * <p>
-   * The entry buffer size dictates the number of entries that will be held in memory for read operations
-   * at the tail of the log.
+   * The entry buffer has been replaced by the byte-bounded entry cache, and the entry buffer size is no longer
+   * used by the log. This method always returns the former default entry buffer size.
    *
    * @return The entry buffer size.
+   * @deprecated Use {@link #entryCacheSize()} instead
    */
+  @Deprecated
   public int entryBufferSize() {
-    return entryBufferSize;
+    return DEFAULT_ENTRY_BUFFER_SIZE;
+  }
+
+  /**
+   * Returns the entry cache size in bytes.
+   * <p>
+   * The entry cache size dictates the total serialized size of the entries that will be held in memory for
+   * read operations at the tail of the log.
+   *
+   * @return The entry cache size in bytes.
+   */
+  public long entryCacheSize() {
+    return entryCacheSize;
+  }
+
+  /**
+   * Returns the algorithm with which to checksum entries written to new segments.
+   * <p>
+   * The checksum type is recorded in each segment's {@link SegmentDescriptor}, so existing segments are always
+   * read with the checksum type with which they were written.
+   *
+   * @return The entry checksum type.
+   */
+  public ChecksumType checksumType() {
+    return checksumType;
+  }
+
+  /**
+   * Returns whether to verify entry checksums when entries are read from the log.
+   * <p>
+   * Checksums are always verified when the most recent segment is recovered. If read verification is disabled,
+   * checksums are verified only on recovery.
+   *
+   * @return Whether to verify entry checksums when entries are read from the log.
+   */
+  public boolean verifyChecksumsOnRead() {
+    return verifyChecksumsOnRead;
+  }
+
+  /**
+   * Returns the algorithm with which to compress segments rewritten by log compaction.
+   * <p>
+   * The compression type is recorded in each segment's {@link SegmentDescriptor}, so existing segments are always
+   * read with the compression type with which they were written.
+   *
+   * @return The compaction compression type.
+   */
+  public CompressionType compactionCompression() {
+    return compactionCompression;
+  }
+
+  /**
+   * Returns the algorithm with which to compress state machine snapshots.
+   * <p>
+   * The compression type is recorded in each snapshot's
+   * {@link io.atomix.copycat.server.storage.snapshot.SnapshotDescriptor}, so existing snapshots are always read with
+   * the compression type with which they were written.
+   *
+   * @return The snapshot compression type.
+   */
+  public CompressionType snapshotCompression() {
+    return snapshotCompression;
+  }
+
+  /**
+   * Returns the decompressed size of the blocks written to compressed segments and snapshots.
+   *
+   * @return The compression block size in bytes.
+   */
+  public int compressionBlockSize() {
+    return compressionBlockSize;
+  }
+
+  /**
+   * Returns the maximum size of the cache of decompressed blocks read from compressed segments.
+   *
+   * @return The block cache size in bytes.
+   */
+  public long blockCacheSize() {
+    return blockCacheSize;
   }
 
   /**
@@ -189,6 +299,44 @@ public class Storage {
     return flushOnCommit;
   }
 
+  /**
+   * Returns whether group commit is enabled.
+   * <p>
+   * When group commit is enabled, entries appended to the {@link Log} are not counted towards replication
+   * until they've been flushed to disk. Rather than flushing each entry individually, appends are collected
+   * and flushed in batches bounded by the {@link #groupCommitBatchSize()} and {@link #groupCommitLatency()}.
+   *
+   * @return Whether group commit is enabled.
+   */
+  public boolean groupCommit() {
+    return groupCommit;
+  }
+
+  /**
+   * Returns the maximum number of entries in a group commit batch.
+   * <p>
+   * Once the number of unflushed entries in the log reaches the batch size, the log will be flushed
+   * to disk immediately regardless of the {@link #groupCommitLatency()}.
+   *
+   * @return The maximum number of entries in a group commit batch.
+   */
+  public int groupCommitBatchSize() {
+    return groupCommitBatchSize;
+  }
+
+  /**
+   * Returns the maximum latency of a group commit batch.
+   * <p>
+   * The group commit latency dictates the maximum amount of time an appended entry may wait before being
+   * flushed to disk. A zero latency indicates that entries appended within a single event loop turn are
+   * flushed together at the end of the turn.
+   *
+   * @return The maximum latency of a group commit batch.
+   */
+  public Duration groupCommitLatency() {
+    return groupCommitLatency;
+  }
+
   /**
    * Returns a boolean value indicating whether to retain stale snapshots on disk.
    * <p>
@@ -202,6 +350,19 @@ public class Storage {
     return retainStaleSnapshots;
   }
 
+  /**
+   * Returns the maximum number of delta snapshots to take on top of a full snapshot.
+   * <p>
+   * State machines that {@link io.atomix.copycat.server.Snapshottable#delta(long) support delta snapshots}
+   * take a delta snapshot of the changes since the last snapshot until the chain of deltas reaches this length,
+   * at which point a full snapshot is taken to replace the chain.
+   *
+   * @return The maximum number of delta snapshots to take on top of a full snapshot.
+   */
+  public int maxSnapshotDeltas() {
+    return maxSnapshotDeltas;
+  }
+
   /**
    * Returns the number of log compaction threads.
    * <p>
@@ -214,6 +375,18 @@ public class Storage {
     return compactionThreads;
   }
 
+  /**
+   * Returns the number of log recovery threads.
+   * <p>
+   * The recovery thread count dictates the parallelism with which {@link Segment}s are loaded and indexed
+   * when a {@link Log} is opened.
+   *
+   * @return The number of log recovery threads.
+   */
+  public int recoveryThreads() {
+    return recoveryThreads;
+  }
+
   /**
    * Returns the minor compaction interval.
    * <p>
@@ -252,6 +425,40 @@ public class Storage {
     return compactionThreshold;
   }
 
+  /**
+   * Returns the maximum rate at which compaction processes segment data.
+   * <p>
+   * The compaction rate is shared by all running compaction tasks. A rate of {@code 0} indicates that compaction
+   * is not throttled.
+   *
+   * @return The maximum compaction rate in bytes per second.
+   */
+  public long compactionRate() {
+    return compactionRate;
+  }
+
+  /**
+   * Returns the append rate above which compaction backs off.
+   * <p>
+   * A rate of {@code 0} indicates that compaction does not back off for appends.
+   *
+   * @return The compaction back-off append rate in bytes per second.
+   */
+  public long compactionBackoffAppendRate() {
+    return compactionBackoffAppendRate;
+  }
+
+  /**
+   * Returns the flush latency above which compaction backs off.
+   * <p>
+   * A latency of {@link Duration#ZERO} indicates that compaction does not back off for slow flushes.
+   *
+   * @return The compaction back-off flush latency.
+   */
+  public Duration compactionBackoffFlushLatency() {
+    return compactionBackoffFlushLatency;
+  }
+
   /**
    * Opens a new {@link MetaStore}, recovering metadata from disk if it exists.
    * <p>
@@ -332,7 +539,7 @@ public class Storage {
    */
   public void deleteLog(String name) {
     StorageCleaner cleaner = new StorageCleaner(this);
-    cleaner.cleanFiles(f -> SegmentFile.isSegmentFile(name, f));
+    cleaner.cleanFiles(f -> SegmentFile.isSegmentFile(name, f) || SegmentFile.isIndexFile(name, f));
   }
 
   @Override
@@ -449,16 +656,135 @@ public class Storage {
     /**
      * Sets the entry buffer size.
      * <p>
-     * The entry buffer size dictates the number of entries to hold in memory at the tail of the log. Increasing
-     * the buffer size increases the number of entries that will be held in memory and thus implies greater memory
-     * consumption, but server performance may be improved due to reduced disk access.
+     * The entry buffer has been replaced by the byte-bounded entry cache, so the entry buffer size is ignored.
+     * Use {@link #withEntryCacheSize(long)} to configure the amount of memory used to cache entries at the tail
+     * of the log.
      *
      * @param entryBufferSize The entry buffer size.
      * @return The storage builder.
      * @throws IllegalArgumentException if the buffer size is not positive
+     * @deprecated Use {@link #withEntryCacheSize(long)} instead
      */
+    @Deprecated
     public Builder withEntryBufferSize(int entryBufferSize) {
-      storage.entryBufferSize = Assert.arg(entryBufferSize, entryBufferSize > 0, "entryBufferSize must be positive");
+      Assert.arg(entryBufferSize, entryBufferSize > 0, "entryBufferSize must be positive");
+      return this;
+    }
+
+    /**
+     * Sets the entry cache size in bytes, returning the builder for method chaining.
+     * <p>
+     * The entry cache size dictates the total serialized size of the entries to hold in memory at the tail of
+     * the log. Entries appended to the log and entries read from disk are cached until the cache is full, at which
+     * point the entries with the lowest indexes are evicted. Increasing the cache size implies greater memory
+     * consumption, but server performance may be improved due to reduced disk access when followers fall behind.
+     * A cache size of {@code 0} disables the cache. By default, the entry cache size is {@code 16MB}.
+     *
+     * @param entryCacheSize The entry cache size in bytes.
+     * @return The storage builder.
+     * @throws IllegalArgumentException if the cache size is negative
+     */
+    public Builder withEntryCacheSize(long entryCacheSize) {
+      storage.entryCacheSize = Assert.arg(entryCacheSize, entryCacheSize >= 0, "entryCacheSize cannot be negative");
+      return this;
+    }
+
+    /**
+     * Sets the entry checksum type, returning the builder for method chaining.
+     * <p>
+     * The checksum type dictates the algorithm with which to checksum entries written to new segments. The checksum
+     * type is recorded in each segment's descriptor, so changing the checksum type does not affect the readability
+     * of existing segments. Entries in existing segments are checksummed with the new checksum type once the
+     * segments are compacted. By default, entries are checksummed with {@link ChecksumType#CRC32}.
+     *
+     * @param checksumType The entry checksum type.
+     * @return The storage builder.
+     * @throws NullPointerException if the checksum type is {@code null}
+     */
+    public Builder withChecksumType(ChecksumType checksumType) {
+      storage.checksumType = Assert.notNull(checksumType, "checksumType");
+      return this;
+    }
+
+    /**
+     * Sets whether to verify entry checksums when entries are read from the log, returning the builder for
+     * method chaining.
+     * <p>
+     * Entry checksums are always verified when the most recent segment in the log is recovered in order to detect
+     * partially written entries. Disabling read verification avoids recomputing the checksum each time an entry is
+     * read, at the cost of not detecting entries that are corrupted after they're written. By default, checksums
+     * are verified on reads.
+     *
+     * @param verifyChecksumsOnRead Whether to verify entry checksums when entries are read from the log.
+     * @return The storage builder.
+     */
+    public Builder withVerifyChecksumsOnRead(boolean verifyChecksumsOnRead) {
+      storage.verifyChecksumsOnRead = verifyChecksumsOnRead;
+      return this;
+    }
+
+    /**
+     * Sets the compaction compression type, returning the builder for method chaining.
+     * <p>
+     * When a compression type is set, segments rewritten by minor and major compaction are stored as a sequence of
+     * compressed blocks of entries. Reading an entry from a compressed segment decompresses only the block that
+     * contains the entry, and decompressed blocks are cached in memory. Segments that have not been compacted are
+     * never compressed. By default, compacted segments are not compressed.
+     *
+     * @param compressionType The compaction compression type.
+     * @return The storage builder.
+     * @throws NullPointerException if the compression type is {@code null}
+     */
+    public Builder withCompactionCompression(CompressionType compressionType) {
+      storage.compactionCompression = Assert.notNull(compressionType, "compressionType");
+      return this;
+    }
+
+    /**
+     * Sets the snapshot compression type, returning the builder for method chaining.
+     * <p>
+     * When a compression type is set, state machine snapshots are written as a sequence of compressed blocks.
+     * Snapshots are compressed as they're written and decompressed as they're read, and compressed snapshots are
+     * sent to other servers without being decompressed. By default, snapshots are not compressed.
+     *
+     * @param compressionType The snapshot compression type.
+     * @return The storage builder.
+     * @throws NullPointerException if the compression type is {@code null}
+     */
+    public Builder withSnapshotCompression(CompressionType compressionType) {
+      storage.snapshotCompression = Assert.notNull(compressionType, "compressionType");
+      return this;
+    }
+
+    /**
+     * Sets the compression block size, returning the builder for method chaining.
+     * <p>
+     * The block size is the decompressed size of the blocks written to compressed segments and snapshots. Larger blocks compress
+     * better, but more bytes must be decompressed to read an entry that's not cached. Entries larger than the block
+     * size are written to their own block. By default, the block size is {@code 64KB}.
+     *
+     * @param blockSize The compression block size in bytes.
+     * @return The storage builder.
+     * @throws IllegalArgumentException if the block size is not positive
+     */
+    public Builder withCompressionBlockSize(int blockSize) {
+      storage.compressionBlockSize = Assert.arg(blockSize, blockSize > 0, "blockSize must be positive");
+      return this;
+    }
+
+    /**
+     * Sets the block cache size in bytes, returning the builder for method chaining.
+     * <p>
+     * The block cache holds blocks decompressed from compressed segments in memory so sequential reads don't
+     * decompress the same block repeatedly. A cache size of {@code 0} disables the cache. By default, the block
+     * cache size is {@code 8MB}.
+     *
+     * @param blockCacheSize The block cache size in bytes.
+     * @return The storage builder.
+     * @throws IllegalArgumentException if the cache size is negative
+     */
+    public Builder withBlockCacheSize(long blockCacheSize) {
+      storage.blockCacheSize = Assert.arg(blockCacheSize, blockCacheSize >= 0, "blockCacheSize cannot be negative");
       return this;
     }
 
@@ -490,6 +816,67 @@ public class Storage {
       return this;
     }
 
+    /**
+     * Enables group commit, returning the builder for method chaining.
+     * <p>
+     * When group commit is enabled, entries appended to the log are flushed to disk in batches, and only
+     * flushed entries are counted towards the commitment of an entry. This ensures entries are durable on a
+     * majority of the cluster before they're committed without flushing to disk on every write.
+     *
+     * @return The storage builder.
+     */
+    public Builder withGroupCommit() {
+      return withGroupCommit(true);
+    }
+
+    /**
+     * Sets whether to enable group commit, returning the builder for method chaining.
+     * <p>
+     * When group commit is enabled, entries appended to the log are flushed to disk in batches, and only
+     * flushed entries are counted towards the commitment of an entry. This ensures entries are durable on a
+     * majority of the cluster before they're committed without flushing to disk on every write.
+     *
+     * @param groupCommit Whether to enable group commit.
+     * @return The storage builder.
+     */
+    public Builder withGroupCommit(boolean groupCommit) {
+      storage.groupCommit = groupCommit;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of entries in a group commit batch, returning the builder for method chaining.
+     * <p>
+     * Once the number of unflushed entries in the log reaches the batch size, the log will be flushed to
+     * disk immediately. By default, the batch size is {@code 1024} entries.
+     *
+     * @param batchSize The maximum number of entries in a group commit batch.
+     * @return The storage builder.
+     * @throws IllegalArgumentException if the batch size is not positive
+     */
+    public Builder withGroupCommitBatchSize(int batchSize) {
+      storage.groupCommitBatchSize = Assert.arg(batchSize, batchSize > 0, "batchSize must be positive");
+      return this;
+    }
+
+    /**
+     * Sets the maximum latency of a group commit batch, returning the builder for method chaining.
+     * <p>
+     * The group commit latency dictates the maximum amount of time an appended entry may wait before being
+     * flushed to disk. Larger latencies result in larger batches and fewer flushes at the expense of commit
+     * latency. By default, entries appended within a single event loop turn are flushed at the end of the turn.
+     *
+     * @param latency The maximum latency of a group commit batch.
+     * @return The storage builder.
+     * @throws NullPointerException if the latency is null
+     * @throws IllegalArgumentException if the latency is negative
+     */
+    public Builder withGroupCommitLatency(Duration latency) {
+      Assert.notNull(latency, "latency");
+      storage.groupCommitLatency = Assert.argNot(latency, latency.isNegative(), "latency cannot be negative");
+      return this;
+    }
+
     /**
      * Enables retaining stale snapshots on disk, returning the builder for method chaining.
      * <p>
@@ -522,6 +909,25 @@ public class Storage {
       return this;
     }
 
+    /**
+     * Sets the maximum number of delta snapshots to take on top of a full snapshot, returning the builder for
+     * method chaining.
+     * <p>
+     * State machines that {@link io.atomix.copycat.server.Snapshottable#delta(long) support delta snapshots}
+     * take a delta snapshot of the changes since the last snapshot until the chain of deltas reaches this length,
+     * at which point a full snapshot is taken to replace the chain. Longer chains write less data per snapshot
+     * but take longer to install. Setting the maximum to {@code 0} disables delta snapshots. By default, up to
+     * {@code 8} delta snapshots are taken on top of each full snapshot.
+     *
+     * @param maxSnapshotDeltas The maximum number of delta snapshots to take on top of a full snapshot.
+     * @return The storage builder.
+     * @throws IllegalArgumentException if {@code maxSnapshotDeltas} is negative
+     */
+    public Builder withMaxSnapshotDeltas(int maxSnapshotDeltas) {
+      storage.maxSnapshotDeltas = Assert.argNot(maxSnapshotDeltas, maxSnapshotDeltas < 0, "maxSnapshotDeltas cannot be negative");
+      return this;
+    }
+
     /**
      * Sets the number of log compaction threads, returning the builder for method chaining.
      * <p>
@@ -538,6 +944,22 @@ public class Storage {
       return this;
     }
 
+    /**
+     * Sets the number of log recovery threads, returning the builder for method chaining.
+     * <p>
+     * The recovery thread count dictates the parallelism with which {@link Segment}s are loaded and indexed
+     * when a {@link Log} is opened. By default, the log uses {@code Runtime.getRuntime().availableProcessors()}
+     * recovery threads.
+     *
+     * @param recoveryThreads The number of log recovery threads.
+     * @return The storage builder.
+     * @throws IllegalArgumentException if {@code recoveryThreads} is not positive
+     */
+    public Builder withRecoveryThreads(int recoveryThreads) {
+      storage.recoveryThreads = Assert.arg(recoveryThreads, recoveryThreads > 0, "recoveryThreads must be positive");
+      return this;
+    }
+
     /**
      * Sets the minor compaction interval, returning the builder for method chaining.
      * <p>
@@ -600,6 +1022,57 @@ public class Storage {
       return this;
     }
 
+    /**
+     * Sets the maximum rate at which compaction processes segment data, returning the builder for method chaining.
+     * <p>
+     * The compaction rate limits the number of bytes per second that compaction tasks read from the segments they
+     * rewrite. The rate is shared by all compaction tasks, so compaction can't saturate the disk regardless of the
+     * number of {@link #withCompactionThreads(int) compaction threads}. A rate of {@code 0} disables throttling.
+     * By default, compaction is not throttled.
+     *
+     * @param bytesPerSecond The maximum compaction rate in bytes per second.
+     * @return The storage builder.
+     * @throws IllegalArgumentException if the rate is negative
+     */
+    public Builder withCompactionRate(long bytesPerSecond) {
+      storage.compactionRate = Assert.argNot(bytesPerSecond, bytesPerSecond < 0, "bytesPerSecond cannot be negative");
+      return this;
+    }
+
+    /**
+     * Sets the append rate above which compaction backs off, returning the builder for method chaining.
+     * <p>
+     * While entries are being appended to the log faster than the given rate, scheduled compactions are deferred
+     * and running compaction tasks pause until the append rate falls. A rate of {@code 0} disables back-off for
+     * appends. By default, compaction does not back off for appends.
+     *
+     * @param bytesPerSecond The append rate in bytes per second above which compaction backs off.
+     * @return The storage builder.
+     * @throws IllegalArgumentException if the rate is negative
+     */
+    public Builder withCompactionBackoffAppendRate(long bytesPerSecond) {
+      storage.compactionBackoffAppendRate = Assert.argNot(bytesPerSecond, bytesPerSecond < 0, "bytesPerSecond cannot be negative");
+      return this;
+    }
+
+    /**
+     * Sets the flush latency above which compaction backs off, returning the builder for method chaining.
+     * <p>
+     * While the average latency of recent log flushes exceeds the given latency, scheduled compactions are deferred
+     * and running compaction tasks pause until flushes speed up. A latency of {@link Duration#ZERO} disables
+     * back-off for flushes. By default, compaction does not back off for flushes.
+     *
+     * @param latency The flush latency above which compaction backs off.
+     * @return The storage builder.
+     * @throws NullPointerException if the latency is null
+     * @throws IllegalArgumentException if the latency is negative
+     */
+    public Builder withCompactionBackoffFlushLatency(Duration latency) {
+      Assert.notNull(latency, "latency");
+      storage.compactionBackoffFlushLatency = Assert.argNot(latency, latency.isNegative(), "latency cannot be negative");
+      return this;
+    }
+
     /**
      * Builds the {@link Storage} object.
      *
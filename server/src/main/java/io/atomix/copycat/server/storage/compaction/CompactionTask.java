@@ -27,4 +27,14 @@ import io.atomix.copycat.server.storage.Storage;
  * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
  */
 public interface CompactionTask extends Runnable {
+
+  /**
+   * Returns the number of bytes in the segments compacted by the task.
+   * <p>
+   * The size is used to report the progress of a compaction as the task reads entries from its segments.
+   *
+   * @return The number of bytes in the segments compacted by the task.
+   */
+  long size();
+
 }
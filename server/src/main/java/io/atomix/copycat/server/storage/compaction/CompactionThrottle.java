@@ -0,0 +1,190 @@
+/*
+ * Copyright 2017-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.storage.compaction;
+
+import io.atomix.catalyst.util.Assert;
+import io.atomix.copycat.server.storage.SegmentManager;
+import io.atomix.copycat.server.storage.Storage;
+import io.atomix.copycat.server.storage.util.RateMeter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the rate and timing of compaction I/O.
+ * <p>
+ * Compaction tasks {@link #acquire(long) acquire} the number of bytes of each entry they read from the segments
+ * they rewrite. The throttle applies two limits to those reads:
+ * <ul>
+ *   <li>If a {@link Storage#compactionRate() compaction rate} is configured, bytes are drawn from a budget that's
+ *   refilled at the configured rate. Tasks that exceed the budget sleep until their bytes have been paid for,
+ *   so the rate is shared by all running tasks.</li>
+ *   <li>If the log is {@link #isLoaded() loaded}, meaning entries are being appended faster than the
+ *   {@link Storage#compactionBackoffAppendRate()} or flushes are slower than the
+ *   {@link Storage#compactionBackoffFlushLatency()}, tasks back off until the load falls. A compaction backs
+ *   off for no more than a minute in total, after which its tasks proceed regardless of the load.</li>
+ * </ul>
+ * The throttle also records the progress and throttling metrics exposed by the {@link Compactor}. This class
+ * is thread safe.
+ *
+ * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
+ */
+final class CompactionThrottle {
+  private static final long BACKOFF_INTERVAL = 100;
+  private static final long MAX_BACKOFF_TIME = TimeUnit.MINUTES.toNanos(1);
+  private final Storage storage;
+  private final SegmentManager segments;
+  private final RateMeter compactionMeter = new RateMeter();
+  private long available;
+  private long refillTime = System.nanoTime();
+  private long throttledTime;
+  private long backoffTime;
+  private volatile long backoffDeadline = System.nanoTime() + MAX_BACKOFF_TIME;
+  private volatile boolean closed;
+
+  CompactionThrottle(Storage storage, SegmentManager segments) {
+    this.storage = Assert.notNull(storage, "storage");
+    this.segments = Assert.notNull(segments, "segments");
+    this.available = storage.compactionRate();
+  }
+
+  /**
+   * Returns a boolean indicating whether the log is too heavily loaded for compaction to proceed.
+   *
+   * @return Indicates whether compaction should back off.
+   */
+  boolean isLoaded() {
+    long appendRate = storage.compactionBackoffAppendRate();
+    if (appendRate > 0 && segments.appendRate() > appendRate) {
+      return true;
+    }
+    long flushLatency = storage.compactionBackoffFlushLatency().toNanos();
+    return flushLatency > 0 && segments.flushLatency() > flushLatency;
+  }
+
+  /**
+   * Resets the back-off budget for a new compaction.
+   *
+   * @param backoff Whether the compaction's tasks may back off while the log is loaded.
+   */
+  void start(boolean backoff) {
+    backoffDeadline = backoff ? System.nanoTime() + MAX_BACKOFF_TIME : System.nanoTime();
+  }
+
+  /**
+   * Acquires the given number of bytes of compaction I/O, blocking while compaction is throttled.
+   * <p>
+   * If the compacting thread is interrupted or the throttle is closed, the bytes are acquired without blocking.
+   *
+   * @param bytes The number of bytes to acquire.
+   */
+  void acquire(long bytes) {
+    compactionMeter.mark(bytes);
+    if (closed) {
+      return;
+    }
+
+    try {
+      // Back off in short intervals until the load falls or the compaction's back-off budget is exhausted.
+      if (isLoaded() && backoffDeadline - System.nanoTime() > 0) {
+        long startTime = System.nanoTime();
+        long remaining;
+        while (!closed && isLoaded() && (remaining = backoffDeadline - System.nanoTime()) > 0) {
+          Thread.sleep(Math.min(BACKOFF_INTERVAL, TimeUnit.NANOSECONDS.toMillis(remaining) + 1));
+        }
+        recordBackoff(System.nanoTime() - startTime);
+      }
+
+      // Draw the bytes from the budget. If the budget is overdrawn, sleep until the debt has been refilled.
+      long rate = storage.compactionRate();
+      if (rate > 0) {
+        long wait = reserve(bytes, rate);
+        if (wait > 0) {
+          TimeUnit.NANOSECONDS.sleep(wait);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Reserves bytes from the budget, returning the number of nanoseconds to wait for the reserved bytes.
+   */
+  private synchronized long reserve(long bytes, long rate) {
+    long time = System.nanoTime();
+    long elapsed = Math.min(time - refillTime, TimeUnit.SECONDS.toNanos(1));
+    available = Math.min(rate, available + elapsed * rate / TimeUnit.SECONDS.toNanos(1));
+    refillTime = time;
+    available -= bytes;
+    if (available >= 0) {
+      return 0;
+    }
+    long wait = -available * TimeUnit.SECONDS.toNanos(1) / rate;
+    throttledTime += wait;
+    return wait;
+  }
+
+  /**
+   * Records time spent backing off.
+   */
+  private synchronized void recordBackoff(long time) {
+    backoffTime += time;
+  }
+
+  /**
+   * Returns the total number of bytes acquired by compaction tasks.
+   *
+   * @return The total number of bytes compacted.
+   */
+  long compactedBytes() {
+    return compactionMeter.count();
+  }
+
+  /**
+   * Returns the number of bytes acquired by compaction tasks over the last second.
+   *
+   * @return The compaction rate in bytes per second.
+   */
+  long compactionRate() {
+    return compactionMeter.rate();
+  }
+
+  /**
+   * Returns the total time compaction tasks have been delayed by the compaction rate.
+   *
+   * @return The total throttled time in milliseconds.
+   */
+  synchronized long throttledTime() {
+    return TimeUnit.NANOSECONDS.toMillis(throttledTime);
+  }
+
+  /**
+   * Returns the total time compaction tasks have backed off for load.
+   *
+   * @return The total back-off time in milliseconds.
+   */
+  synchronized long backoffTime() {
+    return TimeUnit.NANOSECONDS.toMillis(backoffTime);
+  }
+
+  /**
+   * Closes the throttle, allowing running compaction tasks to complete without delay.
+   */
+  void close() {
+    closed = true;
+  }
+
+}
@@ -25,6 +25,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -46,14 +48,26 @@ import java.util.concurrent.atomic.AtomicInteger;
  * are run in parallel in the compaction thread pool. However, the compactor will not allow multiple compaction
  * executions to run in parallel. If a compaction is attempted while another compaction is already running,
  * it will be ignored.
+ * <p>
+ * Compaction I/O is limited by a throttle shared by all compaction tasks. Tasks read entries at no more than the
+ * configured {@link Storage#compactionRate()}, and while the log is under load, as determined by the
+ * {@link Storage#compactionBackoffAppendRate()} and {@link Storage#compactionBackoffFlushLatency()}, scheduled
+ * compactions are deferred and running tasks back off. To ensure the log is eventually compacted under sustained
+ * load, a scheduled compaction is run without backing off once it has been deferred three times in a row, and a
+ * running compaction backs off for no more than a minute.
+ * Compaction progress and throttling are exposed by
+ * {@link #progress()}, {@link #compactedBytes()}, {@link #throttledTime()}, and related metrics.
  *
  * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
  */
 public class Compactor implements AutoCloseable {
   private static final Logger LOGGER = LoggerFactory.getLogger(Compactor.class);
+  private static final int MAX_DEFERRED_COMPACTIONS = 3;
   private final Storage storage;
   private final SegmentManager segments;
   private final ScheduledExecutorService executor;
+  private final CompactionThrottle throttle;
+  private final Map<Compaction, Integer> consecutiveDeferrals = new EnumMap<>(Compaction.class);
   private long minorIndex;
   private long majorIndex;
   private long snapshotIndex;
@@ -62,13 +76,133 @@ public class Compactor implements AutoCloseable {
   private ScheduledFuture<?> minor;
   private ScheduledFuture<?> major;
   private CompletableFuture<Void> future = CompletableFuture.completedFuture(null);
+  private volatile long compactionSize;
+  private volatile long compactionStart;
+  private volatile long deferredCompactions;
+  private volatile long completedCompactions;
 
   public Compactor(Storage storage, SegmentManager segments, ScheduledExecutorService executor) {
     this.storage = Assert.notNull(storage, "storage");
     this.segments = Assert.notNull(segments, "segments");
     this.executor = Assert.notNull(executor, "executor");
-    minor = executor.scheduleAtFixedRate(() -> compact(Compaction.MINOR), storage.minorCompactionInterval().toMillis(), storage.minorCompactionInterval().toMillis(), TimeUnit.MILLISECONDS);
-    major = executor.scheduleAtFixedRate(() -> compact(Compaction.MAJOR), storage.majorCompactionInterval().toMillis(), storage.majorCompactionInterval().toMillis(), TimeUnit.MILLISECONDS);
+    this.throttle = new CompactionThrottle(storage, segments);
+    minor = executor.scheduleAtFixedRate(() -> schedule(Compaction.MINOR), storage.minorCompactionInterval().toMillis(), storage.minorCompactionInterval().toMillis(), TimeUnit.MILLISECONDS);
+    major = executor.scheduleAtFixedRate(() -> schedule(Compaction.MAJOR), storage.majorCompactionInterval().toMillis(), storage.majorCompactionInterval().toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Runs a scheduled compaction, deferring the compaction to the next interval if the log is under load.
+   * <p>
+   * Once the compaction has been deferred {@link #MAX_DEFERRED_COMPACTIONS} times in a row, it's forced to run
+   * without backing off.
+   */
+  private synchronized void schedule(Compaction compaction) {
+    int deferrals = consecutiveDeferrals.getOrDefault(compaction, 0);
+    if (!throttle.isLoaded()) {
+      consecutiveDeferrals.put(compaction, 0);
+      compact(compaction, true);
+    } else if (deferrals < MAX_DEFERRED_COMPACTIONS) {
+      LOGGER.debug("Deferring {} compaction under load", compaction);
+      consecutiveDeferrals.put(compaction, deferrals + 1);
+      deferredCompactions++;
+    } else {
+      LOGGER.debug("Forcing {} compaction after {} deferrals", compaction, deferrals);
+      consecutiveDeferrals.put(compaction, 0);
+      compact(compaction, false);
+    }
+  }
+
+  /**
+   * Returns the compaction throttle.
+   */
+  CompactionThrottle throttle() {
+    return throttle;
+  }
+
+  /**
+   * Returns the progress of the running compaction.
+   * <p>
+   * Progress is the ratio of the bytes read by the running compaction's tasks to the total size of the segments
+   * being compacted. If no compaction is running, the progress is {@code 1}.
+   *
+   * @return The progress of the running compaction, from {@code 0} to {@code 1}.
+   */
+  public double progress() {
+    long size = compactionSize;
+    return size > 0 ? Math.min(1, (throttle.compactedBytes() - compactionStart) / (double) size) : 1;
+  }
+
+  /**
+   * Returns the number of bytes remaining to be read by the running compaction.
+   *
+   * @return The number of bytes remaining in the running compaction.
+   */
+  public long remainingBytes() {
+    long size = compactionSize;
+    return size > 0 ? Math.max(0, size - (throttle.compactedBytes() - compactionStart)) : 0;
+  }
+
+  /**
+   * Returns the total number of bytes read by compaction tasks.
+   *
+   * @return The total number of bytes compacted.
+   */
+  public long compactedBytes() {
+    return throttle.compactedBytes();
+  }
+
+  /**
+   * Returns the number of bytes read by compaction tasks over the last second.
+   *
+   * @return The compaction rate in bytes per second.
+   */
+  public long compactionRate() {
+    return throttle.compactionRate();
+  }
+
+  /**
+   * Returns the total time compaction tasks have been delayed by the {@link Storage#compactionRate()}.
+   *
+   * @return The total throttled time in milliseconds.
+   */
+  public long throttledTime() {
+    return throttle.throttledTime();
+  }
+
+  /**
+   * Returns the total time compaction tasks have backed off while the log was under load.
+   *
+   * @return The total back-off time in milliseconds.
+   */
+  public long backoffTime() {
+    return throttle.backoffTime();
+  }
+
+  /**
+   * Returns the number of scheduled compactions that were deferred while the log was under load.
+   *
+   * @return The number of deferred compactions.
+   */
+  public long deferredCompactions() {
+    return deferredCompactions;
+  }
+
+  /**
+   * Returns the number of compactions that have completed.
+   *
+   * @return The number of completed compactions.
+   */
+  public long completedCompactions() {
+    return completedCompactions;
+  }
+
+  /**
+   * Returns a boolean indicating whether compaction is backing off because the log is under load.
+   *
+   * @return Indicates whether compaction is backing off.
+   */
+  public boolean isBackingOff() {
+    return throttle.isLoaded();
   }
 
   /**
@@ -187,10 +321,17 @@ public class Compactor implements AutoCloseable {
    * @param compaction The compaction strategy.
    * @return A completable future to be completed once the log has been compacted.
    */
-  public synchronized CompletableFuture<Void> compact(Compaction compaction) {
+  public CompletableFuture<Void> compact(Compaction compaction) {
+    return compact(compaction, true);
+  }
+
+  /**
+   * Compacts the log, allowing the compaction's tasks to back off under load if {@code backoff} is {@code true}.
+   */
+  private synchronized CompletableFuture<Void> compact(Compaction compaction, boolean backoff) {
     final CompletableFuture<Void> future = new CompletableFuture<>();
     ThreadContext context = ThreadContext.currentContext();
-    this.future.whenComplete((result, error) -> compact(compaction, future, context));
+    this.future.whenComplete((result, error) -> compact(compaction, backoff, future, context));
     this.future = future;
     return this.future;
   }
@@ -198,12 +339,15 @@ public class Compactor implements AutoCloseable {
   /**
    * Compacts the log.
    */
-  private synchronized CompletableFuture<Void> compact(Compaction compaction, CompletableFuture<Void> future, ThreadContext context) {
+  private synchronized CompletableFuture<Void> compact(Compaction compaction, boolean backoff, CompletableFuture<Void> future, ThreadContext context) {
     CompactionManager manager = compaction.manager(this);
     AtomicInteger counter = new AtomicInteger();
 
     Collection<CompactionTask> tasks = manager.buildTasks(storage, segments);
     if (!tasks.isEmpty()) {
+      throttle.start(backoff);
+      compactionStart = throttle.compactedBytes();
+      compactionSize = tasks.stream().mapToLong(CompactionTask::size).sum();
       LOGGER.info("Compacting log with compaction: {}", compaction);
       LOGGER.debug("Executing {} compaction task(s)", tasks.size());
       for (CompactionTask task : tasks) {
@@ -212,6 +356,8 @@ public class Compactor implements AutoCloseable {
         taskThread.execute(task).whenComplete((result, error) -> {
           LOGGER.debug("{} complete", task);
           if (counter.incrementAndGet() == tasks.size()) {
+            compactionSize = 0;
+            completedCompactions++;
             if (context != null) {
               context.executor().execute(() -> future.complete(null));
             } else {
@@ -221,6 +367,7 @@ public class Compactor implements AutoCloseable {
         });
       }
     } else {
+      completedCompactions++;
       future.complete(null);
     }
     return future;
@@ -234,6 +381,7 @@ public class Compactor implements AutoCloseable {
    */
   @Override
   public void close() {
+    throttle.close();
     if (minor != null)
       minor.cancel(true);
     if (major != null)
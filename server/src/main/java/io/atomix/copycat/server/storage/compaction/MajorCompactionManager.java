@@ -19,19 +19,22 @@ import io.atomix.catalyst.util.Assert;
 import io.atomix.copycat.server.storage.Segment;
 import io.atomix.copycat.server.storage.SegmentManager;
 import io.atomix.copycat.server.storage.Storage;
+import io.atomix.copycat.server.storage.util.OffsetPredicate;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Builds tasks for the {@link Compaction#MAJOR} compaction process.
  * <p>
  * Major compaction works by iterating through all committed {@link Segment}s in the log and rewriting and
- * combining segments to compact them together. Because of the sequential nature of major compaction, the major
- * compaction manager builds only a single {@link MajorCompactionTask} which will rewrite the log sequentially.
- * Segments are provided to the major compaction task in groups that indicate which segments to combine. A set
+ * combining segments to compact them together. Segments are grouped to indicate which segments to combine, and
+ * each group is compacted by a separate {@link MajorCompactionTask} so groups are rewritten in parallel in the
+ * compaction thread pool. Because of the sequential nature of major compaction, the released offsets of all
+ * segments are copied once before any task is run, and tasks replace their groups in sequential order. A set
  * of segments can be combined if they meet the following criteria:
  * <ul>
  *   <li>The entries in the set of segments are sequential; there are no missing segments in the set
@@ -52,7 +55,21 @@ public final class MajorCompactionManager implements CompactionManager {
   @Override
   public List<CompactionTask> buildTasks(Storage storage, SegmentManager segments) {
     List<List<Segment>> groups = getCompactableGroups(storage, segments);
-    return !groups.isEmpty() ? Collections.singletonList(new MajorCompactionTask(segments, groups, compactor.snapshotIndex(), compactor.majorIndex(), compactor.getDefaultCompactionMode())) : Collections.emptyList();
+
+
+    // Snapshot the released offsets of all segments before any group is rewritten.
+    List<List<OffsetPredicate>> predicates = MajorCompactionTask.copyPredicates(groups);
+
+    // Each group is compacted by a separate task. Tasks are created in sequential order, and each task replaces its
+    // group only after the task for the preceding group, so tombstones are never removed before prior entries.
+    List<CompactionTask> tasks = new ArrayList<>(groups.size());
+    CompletableFuture<Void> previous = CompletableFuture.completedFuture(null);
+    for (int i = 0; i < groups.size(); i++) {
+      MajorCompactionTask task = new MajorCompactionTask(segments, Collections.singletonList(groups.get(i)), Collections.singletonList(predicates.get(i)), compactor.snapshotIndex(), compactor.majorIndex(), compactor.getDefaultCompactionMode(), compactor.throttle(), previous);
+      tasks.add(task);
+      previous = task.replaced();
+    }
+    return tasks;
   }
 
   /**
@@ -27,6 +27,9 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Removes tombstones from the log and combines {@link Segment}s to reclaim disk space.
@@ -83,10 +86,18 @@ import java.util.List;
  * incorrect, but it will be inconsistent with other servers which are likely to have correctly removed both entry
  * {@code 1} and entry {@code 12345} during major compaction.
  * <p>
- * In order to prevent such a scenario from occurring, the major compaction task takes an immutable snapshot of the
- * state of offsets underlying all the segments to be compacted prior to rewriting any entries. This ensures that any
- * entries released after the start of rewriting segments will not be considered for compaction during the execution
+ * In order to prevent such a scenario from occurring, the {@link MajorCompactionManager} takes an immutable snapshot
+ * of the state of offsets underlying all the segments to be compacted prior to rewriting any entries. This ensures that
+ * any entries released after the start of rewriting segments will not be considered for compaction during the execution
  * of this task.
+ * <p>
+ * <b>Parallel compaction</b>
+ * <p>
+ * Groups of segments may be compacted by separate tasks running in parallel. All tasks in a compaction share the same
+ * snapshot of released offsets, and although tasks rewrite their groups concurrently, each task waits for the task
+ * compacting the preceding group to replace its segments before replacing its own. Compacted groups therefore become
+ * visible in sequential order, so a failure can still only have removed entries earlier in the log. If the preceding
+ * task fails, the task discards its compact segment and fails as well.
  *
  * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
  */
@@ -94,30 +105,43 @@ public final class MajorCompactionTask implements CompactionTask {
   private static final Logger LOGGER = LoggerFactory.getLogger(MajorCompactionTask.class);
   private final SegmentManager manager;
   private final List<List<Segment>> groups;
-  private List<List<OffsetPredicate>> predicates;
+  private final List<List<OffsetPredicate>> predicates;
   private final long snapshotIndex;
   private final long compactIndex;
   private final Compaction.Mode defaultCompactionMode;
+  private final CompactionThrottle throttle;
+  private final CompletableFuture<Void> previous;
+  private final CompletableFuture<Void> replaced = new CompletableFuture<>();
 
-  MajorCompactionTask(SegmentManager manager, List<List<Segment>> groups, long snapshotIndex, long compactIndex, Compaction.Mode defaultCompactionMode) {
+  /**
+   * @param manager The segment manager.
+   * @param groups The groups of segments to compact.
+   * @param predicates A snapshot of the offset predicates of each segment in each group.
+   * @param snapshotIndex The snapshot index.
+   * @param compactIndex The major compaction index.
+   * @param defaultCompactionMode The default compaction mode.
+   * @param throttle The compaction throttle.
+   * @param previous A future to be completed once the preceding task has replaced its segments.
+   */
+  MajorCompactionTask(SegmentManager manager, List<List<Segment>> groups, List<List<OffsetPredicate>> predicates, long snapshotIndex, long compactIndex, Compaction.Mode defaultCompactionMode, CompactionThrottle throttle, CompletableFuture<Void> previous) {
     this.manager = Assert.notNull(manager, "manager");
     this.groups = Assert.notNull(groups, "segments");
+    this.predicates = Assert.notNull(predicates, "predicates");
     this.snapshotIndex = snapshotIndex;
     this.compactIndex = compactIndex;
     this.defaultCompactionMode = Assert.notNull(defaultCompactionMode, "defaultCompactionMode");
-  }
-
-  @Override
-  public void run() {
-    copyPredicates();
-    compactGroups();
+    this.throttle = Assert.notNull(throttle, "throttle");
+    this.previous = Assert.notNull(previous, "previous");
   }
 
   /**
-   * Creates a copy of offset predicates prior to compacting segments to prevent race conditions.
+   * Copies the offset predicates of the given groups of segments.
+   *
+   * @param groups The groups of segments for which to copy predicates.
+   * @return The copied offset predicates.
    */
-  private void copyPredicates() {
-    predicates = new ArrayList<>(groups.size());
+  static List<List<OffsetPredicate>> copyPredicates(List<List<Segment>> groups) {
+    List<List<OffsetPredicate>> predicates = new ArrayList<>(groups.size());
     for (List<Segment> group : groups) {
       List<OffsetPredicate> groupPredicates = new ArrayList<>(group.size());
       for (Segment segment : group) {
@@ -125,6 +149,30 @@ public final class MajorCompactionTask implements CompactionTask {
       }
       predicates.add(groupPredicates);
     }
+    return predicates;
+  }
+
+  /**
+   * Returns a future to be completed once the task has replaced its segments.
+   */
+  CompletableFuture<Void> replaced() {
+    return replaced;
+  }
+
+  @Override
+  public long size() {
+    return groups.stream().flatMap(List::stream).mapToLong(Segment::size).sum();
+  }
+
+  @Override
+  public void run() {
+    try {
+      compactGroups();
+      replaced.complete(null);
+    } catch (RuntimeException | Error e) {
+      replaced.completeExceptionally(e);
+      throw e;
+    }
   }
 
   /**
@@ -155,16 +203,34 @@ public final class MajorCompactionTask implements CompactionTask {
       .withIndex(firstSegment.descriptor().index())
       .withMaxSegmentSize(Math.max(segments.stream().mapToLong(s -> s.descriptor().maxSegmentSize()).max().getAsLong(), manager.storage().maxSegmentSize()))
       .withMaxEntries(Math.max(segments.stream().mapToInt(s -> s.descriptor().maxEntries()).max().getAsInt(), manager.storage().maxEntriesPerSegment()))
+      .withChecksumType(manager.storage().checksumType())
+      .withCompressionType(manager.storage().compactionCompression())
       .build());
 
     compactGroup(segments, predicates, compactSegment);
 
+    // Wait for the preceding groups to be replaced before replacing the rewritten segments.
+    awaitPrevious(compactSegment);
+
     // Replace the rewritten segments with the updated segment.
     manager.replaceSegments(segments, compactSegment);
 
     return compactSegment;
   }
 
+  /**
+   * Waits for the preceding task to replace its segments, discarding the compact segment if the preceding task failed.
+   */
+  private void awaitPrevious(Segment compactSegment) {
+    try {
+      previous.join();
+    } catch (CompletionException | CancellationException e) {
+      compactSegment.close();
+      compactSegment.delete();
+      throw new IllegalStateException("preceding compaction failed", e);
+    }
+  }
+
   /**
    * Compacts segments in a group sequentially.
    *
@@ -201,6 +267,7 @@ public final class MajorCompactionTask implements CompactionTask {
     try (Entry entry = segment.get(index)) {
       // If an entry was found, remove the entry from the segment.
       if (entry != null) {
+        throttle.acquire(entry.size());
         checkEntry(index, entry, segment, predicate, compactSegment);
       } else {
         compactSegment.skip(1);
@@ -316,10 +383,9 @@ public final class MajorCompactionTask implements CompactionTask {
    * Completes compaction by deleting old segments.
    */
   private void deleteGroup(List<Segment> group) {
-    // Delete the old segments.
+    // Retire the old segments. Each segment is deleted once readers have released their references to it.
     for (Segment oldSegment : group) {
-      oldSegment.close();
-      oldSegment.delete();
+      oldSegment.retire();
     }
   }
 
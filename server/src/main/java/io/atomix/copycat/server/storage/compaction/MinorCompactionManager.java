@@ -22,6 +22,7 @@ import io.atomix.copycat.server.storage.Storage;
 import io.atomix.copycat.server.storage.entry.Entry;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 
@@ -30,9 +31,10 @@ import java.util.List;
  * <p>
  * Minor compaction works by rewriting individual segments to remove entries that don't have to be removed sequentially
  * from the log. The minor compaction manager is responsible for building a list of {@link MinorCompactionTask}s
- * to compact segments. In the case of minor compaction, each task is responsible for compacting a single segment.
- * However, in order to ensure segments are not compacted without cause, this compaction manager attempts to
- * prioritize segments for which compaction will result in greater disk space savings.
+ * to compact segments. Each task rewrites a group of adjacent segments as a single segment, so minor compaction
+ * both removes released entries and merges segments that have been left small by prior compactions. In order to
+ * ensure segments are not compacted without cause, this compaction manager prioritizes groups for which compaction
+ * will free the most disk space relative to the amount of I/O required to rewrite them.
  * <p>
  * Segments are selected for minor compaction based on several factors:
  * <ul>
@@ -40,19 +42,22 @@ import java.util.List;
  *   <li>The number of times the segment has been compacted already</li>
  * </ul>
  * <p>
- * Given the number of entries that have been released from the segment, a percentage of entries reclaimed by
- * compacting the segment is calculated. Then, the percentage of entries that have been released is multiplied
- * by the number of times the segment has been compacted. If the result of this calculation is greater than
- * the configured {@link Storage#compactionThreshold()} then the segment is selected for compaction.
- * <p>
- * The final formula is as follows:
+ * Given the number of entries that have been released from the segment, the number of bytes reclaimed by compacting
+ * the segment is estimated. Then, the percentage of bytes reclaimed is multiplied by the number of times the segment
+ * has been compacted. If the result of this calculation is greater than the configured
+ * {@link Storage#compactionThreshold()} then the segment is selected for compaction:
  * <pre>
  *   {@code
- *   if ((segment.releaseCount() / (double) segment.count()) * segment.descriptor().version() > storage.compactionThreshold()) {
+ *   if ((reclaimableBytes(segment) / (double) segment.size()) * segment.descriptor().version() >= storage.compactionThreshold()) {
  *     // Compact the segment
  *   }
  *   }
  * </pre>
+ * <p>
+ * Additionally, compacted segments that are less than half full are considered under-filled. Runs of adjacent
+ * compactable and under-filled segments are grouped up to the {@link Storage#maxSegmentSize()} and
+ * {@link Storage#maxEntriesPerSegment()}, and a group is compacted if it contains a compactable segment or merges
+ * multiple segments. Groups are compacted in descending order of the number of bytes reclaimed per byte rewritten.
  *
  * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
  */
@@ -65,20 +70,25 @@ public final class MinorCompactionManager implements CompactionManager {
 
   @Override
   public List<CompactionTask> buildTasks(Storage storage, SegmentManager segments) {
-    List<CompactionTask> tasks = new ArrayList<>(segments.segments().size());
-    for (Segment segment : getCompactableSegments(storage, segments)) {
-      tasks.add(new MinorCompactionTask(segments, segment, compactor.snapshotIndex(), compactor.majorIndex(), compactor.getDefaultCompactionMode()));
+    List<CompactionTask> tasks = new ArrayList<>();
+    for (List<Segment> group : getCompactableGroups(storage, segments)) {
+      tasks.add(new MinorCompactionTask(segments, group, compactor.snapshotIndex(), compactor.majorIndex(), compactor.getDefaultCompactionMode(), compactor.throttle()));
     }
     return tasks;
   }
 
   /**
-   * Returns a list of compactable segments.
+   * Returns a list of groups of adjacent segments to compact, ordered by the number of bytes freed per byte of I/O.
+   * <p>
+   * Each group is rewritten as a single segment. Groups are built from runs of adjacent segments that are either
+   * compactable or under-filled, up to the maximum segment size and entry count. A group is only compacted if it
+   * contains a compactable segment or merges multiple segments.
    *
-   * @return A list of compactable segments.
+   * @return A list of segment groups to compact.
    */
-  private Iterable<Segment> getCompactableSegments(Storage storage, SegmentManager manager) {
-    List<Segment> segments = new ArrayList<>(manager.segments().size());
+  List<List<Segment>> getCompactableGroups(Storage storage, SegmentManager manager) {
+    List<List<Segment>> groups = new ArrayList<>();
+    List<Segment> group = new ArrayList<>();
     Iterator<Segment> iterator = manager.segments().iterator();
     Segment segment = iterator.next();
     while (iterator.hasNext()) {
@@ -88,19 +98,76 @@ public final class MinorCompactionManager implements CompactionManager {
       // of entries less than the minorIndex, and a later segment with at least one committed entry must exist in the log. This ensures that
       // a non-empty entry always remains at the end of the log.
       if (segment.isCompacted() || (segment.isFull() && segment.lastIndex() < compactor.minorIndex() && nextSegment.firstIndex() <= manager.commitIndex() && !nextSegment.isEmpty())) {
-        // Calculate the percentage of entries that have been released in the segment.
-        double compactablePercentage = segment.releaseCount() / (double) segment.count();
-
-        // If the percentage of entries released times the segment version meets the compaction threshold,
-        // add the segment to the segments list for compaction.
-        if (compactablePercentage * segment.descriptor().version() >= storage.compactionThreshold()) {
-          segments.add(segment);
+        if (isCompactable(storage, segment) || isUnderfilled(storage, segment)) {
+          // If the segment doesn't fit in the group, start a new group.
+          if (!group.isEmpty() && (group.stream().mapToLong(Segment::size).sum() + segment.size() > storage.maxSegmentSize()
+            || group.stream().mapToLong(Segment::count).sum() + segment.count() > storage.maxEntriesPerSegment())) {
+            addGroup(storage, groups, group);
+            group = new ArrayList<>();
+          }
+          group.add(segment);
+        } else {
+          addGroup(storage, groups, group);
+          group = new ArrayList<>();
         }
+      } else {
+        addGroup(storage, groups, group);
+        group = new ArrayList<>();
       }
 
       segment = nextSegment;
     }
-    return segments;
+    addGroup(storage, groups, group);
+
+    // Compact the groups that free the most space per byte rewritten first, so throttled compactions reclaim space sooner.
+    groups.sort(Comparator.comparingDouble((List<Segment> g) -> {
+      long cost = g.stream().mapToLong(MinorCompactionManager::rewriteCost).sum();
+      return cost > 0 ? g.stream().mapToLong(MinorCompactionManager::reclaimableBytes).sum() / (double) cost : 0;
+    }).reversed());
+    return groups;
+  }
+
+  /**
+   * Adds the given group to the list of groups to compact if compacting it will free space or merge segments.
+   */
+  private static void addGroup(Storage storage, List<List<Segment>> groups, List<Segment> group) {
+    if (group.size() > 1 || (group.size() == 1 && isCompactable(storage, group.get(0)))) {
+      groups.add(group);
+    }
+  }
+
+  /**
+   * Returns a boolean indicating whether enough of the given segment has been released to compact it.
+   * <p>
+   * The ratio of reclaimable bytes to the size of the segment is multiplied by the segment version, so segments
+   * that have already been compacted are compacted again more readily.
+   */
+  private static boolean isCompactable(Storage storage, Segment segment) {
+    long size = segment.size();
+    return size > 0 && reclaimableBytes(segment) / (double) size * segment.descriptor().version() >= storage.compactionThreshold();
+  }
+
+  /**
+   * Returns a boolean indicating whether the given segment is less than half full, in which case it can be merged
+   * with adjacent segments.
+   */
+  private static boolean isUnderfilled(Storage storage, Segment segment) {
+    return segment.isCompacted() && segment.size() <= storage.maxSegmentSize() / 2 && segment.count() <= storage.maxEntriesPerSegment() / 2;
+  }
+
+  /**
+   * Estimates the number of bytes freed by compacting the given segment.
+   */
+  static long reclaimableBytes(Segment segment) {
+    long count = segment.count();
+    return count > 0 ? (long) (segment.size() * (segment.releaseCount() / (double) count)) : 0;
+  }
+
+  /**
+   * Estimates the number of bytes read and written to compact the given segment.
+   */
+  static long rewriteCost(Segment segment) {
+    return segment.size() * 2 - reclaimableBytes(segment);
   }
 
 }
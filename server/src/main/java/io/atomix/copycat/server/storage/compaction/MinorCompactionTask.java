@@ -23,21 +23,22 @@ import io.atomix.copycat.server.storage.entry.Entry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Collections;
+import java.util.List;
 
 /**
- * Removes {@link io.atomix.copycat.server.storage.Log#release(long) released} entries from an individual
- * log {@link Segment} to reclaim disk space.
+ * Removes {@link io.atomix.copycat.server.storage.Log#release(long) released} entries from a group of adjacent
+ * log {@link Segment}s to reclaim disk space.
  * <p>
- * The minor compaction task is a lightweight process that rewrites an individual segment to remove entries for
- * that do not have to be removed sequentially from the log.
+ * The minor compaction task is a lightweight process that rewrites a group of segments to remove entries for
+ * that do not have to be removed sequentially from the log. Most groups consist of a single segment, but the
+ * {@link MinorCompactionManager} may group adjacent under-filled segments so they're merged into a single segment.
  * <p>
- * When a segment is rewritten by the minor compaction task, a new compact segment is created with the same starting
- * index as the segment being compacted and the next greatest version number. The version number allows the
+ * When a group is rewritten by the minor compaction task, a new compact segment is created with the same starting
+ * index as the first segment in the group and the next greatest version number. The version number allows the
  * {@link SegmentManager} to account for failures during log compaction when recovering the log from disk. If a failure
  * occurs during minor compaction, the segment manager will attempt to load the segment with the greatest version
  * for a given range of entries from disk. If the segment with the greatest version did not finish compaction, it
- * will be discarded and the old segment will be used. Once the minor compaction task is done rewriting a segment,
+ * will be discarded and the old segments will be used. Once the minor compaction task is done rewriting a group,
  * it will {@link SegmentDescriptor#lock()} the segment to indicate that the segment has completed compaction and
  * is safe to read, and the compacted segment will be made available to the {@link io.atomix.copycat.server.storage.Log}.
  *
@@ -46,17 +47,25 @@ import java.util.Collections;
 public final class MinorCompactionTask implements CompactionTask {
   private static final Logger LOGGER = LoggerFactory.getLogger(MinorCompactionTask.class);
   private final SegmentManager manager;
-  private final Segment segment;
+  private final List<Segment> segments;
   private final long snapshotIndex;
   private final long compactIndex;
   private final Compaction.Mode defaultCompactionMode;
+  private final CompactionThrottle throttle;
 
-  MinorCompactionTask(SegmentManager manager, Segment segment, long snapshotIndex, long compactIndex, Compaction.Mode defaultCompactionMode) {
+  MinorCompactionTask(SegmentManager manager, List<Segment> segments, long snapshotIndex, long compactIndex, Compaction.Mode defaultCompactionMode, CompactionThrottle throttle) {
     this.manager = Assert.notNull(manager, "manager");
-    this.segment = Assert.notNull(segment, "segment");
+    this.segments = Assert.notNull(segments, "segments");
+    Assert.argNot(segments.isEmpty(), "segments cannot be empty");
     this.snapshotIndex = snapshotIndex;
     this.compactIndex = compactIndex;
     this.defaultCompactionMode = Assert.notNull(defaultCompactionMode, "defaultCompactionMode");
+    this.throttle = Assert.notNull(throttle, "throttle");
+  }
+
+  @Override
+  public long size() {
+    return segments.stream().mapToLong(Segment::size).sum();
   }
 
   @Override
@@ -68,26 +77,34 @@ public final class MinorCompactionTask implements CompactionTask {
    * Compacts all compactable segments.
    */
   private void compactSegments() {
-    // Create a compact segment with a newer version to which to rewrite the segment entries.
+    // Create a compact segment with a newer version of the first segment to which to rewrite the segment entries.
+    Segment firstSegment = segments.get(0);
     Segment compactSegment = manager.createSegment(SegmentDescriptor.builder()
-      .withId(segment.descriptor().id())
-      .withVersion(segment.descriptor().version() + 1)
-      .withIndex(segment.descriptor().index())
-      .withMaxSegmentSize(segment.descriptor().maxSegmentSize())
-      .withMaxEntries(segment.descriptor().maxEntries())
+      .withId(firstSegment.descriptor().id())
+      .withVersion(firstSegment.descriptor().version() + 1)
+      .withIndex(firstSegment.descriptor().index())
+      .withMaxSegmentSize(Math.max(segments.stream().mapToLong(s -> s.descriptor().maxSegmentSize()).max().getAsLong(), segments.size() > 1 ? manager.storage().maxSegmentSize() : 0))
+      .withMaxEntries(Math.max(segments.stream().mapToInt(s -> s.descriptor().maxEntries()).max().getAsInt(), segments.size() > 1 ? manager.storage().maxEntriesPerSegment() : 0))
+      .withChecksumType(manager.storage().checksumType())
+      .withCompressionType(manager.storage().compactionCompression())
       .build());
 
-    compactEntries(segment, compactSegment);
+    for (Segment segment : segments) {
+      compactEntries(segment, compactSegment);
+    }
 
-    // Replace the old segment with the compact segment.
-    manager.replaceSegments(Collections.singletonList(segment), compactSegment);
+    // Replace the old segments with the compact segment.
+    manager.replaceSegments(segments, compactSegment);
 
     // Update the new segment with offsets that were released during compaction.
-    mergeReleasedEntries(segment, compactSegment);
+    for (Segment segment : segments) {
+      mergeReleasedEntries(segment, compactSegment);
+    }
 
-    // Delete the old segment.
-    segment.close();
-    segment.delete();
+    // Retire the old segments. Each segment is deleted once readers have released their references to it.
+    for (Segment segment : segments) {
+      segment.retire();
+    }
   }
 
   /**
@@ -113,6 +130,7 @@ public final class MinorCompactionTask implements CompactionTask {
     try (Entry entry = segment.get(index)) {
       // If an entry was found, only remove the entry from the segment if it's not a tombstone that has been released.
       if (entry != null) {
+        throttle.acquire(entry.size());
         checkEntry(index, entry, segment, compactSegment);
       } else {
         compactSegment.skip(1);
@@ -140,7 +158,7 @@ public final class MinorCompactionTask implements CompactionTask {
         if (index <= snapshotIndex && !segment.isLive(index)) {
           compactEntry(index, segment, compactSegment);
         } else {
-          transferEntry(index, entry, compactSegment);
+          transferEntry(index, entry, segment, compactSegment);
         }
         break;
       // RELEASE and QUORUM entries are compacted if the entry has been released in the segment.
@@ -149,7 +167,7 @@ public final class MinorCompactionTask implements CompactionTask {
         if (!segment.isLive(index)) {
           compactEntry(index, segment, compactSegment);
         } else {
-          transferEntry(index, entry, compactSegment);
+          transferEntry(index, entry, segment, compactSegment);
         }
         break;
       // FULL entries are compacted if the major compact index is greater than the entry index
@@ -158,7 +176,7 @@ public final class MinorCompactionTask implements CompactionTask {
         if (index <= compactIndex && !segment.isLive(index)) {
           compactEntry(index, segment, compactSegment);
         } else {
-          transferEntry(index, entry, compactSegment);
+          transferEntry(index, entry, segment, compactSegment);
         }
         break;
       // SEQUENTIAL, EXPIRING, and TOMBSTONE entries can only be compacted during major compaction.
@@ -167,7 +185,7 @@ public final class MinorCompactionTask implements CompactionTask {
       case EXPIRING:
       case TOMBSTONE:
       case UNKNOWN:
-        transferEntry(index, entry, compactSegment);
+        transferEntry(index, entry, segment, compactSegment);
         break;
       default:
         break;
@@ -185,7 +203,7 @@ public final class MinorCompactionTask implements CompactionTask {
   /**
    * Transfers an entry to the given compact segment.
    */
-  private void transferEntry(long index, Entry entry, Segment compactSegment) {
+  private void transferEntry(long index, Entry entry, Segment segment, Segment compactSegment) {
     compactSegment.append(entry);
 
     // If the entry was released in the prior segment, mark it as released in the compact segment.
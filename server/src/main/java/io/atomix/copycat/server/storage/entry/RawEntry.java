@@ -0,0 +1,150 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.storage.entry;
+
+import io.atomix.catalyst.buffer.Buffer;
+import io.atomix.catalyst.serializer.Serializer;
+import io.atomix.catalyst.util.Assert;
+import io.atomix.copycat.server.storage.ChecksumType;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.zip.Checksum;
+
+import static io.atomix.catalyst.buffer.Bytes.BOOLEAN;
+import static io.atomix.catalyst.buffer.Bytes.INTEGER;
+import static io.atomix.catalyst.buffer.Bytes.LONG;
+
+/**
+ * Serialized, checksummed entry bytes as stored in a {@link io.atomix.copycat.server.storage.Segment}.
+ * <p>
+ * Raw entries are used to replicate entries without deserializing and reserializing them. The leader reads the stored
+ * entry bytes and checksum directly from the log via {@link io.atomix.copycat.server.storage.Log#getRaw(long)}, and
+ * followers write the bytes back to their own segments as-is. Raw entries carry the {@link ChecksumType} with which the
+ * checksum was computed. If a raw entry is appended to a segment that uses a different checksum type, the segment
+ * recomputes the checksum. The bytes of a raw entry are the serialized entry, including the serializer's type
+ * information, so a raw entry can be read as a normal entry from the log once it has been appended.
+ * <p>
+ * Raw entries are not pooled. Raw entries read from the log are cached separately from typed entries in the log's
+ * {@link io.atomix.copycat.server.storage.util.EntryCache entry cache}.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class RawEntry extends Entry<RawEntry> {
+  private final ChecksumType checksumType;
+  private final long checksum;
+  private final byte[] bytes;
+
+  /**
+   * @param checksum The {@link ChecksumType#CRC32} checksum of the entry bytes.
+   * @param bytes The serialized entry bytes.
+   * @throws NullPointerException if {@code bytes} is null
+   */
+  public RawEntry(long checksum, byte[] bytes) {
+    this(ChecksumType.CRC32, checksum, bytes);
+  }
+
+  /**
+   * @param checksumType The algorithm with which the checksum was computed.
+   * @param checksum The checksum of the entry bytes.
+   * @param bytes The serialized entry bytes.
+   * @throws NullPointerException if {@code checksumType} or {@code bytes} is null
+   */
+  public RawEntry(ChecksumType checksumType, long checksum, byte[] bytes) {
+    this.checksumType = Assert.notNull(checksumType, "checksumType");
+    this.checksum = checksum;
+    this.bytes = Assert.notNull(bytes, "bytes");
+    setSize(INTEGER + INTEGER + LONG + BOOLEAN + LONG + bytes.length);
+    // Raw entries are not pooled, so the creator of the entry holds the initial reference.
+    acquire();
+  }
+
+  /**
+   * Serializes the given entry to a raw entry.
+   *
+   * @param entry The entry to serialize.
+   * @param serializer The serializer with which to serialize the entry.
+   * @return The raw entry.
+   */
+  public static RawEntry of(Entry entry, Serializer serializer) {
+    if (entry instanceof RawEntry) {
+      return (RawEntry) entry;
+    }
+
+    byte[] bytes;
+    try (Buffer buffer = serializer.writeObject(entry).flip()) {
+      bytes = new byte[(int) buffer.remaining()];
+      buffer.read(bytes);
+    }
+
+    Checksum checksum = ChecksumType.CRC32.newChecksum();
+    checksum.update(bytes, 0, bytes.length);
+    return new RawEntry(ChecksumType.CRC32, checksum.getValue(), bytes)
+      .setIndex(entry.getIndex())
+      .setTerm(entry.getTerm());
+  }
+
+  /**
+   * Returns the algorithm with which the entry checksum was computed.
+   *
+   * @return The entry checksum type.
+   */
+  public ChecksumType checksumType() {
+    return checksumType;
+  }
+
+  /**
+   * Returns the entry checksum.
+   *
+   * @return The checksum of the serialized entry bytes.
+   */
+  public long checksum() {
+    return checksum;
+  }
+
+  /**
+   * Returns the serialized entry bytes.
+   *
+   * @return The serialized entry bytes.
+   */
+  public byte[] bytes() {
+    return bytes;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(getClass(), getIndex(), getTerm(), checksumType, checksum, Arrays.hashCode(bytes));
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (object instanceof RawEntry) {
+      RawEntry entry = (RawEntry) object;
+      return entry.getIndex() == getIndex()
+        && entry.getTerm() == getTerm()
+        && entry.checksumType == checksumType
+        && entry.checksum == checksum
+        && Arrays.equals(entry.bytes, bytes);
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s[index=%d, term=%d, length=%d]", getClass().getSimpleName(), getIndex(), getTerm(), bytes.length);
+  }
+
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2017-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.storage.index;
+
+import io.atomix.catalyst.buffer.Buffer;
+import io.atomix.catalyst.buffer.FileBuffer;
+import io.atomix.catalyst.buffer.MappedBuffer;
+import io.atomix.catalyst.util.Assert;
+
+/**
+ * Offset index stored in a fixed size, typically memory-mapped, buffer.
+ * <p>
+ * The index stores a 32-bit offset and 32-bit unsigned position for each entry. Because offsets are stored
+ * alongside positions, the index can be reopened over the entries previously written to the buffer without
+ * rebuilding it. While entries are indexed sequentially, offsets are looked up in O(1) time. Once an offset
+ * has been skipped, offsets are looked up via binary search.
+ * <p>
+ * Entries are written to the buffer before the index size is updated, so the index can be read concurrently
+ * with a single writer. The buffer must be large enough to store all entries in the index, since the buffer
+ * can't safely be resized while it's being read.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class MappedOffsetIndex implements OffsetIndex {
+  private static final long MAX_POSITION = (long) Math.pow(2, 32) - 1;
+  private static final int OFFSET_SIZE = 4;
+  private static final int ENTRY_SIZE = OFFSET_SIZE + 4;
+
+  private final Buffer buffer;
+  private volatile int size;
+  private volatile long lastOffset = -1;
+  private volatile boolean sequential = true;
+
+  /**
+   * @throws NullPointerException if {@code buffer} is null
+   */
+  public MappedOffsetIndex(Buffer buffer) {
+    this(buffer, 0);
+  }
+
+  /**
+   * @param buffer The buffer in which to store the index.
+   * @param size The number of entries already stored in the buffer.
+   * @throws NullPointerException if {@code buffer} is null
+   */
+  public MappedOffsetIndex(Buffer buffer, int size) {
+    this.buffer = Assert.notNull(buffer, "buffer");
+    Assert.argNot(size < 0, "size cannot be negative");
+    if (size > 0) {
+      lastOffset = offsetAt(size - 1);
+      sequential = lastOffset == size - 1;
+    }
+    this.size = size;
+  }
+
+  /**
+   * Returns the number of bytes required to index the given number of entries.
+   *
+   * @param maxEntries The maximum number of entries in the index.
+   * @return The number of bytes required to index the given number of entries.
+   */
+  public static long size(int maxEntries) {
+    return (long) maxEntries * ENTRY_SIZE;
+  }
+
+  @Override
+  public long lastOffset() {
+    return lastOffset;
+  }
+
+  @Override
+  public boolean index(long offset, long position) {
+    Assert.argNot(offset, lastOffset > -1 && offset <= lastOffset, "offset cannot be less than or equal to the last offset in the index");
+    Assert.argNot(position > MAX_POSITION, "position cannot be greater than " + MAX_POSITION);
+
+    int size = this.size;
+    buffer.writeInt((long) size * ENTRY_SIZE, (int) offset)
+      .writeUnsignedInt((long) size * ENTRY_SIZE + OFFSET_SIZE, position);
+
+    if (offset != lastOffset + 1) {
+      sequential = false;
+    }
+    lastOffset = offset;
+    this.size = size + 1;
+    return true;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean contains(long offset) {
+    return find(offset) != -1;
+  }
+
+  @Override
+  public long position(long offset) {
+    long index = find(offset);
+    return index != -1 ? positionAt(index) : -1;
+  }
+
+  @Override
+  public long find(long offset) {
+    int size = this.size;
+    if (offset < 0 || size == 0) {
+      return -1;
+    }
+
+    // If entries have been indexed sequentially, the offset is stored at its own index. The stored offset is
+    // checked in case an offset was skipped concurrently.
+    if (sequential && offset < size && offsetAt(offset) == offset) {
+      return offset;
+    }
+
+    long lo = 0;
+    long hi = size - 1;
+    while (lo <= hi) {
+      long mid = (lo + hi) >>> 1;
+      long i = offsetAt(mid);
+      if (i == offset) {
+        return mid;
+      } else if (i < offset) {
+        lo = mid + 1;
+      } else {
+        hi = mid - 1;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public long truncate(long offset) {
+    if (offset == lastOffset) {
+      return -1;
+    }
+
+    if (offset == -1) {
+      size = 0;
+      lastOffset = -1;
+      sequential = true;
+      return 0;
+    }
+
+    // Find the index of the first entry following the offset.
+    long lo = 0;
+    long hi = size - 1;
+    while (lo <= hi) {
+      long mid = (lo + hi) >>> 1;
+      if (offsetAt(mid) <= offset) {
+        lo = mid + 1;
+      } else {
+        hi = mid - 1;
+      }
+    }
+
+    // The last offset is the truncated offset even if it's not indexed, since it may have been skipped.
+    long position = positionAt(lo);
+    lastOffset = offset;
+    sequential = offset == lo - 1;
+    size = (int) lo;
+    return position;
+  }
+
+  /**
+   * Returns the offset stored at the given index.
+   */
+  private long offsetAt(long index) {
+    return buffer.readInt(index * ENTRY_SIZE);
+  }
+
+  /**
+   * Returns the position stored at the given index.
+   */
+  private long positionAt(long index) {
+    return buffer.readUnsignedInt(index * ENTRY_SIZE + OFFSET_SIZE);
+  }
+
+  @Override
+  public void flush() {
+    buffer.flush();
+  }
+
+  @Override
+  public void close() {
+    buffer.close();
+  }
+
+  @Override
+  public void delete() {
+    if (buffer instanceof FileBuffer) {
+      ((FileBuffer) buffer).delete();
+    } else if (buffer instanceof MappedBuffer) {
+      ((MappedBuffer) buffer).delete();
+    }
+  }
+
+}
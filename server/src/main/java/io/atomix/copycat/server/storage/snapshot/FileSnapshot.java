@@ -18,6 +18,7 @@ package io.atomix.copycat.server.storage.snapshot;
 import io.atomix.catalyst.buffer.Buffer;
 import io.atomix.catalyst.buffer.FileBuffer;
 import io.atomix.catalyst.util.Assert;
+import io.atomix.copycat.server.storage.CompressionType;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -30,11 +31,15 @@ import java.nio.file.Path;
  */
 final class FileSnapshot extends Snapshot {
   private final SnapshotFile file;
+  private final long base;
+  private final CompressionType compression;
   private final SnapshotStore store;
 
-  FileSnapshot(SnapshotFile file, SnapshotStore store) {
+  FileSnapshot(SnapshotFile file, SnapshotDescriptor descriptor, SnapshotStore store) {
     super(store);
     this.file = Assert.notNull(file, "file");
+    this.base = descriptor.base();
+    this.compression = descriptor.compression();
     this.store = Assert.notNull(store, "store");
   }
 
@@ -49,18 +54,30 @@ final class FileSnapshot extends Snapshot {
   }
 
   @Override
-  public synchronized SnapshotWriter writer() {
+  public long base() {
+    return base;
+  }
+
+  @Override
+  public CompressionType compression() {
+    return compression;
+  }
+
+  @Override
+  protected synchronized SnapshotWriter createWriter(CompressionType compression) {
     checkWriter();
     SnapshotDescriptor descriptor = SnapshotDescriptor.builder()
       .withIndex(file.index())
       .withTimestamp(file.timestamp())
+      .withBase(base)
+      .withCompression(this.compression)
       .build();
 
     Buffer buffer = FileBuffer.allocate(file.file(), SnapshotDescriptor.BYTES);
     descriptor.copyTo(buffer);
 
     int length = buffer.position(SnapshotDescriptor.BYTES).readInt();
-    return openWriter(new SnapshotWriter(buffer.skip(length).mark(), this, store.serializer()), descriptor);
+    return openWriter(new SnapshotWriter(buffer.skip(length).mark(), this, store.serializer(), compression, store.storage.compressionBlockSize()), descriptor);
   }
 
   @Override
@@ -71,12 +88,12 @@ final class FileSnapshot extends Snapshot {
   }
 
   @Override
-  public synchronized SnapshotReader reader() {
+  protected synchronized SnapshotReader createReader(CompressionType compression) {
     Assert.state(file.file().exists(), "missing snapshot file: %s", file.file());
     Buffer buffer = FileBuffer.allocate(file.file(), SnapshotDescriptor.BYTES);
     SnapshotDescriptor descriptor = new SnapshotDescriptor(buffer);
     int length = buffer.position(SnapshotDescriptor.BYTES).readInt();
-    return openReader(new SnapshotReader(buffer.mark().limit(SnapshotDescriptor.BYTES + Integer.BYTES + length), this, store.serializer()), descriptor);
+    return openReader(new SnapshotReader(buffer.mark().limit(SnapshotDescriptor.BYTES + Integer.BYTES + length), this, store.serializer(), compression), descriptor);
   }
 
   @Override
@@ -105,7 +122,7 @@ final class FileSnapshot extends Snapshot {
 
   @Override
   public String toString() {
-    return String.format("%s[index=%d]", getClass().getSimpleName(), index());
+    return String.format("%s[index=%d, base=%d]", getClass().getSimpleName(), index(), base);
   }
 
 }
@@ -17,6 +17,7 @@ package io.atomix.copycat.server.storage.snapshot;
 
 import io.atomix.catalyst.buffer.HeapBuffer;
 import io.atomix.catalyst.util.Assert;
+import io.atomix.copycat.server.storage.CompressionType;
 
 /**
  * In-memory snapshot backed by a {@link HeapBuffer}.
@@ -48,9 +49,19 @@ final class MemorySnapshot extends Snapshot {
   }
 
   @Override
-  public SnapshotWriter writer() {
+  public long base() {
+    return descriptor.base();
+  }
+
+  @Override
+  public CompressionType compression() {
+    return descriptor.compression();
+  }
+
+  @Override
+  protected SnapshotWriter createWriter(CompressionType compression) {
     checkWriter();
-    return new SnapshotWriter(buffer.reset().slice(), this, store.serializer());
+    return new SnapshotWriter(buffer.reset().slice(), this, store.serializer(), compression, store.storage.compressionBlockSize());
   }
 
   @Override
@@ -60,8 +71,8 @@ final class MemorySnapshot extends Snapshot {
   }
 
   @Override
-  public synchronized SnapshotReader reader() {
-    return openReader(new SnapshotReader(buffer.reset().slice(), this, store.serializer()), descriptor);
+  protected synchronized SnapshotReader createReader(CompressionType compression) {
+    return openReader(new SnapshotReader(buffer.reset().slice(), this, store.serializer(), compression), descriptor);
   }
 
   @Override
@@ -78,7 +89,7 @@ final class MemorySnapshot extends Snapshot {
 
   @Override
   public String toString() {
-    return String.format("%s[index=%d]", getClass().getSimpleName(), descriptor.index());
+    return String.format("%s[index=%d, base=%d]", getClass().getSimpleName(), descriptor.index(), descriptor.base());
   }
 
 }
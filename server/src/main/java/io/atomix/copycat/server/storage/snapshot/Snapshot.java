@@ -16,6 +16,7 @@
 package io.atomix.copycat.server.storage.snapshot;
 
 import io.atomix.catalyst.util.Assert;
+import io.atomix.copycat.server.storage.CompressionType;
 
 /**
  * Manages reading and writing a single snapshot file.
@@ -48,6 +49,11 @@ import io.atomix.catalyst.util.Assert;
  * are met. Prior to the completion of a snapshot, a failure and recovery of the parent {@link SnapshotStore}
  * will <em>not</em> recover an incomplete snapshot. Once a snapshot is complete, the snapshot becomes immutable,
  * can be recovered after a failure, and can be read by multiple readers concurrently.
+ * <p>
+ * Snapshots may be {@link #compression() compressed}, in which case writers compress bytes as they're written and
+ * readers decompress bytes as they're read. The stored bytes of a snapshot can be copied to another snapshot with
+ * the same compression type via a {@link #rawReader() raw reader} and {@link #rawWriter() raw writer}, which
+ * neither decompress nor compress the bytes.
  *
  * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
  */
@@ -78,6 +84,32 @@ public abstract class Snapshot implements AutoCloseable {
    */
   public abstract long timestamp();
 
+  /**
+   * Returns the index of the snapshot to which this snapshot is a delta.
+   * <p>
+   * Delta snapshots store only the changes to the state machine state since the base snapshot and are
+   * installed by installing the chain of snapshots from the last full snapshot through this snapshot.
+   *
+   * @return The base snapshot index or {@code 0} if this is a full snapshot.
+   */
+  public abstract long base();
+
+  /**
+   * Returns whether the snapshot is a delta of a prior snapshot.
+   *
+   * @return Indicates whether the snapshot is a delta snapshot.
+   */
+  public boolean isDelta() {
+    return base() > 0;
+  }
+
+  /**
+   * Returns the compression type with which the snapshot is written.
+   *
+   * @return The snapshot compression type.
+   */
+  public abstract CompressionType compression();
+
   /**
    * Returns a new snapshot writer.
    * <p>
@@ -88,7 +120,27 @@ public abstract class Snapshot implements AutoCloseable {
    * @return A new snapshot writer.
    * @throws IllegalStateException if a writer was already created or the snapshot is {@link #complete() complete}
    */
-  public abstract SnapshotWriter writer();
+  public SnapshotWriter writer() {
+    return createWriter(compression());
+  }
+
+  /**
+   * Returns a new snapshot writer that writes bytes to the snapshot as they're stored.
+   * <p>
+   * Raw writers do not compress written bytes and are used to write bytes read from another snapshot with a
+   * {@link #rawReader() raw reader}, such as when a snapshot is replicated to another server.
+   *
+   * @return A new raw snapshot writer.
+   * @throws IllegalStateException if a writer was already created or the snapshot is {@link #complete() complete}
+   */
+  public SnapshotWriter rawWriter() {
+    return createWriter(CompressionType.NONE);
+  }
+
+  /**
+   * Creates a new snapshot writer that compresses bytes with the given compression type.
+   */
+  protected abstract SnapshotWriter createWriter(CompressionType compression);
 
   /**
    * Checks that the snapshot can be written.
@@ -124,7 +176,27 @@ public abstract class Snapshot implements AutoCloseable {
    * @return A new snapshot reader.
    * @throws IllegalStateException if the snapshot is not {@link #complete() complete}
    */
-  public abstract SnapshotReader reader();
+  public SnapshotReader reader() {
+    return createReader(compression());
+  }
+
+  /**
+   * Returns a new snapshot reader that reads the bytes of the snapshot as they're stored.
+   * <p>
+   * Raw readers do not decompress read bytes, so the bytes of a compressed snapshot can be copied to another
+   * snapshot with a {@link #rawWriter() raw writer} without being decompressed and compressed again.
+   *
+   * @return A new raw snapshot reader.
+   * @throws IllegalStateException if the snapshot is not {@link #complete() complete}
+   */
+  public SnapshotReader rawReader() {
+    return createReader(CompressionType.NONE);
+  }
+
+  /**
+   * Creates a new snapshot reader that decompresses bytes with the given compression type.
+   */
+  protected abstract SnapshotReader createReader(CompressionType compression);
 
   /**
    * Opens the given snapshot reader.
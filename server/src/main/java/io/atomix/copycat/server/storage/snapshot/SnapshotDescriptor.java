@@ -19,6 +19,7 @@ import io.atomix.catalyst.buffer.Buffer;
 import io.atomix.catalyst.buffer.FileBuffer;
 import io.atomix.catalyst.buffer.HeapBuffer;
 import io.atomix.catalyst.util.Assert;
+import io.atomix.copycat.server.storage.CompressionType;
 
 /**
  * Stores information about a {@link Snapshot} of the state machine.
@@ -26,6 +27,11 @@ import io.atomix.catalyst.util.Assert;
  * Snapshot descriptors represent the header of a snapshot file which stores metadata about
  * the snapshot contents. This API provides methods for reading and a builder for writing
  * snapshot headers/descriptors.
+ * <p>
+ * Descriptors of delta snapshots store the {@link #base() base} index of the snapshot to which the delta
+ * applies. Full snapshots have a base index of {@code 0}. The {@link #compression() compression type} with which
+ * the snapshot is written is also stored in the descriptor, and snapshots written before the compression type was
+ * recorded are not compressed.
  *
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
@@ -58,6 +64,8 @@ public final class SnapshotDescriptor implements AutoCloseable {
   private final long index;
   private final long timestamp;
   private boolean locked;
+  private final long base;
+  private final CompressionType compression;
 
   /**
    * @throws NullPointerException if {@code buffer} is null
@@ -67,6 +75,8 @@ public final class SnapshotDescriptor implements AutoCloseable {
     this.index = buffer.readLong();
     this.timestamp = buffer.readLong();
     this.locked = buffer.readBoolean();
+    this.base = buffer.readLong();
+    this.compression = CompressionType.forId(buffer.readByte());
     buffer.skip(BYTES - buffer.position());
   }
 
@@ -88,6 +98,24 @@ public final class SnapshotDescriptor implements AutoCloseable {
     return timestamp;
   }
 
+  /**
+   * Returns the index of the snapshot to which the snapshot is a delta.
+   *
+   * @return The base snapshot index or {@code 0} if the snapshot is a full snapshot.
+   */
+  public long base() {
+    return base;
+  }
+
+  /**
+   * Returns the compression type with which the snapshot is written.
+   *
+   * @return The snapshot compression type.
+   */
+  public CompressionType compression() {
+    return compression;
+  }
+
   /**
    * Returns whether the snapshot has been locked by commitment.
    * <p>
@@ -117,6 +145,8 @@ public final class SnapshotDescriptor implements AutoCloseable {
       .writeLong(index)
       .writeLong(timestamp)
       .writeBoolean(locked)
+      .writeLong(base)
+      .writeByte(compression.id())
       .skip(BYTES - buffer.position())
       .flush();
     return this;
@@ -167,6 +197,29 @@ public final class SnapshotDescriptor implements AutoCloseable {
       return this;
     }
 
+    /**
+     * Sets the index of the snapshot to which the snapshot is a delta.
+     *
+     * @param base The base snapshot index or {@code 0} for a full snapshot.
+     * @return The snapshot builder.
+     */
+    public Builder withBase(long base) {
+      buffer.writeLong(17, base);
+      return this;
+    }
+
+    /**
+     * Sets the snapshot compression type.
+     *
+     * @param compression The snapshot compression type.
+     * @return The snapshot builder.
+     * @throws NullPointerException if {@code compression} is null
+     */
+    public Builder withCompression(CompressionType compression) {
+      buffer.writeByte(25, Assert.notNull(compression, "compression").id());
+      return this;
+    }
+
     /**
      * Builds the segment descriptor.
      *
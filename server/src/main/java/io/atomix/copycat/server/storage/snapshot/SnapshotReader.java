@@ -20,8 +20,10 @@ import java.nio.charset.Charset;
 import io.atomix.catalyst.buffer.Buffer;
 import io.atomix.catalyst.buffer.BufferInput;
 import io.atomix.catalyst.buffer.Bytes;
+import io.atomix.catalyst.buffer.HeapBuffer;
 import io.atomix.catalyst.serializer.Serializer;
 import io.atomix.catalyst.util.Assert;
+import io.atomix.copycat.server.storage.CompressionType;
 
 /**
  * Reads bytes from a state machine {@link Snapshot}.
@@ -33,33 +35,56 @@ import io.atomix.catalyst.util.Assert;
  * In addition to standard {@link BufferInput} methods, snapshot readers support reading serializable objects
  * from the snapshot via the {@link #readObject()} method. Serializable types must be registered on the
  * {@link io.atomix.copycat.server.CopycatServer} serializer to be supported in snapshots.
+ * <p>
+ * Readers for compressed snapshots decompress the blocks written by the {@link SnapshotWriter} one at a time as
+ * they're read, so only a single decompressed block is held in memory at once.
  *
  * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
  */
 public class SnapshotReader implements BufferInput<SnapshotReader> {
+  private static final int HEADER_LENGTH = Integer.BYTES + Integer.BYTES;
   private final Buffer buffer;
   private final Snapshot snapshot;
   private final Serializer serializer;
+  private final CompressionType compression;
+  private Buffer block;
+  private long unread;
 
   SnapshotReader(Buffer buffer, Snapshot snapshot, Serializer serializer) {
+    this(buffer, snapshot, serializer, CompressionType.NONE);
+  }
+
+  SnapshotReader(Buffer buffer, Snapshot snapshot, Serializer serializer, CompressionType compression) {
     this.buffer = Assert.notNull(buffer, "buffer");
     this.snapshot = Assert.notNull(snapshot, "snapshot");
     this.serializer = Assert.notNull(serializer, "serializer");
+    this.compression = Assert.notNull(compression, "compression");
+    if (compression != CompressionType.NONE) {
+      this.block = HeapBuffer.allocate().flip();
+
+      // Sum the decompressed lengths of the blocks from the block headers so the remaining bytes are known.
+      long position = buffer.position();
+      long limit = position + buffer.remaining();
+      while (position + HEADER_LENGTH <= limit) {
+        unread += buffer.readInt(position);
+        position += HEADER_LENGTH + buffer.readInt(position + Integer.BYTES);
+      }
+    }
   }
 
   @Override
   public long remaining() {
-    return buffer.remaining();
+    return block != null ? block.remaining() + unread : buffer.remaining();
   }
 
   @Override
   public boolean hasRemaining() {
-    return buffer.hasRemaining();
+    return remaining() > 0;
   }
 
   @Override
   public SnapshotReader skip(long bytes) {
-    buffer.skip(bytes);
+    input(bytes).skip(bytes);
     return this;
   }
 
@@ -70,117 +95,155 @@ public class SnapshotReader implements BufferInput<SnapshotReader> {
    * @return The read object.
    */
   public <T> T readObject() {
-    return serializer.readObject(buffer);
+    return serializer.readObject(input(1));
   }
 
   @Override
   public SnapshotReader read(Bytes bytes) {
-    buffer.read(bytes);
+    input(bytes.size()).read(bytes);
     return this;
   }
 
   @Override
   public SnapshotReader read(byte[] bytes) {
-    buffer.read(bytes);
+    input(bytes.length).read(bytes);
     return this;
   }
 
   @Override
   public SnapshotReader read(Bytes bytes, long offset, long length) {
-    buffer.read(bytes, offset, length);
+    input(length).read(bytes, offset, length);
     return this;
   }
 
   @Override
   public SnapshotReader read(byte[] bytes, long offset, long length) {
-    buffer.read(bytes, offset, length);
+    input(length).read(bytes, offset, length);
     return this;
   }
 
   @Override
   public SnapshotReader read(Buffer buffer) {
-    this.buffer.read(buffer);
+    input(Math.min(buffer.remaining(), remaining())).read(buffer);
     return this;
   }
 
   @Override
   public int readByte() {
-    return buffer.readByte();
+    return input(1).readByte();
   }
 
   @Override
   public int readUnsignedByte() {
-    return buffer.readUnsignedByte();
+    return input(1).readUnsignedByte();
   }
 
   @Override
   public char readChar() {
-    return buffer.readChar();
+    return input(2).readChar();
   }
 
   @Override
   public short readShort() {
-    return buffer.readShort();
+    return input(2).readShort();
   }
 
   @Override
   public int readUnsignedShort() {
-    return buffer.readUnsignedShort();
+    return input(2).readUnsignedShort();
   }
 
   @Override
   public int readMedium() {
-    return buffer.readMedium();
+    return input(3).readMedium();
   }
 
   @Override
   public int readUnsignedMedium() {
-    return buffer.readUnsignedMedium();
+    return input(3).readUnsignedMedium();
   }
 
   @Override
   public int readInt() {
-    return buffer.readInt();
+    return input(4).readInt();
   }
 
   @Override
   public long readUnsignedInt() {
-    return buffer.readUnsignedInt();
+    return input(4).readUnsignedInt();
   }
 
   @Override
   public long readLong() {
-    return buffer.readLong();
+    return input(8).readLong();
   }
 
   @Override
   public float readFloat() {
-    return buffer.readFloat();
+    return input(4).readFloat();
   }
 
   @Override
   public double readDouble() {
-    return buffer.readDouble();
+    return input(8).readDouble();
   }
 
   @Override
   public boolean readBoolean() {
-    return buffer.readBoolean();
+    return input(1).readBoolean();
   }
 
   @Override
   public String readString() {
-    return buffer.readString();
+    return input(1).readString();
   }
 
   @Override
   public String readString(Charset charset) {
-    return buffer.readString(charset);
+    return input(1).readString(charset);
   }
 
   @Override
   public String readUTF8() {
-    return buffer.readUTF8();
+    return input(1).readUTF8();
+  }
+
+  /**
+   * Returns the input from which to read the given number of bytes, reading blocks until enough bytes are buffered.
+   */
+  private BufferInput<?> input(long bytes) {
+    if (block == null) {
+      return buffer;
+    }
+
+    // Bytes read by a single call are normally written by a single call and so are contained in a single block.
+    // If not, merge the unread bytes of the current block with the following blocks.
+    while (block.remaining() < bytes && unread > 0) {
+      byte[] next = readBlock();
+      int remaining = (int) block.remaining();
+      byte[] merged = new byte[remaining + next.length];
+      block.read(merged, 0, remaining);
+      System.arraycopy(next, 0, merged, remaining, next.length);
+      block = HeapBuffer.wrap(merged);
+    }
+    return block;
+  }
+
+  /**
+   * Reads and decompresses the next block from the snapshot buffer.
+   */
+  private byte[] readBlock() {
+    int length = buffer.readInt();
+    int compressedLength = buffer.readInt();
+    byte[] compressed = new byte[compressedLength];
+    buffer.read(compressed);
+    unread -= length;
+    if (compressedLength == length) {
+      return compressed;
+    }
+    byte[] bytes = new byte[length];
+    compression.decompress(compressed, 0, compressedLength, bytes, 0, length);
+    return bytes;
   }
 
   @Override
@@ -20,6 +20,7 @@ import io.atomix.catalyst.buffer.HeapBuffer;
 import io.atomix.catalyst.serializer.Serializer;
 import io.atomix.catalyst.util.Assert;
 import io.atomix.copycat.Command;
+import io.atomix.copycat.server.storage.CompressionType;
 import io.atomix.copycat.server.storage.Storage;
 import io.atomix.copycat.server.storage.StorageLevel;
 import org.slf4j.Logger;
@@ -60,6 +61,12 @@ import java.util.*;
  *   snapshot.complete();
  *   }
  * </pre>
+ * Snapshots may be full snapshots or {@link Snapshot#isDelta() deltas} of a prior snapshot. A delta snapshot
+ * is created with the index of the snapshot on which it's based, and the store tracks the {@link #chain(Snapshot) chain}
+ * of snapshots from the last full snapshot through each delta. Snapshots in the chain of the current snapshot are
+ * retained until a newer full snapshot replaces the chain. Delta snapshots whose chain is incomplete when the store
+ * is opened can't be installed and are deleted from disk.
+ * <p>
  * Snapshots don't necessarily represent the beginning of the log. Typical Raft implementations take a
  * snapshot of the state machine state and then clear their logs up to that point. However, in Copycat
  * a snapshot may actually only represent a subset of the state machine's state. Indeed, internal Copycat
@@ -93,6 +100,19 @@ public class SnapshotStore implements AutoCloseable {
       snapshots.put(snapshot.index(), snapshot);
     }
 
+    // Delete delta snapshots that can't be installed because a snapshot in their chain is missing. Snapshots are
+    // iterated in index order, so each delta's base has been checked before the delta itself.
+    Iterator<Snapshot> iterator = snapshots.values().iterator();
+    while (iterator.hasNext()) {
+      Snapshot snapshot = iterator.next();
+      if (snapshot.isDelta() && !snapshots.containsKey(snapshot.base())) {
+        LOGGER.debug("Deleting orphaned delta snapshot: {}", snapshot);
+        iterator.remove();
+        snapshot.close();
+        snapshot.delete();
+      }
+    }
+
     if (!snapshots.isEmpty()) {
       currentSnapshot = snapshots.lastEntry().getValue();
     }
@@ -143,6 +163,30 @@ public class SnapshotStore implements AutoCloseable {
     return snapshots.get(index);
   }
 
+  /**
+   * Returns the chain of snapshots required to install the given snapshot.
+   * <p>
+   * The chain begins with the last full snapshot on which the given snapshot is based, followed by each delta
+   * snapshot in index order through the given snapshot. For a full snapshot, the chain contains only the snapshot
+   * itself.
+   *
+   * @param snapshot The snapshot for which to return the chain.
+   * @return The chain of snapshots from the last full snapshot through the given snapshot.
+   * @throws IllegalStateException if a snapshot in the chain is missing
+   */
+  public List<Snapshot> chain(Snapshot snapshot) {
+    Assert.notNull(snapshot, "snapshot");
+    LinkedList<Snapshot> chain = new LinkedList<>();
+    chain.addFirst(snapshot);
+    while (snapshot.isDelta()) {
+      long base = snapshot.base();
+      snapshot = snapshots.get(base);
+      Assert.state(snapshot != null, "missing base snapshot %d", base);
+      chain.addFirst(snapshot);
+    }
+    return chain;
+  }
+
   /**
    * Loads all available snapshots from disk.
    *
@@ -166,7 +210,7 @@ public class SnapshotStore implements AutoCloseable {
         // unlocked and should ultimately be deleted from disk.
         if (descriptor.locked()) {
           LOGGER.debug("Loaded disk snapshot: {} ({})", snapshotFile.index(), snapshotFile.file().getName());
-          snapshots.add(new FileSnapshot(snapshotFile, this));
+          snapshots.add(new FileSnapshot(snapshotFile, descriptor, this));
           descriptor.close();
         }
         // If the segment descriptor wasn't locked, close and delete the descriptor.
@@ -188,9 +232,45 @@ public class SnapshotStore implements AutoCloseable {
    * @return The snapshot.
    */
   public Snapshot createSnapshot(long index) {
+    return createSnapshot(index, 0);
+  }
+
+  /**
+   * Creates a new delta snapshot.
+   * <p>
+   * A delta snapshot stores the changes to the state machine state since the snapshot at the {@code base} index.
+   * The base snapshot must be {@link Snapshot#complete() completed} before the delta snapshot is completed.
+   *
+   * @param index The snapshot index.
+   * @param base The index of the snapshot to which the snapshot is a delta, or {@code 0} for a full snapshot.
+   * @return The snapshot.
+   * @throws IllegalArgumentException if {@code base} is not less than {@code index}
+   */
+  public Snapshot createSnapshot(long index, long base) {
+    return createSnapshot(index, base, storage.snapshotCompression());
+  }
+
+  /**
+   * Creates a new snapshot with the given compression type.
+   * <p>
+   * Snapshots are normally created with the {@link Storage#snapshotCompression() configured} compression type.
+   * Snapshots replicated from another server are created with the compression type of the original snapshot so
+   * the stored bytes can be copied without being decompressed.
+   *
+   * @param index The snapshot index.
+   * @param base The index of the snapshot to which the snapshot is a delta, or {@code 0} for a full snapshot.
+   * @param compression The snapshot compression type.
+   * @return The snapshot.
+   * @throws IllegalArgumentException if {@code base} is not less than {@code index}
+   * @throws NullPointerException if {@code compression} is null
+   */
+  public Snapshot createSnapshot(long index, long base, CompressionType compression) {
+    Assert.argNot(base < 0 || (base > 0 && base >= index), "base must be less than index");
     SnapshotDescriptor descriptor = SnapshotDescriptor.builder()
       .withIndex(index)
       .withTimestamp(System.currentTimeMillis())
+      .withBase(base)
+      .withCompression(compression)
       .build();
     return createSnapshot(descriptor);
   }
@@ -221,7 +301,7 @@ public class SnapshotStore implements AutoCloseable {
    */
   private Snapshot createDiskSnapshot(SnapshotDescriptor descriptor) {
     SnapshotFile file = new SnapshotFile(SnapshotFile.createSnapshotFile(name, storage.directory(), descriptor.index(), descriptor.timestamp()));
-    Snapshot snapshot = new FileSnapshot(file, this);
+    Snapshot snapshot = new FileSnapshot(file, descriptor, this);
     LOGGER.debug("Created disk snapshot: {}", snapshot);
     return snapshot;
   }
@@ -231,18 +311,21 @@ public class SnapshotStore implements AutoCloseable {
    */
   protected void completeSnapshot(Snapshot snapshot) {
     Assert.notNull(snapshot, "snapshot");
+    Assert.state(!snapshot.isDelta() || snapshots.containsKey(snapshot.base()), "missing base snapshot %d", snapshot.base());
     snapshots.put(snapshot.index(), snapshot);
 
     if (currentSnapshot == null || snapshot.index() > currentSnapshot.index()) {
       currentSnapshot = snapshot;
     }
 
-    // Delete old snapshots if necessary.
+    // Delete old snapshots if necessary. Snapshots in the chain of the current snapshot are retained since
+    // they're required to install the current snapshot.
     if (!storage.retainStaleSnapshots()) {
+      Set<Snapshot> chain = new HashSet<>(chain(currentSnapshot));
       Iterator<Map.Entry<Long, Snapshot>> iterator = snapshots.entrySet().iterator();
       while (iterator.hasNext()) {
         Snapshot oldSnapshot = iterator.next().getValue();
-        if (oldSnapshot.index() < currentSnapshot.index()) {
+        if (oldSnapshot.index() < currentSnapshot.index() && !chain.contains(oldSnapshot)) {
           iterator.remove();
           oldSnapshot.close();
           oldSnapshot.delete();
@@ -20,8 +20,10 @@ import java.nio.charset.Charset;
 import io.atomix.catalyst.buffer.Buffer;
 import io.atomix.catalyst.buffer.BufferOutput;
 import io.atomix.catalyst.buffer.Bytes;
+import io.atomix.catalyst.buffer.HeapBuffer;
 import io.atomix.catalyst.serializer.Serializer;
 import io.atomix.catalyst.util.Assert;
+import io.atomix.copycat.server.storage.CompressionType;
 
 /**
  * Writes bytes to a state machine {@link Snapshot}.
@@ -33,6 +35,17 @@ import io.atomix.catalyst.util.Assert;
  * In addition to standard {@link BufferOutput} methods, snapshot readers support writing serializable objects
  * to the snapshot via the {@link #writeObject(Object)} method. Serializable types must be registered on the
  * {@link io.atomix.copycat.server.CopycatServer} serializer to be supported in snapshots.
+ * <p>
+ * Writers for compressed snapshots buffer written bytes in memory and write them to the snapshot as a sequence of
+ * compressed blocks once the buffered block reaches the configured block size. Each block is written in the
+ * following format:
+ * <ul>
+ *   <li>Required 32-bit signed decompressed block length</li>
+ *   <li>Required 32-bit signed compressed block length</li>
+ *   <li>The compressed block bytes</li>
+ * </ul>
+ * If compression does not reduce the size of a block, the block is stored uncompressed with equal lengths. Bytes
+ * written by a single call are never split across blocks, and the final block is written when the writer is closed.
  *
  * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
  */
@@ -40,11 +53,21 @@ public class SnapshotWriter implements BufferOutput<SnapshotWriter> {
   final Buffer buffer;
   private final Snapshot snapshot;
   private final Serializer serializer;
+  private final CompressionType compression;
+  private final int blockSize;
+  private final HeapBuffer block;
 
   SnapshotWriter(Buffer buffer, Snapshot snapshot, Serializer serializer) {
+    this(buffer, snapshot, serializer, CompressionType.NONE, 0);
+  }
+
+  SnapshotWriter(Buffer buffer, Snapshot snapshot, Serializer serializer, CompressionType compression, int blockSize) {
     this.buffer = Assert.notNull(buffer, "buffer");
     this.snapshot = Assert.notNull(snapshot, "snapshot");
     this.serializer = Assert.notNull(serializer, "serializer");
+    this.compression = Assert.notNull(compression, "compression");
+    this.blockSize = blockSize;
+    this.block = compression != CompressionType.NONE ? HeapBuffer.allocate() : null;
   }
 
   /**
@@ -54,133 +77,133 @@ public class SnapshotWriter implements BufferOutput<SnapshotWriter> {
    * @return The snapshot writer.
    */
   public SnapshotWriter writeObject(Object object) {
-    serializer.writeObject(object, buffer);
+    serializer.writeObject(object, output());
     return this;
   }
 
   @Override
   public SnapshotWriter write(Bytes bytes) {
-    buffer.write(bytes);
+    output().write(bytes);
     return this;
   }
 
   @Override
   public SnapshotWriter write(byte[] bytes) {
-    buffer.write(bytes);
+    output().write(bytes);
     return this;
   }
 
   @Override
   public SnapshotWriter write(Bytes bytes, long offset, long length) {
-    buffer.write(bytes, offset, length);
+    output().write(bytes, offset, length);
     return this;
   }
 
   @Override
   public SnapshotWriter write(byte[] bytes, long offset, long length) {
-    buffer.write(bytes, offset, length);
+    output().write(bytes, offset, length);
     return this;
   }
 
   @Override
   public SnapshotWriter write(Buffer buffer) {
-    this.buffer.write(buffer);
+    output().write(buffer);
     return this;
   }
 
   @Override
   public SnapshotWriter writeByte(int b) {
-    buffer.writeByte(b);
+    output().writeByte(b);
     return this;
   }
 
   @Override
   public SnapshotWriter writeUnsignedByte(int b) {
-    buffer.writeUnsignedByte(b);
+    output().writeUnsignedByte(b);
     return this;
   }
 
   @Override
   public SnapshotWriter writeChar(char c) {
-    buffer.writeChar(c);
+    output().writeChar(c);
     return this;
   }
 
   @Override
   public SnapshotWriter writeShort(short s) {
-    buffer.writeShort(s);
+    output().writeShort(s);
     return this;
   }
 
   @Override
   public SnapshotWriter writeUnsignedShort(int s) {
-    buffer.writeUnsignedShort(s);
+    output().writeUnsignedShort(s);
     return this;
   }
 
   @Override
   public SnapshotWriter writeMedium(int m) {
-    buffer.writeMedium(m);
+    output().writeMedium(m);
     return this;
   }
 
   @Override
   public SnapshotWriter writeUnsignedMedium(int m) {
-    buffer.writeUnsignedMedium(m);
+    output().writeUnsignedMedium(m);
     return this;
   }
 
   @Override
   public SnapshotWriter writeInt(int i) {
-    buffer.writeInt(i);
+    output().writeInt(i);
     return this;
   }
 
   @Override
   public SnapshotWriter writeUnsignedInt(long i) {
-    buffer.writeUnsignedInt(i);
+    output().writeUnsignedInt(i);
     return this;
   }
 
   @Override
   public SnapshotWriter writeLong(long l) {
-    buffer.writeLong(l);
+    output().writeLong(l);
     return this;
   }
 
   @Override
   public SnapshotWriter writeFloat(float f) {
-    buffer.writeFloat(f);
+    output().writeFloat(f);
     return this;
   }
 
   @Override
   public SnapshotWriter writeDouble(double d) {
-    buffer.writeDouble(d);
+    output().writeDouble(d);
     return this;
   }
 
   @Override
   public SnapshotWriter writeBoolean(boolean b) {
-    buffer.writeBoolean(b);
+    output().writeBoolean(b);
     return this;
   }
 
   @Override
   public SnapshotWriter writeString(String s) {
-    buffer.writeString(s);
+    output().writeString(s);
     return this;
   }
 
   @Override
   public SnapshotWriter writeString(String s, Charset charset) {
-    buffer.writeString(s, charset);
+    output().writeString(s, charset);
     return this;
   }
 
   @Override
   public SnapshotWriter writeUTF8(String s) {
-    buffer.writeUTF8(s);
+    output().writeUTF8(s);
     return this;
   }
 
@@ -190,8 +213,45 @@ public class SnapshotWriter implements BufferOutput<SnapshotWriter> {
     return this;
   }
 
+  /**
+   * Returns the output to which to write bytes, writing the buffered block if it's full.
+   */
+  private BufferOutput<?> output() {
+    if (block == null) {
+      return buffer;
+    }
+    if (block.position() >= blockSize) {
+      writeBlock();
+    }
+    return block;
+  }
+
+  /**
+   * Compresses the buffered block and writes it to the snapshot buffer.
+   */
+  private void writeBlock() {
+    int length = (int) block.position();
+    if (length == 0) {
+      return;
+    }
+
+    byte[] compressed = new byte[compression.maxCompressedLength(length)];
+    int compressedLength = compression.compress(block.array(), 0, length, compressed, 0);
+
+    buffer.writeInt(length);
+    if (compressedLength < length) {
+      buffer.writeInt(compressedLength).write(compressed, 0, compressedLength);
+    } else {
+      buffer.writeInt(length).write(block.array(), 0, length);
+    }
+    block.clear();
+  }
+
   @Override
   public void close() {
+    if (block != null) {
+      writeBlock();
+    }
     snapshot.closeWriter(this);
     buffer.close();
   }
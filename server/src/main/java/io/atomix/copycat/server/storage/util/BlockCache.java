@@ -0,0 +1,216 @@
+/*
+ * Copyright 2017-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.storage.util;
+
+import io.atomix.catalyst.util.Assert;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Byte-bounded cache of decompressed segment blocks.
+ * <p>
+ * Compressed segments store entries in compressed blocks, and reading an entry from a compressed segment requires
+ * decompressing the block that contains it. The block cache holds recently decompressed blocks in memory so
+ * sequential reads and reads of recently read entries don't decompress the same block repeatedly. Blocks are
+ * keyed by the object that owns them, typically a segment, and the block number within the owner. Once the
+ * cache is full, the least recently used blocks are evicted.
+ * <p>
+ * The cache is thread safe.
+ *
+ * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
+ */
+public class BlockCache {
+  private final long maxSize;
+  private final LinkedHashMap<Key, byte[]> blocks = new LinkedHashMap<>(16, 0.75f, true);
+  private long size;
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  /**
+   * @param maxSize The maximum size of the cache in bytes.
+   * @throws IllegalArgumentException if {@code maxSize} is negative
+   */
+  public BlockCache(long maxSize) {
+    this.maxSize = Assert.argNot(maxSize, maxSize < 0, "maxSize cannot be negative");
+  }
+
+  /**
+   * Looks up a block in the cache.
+   *
+   * @param owner The owner of the block.
+   * @param block The block number.
+   * @return The decompressed block or {@code null} if the block is not cached.
+   */
+  public synchronized byte[] get(Object owner, int block) {
+    byte[] bytes = blocks.get(new Key(owner, block));
+    if (bytes != null) {
+      hits++;
+    } else {
+      misses++;
+    }
+    return bytes;
+  }
+
+  /**
+   * Adds a block to the cache.
+   * <p>
+   * Blocks larger than the cache are not cached.
+   *
+   * @param owner The owner of the block.
+   * @param block The block number.
+   * @param bytes The decompressed block.
+   * @return The block cache.
+   */
+  public synchronized BlockCache put(Object owner, int block, byte[] bytes) {
+    Assert.notNull(bytes, "bytes");
+    if (bytes.length > maxSize) {
+      return this;
+    }
+
+    byte[] oldBytes = blocks.put(new Key(owner, block), bytes);
+    if (oldBytes != null) {
+      size -= oldBytes.length;
+    }
+    size += bytes.length;
+
+    Iterator<byte[]> iterator = blocks.values().iterator();
+    while (size > maxSize) {
+      size -= iterator.next().length;
+      iterator.remove();
+      evictions++;
+    }
+    return this;
+  }
+
+  /**
+   * Removes all blocks owned by the given owner from the cache.
+   *
+   * @param owner The owner of the blocks to remove.
+   * @return The block cache.
+   */
+  public synchronized BlockCache remove(Object owner) {
+    Iterator<Map.Entry<Key, byte[]>> iterator = blocks.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<Key, byte[]> entry = iterator.next();
+      if (entry.getKey().owner == owner) {
+        size -= entry.getValue().length;
+        iterator.remove();
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Removes all blocks from the cache.
+   *
+   * @return The block cache.
+   */
+  public synchronized BlockCache clear() {
+    blocks.clear();
+    size = 0;
+    return this;
+  }
+
+  /**
+   * Returns the total size of the cached blocks in bytes.
+   *
+   * @return The size of the cache in bytes.
+   */
+  public synchronized long size() {
+    return size;
+  }
+
+  /**
+   * Returns the maximum size of the cache in bytes.
+   *
+   * @return The maximum size of the cache in bytes.
+   */
+  public long maxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Returns the number of blocks in the cache.
+   *
+   * @return The number of blocks in the cache.
+   */
+  public synchronized int count() {
+    return blocks.size();
+  }
+
+  /**
+   * Returns the number of lookups that found a block in the cache.
+   *
+   * @return The number of cache hits.
+   */
+  public synchronized long hits() {
+    return hits;
+  }
+
+  /**
+   * Returns the number of lookups that did not find a block in the cache.
+   *
+   * @return The number of cache misses.
+   */
+  public synchronized long misses() {
+    return misses;
+  }
+
+  /**
+   * Returns the number of blocks that have been evicted from the cache to free space.
+   *
+   * @return The number of evicted blocks.
+   */
+  public synchronized long evictions() {
+    return evictions;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return String.format("%s[size=%d, maxSize=%d, hits=%d, misses=%d]", getClass().getSimpleName(), size, maxSize, hits, misses);
+  }
+
+  /**
+   * Block cache key.
+   */
+  private static final class Key {
+    private final Object owner;
+    private final int block;
+
+    private Key(Object owner, int block) {
+      this.owner = owner;
+      this.block = block;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(owner) + block;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      if (object instanceof Key) {
+        Key key = (Key) object;
+        return key.owner == owner && key.block == block;
+      }
+      return false;
+    }
+  }
+
+}
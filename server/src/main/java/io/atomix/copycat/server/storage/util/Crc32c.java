@@ -0,0 +1,92 @@
+/*
+ * Copyright 2017-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.storage.util;
+
+import java.util.zip.Checksum;
+
+/**
+ * CRC-32C (Castagnoli) checksum.
+ * <p>
+ * This is a pure Java, table-driven implementation of the CRC-32C checksum, which is not available in the JDK
+ * prior to Java 9. Input is processed eight bytes at a time using the slicing-by-8 technique. The checksum value
+ * is a 32-bit unsigned integer.
+ *
+ * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
+ */
+public final class Crc32c implements Checksum {
+  private static final int POLYNOMIAL = 0x82F63B78;
+  private static final int[][] TABLES = new int[8][256];
+
+  static {
+    for (int i = 0; i < 256; i++) {
+      int crc = i;
+      for (int j = 0; j < 8; j++) {
+        crc = (crc & 1) != 0 ? (crc >>> 1) ^ POLYNOMIAL : crc >>> 1;
+      }
+      TABLES[0][i] = crc;
+    }
+    for (int i = 0; i < 256; i++) {
+      for (int k = 1; k < 8; k++) {
+        TABLES[k][i] = (TABLES[k - 1][i] >>> 8) ^ TABLES[0][TABLES[k - 1][i] & 0xff];
+      }
+    }
+  }
+
+  private int crc = 0xffffffff;
+
+  @Override
+  public void update(int b) {
+    crc = (crc >>> 8) ^ TABLES[0][(crc ^ b) & 0xff];
+  }
+
+  @Override
+  public void update(byte[] bytes, int offset, int length) {
+    final int[] t0 = TABLES[0], t1 = TABLES[1], t2 = TABLES[2], t3 = TABLES[3];
+    final int[] t4 = TABLES[4], t5 = TABLES[5], t6 = TABLES[6], t7 = TABLES[7];
+    int crc = this.crc;
+    int end = offset + length;
+    while (end - offset >= 8) {
+      crc ^= (bytes[offset] & 0xff)
+        | (bytes[offset + 1] & 0xff) << 8
+        | (bytes[offset + 2] & 0xff) << 16
+        | (bytes[offset + 3] & 0xff) << 24;
+      crc = t7[crc & 0xff]
+        ^ t6[(crc >>> 8) & 0xff]
+        ^ t5[(crc >>> 16) & 0xff]
+        ^ t4[crc >>> 24]
+        ^ t3[bytes[offset + 4] & 0xff]
+        ^ t2[bytes[offset + 5] & 0xff]
+        ^ t1[bytes[offset + 6] & 0xff]
+        ^ t0[bytes[offset + 7] & 0xff];
+      offset += 8;
+    }
+    while (offset < end) {
+      crc = (crc >>> 8) ^ t0[(crc ^ bytes[offset++]) & 0xff];
+    }
+    this.crc = crc;
+  }
+
+  @Override
+  public long getValue() {
+    return ~crc & 0xffffffffL;
+  }
+
+  @Override
+  public void reset() {
+    crc = 0xffffffff;
+  }
+
+}
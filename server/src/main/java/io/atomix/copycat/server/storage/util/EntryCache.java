@@ -0,0 +1,288 @@
+/*
+ * Copyright 2017-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.storage.util;
+
+import io.atomix.catalyst.util.Assert;
+import io.atomix.copycat.server.storage.entry.Entry;
+import io.atomix.copycat.server.storage.entry.RawEntry;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import static io.atomix.catalyst.buffer.Bytes.INTEGER;
+
+/**
+ * Byte-bounded log entry cache.
+ * <p>
+ * The entry cache holds recently appended and recently read entries in memory, keyed by index. Typed entries and
+ * {@link RawEntry raw entries} are cached separately since they can't be substituted for one another, but both
+ * count towards the same size limit. The size of the cache is the total serialized size of the cached entries.
+ * Once the cache is full, entries are evicted in index order, starting with the lowest index in the cache.
+ * <p>
+ * The cache can be {@link #pin(long) pinned} to a window starting at a given index. Entries below the pinned
+ * index are evicted from the cache and are not cached when read, so the cache is reserved for the entries
+ * that are still likely to be read.
+ * <p>
+ * The cache holds a reference to each cached entry, and entries are {@link Entry#acquire() acquired} when they're
+ * returned by the cache. The cache is thread safe.
+ *
+ * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
+ */
+public class EntryCache {
+  private final long maxSize;
+  private final TreeMap<Long, Entry> entries = new TreeMap<>();
+  private final TreeMap<Long, Entry> rawEntries = new TreeMap<>();
+  private long size;
+  private long pinnedIndex;
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  /**
+   * @param maxSize The maximum size of the cache in bytes.
+   * @throws IllegalArgumentException if {@code maxSize} is negative
+   */
+  public EntryCache(long maxSize) {
+    this.maxSize = Assert.argNot(maxSize, maxSize < 0, "maxSize cannot be negative");
+  }
+
+  /**
+   * Adds an entry to the cache.
+   * <p>
+   * If an entry of the same kind is already cached at the entry's index, the cached entry will be replaced.
+   * Entries with an index below the {@link #pinnedIndex() pinned index} are not cached.
+   *
+   * @param entry The entry to cache.
+   * @return The entry cache.
+   */
+  public synchronized EntryCache put(Entry entry) {
+    Assert.notNull(entry, "entry");
+    if (entry.getIndex() < pinnedIndex || size(entry) > maxSize) {
+      return this;
+    }
+
+    Entry oldEntry = map(entry).put(entry.getIndex(), entry.acquire());
+    if (oldEntry != null) {
+      size -= size(oldEntry);
+      oldEntry.release();
+    }
+    size += size(entry);
+    evict();
+    return this;
+  }
+
+  /**
+   * Looks up a typed entry in the cache.
+   *
+   * @param index The entry index.
+   * @param <T> The entry type.
+   * @return The entry or {@code null} if no typed entry is cached at the given index.
+   */
+  public <T extends Entry> T get(long index) {
+    return get(entries, index);
+  }
+
+  /**
+   * Looks up a raw entry in the cache.
+   *
+   * @param index The entry index.
+   * @return The entry or {@code null} if no raw entry is cached at the given index.
+   */
+  public RawEntry getRaw(long index) {
+    return get(rawEntries, index);
+  }
+
+  /**
+   * Looks up an entry in the given map, recording a hit or miss.
+   */
+  @SuppressWarnings("unchecked")
+  private synchronized <T extends Entry> T get(Map<Long, Entry> entries, long index) {
+    Entry entry = entries.get(index);
+    if (entry != null) {
+      hits++;
+      return (T) entry.acquire();
+    }
+    misses++;
+    return null;
+  }
+
+  /**
+   * Pins the cache to a window starting at the given index.
+   * <p>
+   * Entries with indexes below the given index are evicted from the cache and will not be cached until the
+   * cache is pinned to a lower index.
+   *
+   * @param index The index to which to pin the cache.
+   * @return The entry cache.
+   */
+  public synchronized EntryCache pin(long index) {
+    pinnedIndex = index;
+    while (!entries.isEmpty() && entries.firstKey() < index) {
+      remove(entries.pollFirstEntry().getValue());
+    }
+    while (!rawEntries.isEmpty() && rawEntries.firstKey() < index) {
+      remove(rawEntries.pollFirstEntry().getValue());
+    }
+    return this;
+  }
+
+  /**
+   * Returns the index to which the cache is pinned.
+   *
+   * @return The index to which the cache is pinned.
+   */
+  public synchronized long pinnedIndex() {
+    return pinnedIndex;
+  }
+
+  /**
+   * Removes all entries with indexes greater than the given index from the cache.
+   *
+   * @param index The index after which to remove entries.
+   * @return The entry cache.
+   */
+  public synchronized EntryCache truncate(long index) {
+    while (!entries.isEmpty() && entries.lastKey() > index) {
+      remove(entries.pollLastEntry().getValue());
+    }
+    while (!rawEntries.isEmpty() && rawEntries.lastKey() > index) {
+      remove(rawEntries.pollLastEntry().getValue());
+    }
+    return this;
+  }
+
+  /**
+   * Removes all entries from the cache.
+   *
+   * @return The entry cache.
+   */
+  public synchronized EntryCache clear() {
+    entries.values().forEach(Entry::release);
+    rawEntries.values().forEach(Entry::release);
+    entries.clear();
+    rawEntries.clear();
+    size = 0;
+    return this;
+  }
+
+  /**
+   * Returns the total serialized size of the cached entries in bytes.
+   *
+   * @return The size of the cache in bytes.
+   */
+  public synchronized long size() {
+    return size;
+  }
+
+  /**
+   * Returns the maximum size of the cache in bytes.
+   *
+   * @return The maximum size of the cache in bytes.
+   */
+  public long maxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Returns the number of entries in the cache.
+   *
+   * @return The number of entries in the cache.
+   */
+  public synchronized int count() {
+    return entries.size() + rawEntries.size();
+  }
+
+  /**
+   * Returns the number of lookups that found an entry in the cache.
+   *
+   * @return The number of cache hits.
+   */
+  public synchronized long hits() {
+    return hits;
+  }
+
+  /**
+   * Returns the number of lookups that did not find an entry in the cache.
+   *
+   * @return The number of cache misses.
+   */
+  public synchronized long misses() {
+    return misses;
+  }
+
+  /**
+   * Returns the ratio of cache hits to lookups.
+   *
+   * @return The cache hit rate, or {@code 0} if no lookups have been performed.
+   */
+  public synchronized double hitRate() {
+    long lookups = hits + misses;
+    return lookups > 0 ? hits / (double) lookups : 0;
+  }
+
+  /**
+   * Returns the number of entries that have been evicted from the cache to free space.
+   *
+   * @return The number of evicted entries.
+   */
+  public synchronized long evictions() {
+    return evictions;
+  }
+
+  /**
+   * Evicts entries with the lowest indexes until the cache fits within its maximum size.
+   */
+  private void evict() {
+    while (size > maxSize) {
+      TreeMap<Long, Entry> map;
+      if (rawEntries.isEmpty() || (!entries.isEmpty() && entries.firstKey() <= rawEntries.firstKey())) {
+        map = entries;
+      } else {
+        map = rawEntries;
+      }
+      remove(map.pollFirstEntry().getValue());
+      evictions++;
+    }
+  }
+
+  /**
+   * Releases an entry that was removed from the cache.
+   */
+  private void remove(Entry entry) {
+    size -= size(entry);
+    entry.release();
+  }
+
+  /**
+   * Returns the map in which to cache the given entry.
+   */
+  private TreeMap<Long, Entry> map(Entry entry) {
+    return entry instanceof RawEntry ? rawEntries : entries;
+  }
+
+  /**
+   * Returns the serialized size of the given entry, including its length.
+   */
+  private static long size(Entry entry) {
+    return INTEGER + entry.size();
+  }
+
+  @Override
+  public synchronized String toString() {
+    return String.format("%s[size=%d, maxSize=%d, hits=%d, misses=%d]", getClass().getSimpleName(), size, maxSize, hits, misses);
+  }
+
+}
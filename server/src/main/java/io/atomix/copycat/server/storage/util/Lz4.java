@@ -0,0 +1,242 @@
+/*
+ * Copyright 2017-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.storage.util;
+
+import java.util.Arrays;
+
+/**
+ * LZ4 block compression.
+ * <p>
+ * This is a pure Java implementation of the LZ4 block format. The compressor is a simple greedy compressor that
+ * finds matches through a single hash table of recent 4-byte sequences and accelerates over incompressible input,
+ * trading some compression ratio for speed. The output is a valid LZ4 block. The decompressor validates input
+ * bounds and throws {@link IllegalArgumentException} if the compressed block is malformed.
+ * <p>
+ * LZ4 blocks don't record their decompressed length, so the length must be stored alongside the block.
+ *
+ * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
+ */
+public final class Lz4 {
+  private static final int MIN_MATCH = 4;
+  private static final int HASH_LOG = 12;
+  private static final int LAST_LITERALS = 5;
+  private static final int MF_LIMIT = 12;
+  private static final int MAX_DISTANCE = 65535;
+  private static final int SKIP_TRIGGER = 6;
+  private static final int RUN_MASK = 15;
+
+  private Lz4() {
+  }
+
+  /**
+   * Returns the maximum compressed length of the given number of bytes.
+   *
+   * @param length The number of bytes to compress.
+   * @return The maximum length of the compressed bytes.
+   */
+  public static int maxCompressedLength(int length) {
+    return length + length / 255 + 16;
+  }
+
+  /**
+   * Compresses bytes into an LZ4 block.
+   *
+   * @param src The bytes to compress.
+   * @param srcOffset The offset of the bytes to compress.
+   * @param srcLength The number of bytes to compress.
+   * @param dst The array to which to write the compressed block. The array must have at least
+   *            {@link #maxCompressedLength(int)} bytes remaining from {@code dstOffset}.
+   * @param dstOffset The offset at which to write the compressed block.
+   * @return The length of the compressed block.
+   */
+  public static int compress(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOffset) {
+    int srcEnd = srcOffset + srcLength;
+    int matchLimit = srcEnd - LAST_LITERALS;
+    int mfLimit = srcEnd - MF_LIMIT;
+    int d = dstOffset;
+    int anchor = srcOffset;
+
+    if (srcLength > MF_LIMIT) {
+      int[] table = new int[1 << HASH_LOG];
+      Arrays.fill(table, -1);
+
+      int s = srcOffset;
+      int attempts = 1 << SKIP_TRIGGER;
+      while (s < mfLimit) {
+        int sequence = readInt(src, s);
+        int hash = hash(sequence);
+        int ref = table[hash];
+        table[hash] = s;
+
+        // If no match was found, skip ahead, accelerating the longer no match is found.
+        if (ref < 0 || s - ref > MAX_DISTANCE || readInt(src, ref) != sequence) {
+          s += attempts++ >>> SKIP_TRIGGER;
+          continue;
+        }
+        attempts = 1 << SKIP_TRIGGER;
+
+        int matchLength = MIN_MATCH;
+        while (s + matchLength < matchLimit && src[ref + matchLength] == src[s + matchLength]) {
+          matchLength++;
+        }
+
+        d = writeSequence(src, anchor, s - anchor, s - ref, matchLength, dst, d);
+        s += matchLength;
+        anchor = s;
+
+        // Index a position within the match to improve the chances of finding the next match.
+        if (s - 2 < mfLimit) {
+          table[hash(readInt(src, s - 2))] = s - 2;
+        }
+      }
+    }
+
+    d = writeLiterals(src, anchor, srcEnd - anchor, dst, d);
+    return d - dstOffset;
+  }
+
+  /**
+   * Decompresses an LZ4 block.
+   *
+   * @param src The compressed block.
+   * @param srcOffset The offset of the compressed block.
+   * @param srcLength The length of the compressed block.
+   * @param dst The array to which to write the decompressed bytes.
+   * @param dstOffset The offset at which to write the decompressed bytes.
+   * @param dstLength The decompressed length of the block.
+   * @throws IllegalArgumentException if the block is malformed or does not decompress to {@code dstLength} bytes
+   */
+  public static void decompress(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOffset, int dstLength) {
+    int s = srcOffset;
+    int srcEnd = srcOffset + srcLength;
+    int d = dstOffset;
+    int dstEnd = dstOffset + dstLength;
+
+    while (s < srcEnd) {
+      int token = src[s++] & 0xff;
+
+      // Copy the literals.
+      int literalLength = token >>> 4;
+      if (literalLength == RUN_MASK) {
+        int b;
+        do {
+          check(s < srcEnd);
+          b = src[s++] & 0xff;
+          literalLength += b;
+        } while (b == 255);
+      }
+      check(literalLength <= srcEnd - s && literalLength <= dstEnd - d);
+      System.arraycopy(src, s, dst, d, literalLength);
+      s += literalLength;
+      d += literalLength;
+
+      // The last sequence contains only literals.
+      if (s == srcEnd) {
+        break;
+      }
+
+      // Copy the match.
+      check(srcEnd - s >= 2);
+      int offset = (src[s] & 0xff) | (src[s + 1] & 0xff) << 8;
+      s += 2;
+      int matchLength = token & RUN_MASK;
+      if (matchLength == RUN_MASK) {
+        int b;
+        do {
+          check(s < srcEnd);
+          b = src[s++] & 0xff;
+          matchLength += b;
+        } while (b == 255);
+      }
+      matchLength += MIN_MATCH;
+      check(offset > 0 && offset <= d - dstOffset && matchLength <= dstEnd - d);
+
+      int ref = d - offset;
+      if (offset >= matchLength) {
+        System.arraycopy(dst, ref, dst, d, matchLength);
+      } else {
+        // Overlapping matches repeat the preceding bytes and must be copied one byte at a time.
+        for (int i = 0; i < matchLength; i++) {
+          dst[d + i] = dst[ref + i];
+        }
+      }
+      d += matchLength;
+    }
+    check(d == dstEnd);
+  }
+
+  /**
+   * Writes a sequence of literals followed by a match.
+   */
+  private static int writeSequence(byte[] src, int literalOffset, int literalLength, int offset, int matchLength, byte[] dst, int d) {
+    int matchRun = matchLength - MIN_MATCH;
+    int token = d++;
+    dst[token] = (byte) (Math.min(literalLength, RUN_MASK) << 4 | Math.min(matchRun, RUN_MASK));
+    if (literalLength >= RUN_MASK) {
+      d = writeLength(literalLength - RUN_MASK, dst, d);
+    }
+    System.arraycopy(src, literalOffset, dst, d, literalLength);
+    d += literalLength;
+    dst[d++] = (byte) offset;
+    dst[d++] = (byte) (offset >>> 8);
+    if (matchRun >= RUN_MASK) {
+      d = writeLength(matchRun - RUN_MASK, dst, d);
+    }
+    return d;
+  }
+
+  /**
+   * Writes the final sequence of literals.
+   */
+  private static int writeLiterals(byte[] src, int literalOffset, int literalLength, byte[] dst, int d) {
+    dst[d++] = (byte) (Math.min(literalLength, RUN_MASK) << 4);
+    if (literalLength >= RUN_MASK) {
+      d = writeLength(literalLength - RUN_MASK, dst, d);
+    }
+    System.arraycopy(src, literalOffset, dst, d, literalLength);
+    return d + literalLength;
+  }
+
+  /**
+   * Writes the remainder of a length that did not fit in a token.
+   */
+  private static int writeLength(int length, byte[] dst, int d) {
+    while (length >= 255) {
+      dst[d++] = (byte) 255;
+      length -= 255;
+    }
+    dst[d++] = (byte) length;
+    return d;
+  }
+
+  private static int hash(int sequence) {
+    return (sequence * -1640531535) >>> (32 - HASH_LOG);
+  }
+
+  private static int readInt(byte[] bytes, int offset) {
+    return (bytes[offset] & 0xff)
+      | (bytes[offset + 1] & 0xff) << 8
+      | (bytes[offset + 2] & 0xff) << 16
+      | (bytes[offset + 3] & 0xff) << 24;
+  }
+
+  private static void check(boolean condition) {
+    if (!condition) {
+      throw new IllegalArgumentException("malformed compressed block");
+    }
+  }
+
+}
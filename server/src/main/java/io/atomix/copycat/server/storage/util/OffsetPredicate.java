@@ -11,11 +11,12 @@
  * distributed under the License is distributed on an "AS IS" BASIS,
  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
  * See the License for the specific language governing permissions and
- * limitations under the License
+ * limitations under the License.
  */
 package io.atomix.copycat.server.storage.util;
 
-import io.atomix.catalyst.buffer.util.BitArray;
+import io.atomix.catalyst.buffer.Buffer;
+import io.atomix.catalyst.buffer.HeapBuffer;
 import io.atomix.catalyst.util.Assert;
 
 import java.util.function.Predicate;
@@ -24,22 +25,63 @@ import java.util.function.Predicate;
  * Segment offset liveness predicate.
  * <p>
  * The offset predicate tracks the liveness of relative offsets within a segment. Liveness is tracked
- * in a {@link BitArray} that is resized to accommodate offsets as necessary. Each bit in the array
+ * in a bitmap stored in a {@link Buffer} as a sequence of 64-bit words. Each bit in the bitmap
  * represents the liveness of a relative offset in the segment. When an offset is
- * {@link #release(long) released} from a segment, the bit at that offset is flipped in the bit array.
+ * {@link #release(long) released} from a segment, the bit at that offset is set in the bitmap.
  * {@link #test(Long) Testing} the predicate indicates whether an offset is still live in the segment.
+ * <p>
+ * By default, the bitmap is stored on the heap and grows to accommodate offsets as necessary. Predicates
+ * for persistent segments are instead opened over a fixed size, typically memory-mapped, buffer, in which
+ * case each release is written directly to the buffer and the bits that were previously set in the buffer
+ * are restored when the predicate is opened.
  *
  * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
  */
 public final class OffsetPredicate implements Predicate<Long>, AutoCloseable {
-  private final BitArray bits;
+  private static final int WORD_BYTES = 8;
+  private final Buffer bits;
+  private long count;
 
   public OffsetPredicate() {
-    this(BitArray.allocate(1024));
+    this(HeapBuffer.allocate(128, Integer.MAX_VALUE), 0);
+  }
+
+  /**
+   * Opens the predicate over the bits previously written to the given buffer.
+   * <p>
+   * The predicate can track offsets up to the maximum capacity of the buffer.
+   *
+   * @param bits The buffer in which to store the bitmap.
+   * @throws NullPointerException if {@code bits} is null
+   */
+  public OffsetPredicate(Buffer bits) {
+    this(bits, count(bits));
   }
 
-  OffsetPredicate(BitArray bits) {
+  private OffsetPredicate(Buffer bits, long count) {
     this.bits = Assert.notNull(bits, "bits");
+    this.count = count;
+  }
+
+  /**
+   * Counts the bits set in the given buffer.
+   */
+  private static long count(Buffer bits) {
+    long count = 0;
+    for (long position = 0; position + WORD_BYTES <= bits.capacity(); position += WORD_BYTES) {
+      count += Long.bitCount(bits.readLong(position));
+    }
+    return count;
+  }
+
+  /**
+   * Returns the number of bytes required to track the given number of offsets.
+   *
+   * @param offsets The maximum number of offsets to track.
+   * @return The number of bytes required to track the given number of offsets.
+   */
+  public static long size(int offsets) {
+    return ((offsets + 63L) / 64) * WORD_BYTES;
   }
 
   /**
@@ -50,7 +92,11 @@ public final class OffsetPredicate implements Predicate<Long>, AutoCloseable {
    */
   @Override
   public boolean test(Long offset) {
-    return offset != -1 && (bits.size() <= offset || !bits.get(offset));
+    if (offset == -1) {
+      return false;
+    }
+    long position = (offset >>> 6) * WORD_BYTES;
+    return position + WORD_BYTES > bits.capacity() || (bits.readLong(position) & (1L << offset)) == 0;
   }
 
   /**
@@ -61,12 +107,16 @@ public final class OffsetPredicate implements Predicate<Long>, AutoCloseable {
    */
   public boolean release(long offset) {
     Assert.argNot(offset < 0, "offset must be positive");
-    if (bits.size() <= offset) {
-      while (bits.size() <= offset) {
-        bits.resize(bits.size() * 2);
-      }
+    long position = (offset >>> 6) * WORD_BYTES;
+    Assert.argNot(position + WORD_BYTES > bits.maxCapacity(), "offset exceeds the capacity of the predicate");
+    long word = position + WORD_BYTES <= bits.capacity() ? bits.readLong(position) : 0;
+    long mask = 1L << offset;
+    if ((word & mask) != 0) {
+      return false;
     }
-    return bits.set(offset);
+    bits.writeLong(position, word | mask);
+    count++;
+    return true;
   }
 
   /**
@@ -75,16 +125,30 @@ public final class OffsetPredicate implements Predicate<Long>, AutoCloseable {
    * @return The number of offsets released from the segment.
    */
   public long count() {
-    return bits.count();
+    return count;
   }
 
   /**
-   * Copies the offset predicate.
+   * Copies the offset predicate to the heap.
    *
    * @return The copied offset predicate.
    */
   public OffsetPredicate copy() {
-    return new OffsetPredicate(bits.copy());
+    Buffer copy = HeapBuffer.allocate(Math.max(bits.capacity(), WORD_BYTES), Integer.MAX_VALUE);
+    for (long position = 0; position + WORD_BYTES <= bits.capacity(); position += WORD_BYTES) {
+      long word = bits.readLong(position);
+      if (word != 0) {
+        copy.writeLong(position, word);
+      }
+    }
+    return new OffsetPredicate(copy, count);
+  }
+
+  /**
+   * Flushes released offsets to the underlying buffer.
+   */
+  public void flush() {
+    bits.flush();
   }
 
   @Override
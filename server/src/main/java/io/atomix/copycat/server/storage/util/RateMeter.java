@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package io.atomix.copycat.server.storage.util;
+
+/**
+ * Simple event rate meter.
+ * <p>
+ * The rate meter counts events in fixed one second windows. The {@link #rate()} is the number of events
+ * that occurred in the last complete window, and the {@link #count()} is the total number of events
+ * recorded by the meter.
+ * <p>
+ * This class is thread safe.
+ *
+ * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
+ */
+public final class RateMeter {
+  private static final long WINDOW = 1000;
+  private long count;
+  private long windowStart = System.currentTimeMillis();
+  private long windowCount;
+  private long rate;
+
+  /**
+   * Records a single event.
+   *
+   * @return The rate meter.
+   */
+  public RateMeter mark() {
+    return mark(1);
+  }
+
+  /**
+   * Records the given number of events.
+   *
+   * @param events The number of events to record.
+   * @return The rate meter.
+   */
+  public synchronized RateMeter mark(long events) {
+    roll(System.currentTimeMillis());
+    count += events;
+    windowCount += events;
+    return this;
+  }
+
+  /**
+   * Returns the total number of events recorded by the meter.
+   *
+   * @return The total number of events recorded by the meter.
+   */
+  public synchronized long count() {
+    return count;
+  }
+
+  /**
+   * Returns the number of events per second over the last complete window.
+   *
+   * @return The number of events per second.
+   */
+  public synchronized long rate() {
+    roll(System.currentTimeMillis());
+    return rate;
+  }
+
+  /**
+   * Rolls the current window over if necessary.
+   */
+  private void roll(long time) {
+    long elapsed = time - windowStart;
+    if (elapsed >= WINDOW) {
+      // If more than one window has passed without any events, the rate is zero.
+      rate = elapsed < WINDOW * 2 ? windowCount : 0;
+      windowCount = 0;
+      windowStart = time - (elapsed % WINDOW);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s[count=%d, rate=%d]", getClass().getSimpleName(), count(), rate());
+  }
+
+}
@@ -11,12 +11,14 @@
  * distributed under the License is distributed on an "AS IS" BASIS,
  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
  * See the License for the specific language governing permissions and
- * limitations under the License
+ * limitations under the License.
  */
 package io.atomix.copycat.server.storage.util;
 
-import java.util.Map;
-import java.util.TreeMap;
+import io.atomix.catalyst.buffer.Buffer;
+import io.atomix.catalyst.util.Assert;
+
+import java.util.Arrays;
 
 /**
  * Log entry term index.
@@ -26,25 +28,64 @@ import java.util.TreeMap;
  * we can assume that if entry {@code n}'s term is {@code t} then entry {@code n + 1}'s term
  * will be {@code t} or greater.
  * <p>
- * The implementation of the term index uses a {@link TreeMap} to store a map of offsets to
- * terms. To look up the term for any given offset, we use {@code map.floorEntry(offset)}
- * to loop up the term for the offset.
+ * The term index stores a sorted sequence of offset and term pairs in a primitive {@code long} array.
+ * To look up the term for any given offset, the index binary searches for the last pair with an offset
+ * less than or equal to the given offset. Because most reads are of entries in the most recent term,
+ * offsets in the last term are looked up without searching. If the index is constructed with a
+ * {@link Buffer}, pairs are also written to the buffer as 64-bit offset and 64-bit term pairs so the
+ * index can be reopened over the pairs that were previously written to a memory-mapped buffer.
  * <p>
- * This class is thread safe.
+ * The index supports a single writer and any number of concurrent readers without locking. Pairs are
+ * written to the array before the size of the index is published, so readers never observe a partially
+ * written pair. Truncation must not be performed concurrently with reads.
  *
  * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
  */
 public final class TermIndex {
-  private final TreeMap<Long, Long> terms = new TreeMap<>();
+  private static final int ENTRY_SIZE = 16;
+  private final Buffer buffer;
+  private volatile long[] terms;
+  private volatile int size;
+
+  public TermIndex() {
+    this.buffer = null;
+    this.terms = new long[32];
+  }
+
+  /**
+   * @param buffer The buffer in which to store the index.
+   * @param size The number of terms already stored in the buffer.
+   * @throws NullPointerException if {@code buffer} is null
+   */
+  public TermIndex(Buffer buffer, int size) {
+    this.buffer = Assert.notNull(buffer, "buffer");
+    Assert.argNot(size < 0, "size cannot be negative");
+    long[] terms = new long[Math.max(size * 2, 32)];
+    for (int i = 0; i < size; i++) {
+      terms[i * 2] = buffer.readLong((long) i * ENTRY_SIZE);
+      terms[i * 2 + 1] = buffer.readLong((long) i * ENTRY_SIZE + 8);
+    }
+    this.terms = terms;
+    this.size = size;
+  }
+
+  /**
+   * Returns the number of terms in the index.
+   *
+   * @return The number of terms in the index.
+   */
+  public int size() {
+    return size;
+  }
 
   /**
    * Returns the highest term in the index.
    *
    * @return The highest term in the index.
    */
-  public synchronized long term() {
-    Map.Entry<Long, Long> entry = terms.lastEntry();
-    return entry != null ? entry.getValue() : 0;
+  public long term() {
+    int size = this.size;
+    return size > 0 ? terms[size * 2 - 1] : 0;
   }
 
   /**
@@ -53,9 +94,28 @@ public final class TermIndex {
    * @param offset The offset to index.
    * @param term The term to index.
    */
-  public synchronized void index(long offset, long term) {
+  public void index(long offset, long term) {
     if (lookup(offset) != term) {
-      terms.put(offset, term);
+      // If the offset precedes the last indexed offset, remove the terms that follow it.
+      if (size > 0 && terms[size * 2 - 2] >= offset) {
+        truncate(offset - 1);
+      }
+
+      int size = this.size;
+      long[] terms = this.terms;
+      if (size * 2 == terms.length) {
+        terms = Arrays.copyOf(terms, terms.length * 2);
+      }
+      terms[size * 2] = offset;
+      terms[size * 2 + 1] = term;
+      if (buffer != null) {
+        buffer.writeLong((long) size * ENTRY_SIZE, offset)
+          .writeLong((long) size * ENTRY_SIZE + 8, term);
+      }
+
+      // Publish the array before the size so readers that observe the new size observe the new pair.
+      this.terms = terms;
+      this.size = size + 1;
     }
   }
 
@@ -65,9 +125,20 @@ public final class TermIndex {
    * @param offset The offset for which to look up the term.
    * @return The term for the entry at the given offset.
    */
-  public synchronized long lookup(long offset) {
-    Map.Entry<Long, Long> entry = terms.floorEntry(offset);
-    return entry != null ? entry.getValue() : 0;
+  public long lookup(long offset) {
+    int size = this.size;
+    if (size == 0) {
+      return 0;
+    }
+
+    // Most lookups are for offsets in the last term, so check the last term before searching.
+    long[] terms = this.terms;
+    if (terms[size * 2 - 2] <= offset) {
+      return terms[size * 2 - 1];
+    }
+
+    int index = floor(terms, offset, size - 1);
+    return index != -1 ? terms[index * 2 + 1] : 0;
   }
 
   /**
@@ -75,8 +146,26 @@ public final class TermIndex {
    *
    * @param offset The offset to which to truncate the index.
    */
-  public synchronized void truncate(long offset) {
-    terms.tailMap(offset, false).clear();
+  public void truncate(long offset) {
+    size = floor(terms, offset, size) + 1;
+  }
+
+  /**
+   * Returns the index of the last of the first {@code size} pairs with an offset less than or equal to the
+   * given offset.
+   */
+  private static int floor(long[] terms, long offset, int size) {
+    int lo = 0;
+    int hi = size - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      if (terms[mid * 2] <= offset) {
+        lo = mid + 1;
+      } else {
+        hi = mid - 1;
+      }
+    }
+    return hi;
   }
 
   @Override
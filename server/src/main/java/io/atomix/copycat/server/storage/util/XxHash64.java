@@ -0,0 +1,177 @@
+/*
+ * Copyright 2017-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.storage.util;
+
+import java.util.zip.Checksum;
+
+/**
+ * 64-bit xxHash checksum.
+ * <p>
+ * This is a pure Java implementation of the non-cryptographic XXH64 hash with a seed of {@code 0}. XXH64 processes
+ * input 32 bytes at a time in four independent lanes, so it's typically considerably faster than table-driven CRCs.
+ * Input that does not fill a 32-byte stripe is buffered until the next update or until the value is computed.
+ * The checksum value is the full 64-bit hash.
+ *
+ * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
+ */
+public final class XxHash64 implements Checksum {
+  private static final long PRIME1 = 0x9E3779B185EBCA87L;
+  private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+  private static final long PRIME3 = 0x165667B19E3779F9L;
+  private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+  private static final long PRIME5 = 0x27D4EB2F165667C5L;
+  private static final int STRIPE = 32;
+
+  private final byte[] buffer = new byte[STRIPE];
+  private int buffered;
+  private long length;
+  private long v1;
+  private long v2;
+  private long v3;
+  private long v4;
+
+  public XxHash64() {
+    reset();
+  }
+
+  @Override
+  public void update(int b) {
+    buffer[buffered++] = (byte) b;
+    length++;
+    if (buffered == STRIPE) {
+      stripe(buffer, 0);
+      buffered = 0;
+    }
+  }
+
+  @Override
+  public void update(byte[] bytes, int offset, int length) {
+    this.length += length;
+    int end = offset + length;
+
+    // Fill and process any partially buffered stripe first.
+    if (buffered > 0) {
+      int count = Math.min(STRIPE - buffered, length);
+      System.arraycopy(bytes, offset, buffer, buffered, count);
+      buffered += count;
+      offset += count;
+      if (buffered < STRIPE) {
+        return;
+      }
+      stripe(buffer, 0);
+      buffered = 0;
+    }
+
+    while (end - offset >= STRIPE) {
+      stripe(bytes, offset);
+      offset += STRIPE;
+    }
+
+    if (offset < end) {
+      System.arraycopy(bytes, offset, buffer, 0, end - offset);
+      buffered = end - offset;
+    }
+  }
+
+  /**
+   * Processes a 32-byte stripe.
+   */
+  private void stripe(byte[] bytes, int offset) {
+    v1 = round(v1, readLong(bytes, offset));
+    v2 = round(v2, readLong(bytes, offset + 8));
+    v3 = round(v3, readLong(bytes, offset + 16));
+    v4 = round(v4, readLong(bytes, offset + 24));
+  }
+
+  @Override
+  public long getValue() {
+    long hash;
+    if (length >= STRIPE) {
+      hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+      hash = merge(hash, v1);
+      hash = merge(hash, v2);
+      hash = merge(hash, v3);
+      hash = merge(hash, v4);
+    } else {
+      hash = PRIME5;
+    }
+
+    hash += length;
+
+    int offset = 0;
+    while (buffered - offset >= 8) {
+      hash ^= round(0, readLong(buffer, offset));
+      hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+      offset += 8;
+    }
+    if (buffered - offset >= 4) {
+      hash ^= (readInt(buffer, offset) & 0xffffffffL) * PRIME1;
+      hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+      offset += 4;
+    }
+    while (offset < buffered) {
+      hash ^= (buffer[offset++] & 0xff) * PRIME5;
+      hash = Long.rotateLeft(hash, 11) * PRIME1;
+    }
+
+    hash ^= hash >>> 33;
+    hash *= PRIME2;
+    hash ^= hash >>> 29;
+    hash *= PRIME3;
+    hash ^= hash >>> 32;
+    return hash;
+  }
+
+  @Override
+  public void reset() {
+    v1 = PRIME1 + PRIME2;
+    v2 = PRIME2;
+    v3 = 0;
+    v4 = -PRIME1;
+    length = 0;
+    buffered = 0;
+  }
+
+  private static long round(long acc, long input) {
+    acc += input * PRIME2;
+    acc = Long.rotateLeft(acc, 31);
+    return acc * PRIME1;
+  }
+
+  private static long merge(long acc, long value) {
+    acc ^= round(0, value);
+    return acc * PRIME1 + PRIME4;
+  }
+
+  private static long readLong(byte[] bytes, int offset) {
+    return (bytes[offset] & 0xffL)
+      | (bytes[offset + 1] & 0xffL) << 8
+      | (bytes[offset + 2] & 0xffL) << 16
+      | (bytes[offset + 3] & 0xffL) << 24
+      | (bytes[offset + 4] & 0xffL) << 32
+      | (bytes[offset + 5] & 0xffL) << 40
+      | (bytes[offset + 6] & 0xffL) << 48
+      | (bytes[offset + 7] & 0xffL) << 56;
+  }
+
+  private static int readInt(byte[] bytes, int offset) {
+    return (bytes[offset] & 0xff)
+      | (bytes[offset + 1] & 0xff) << 8
+      | (bytes[offset + 2] & 0xff) << 16
+      | (bytes[offset + 3] & 0xff) << 24;
+  }
+
+}
@@ -49,6 +49,8 @@ public final class ServerSerialization implements SerializableTypeResolver {
     put(ReconfigureResponse.class, -33);
     put(VoteResponse.class, -34);
     put(ServerMember.class, -35);
+    put(ReadIndexRequest.class, -46);
+    put(ReadIndexResponse.class, -47);
   }};
 
   @Override
@@ -36,12 +36,17 @@ public class TestStateMachine extends StateMachine {
   @Override
   protected void configure(StateMachineExecutor executor) {
     executor.register(TestCommand.class, this::command);
+    executor.register(TestQuery.class, this::query);
   }
 
   private String command(Commit<TestCommand> commit) {
     return commit.operation().value;
   }
 
+  private String query(Commit<TestQuery> commit) {
+    return "query";
+  }
+
   /**
    * Test query.
    */
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2017-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.protocol;
+
+import io.atomix.catalyst.buffer.Buffer;
+import io.atomix.catalyst.serializer.Serializer;
+import io.atomix.copycat.error.CopycatError;
+import io.atomix.copycat.protocol.Response;
+import io.atomix.copycat.server.util.ServerSerialization;
+import io.atomix.copycat.util.ProtocolSerialization;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Read index request and response serialization test.
+ *
+ * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
+ */
+@Test
+public class ReadIndexSerializationTest {
+  private Serializer serializer;
+
+  @BeforeMethod
+  public void createSerializer() {
+    serializer = new Serializer().resolve(new ProtocolSerialization(), new ServerSerialization());
+  }
+
+  /**
+   * Tests serializing a read index request.
+   */
+  public void testReadIndexRequest() {
+    ReadIndexRequest request = ReadIndexRequest.builder()
+      .withLease(true)
+      .build();
+    ReadIndexRequest result = roundTrip(request);
+    assertEquals(result, request);
+    assertTrue(result.lease());
+  }
+
+  /**
+   * Tests serializing a successful read index response.
+   */
+  public void testReadIndexResponse() {
+    ReadIndexResponse response = ReadIndexResponse.builder()
+      .withStatus(Response.Status.OK)
+      .withIndex(10)
+      .build();
+    ReadIndexResponse result = roundTrip(response);
+    assertEquals(result, response);
+    assertEquals(result.status(), Response.Status.OK);
+    assertEquals(result.index(), 10);
+    assertNull(result.error());
+  }
+
+  /**
+   * Tests serializing a failed read index response.
+   */
+  public void testReadIndexErrorResponse() {
+    ReadIndexResponse response = ReadIndexResponse.builder()
+      .withStatus(Response.Status.ERROR)
+      .withError(CopycatError.Type.NO_LEADER_ERROR)
+      .build();
+    ReadIndexResponse result = roundTrip(response);
+    assertEquals(result.status(), Response.Status.ERROR);
+    assertEquals(result.error(), CopycatError.Type.NO_LEADER_ERROR);
+  }
+
+  /**
+   * Writes the given object to a buffer and reads it back.
+   */
+  private <T> T roundTrip(T object) {
+    Buffer buffer = serializer.writeObject(object);
+    return serializer.readObject(buffer.flip());
+  }
+
+}
@@ -17,12 +17,16 @@ package io.atomix.copycat.server.state;
 
 import io.atomix.copycat.protocol.Response.Status;
 import io.atomix.copycat.server.CopycatServer;
+import io.atomix.copycat.server.TestStateMachine;
 import io.atomix.copycat.server.protocol.AppendRequest;
 import io.atomix.copycat.server.protocol.PollRequest;
 import io.atomix.copycat.server.protocol.VoteRequest;
 import io.atomix.copycat.server.protocol.AppendResponse;
 import io.atomix.copycat.server.protocol.PollResponse;
 import io.atomix.copycat.server.protocol.VoteResponse;
+import io.atomix.copycat.server.storage.Storage;
+import io.atomix.copycat.server.storage.StorageLevel;
+import io.atomix.copycat.server.storage.TestEntry;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -256,4 +260,78 @@ public class ActiveStateTest extends AbstractStateTest<ActiveState> {
     });
   }
 
+  /**
+   * Tests that a rejected append request that arrives before earlier pipelined entries have been flushed
+   * does not report the unflushed entries to the leader.
+   */
+  @SuppressWarnings("unchecked")
+  public void testRejectAppendReportsFlushedIndex() throws Throwable {
+    Storage storage = Storage.builder()
+      .withStorageLevel(StorageLevel.MEMORY)
+      .withDirectory(storageDir.toFile())
+      .withGroupCommit()
+      .withGroupCommitBatchSize(100)
+      .build();
+    ServerContext context = new ServerContext("group-commit", members.get(0).type(), members.get(0).serverAddress(), members.get(0).clientAddress(), storage, serializer, TestStateMachine::new, new ConnectionManager(transport.client()), serverCtx);
+    ActiveState state = new ActiveState(context) {
+    };
+
+    try {
+      runOnServer(() -> {
+        context.setTerm(1);
+
+        // Append the entries of the first pipelined request without flushing them to disk.
+        for (int i = 0; i < 10; i++) {
+          try (TestEntry entry = context.getLog().create(TestEntry.class)) {
+            entry.setTerm(1);
+            context.getLog().append(entry);
+          }
+        }
+        assertEquals(context.getLog().lastIndex(), 10L);
+        assertEquals(context.getLog().flushedIndex(), 0L);
+
+        // A later pipelined request arrives out of order before the first request's entries have been flushed.
+        AppendResponse response = state.checkPreviousEntry(AppendRequest.builder()
+          .withTerm(1)
+          .withLeader(members.get(1).hashCode())
+          .withEntries(Collections.EMPTY_LIST)
+          .withLogIndex(20)
+          .withLogTerm(1)
+          .withCommitIndex(0)
+          .withGlobalIndex(0)
+          .build());
+        assertFalse(response.succeeded());
+        assertEquals(response.logIndex(), 0L);
+
+        // A request with a mismatched previous term is rejected with the flushed index as well.
+        response = state.checkPreviousEntry(AppendRequest.builder()
+          .withTerm(1)
+          .withLeader(members.get(1).hashCode())
+          .withEntries(Collections.EMPTY_LIST)
+          .withLogIndex(5)
+          .withLogTerm(2)
+          .withCommitIndex(0)
+          .withGlobalIndex(0)
+          .build());
+        assertFalse(response.succeeded());
+        assertEquals(response.logIndex(), 0L);
+
+        // Once the entries have been flushed, they're reported to the leader.
+        context.getLog().flush();
+        response = state.checkPreviousEntry(AppendRequest.builder()
+          .withTerm(1)
+          .withLeader(members.get(1).hashCode())
+          .withEntries(Collections.EMPTY_LIST)
+          .withLogIndex(20)
+          .withLogTerm(1)
+          .withCommitIndex(0)
+          .withGlobalIndex(0)
+          .build());
+        assertFalse(response.succeeded());
+        assertEquals(response.logIndex(), 10L);
+      });
+    } finally {
+      context.delete();
+    }
+  }
 }
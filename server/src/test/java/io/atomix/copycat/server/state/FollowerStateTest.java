@@ -16,6 +16,7 @@
 package io.atomix.copycat.server.state;
 
 import io.atomix.copycat.protocol.Response.Status;
+import io.atomix.copycat.server.CopycatServer;
 import io.atomix.copycat.server.protocol.AppendRequest;
 import io.atomix.copycat.server.protocol.PollRequest;
 import io.atomix.copycat.server.protocol.VoteRequest;
@@ -365,4 +366,121 @@ public class FollowerStateTest extends AbstractStateTest<FollowerState> {
     });
   }
 
+  /**
+   * Tests that a follower rejects polls and votes for other candidates within an election timeout of the leader's last request.
+   */
+  @SuppressWarnings("unchecked")
+  public void testFollowerRejectsElectionWithinLeaderLease() throws Throwable {
+    runOnServer(() -> {
+      serverContext.setTerm(1).setLeader(0);
+      AppendRequest appendRequest = AppendRequest.builder()
+          .withTerm(2)
+          .withLeader(members.get(1).hashCode())
+          .withEntries(Collections.EMPTY_LIST)
+          .withLogIndex(0)
+          .withLogTerm(0)
+          .withCommitIndex(0)
+          .withGlobalIndex(0)
+          .build();
+
+      threadAssertTrue(state.append(appendRequest).get().succeeded());
+
+      PollRequest pollRequest = PollRequest.builder()
+          .withTerm(2)
+          .withCandidate(members.get(2).hashCode())
+          .withLogIndex(0)
+          .withLogTerm(0)
+          .build();
+
+      PollResponse pollResponse = state.poll(pollRequest).get();
+
+      threadAssertEquals(pollResponse.status(), Status.OK);
+      threadAssertEquals(pollResponse.term(), 2L);
+      threadAssertFalse(pollResponse.accepted());
+
+      VoteRequest voteRequest = VoteRequest.builder()
+          .withTerm(3)
+          .withCandidate(members.get(2).hashCode())
+          .withLogIndex(0)
+          .withLogTerm(0)
+          .build();
+
+      VoteResponse voteResponse = state.vote(voteRequest).get();
+
+      threadAssertEquals(voteResponse.status(), Status.OK);
+      threadAssertEquals(serverContext.getTerm(), 2L);
+      threadAssertEquals(voteResponse.term(), 2L);
+      threadAssertFalse(voteResponse.voted());
+      threadAssertEquals(serverContext.getLeader().serverAddress(), members.get(1).serverAddress());
+    });
+  }
+
+  /**
+   * Tests that a restarted follower rejects polls and votes within an election timeout of being started.
+   */
+  public void testFollowerRejectsElectionAfterRestart() throws Throwable {
+    runOnServer(() -> {
+      serverContext.setTerm(1);
+      serverContext.transition(CopycatServer.State.FOLLOWER);
+      ServerState follower = serverContext.getServerState();
+
+      PollRequest pollRequest = PollRequest.builder()
+          .withTerm(1)
+          .withCandidate(members.get(2).hashCode())
+          .withLogIndex(0)
+          .withLogTerm(0)
+          .build();
+
+      PollResponse pollResponse = follower.poll(pollRequest).get();
+
+      threadAssertEquals(pollResponse.status(), Status.OK);
+      threadAssertEquals(pollResponse.term(), 1L);
+      threadAssertFalse(pollResponse.accepted());
+
+      VoteRequest voteRequest = VoteRequest.builder()
+          .withTerm(2)
+          .withCandidate(members.get(2).hashCode())
+          .withLogIndex(0)
+          .withLogTerm(0)
+          .build();
+
+      VoteResponse voteResponse = follower.vote(voteRequest).get();
+
+      threadAssertEquals(voteResponse.status(), Status.OK);
+      threadAssertEquals(serverContext.getTerm(), 1L);
+      threadAssertFalse(voteResponse.voted());
+      threadAssertEquals(serverContext.getLastVotedFor(), 0);
+
+      follower.close().get();
+    });
+  }
+
+  /**
+   * Tests that a follower created by the leader stepping down grants votes to other candidates.
+   */
+  public void testFollowerGrantsVoteAfterStepDown() throws Throwable {
+    runOnServer(() -> {
+      // The server was the leader in term 1 and stepped down on learning of term 2.
+      serverContext.setTerm(1).setLeader(members.get(0).hashCode());
+      serverContext.setTerm(2).setLeader(0);
+      state.open().get();
+
+      VoteRequest request = VoteRequest.builder()
+          .withTerm(2)
+          .withCandidate(members.get(2).hashCode())
+          .withLogIndex(0)
+          .withLogTerm(0)
+          .build();
+
+      VoteResponse response = state.vote(request).get();
+
+      threadAssertEquals(response.status(), Status.OK);
+      threadAssertEquals(response.term(), 2L);
+      threadAssertTrue(response.voted());
+      threadAssertEquals(serverContext.getLastVotedFor(), members.get(2).hashCode());
+
+      state.close().get();
+    });
+  }
+
 }
@@ -15,12 +15,24 @@
  */
 package io.atomix.copycat.server.state;
 
+import io.atomix.copycat.error.CopycatError;
+import io.atomix.copycat.protocol.Response;
 import io.atomix.copycat.server.CopycatServer;
+import io.atomix.copycat.server.protocol.AppendRequest;
+import io.atomix.copycat.server.protocol.AppendResponse;
+import io.atomix.copycat.server.protocol.ReadIndexRequest;
+import io.atomix.copycat.server.protocol.ReadIndexResponse;
 import io.atomix.copycat.server.protocol.VoteRequest;
 import io.atomix.copycat.server.protocol.VoteResponse;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
 /**
  * Leader state test.
  */
@@ -57,4 +69,103 @@ public class LeaderStateTest extends AbstractStateTest<LeaderState> {
       threadAssertEquals(serverContext.getState(), CopycatServer.State.FOLLOWER);
     });
   }
+
+  /**
+   * Tests that a leader rejects read index requests until an entry from its term has been committed.
+   */
+  public void testLeaderRejectsReadIndexBeforeCommit() throws Throwable {
+    runOnServer(() -> {
+      serverContext.setTerm(1).setLeader(0);
+      ReadIndexRequest request = ReadIndexRequest.builder()
+          .withLease(true)
+          .build();
+
+      ReadIndexResponse response = state.readIndex(request).get();
+
+      threadAssertEquals(response.status(), Response.Status.ERROR);
+      threadAssertEquals(response.error(), CopycatError.Type.QUERY_ERROR);
+    });
+  }
+
+  /**
+   * Tests that the leader grows the batches it sends to a follower while batches are cut off by the batch size.
+   */
+  public void testLeaderGrowsBatchesForLaggingFollower() throws Throwable {
+    runOnServer(() -> {
+      serverContext.setTerm(1).setLeader(0);
+      serverContext.setMinBatchSize(256).setMaxBatchSize(4096);
+      append(500, 1);
+
+      MemberState member = serverContext.getClusterState().getRemoteMemberStates().get(0);
+      member.setNextIndex(1);
+
+      LeaderAppender appender = new LeaderAppender(state);
+      AppendRequest first = appender.buildAppendRequest(member, serverContext.getLog().lastIndex());
+      threadAssertTrue(first.entries().size() < 500);
+      threadAssertEquals(member.getBatchSize(), 512);
+
+      AppendRequest second = appender.buildAppendRequest(member, serverContext.getLog().lastIndex());
+      threadAssertTrue(second.entries().size() > first.entries().size());
+      threadAssertEquals(member.getBatchSize(), 1024);
+      threadAssertEquals(member.getBatchCount(), 2L);
+    });
+  }
+
+  /**
+   * Tests that the leader sends a single append request while the connection to a follower is being opened
+   * and pipelines the remaining batches in order once the first response has been received.
+   */
+  @SuppressWarnings("unchecked")
+  public void testLeaderSendsSingleAppendWhileConnecting() throws Throwable {
+    List<AppendRequest> requests = new CopyOnWriteArrayList<>();
+    CompletableFuture<Void> replicated = new CompletableFuture<>();
+
+    runOnServer(() -> {
+      serverContext.setTerm(1).setLeader(0);
+      serverContext.setMinBatchSize(256).setMaxBatchSize(256);
+      append(100, 1);
+
+      long lastIndex = serverContext.getLog().lastIndex();
+      MemberState member = serverContext.getClusterState().getRemoteMemberStates().get(0);
+      transport.server().listen(member.getMember().serverAddress(), c -> {
+        c.handler(AppendRequest.class, (Function) r -> {
+          AppendRequest request = (AppendRequest) r;
+          requests.add(request);
+          long index = request.entries().isEmpty() ? request.logIndex() : request.entries().get(request.entries().size() - 1).getIndex();
+          if (index == lastIndex) {
+            replicated.complete(null);
+          }
+          return CompletableFuture.completedFuture(AppendResponse.builder()
+            .withStatus(Response.Status.OK)
+            .withTerm(1)
+            .withSucceeded(true)
+            .withLogIndex(index)
+            .build());
+        });
+      });
+    });
+
+    runOnServer(() -> {
+      MemberState member = serverContext.getClusterState().getRemoteMemberStates().get(0);
+      member.setConfigTerm(1).setConfigIndex(serverContext.getClusterState().getConfiguration().index());
+      member.setNextIndex(1);
+      member.appendSucceeded();
+
+      // Queue several batches while the connection to the follower is still being opened.
+      LeaderAppender appender = new LeaderAppender(state);
+      appender.appendEntries(member);
+      appender.appendEntries(member);
+      appender.appendEntries(member);
+      threadAssertEquals(member.getAppending(), 1);
+    });
+
+    replicated.get(5, TimeUnit.SECONDS);
+
+    threadAssertTrue(requests.size() > 1);
+    threadAssertEquals(requests.get(0).logIndex(), 0L);
+    for (int i = 1; i < requests.size(); i++) {
+      AppendRequest previous = requests.get(i - 1);
+      threadAssertEquals(requests.get(i).logIndex(), previous.entries().get(previous.entries().size() - 1).getIndex());
+    }
+  }
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.state;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Member state test.
+ */
+@Test
+public class MemberStateTest extends AbstractStateTest<AbstractState> {
+  private MemberState member;
+
+  @BeforeMethod
+  @Override
+  void beforeMethod() throws Throwable {
+    super.beforeMethod();
+    serverContext.setMinBatchSize(1024).setMaxBatchSize(4096);
+    member = serverContext.getClusterState().getRemoteMemberStates().get(0);
+  }
+
+  /**
+   * Tests that the batch size grows up to the maximum while batches are cut off by the batch size.
+   */
+  public void testBatchSizeGrowsWhenTruncated() throws Throwable {
+    runOnServer(() -> {
+      threadAssertEquals(member.getBatchSize(), 1024);
+      member.recordBatch(1024, 100, true);
+      threadAssertEquals(member.getBatchSize(), 2048);
+      member.recordBatch(2048, 100, true);
+      threadAssertEquals(member.getBatchSize(), 4096);
+      member.recordBatch(4096, 100, true);
+      threadAssertEquals(member.getBatchSize(), 4096);
+    });
+  }
+
+  /**
+   * Tests that the batch size does not grow when a batch includes all entries up to the requested index.
+   */
+  public void testBatchSizeUnchangedWhenNotTruncated() throws Throwable {
+    runOnServer(() -> {
+      member.recordBatch(100, 100, false);
+      threadAssertEquals(member.getBatchSize(), 1024);
+    });
+  }
+
+  /**
+   * Tests that the batch size shrinks toward the minimum once the member has caught up.
+   */
+  public void testBatchSizeShrinksWhenCaughtUp() throws Throwable {
+    runOnServer(() -> {
+      member.recordBatch(1024, 100, true);
+      member.recordBatch(2048, 100, true);
+      threadAssertEquals(member.getBatchSize(), 4096);
+      member.recordBatch(100, 0, false);
+      threadAssertEquals(member.getBatchSize(), 2048);
+      member.recordBatch(100, 0, false);
+      member.recordBatch(100, 0, false);
+      threadAssertEquals(member.getBatchSize(), 1024);
+    });
+  }
+
+  /**
+   * Tests that truncated batches are halved when round trips exceed the heartbeat interval.
+   */
+  public void testBatchSizeShrinksOnSlowRoundTrips() throws Throwable {
+    runOnServer(() -> {
+      member.recordBatch(1024, 100, true);
+      member.recordBatch(2048, 100, true);
+      threadAssertEquals(member.getBatchSize(), 4096);
+
+      long time = serverContext.getHeartbeatInterval().toNanos() * 2;
+      for (int i = 0; i < 8; i++) {
+        member.startAppend(4096, false).completeAppend(4096, time);
+      }
+      member.recordBatch(4096, 100, true);
+      threadAssertEquals(member.getBatchSize(), 2048);
+    });
+  }
+
+  /**
+   * Tests batch metrics.
+   */
+  public void testBatchMetrics() throws Throwable {
+    runOnServer(() -> {
+      member.recordBatch(1000, 100, true);
+      member.recordBatch(0, 100, false);
+      member.recordBatch(2000, 0, false);
+
+      BatchMetrics metrics = serverContext.getBatchMetrics().get(member.getMember());
+      threadAssertEquals(metrics.batchSize(), 1024);
+      threadAssertEquals(metrics.lastBatchSize(), 2000L);
+      threadAssertEquals(metrics.averageBatchSize(), 1500L);
+      threadAssertEquals(metrics.batchCount(), 2L);
+    });
+  }
+
+}
@@ -15,6 +15,8 @@
  */
 package io.atomix.copycat.server.state;
 
+import io.atomix.catalyst.transport.Connection;
+import io.atomix.copycat.error.CopycatError;
 import io.atomix.copycat.protocol.CommandRequest;
 import io.atomix.copycat.protocol.QueryRequest;
 import io.atomix.copycat.protocol.CommandResponse;
@@ -22,12 +24,25 @@ import io.atomix.copycat.protocol.QueryResponse;
 import io.atomix.copycat.protocol.Response.Status;
 import io.atomix.copycat.server.TestStateMachine.TestCommand;
 import io.atomix.copycat.server.TestStateMachine.TestQuery;
+import io.atomix.copycat.server.cluster.Member;
 import io.atomix.copycat.server.protocol.*;
 import io.atomix.copycat.server.storage.TestEntry;
+import io.atomix.copycat.server.storage.entry.InitializeEntry;
+import io.atomix.copycat.server.storage.entry.RegisterEntry;
+import io.atomix.copycat.server.storage.snapshot.Snapshot;
+import io.atomix.copycat.server.storage.snapshot.SnapshotReader;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import static org.testng.Assert.*;
 
@@ -205,6 +220,69 @@ public class PassiveStateTest extends AbstractStateTest<PassiveState> {
     });
   }
 
+  public void testInstallSnapshotChunks() throws Throwable {
+    runOnServer(() -> {
+      serverContext.setTerm(1);
+      threadAssertEquals(state.install(installRequest(0, new byte[]{1, 2}, false)).get().status(), Status.OK);
+      threadAssertEquals(state.install(installRequest(1, new byte[]{3, 4}, false)).get().status(), Status.OK);
+
+      // Chunks must be received in order.
+      threadAssertEquals(state.install(installRequest(3, new byte[]{7, 8}, false)).get().status(), Status.ERROR);
+      threadAssertEquals(state.install(installRequest(1, new byte[]{3, 4}, false)).get().status(), Status.ERROR);
+
+      // The first chunk restarts the snapshot.
+      threadAssertEquals(state.install(installRequest(0, new byte[]{5, 6}, false)).get().status(), Status.OK);
+      threadAssertEquals(state.install(installRequest(1, new byte[]{7, 8}, true)).get().status(), Status.OK);
+
+      Snapshot snapshot = serverContext.getSnapshotStore().currentSnapshot();
+      threadAssertEquals(snapshot.index(), 10L);
+      try (SnapshotReader reader = snapshot.reader()) {
+        threadAssertEquals(reader.remaining(), 4L);
+        for (int i = 5; i <= 8; i++) {
+          threadAssertEquals(reader.readByte(), i);
+        }
+      }
+    });
+  }
+
+  public void testInstallDeltaSnapshot() throws Throwable {
+    runOnServer(() -> {
+      serverContext.setTerm(1);
+
+      // A delta is rejected until the snapshot on which it's based has been installed.
+      threadAssertEquals(state.install(installRequest(20, 10, 0, new byte[]{1}, true)).get().status(), Status.ERROR);
+      threadAssertEquals(state.install(installRequest(0, new byte[]{1}, true)).get().status(), Status.OK);
+      threadAssertEquals(state.install(installRequest(20, 10, 0, new byte[]{2}, true)).get().status(), Status.OK);
+
+      Snapshot snapshot = serverContext.getSnapshotStore().currentSnapshot();
+      threadAssertEquals(snapshot.index(), 20L);
+      threadAssertEquals(snapshot.base(), 10L);
+      threadAssertEquals(serverContext.getSnapshotStore().chain(snapshot).size(), 2);
+    });
+  }
+
+  /**
+   * Returns an install request for a chunk of the snapshot at index 10.
+   */
+  private InstallRequest installRequest(int offset, byte[] data, boolean complete) {
+    return installRequest(10, 0, offset, data, complete);
+  }
+
+  /**
+   * Returns an install request for a chunk of the snapshot at the given index.
+   */
+  private InstallRequest installRequest(long index, long base, int offset, byte[] data, boolean complete) {
+    return InstallRequest.builder()
+      .withTerm(1)
+      .withLeader(members.get(1).hashCode())
+      .withIndex(index)
+      .withBase(base)
+      .withOffset(offset)
+      .withData(data)
+      .withComplete(complete)
+      .build();
+  }
+
   public void testCommandWithoutLeader() throws Throwable {
     runOnServer(() -> {
       CommandRequest request = CommandRequest.builder().withSession(1).withCommand(new TestCommand("test")).build();
@@ -237,6 +315,207 @@ public class PassiveStateTest extends AbstractStateTest<PassiveState> {
     });
   }
 
+  /**
+   * Tests that the staleness of a lagging state machine is bounded by the last commit index it has applied.
+   */
+  public void testStalenessBounds() throws Throwable {
+    runOnServer(() -> {
+      assertFalse(state.isWithinStalenessBounds(staleQueryRequest(60000, 5)));
+
+      // The leader reports that nothing has been committed, so the state machine is current as of this request.
+      serverContext.setTerm(1);
+      long before = System.nanoTime();
+      assertTrue(state.append(heartbeatRequest(0)).get().succeeded());
+      long after = System.nanoTime();
+
+      // The leader commits entries that the state machine has not applied, so its state remains as stale as the
+      // first request regardless of how recently the leader was contacted.
+      assertTrue(state.append(heartbeatRequest(5)).get().succeeded());
+      assertEquals(serverContext.getStateMachine().getLastApplied(), 0);
+
+      long maxStaleness = TimeUnit.MILLISECONDS.toNanos(100);
+      assertTrue(state.isWithinStalenessBounds(staleQueryRequest(100, 5), before + maxStaleness));
+      assertFalse(state.isWithinStalenessBounds(staleQueryRequest(100, 5), after + maxStaleness + 1));
+      assertFalse(state.isWithinStalenessBounds(staleQueryRequest(100, 4), before + maxStaleness));
+    });
+  }
+
+  @SuppressWarnings("unchecked")
+  private AppendRequest heartbeatRequest(long commitIndex) {
+    return AppendRequest.builder()
+      .withTerm(1)
+      .withLeader(members.get(1).hashCode())
+      .withEntries(Collections.EMPTY_LIST)
+      .withLogIndex(0)
+      .withLogTerm(0)
+      .withCommitIndex(commitIndex)
+      .withGlobalIndex(0)
+      .build();
+  }
+
+  private QueryRequest staleQueryRequest(long maxStaleness, long maxStaleEntries) {
+    return QueryRequest.builder()
+      .withSession(1)
+      .withMaxStaleness(maxStaleness)
+      .withMaxStaleEntries(maxStaleEntries)
+      .withQuery(new TestQuery())
+      .build();
+  }
+
+  /**
+   * Tests that read index requests are batched while a request to the leader is outstanding.
+   */
+  @SuppressWarnings("unchecked")
+  public void testReadIndexBatching() throws Throwable {
+    BlockingQueue<CompletableFuture<ReadIndexResponse>> requests = new LinkedBlockingQueue<>();
+    listen(members.get(1), connection -> connection.handler(ReadIndexRequest.class, (Function) request -> {
+      CompletableFuture<ReadIndexResponse> future = new CompletableFuture<>();
+      requests.add(future);
+      return future;
+    }));
+
+    openWithLeader(members.get(1));
+
+    AtomicReference<CompletableFuture<Long>> first = new AtomicReference<>();
+    AtomicReference<CompletableFuture<Long>> second = new AtomicReference<>();
+    runOnServer(() -> {
+      // Read indexes requested while the first request is outstanding share the next request.
+      first.set(state.readIndex(false));
+      second.set(state.readIndex(false));
+      assertNotSame(first.get(), second.get());
+      assertSame(state.readIndex(false), second.get());
+    });
+
+    CompletableFuture<ReadIndexResponse> firstRequest = requests.poll(5, TimeUnit.SECONDS);
+    assertNotNull(firstRequest);
+    assertTrue(requests.isEmpty());
+    firstRequest.complete(readIndexResponse(5));
+    assertEquals(first.get().get(5, TimeUnit.SECONDS).longValue(), 5);
+
+    // The batched read indexes are requested once the first response is received.
+    CompletableFuture<ReadIndexResponse> secondRequest = requests.poll(5, TimeUnit.SECONDS);
+    assertNotNull(secondRequest);
+    assertFalse(second.get().isDone());
+    secondRequest.complete(readIndexResponse(7));
+    assertEquals(second.get().get(5, TimeUnit.SECONDS).longValue(), 7);
+    assertTrue(requests.isEmpty());
+  }
+
+  /**
+   * Tests that a linearizable query is applied once the state machine has applied the leader's read index.
+   */
+  @SuppressWarnings("unchecked")
+  public void testReadIndexQueryWaitsForApply() throws Throwable {
+    BlockingQueue<CompletableFuture<ReadIndexResponse>> requests = new LinkedBlockingQueue<>();
+    listen(members.get(1), connection -> connection.handler(ReadIndexRequest.class, (Function) request -> {
+      CompletableFuture<ReadIndexResponse> future = new CompletableFuture<>();
+      requests.add(future);
+      return future;
+    }));
+    openWithLeader(members.get(1));
+    registerSession();
+
+    AtomicReference<CompletableFuture<QueryResponse>> query = new AtomicReference<>();
+    runOnServer(() -> {
+      for (int i = 0; i < 2; i++) {
+        try (InitializeEntry entry = serverContext.getLog().create(InitializeEntry.class)) {
+          entry.setTerm(1).setTimestamp(System.currentTimeMillis());
+          serverContext.getLog().append(entry);
+        }
+      }
+
+      query.set(state.query(QueryRequest.builder().withSession(1).withQuery(new TestQuery()).build()));
+
+      // Batch another read index behind the query's. It's only requested once the query's read index is handled.
+      state.readIndex(false);
+    });
+
+    requests.poll(5, TimeUnit.SECONDS).complete(readIndexResponse(3));
+    assertNotNull(requests.poll(5, TimeUnit.SECONDS));
+    assertFalse(query.get().isDone());
+
+    runOnServer(() -> serverContext.getStateMachine().applyAll(3));
+
+    QueryResponse response = query.get().get(5, TimeUnit.SECONDS);
+    assertEquals(response.status(), Status.OK);
+    assertEquals(response.index(), 3);
+    assertEquals(response.result(), "query");
+  }
+
+  /**
+   * Tests that a linearizable query is forwarded to the leader if a read index can't be obtained.
+   */
+  @SuppressWarnings("unchecked")
+  public void testReadIndexFailureForwardsQuery() throws Throwable {
+    listen(members.get(1), connection -> {
+      connection.handler(ReadIndexRequest.class, (Function) request -> CompletableFuture.completedFuture(ReadIndexResponse.builder()
+        .withStatus(Status.ERROR)
+        .withError(CopycatError.Type.ILLEGAL_MEMBER_STATE_ERROR)
+        .build()));
+      connection.handler(QueryRequest.class, (Function) request -> CompletableFuture.completedFuture(QueryResponse.builder()
+        .withStatus(Status.OK)
+        .withIndex(10)
+        .withEventIndex(0)
+        .withResult("forwarded")
+        .build()));
+    });
+    openWithLeader(members.get(1));
+    registerSession();
+
+    AtomicReference<CompletableFuture<QueryResponse>> query = new AtomicReference<>();
+    runOnServer(() -> {
+      query.set(state.query(QueryRequest.builder().withSession(1).withQuery(new TestQuery()).build()));
+    });
+
+    QueryResponse response = query.get().get(5, TimeUnit.SECONDS);
+    assertEquals(response.status(), Status.OK);
+    assertEquals(response.index(), 10);
+    assertEquals(response.result(), "forwarded");
+  }
+
+  /**
+   * Listens for connections from the server at the given member's address.
+   */
+  private void listen(Member member, Consumer<Connection> listener) throws Throwable {
+    runOnServer(() -> transport.server().listen(member.serverAddress(), listener));
+  }
+
+  /**
+   * Opens the state with the given member as the leader.
+   */
+  private void openWithLeader(Member leader) throws Throwable {
+    runOnServer(() -> {
+      serverContext.setTerm(1).setLeader(leader.hashCode());
+      state.open().get();
+    });
+  }
+
+  /**
+   * Registers a session at index 1 and applies it to the state machine.
+   */
+  private void registerSession() throws Throwable {
+    AtomicReference<CompletableFuture<Long>> future = new AtomicReference<>();
+    runOnServer(() -> {
+      long index;
+      try (RegisterEntry entry = serverContext.getLog().create(RegisterEntry.class)) {
+        entry.setTerm(1)
+          .setTimestamp(System.currentTimeMillis())
+          .setTimeout(5000)
+          .setClient(UUID.randomUUID().toString());
+        index = serverContext.getLog().append(entry);
+      }
+      future.set(serverContext.getStateMachine().apply(index));
+    });
+    assertEquals(future.get().get(5, TimeUnit.SECONDS).longValue(), 1);
+  }
+
+  private ReadIndexResponse readIndexResponse(long index) {
+    return ReadIndexResponse.builder()
+      .withStatus(Status.OK)
+      .withIndex(index)
+      .build();
+  }
+
   public void testPoll() throws Throwable {
     runOnServer(() -> {
       PollRequest request = PollRequest.builder().withCandidate(1).withLogIndex(1).withLogTerm(1).withTerm(1).build();
@@ -27,12 +27,16 @@ import io.atomix.copycat.Query;
 import io.atomix.copycat.protocol.ClientRequestTypeResolver;
 import io.atomix.copycat.protocol.ClientResponseTypeResolver;
 import io.atomix.copycat.server.Commit;
+import io.atomix.copycat.server.Snapshottable;
 import io.atomix.copycat.server.StateMachine;
 import io.atomix.copycat.server.StateMachineExecutor;
 import io.atomix.copycat.server.cluster.Member;
 import io.atomix.copycat.server.storage.Storage;
 import io.atomix.copycat.server.storage.StorageLevel;
 import io.atomix.copycat.server.storage.entry.*;
+import io.atomix.copycat.server.storage.snapshot.Snapshot;
+import io.atomix.copycat.server.storage.snapshot.SnapshotReader;
+import io.atomix.copycat.server.storage.snapshot.SnapshotWriter;
 import io.atomix.copycat.server.storage.util.StorageSerialization;
 import io.atomix.copycat.server.util.ServerSerialization;
 import io.atomix.copycat.session.Session;
@@ -44,7 +48,11 @@ import org.testng.annotations.Test;
 
 import java.time.Instant;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 import static org.testng.Assert.*;
 
@@ -58,13 +66,16 @@ public class ServerStateMachineTest extends ConcurrentTestCase {
   private ThreadContext callerContext;
   private ThreadContext stateContext;
   private Transport transport;
+  private Serializer serializer;
+  private LocalServerRegistry registry;
   private ServerContext state;
   private long timestamp;
   private AtomicLong sequence;
+  private volatile String snapshotThread;
 
   @BeforeMethod
   public void createStateMachine() throws Throwable {
-    Serializer serializer = new Serializer().resolve(
+    serializer = new Serializer().resolve(
       new ClientRequestTypeResolver(),
       new ClientResponseTypeResolver(),
       new ProtocolSerialization(),
@@ -74,18 +85,27 @@ public class ServerStateMachineTest extends ConcurrentTestCase {
 
     callerContext = new SingleThreadContext("caller", serializer.clone());
     stateContext = new SingleThreadContext("state", serializer.clone());
-    LocalServerRegistry registry = new LocalServerRegistry();
+    registry = new LocalServerRegistry();
     transport = new LocalTransport(registry);
+    state = createServerContext(callerContext, TestStateMachine::new);
+    timestamp = System.currentTimeMillis();
+    sequence = new AtomicLong();
+  }
+
+  /**
+   * Creates a server context for the given state machine.
+   */
+  private ServerContext createServerContext(ThreadContext context, Supplier<StateMachine> stateMachineFactory) throws Throwable {
     Storage storage = new Storage(StorageLevel.MEMORY);
     ServerMember member = new ServerMember(Member.Type.ACTIVE, new Address("localhost", 5000), new Address("localhost", 6000), Instant.now());
 
+    AtomicReference<ServerContext> server = new AtomicReference<>();
     new SingleThreadContext("test", serializer.clone()).executor().execute(() -> {
-      state = new ServerContext("test", member.type(), member.serverAddress(), member.clientAddress(), storage, serializer, TestStateMachine::new, new ConnectionManager(new LocalTransport(registry).client()), callerContext);
+      server.set(new ServerContext("test", member.type(), member.serverAddress(), member.clientAddress(), storage, serializer, stateMachineFactory, new ConnectionManager(new LocalTransport(registry).client()), context));
       resume();
     });
     await(1000);
-    timestamp = System.currentTimeMillis();
-    sequence = new AtomicLong();
+    return server.get();
   }
 
   /**
@@ -460,6 +480,82 @@ public class ServerStateMachineTest extends ConcurrentTestCase {
     assertEquals(session.getTimestamp(), timestamp + 100);
   }
 
+  /**
+   * Tests writing a captured snapshot view in the background.
+   */
+  public void testCaptureSnapshot() throws Throwable {
+    ThreadContext captureContext = new SingleThreadContext("capture", serializer.clone());
+    ServerContext server = createServerContext(captureContext, CaptureStateMachine::new);
+    try {
+      captureContext.execute(() -> {
+
+        long index;
+        try (RegisterEntry entry = server.getLog().create(RegisterEntry.class)) {
+          entry.setTerm(1)
+            .setTimestamp(timestamp)
+            .setTimeout(500)
+            .setClient(UUID.randomUUID().toString());
+          index = server.getLog().append(entry);
+        }
+
+        server.getStateMachine().apply(index).whenComplete((result, error) -> {
+          threadAssertNull(error);
+          resume();
+        });
+      });
+
+      await();
+
+      // Wait for the snapshot taken at the register entry to be written in the background.
+      server.getStateMachine().getPendingSnapshot().get(5, TimeUnit.SECONDS);
+      assertTrue(snapshotThread.startsWith("copycat-snapshot"));
+      assertNull(server.getSnapshotStore().currentSnapshot());
+
+      // Hold the state machine thread until the keep-alive has been applied in the server thread. This ensures the
+      // session's last applied index has advanced past the snapshot index when the last completed index is calculated.
+      CountDownLatch latch = new CountDownLatch(1);
+      server.getStateMachine().executor().executor().execute(() -> {
+        try {
+          latch.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+
+      captureContext.execute(() -> {
+
+        long index;
+        try (KeepAliveEntry entry = server.getLog().create(KeepAliveEntry.class)) {
+          entry.setTerm(1)
+            .setSession(1)
+            .setTimestamp(timestamp + 1000)
+            .setCommandSequence(0)
+            .setEventIndex(0);
+          index = server.getLog().append(entry);
+        }
+
+        server.getStateMachine().apply(index).whenComplete((result, error) -> {
+          threadAssertNull(error);
+          resume();
+        });
+        latch.countDown();
+      });
+
+      // The keep-alive completes the written snapshot once its last completed index is applied.
+      await();
+
+      Snapshot snapshot = server.getSnapshotStore().currentSnapshot();
+      assertNotNull(snapshot);
+      assertEquals(snapshot.index(), 1);
+      try (SnapshotReader reader = snapshot.reader()) {
+        assertEquals(reader.readLong(), 0);
+      }
+  
+    } finally {
+      server.close();
+    }
+  }
+
   @AfterMethod
   public void closeStateMachine() {
     state.close();
@@ -498,6 +594,30 @@ public class ServerStateMachineTest extends ConcurrentTestCase {
     }
   }
 
+  /**
+   * Test state machine that captures a view of its state for snapshots.
+   */
+  private class CaptureStateMachine extends TestStateMachine implements Snapshottable {
+    @Override
+    public void snapshot(SnapshotWriter writer) {
+      writer.writeLong(sequence.get());
+    }
+
+    @Override
+    public void install(SnapshotReader reader) {
+      sequence.set(reader.readLong());
+    }
+
+    @Override
+    public View capture() {
+      long value = sequence.get();
+      return writer -> {
+        snapshotThread = Thread.currentThread().getName();
+        writer.writeLong(value);
+      };
+    }
+  }
+
   /**
    * Test command.
    */
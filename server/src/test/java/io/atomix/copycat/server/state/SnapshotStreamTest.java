@@ -0,0 +1,110 @@
+/*
+ * Copyright 2017-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.state;
+
+import io.atomix.catalyst.serializer.Serializer;
+import io.atomix.copycat.server.storage.Storage;
+import io.atomix.copycat.server.storage.StorageLevel;
+import io.atomix.copycat.server.storage.snapshot.Snapshot;
+import io.atomix.copycat.server.storage.snapshot.SnapshotStore;
+import io.atomix.copycat.server.storage.snapshot.SnapshotWriter;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.testng.Assert.*;
+
+/**
+ * Snapshot stream test.
+ *
+ * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
+ */
+@Test
+public class SnapshotStreamTest {
+
+  /**
+   * Creates a completed snapshot containing the given number of bytes.
+   */
+  private Snapshot createSnapshot(int size) {
+    SnapshotStore store = new SnapshotStore("test", Storage.builder().withStorageLevel(StorageLevel.MEMORY).build(), new Serializer());
+    Snapshot snapshot = store.createSnapshot(1);
+    try (SnapshotWriter writer = snapshot.writer()) {
+      for (int i = 0; i < size; i++) {
+        writer.writeByte(i);
+      }
+    }
+    return snapshot.complete();
+  }
+
+  /**
+   * Tests streaming a snapshot in sequential chunks.
+   */
+  public void testStreamChunks() {
+    try (SnapshotStream stream = new SnapshotStream(createSnapshot(1000), 256)) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      int chunks = 0;
+      while (stream.hasNext()) {
+        assertEquals(stream.nextOffset(), chunks++);
+        byte[] chunk = stream.next();
+        assertEquals(chunk.length, Math.min(256, 1000 - bytes.size()));
+        bytes.write(chunk, 0, chunk.length);
+      }
+      assertEquals(chunks, 4);
+      assertTrue(stream.isComplete());
+
+      byte[] data = bytes.toByteArray();
+      assertEquals(data.length, 1000);
+      for (int i = 0; i < data.length; i++) {
+        assertEquals(data[i], (byte) i);
+      }
+    }
+  }
+
+  /**
+   * Tests that an empty snapshot is streamed in a single empty chunk.
+   */
+  public void testStreamEmptySnapshot() {
+    try (SnapshotStream stream = new SnapshotStream(createSnapshot(0), 256)) {
+      assertTrue(stream.hasNext());
+      assertFalse(stream.isComplete());
+      assertEquals(stream.next().length, 0);
+      assertFalse(stream.hasNext());
+      assertTrue(stream.isComplete());
+    }
+  }
+
+  /**
+   * Tests that chunk sizes adapt to round trip times.
+   */
+  public void testAdaptiveChunkSize() {
+    try (SnapshotStream stream = new SnapshotStream(createSnapshot(1000), 256)) {
+      stream.acknowledge(1, 10);
+      assertEquals(stream.chunkSize(), 512);
+      for (int i = 0; i < 10; i++) {
+        stream.acknowledge(1, 10);
+      }
+      assertEquals(stream.chunkSize(), 256 * 8);
+      stream.acknowledge(100, 10);
+      assertEquals(stream.chunkSize(), 256 * 4);
+      for (int i = 0; i < 10; i++) {
+        stream.acknowledge(100, 10);
+      }
+      assertEquals(stream.chunkSize(), 256);
+      assertEquals(stream.acknowledged(), 22);
+    }
+  }
+
+}
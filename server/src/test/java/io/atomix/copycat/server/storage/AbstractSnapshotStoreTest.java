@@ -21,6 +21,8 @@ import io.atomix.copycat.server.storage.snapshot.SnapshotStore;
 import io.atomix.copycat.server.storage.snapshot.SnapshotWriter;
 import org.testng.annotations.Test;
 
+import java.util.List;
+
 import static org.testng.Assert.*;
 
 /**
@@ -34,7 +36,14 @@ public abstract class AbstractSnapshotStoreTest {
   /**
    * Returns a new snapshot store.
    */
-  protected abstract SnapshotStore createSnapshotStore();
+  protected SnapshotStore createSnapshotStore() {
+    return createSnapshotStore(Storage.builder());
+  }
+
+  /**
+   * Returns a new snapshot store configured by the given storage builder.
+   */
+  protected abstract SnapshotStore createSnapshotStore(Storage.Builder builder);
 
   /**
    * Tests writing a snapshot.
@@ -74,4 +83,95 @@ public abstract class AbstractSnapshotStoreTest {
     }
   }
 
+  /**
+   * Tests retaining the chain of a delta snapshot until a full snapshot replaces it.
+   */
+  public void testDeltaSnapshotChain() {
+    SnapshotStore store = createSnapshotStore();
+    writeSnapshot(store.createSnapshot(1), 1);
+    writeSnapshot(store.createSnapshot(2, 1), 2);
+    writeSnapshot(store.createSnapshot(3, 2), 3);
+
+    Snapshot current = store.currentSnapshot();
+    assertEquals(current.index(), 3);
+    assertTrue(current.isDelta());
+    assertEquals(current.base(), 2);
+    assertEquals(store.snapshots().size(), 3);
+
+    List<Snapshot> chain = store.chain(current);
+    assertEquals(chain.size(), 3);
+    assertFalse(chain.get(0).isDelta());
+    for (int i = 0; i < chain.size(); i++) {
+      assertEquals(chain.get(i).index(), i + 1);
+      try (SnapshotReader reader = chain.get(i).reader()) {
+        assertEquals(reader.readLong(), i + 1);
+      }
+    }
+
+    writeSnapshot(store.createSnapshot(4), 4);
+    assertEquals(store.currentSnapshot().index(), 4);
+    assertEquals(store.chain(store.currentSnapshot()).size(), 1);
+    assertEquals(store.snapshots().size(), 1);
+  }
+
+  /**
+   * Tests writing, reading and copying a compressed snapshot.
+   */
+  public void testCompressedSnapshot() {
+    SnapshotStore store = createSnapshotStore(Storage.builder()
+      .withSnapshotCompression(CompressionType.LZ4)
+      .withCompressionBlockSize(10));
+
+    Snapshot snapshot = store.createSnapshot(1);
+    assertEquals(snapshot.compression(), CompressionType.LZ4);
+    try (SnapshotWriter writer = snapshot.writer()) {
+      for (int i = 0; i < 100; i++) {
+        writer.writeInt(0).writeInt(i % 4);
+      }
+      writer.writeString("Hello world!");
+    }
+    snapshot.complete();
+    assertEquals(store.currentSnapshot().compression(), CompressionType.LZ4);
+
+    // Blocks hold three integers, so each long is read across the boundary of two blocks.
+    try (SnapshotReader reader = store.currentSnapshot().reader()) {
+      assertEquals(reader.remaining(), 100 * 8 + "Hello world!".length() + 3);
+      for (int i = 0; i < 100; i++) {
+        assertEquals(reader.readLong(), i % 4);
+      }
+      assertEquals(reader.readString(), "Hello world!");
+      assertFalse(reader.hasRemaining());
+    }
+
+    // Copy the stored bytes to a snapshot with the same compression type.
+    byte[] bytes;
+    try (SnapshotReader reader = store.currentSnapshot().rawReader()) {
+      bytes = new byte[(int) reader.remaining()];
+      reader.read(bytes);
+    }
+
+    Snapshot copy = store.createSnapshot(2, 0, CompressionType.LZ4);
+    try (SnapshotWriter writer = copy.rawWriter()) {
+      writer.write(bytes);
+    }
+    copy.complete();
+
+    try (SnapshotReader reader = store.currentSnapshot().reader()) {
+      for (int i = 0; i < 100; i++) {
+        assertEquals(reader.readLong(), i % 4);
+      }
+      assertEquals(reader.readString(), "Hello world!");
+    }
+  }
+
+  /**
+   * Writes the given value to the given snapshot and completes it.
+   */
+  protected void writeSnapshot(Snapshot snapshot, long value) {
+    try (SnapshotWriter writer = snapshot.writer()) {
+      writer.writeLong(value);
+    }
+    snapshot.complete();
+  }
+
 }
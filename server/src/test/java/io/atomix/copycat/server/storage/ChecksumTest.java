@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.storage;
+
+import io.atomix.copycat.server.storage.util.Crc32c;
+import io.atomix.copycat.server.storage.util.XxHash64;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.Checksum;
+
+import static org.testng.Assert.*;
+
+/**
+ * Checksum test.
+ *
+ * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
+ */
+@Test
+public class ChecksumTest {
+
+  /**
+   * Computes the checksum of the given bytes.
+   */
+  private static long checksum(Checksum checksum, byte[] bytes) {
+    checksum.reset();
+    checksum.update(bytes, 0, bytes.length);
+    return checksum.getValue();
+  }
+
+  /**
+   * Tests the CRC-32C checksum against known values.
+   */
+  public void testCrc32c() {
+    Checksum checksum = new Crc32c();
+    assertEquals(checksum(checksum, new byte[0]), 0);
+    assertEquals(checksum(checksum, "123456789".getBytes(StandardCharsets.US_ASCII)), 0xE3069283L);
+    assertEquals(checksum(checksum, new byte[32]), 0x8A9136AAL);
+  }
+
+  /**
+   * Tests the xxHash checksum against known values.
+   */
+  public void testXxHash64() {
+    Checksum checksum = new XxHash64();
+    assertEquals(checksum(checksum, new byte[0]), 0xEF46DB3751D8E999L);
+  }
+
+  /**
+   * Tests that checksums computed over multiple updates equal checksums computed in a single update.
+   */
+  public void testIncrementalUpdates() {
+    Random random = new Random(0);
+    for (ChecksumType type : ChecksumType.values()) {
+      Checksum checksum = type.newChecksum();
+      for (int length = 0; length < 100; length++) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        long expected = checksum(checksum, bytes);
+
+        checksum.reset();
+        int split = length > 0 ? random.nextInt(length) : 0;
+        checksum.update(bytes, 0, split);
+        for (int i = split; i < Math.min(length, split + 3); i++) {
+          checksum.update(bytes[i]);
+        }
+        if (split + 3 < length) {
+          checksum.update(bytes, split + 3, length - split - 3);
+        }
+        assertEquals(checksum.getValue(), expected, type + " " + length);
+      }
+    }
+  }
+
+  /**
+   * Tests looking up checksum types by identifier.
+   */
+  public void testChecksumTypeIds() {
+    for (ChecksumType type : ChecksumType.values()) {
+      assertEquals(ChecksumType.forId(type.id()), type);
+    }
+    assertEquals(ChecksumType.forId(0), ChecksumType.CRC32);
+  }
+
+}
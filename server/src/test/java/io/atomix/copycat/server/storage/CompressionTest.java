@@ -0,0 +1,151 @@
+/*
+ * Copyright 2017-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.storage;
+
+import io.atomix.copycat.server.storage.util.BlockCache;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.testng.Assert.*;
+
+/**
+ * Compression test.
+ *
+ * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
+ */
+@Test
+public class CompressionTest {
+
+  /**
+   * Compresses and decompresses the given bytes, asserting that the decompressed bytes equal the original bytes.
+   */
+  private static int roundTrip(CompressionType type, byte[] bytes) {
+    byte[] compressed = new byte[type.maxCompressedLength(bytes.length) + 3];
+    int length = type.compress(bytes, 0, bytes.length, compressed, 3);
+    assertTrue(length <= type.maxCompressedLength(bytes.length));
+
+    byte[] decompressed = new byte[bytes.length + 2];
+    type.decompress(compressed, 3, length, decompressed, 2, bytes.length);
+    assertEquals(Arrays.copyOfRange(decompressed, 2, decompressed.length), bytes);
+    return length;
+  }
+
+  /**
+   * Tests compressing random, repetitive, and empty inputs.
+   */
+  public void testRoundTrip() {
+    Random random = new Random(0);
+    for (CompressionType type : CompressionType.values()) {
+      for (int length : new int[]{0, 1, 4, 12, 13, 100, 1000, 65536}) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        roundTrip(type, bytes);
+
+        for (int i = 0; i < length; i++) {
+          bytes[i] = (byte) (i % 7);
+        }
+        roundTrip(type, bytes);
+      }
+    }
+  }
+
+  /**
+   * Tests that repetitive inputs are compressed.
+   */
+  public void testCompressRepetitiveInput() {
+    byte[] bytes = new byte[4096];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) (i % 16);
+    }
+    assertTrue(roundTrip(CompressionType.LZ4, bytes) < bytes.length / 10);
+    assertEquals(roundTrip(CompressionType.NONE, bytes), bytes.length);
+  }
+
+  /**
+   * Tests that malformed compressed blocks are rejected.
+   */
+  public void testDecompressMalformedBlock() {
+    byte[] bytes = new byte[1024];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) (i % 16);
+    }
+    byte[] compressed = new byte[CompressionType.LZ4.maxCompressedLength(bytes.length)];
+    int length = CompressionType.LZ4.compress(bytes, 0, bytes.length, compressed, 0);
+
+    try {
+      CompressionType.LZ4.decompress(compressed, 0, length - 1, new byte[bytes.length], 0, bytes.length);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+
+    try {
+      CompressionType.LZ4.decompress(compressed, 0, length, new byte[bytes.length], 0, bytes.length - 1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  /**
+   * Tests looking up compression types by identifier.
+   */
+  public void testForId() {
+    for (CompressionType type : CompressionType.values()) {
+      assertEquals(CompressionType.forId(type.id()), type);
+    }
+    try {
+      CompressionType.forId(100);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  /**
+   * Tests caching and evicting decompressed blocks.
+   */
+  public void testBlockCache() {
+    Object owner1 = new Object();
+    Object owner2 = new Object();
+    BlockCache cache = new BlockCache(300);
+    cache.put(owner1, 0, new byte[100]);
+    cache.put(owner1, 1, new byte[100]);
+    cache.put(owner2, 0, new byte[100]);
+    assertEquals(cache.count(), 3);
+    assertEquals(cache.size(), 300);
+
+    // Reading the first block makes the second block the least recently used.
+    assertNotNull(cache.get(owner1, 0));
+    cache.put(owner2, 1, new byte[100]);
+    assertNull(cache.get(owner1, 1));
+    assertNotNull(cache.get(owner1, 0));
+    assertEquals(cache.evictions(), 1);
+    assertEquals(cache.hits(), 2);
+    assertEquals(cache.misses(), 1);
+
+    // Blocks larger than the cache are not cached.
+    cache.put(owner1, 2, new byte[301]);
+    assertNull(cache.get(owner1, 2));
+
+    cache.remove(owner2);
+    assertEquals(cache.count(), 1);
+    assertEquals(cache.size(), 100);
+    cache.clear();
+    assertEquals(cache.count(), 0);
+    assertEquals(cache.size(), 0);
+  }
+
+}
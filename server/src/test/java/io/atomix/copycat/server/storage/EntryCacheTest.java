@@ -0,0 +1,143 @@
+/*
+ * Copyright 2017-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.storage;
+
+import io.atomix.copycat.server.storage.entry.Entry;
+import io.atomix.copycat.server.storage.entry.RawEntry;
+import io.atomix.copycat.server.storage.util.EntryCache;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Entry cache test.
+ *
+ * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
+ */
+@Test
+public class EntryCacheTest {
+
+  /**
+   * Creates a raw entry with the given index and a cached size of {@code 100} bytes.
+   */
+  private RawEntry createEntry(long index) {
+    return new RawEntry(0, new byte[0]).setIndex(index).setTerm(1).setSize(96);
+  }
+
+  /**
+   * Creates a typed entry with the given index and a cached size of {@code 100} bytes.
+   */
+  private TestEntry createTypedEntry(long index) {
+    TestEntry entry = new TestEntry().setIndex(index).setTerm(1).setSize(96);
+    entry.acquire();
+    return entry;
+  }
+
+  /**
+   * Tests caching and looking up entries.
+   */
+  public void testPutAndGet() {
+    EntryCache cache = new EntryCache(1000);
+    cache.put(createEntry(1));
+    cache.put(createTypedEntry(1));
+    assertEquals(cache.count(), 2);
+    assertEquals(cache.size(), 200);
+
+    RawEntry raw = cache.getRaw(1);
+    assertNotNull(raw);
+    assertEquals(raw.getIndex(), 1);
+    Entry typed = cache.get(1);
+    assertTrue(typed instanceof TestEntry);
+    assertNull(cache.get(2));
+    assertNull(cache.getRaw(2));
+
+    assertEquals(cache.hits(), 2);
+    assertEquals(cache.misses(), 2);
+    assertEquals(cache.hitRate(), 0.5);
+  }
+
+  /**
+   * Tests that entries with the lowest indexes are evicted once the cache is full.
+   */
+  public void testEvictOldest() {
+    EntryCache cache = new EntryCache(500);
+    for (int i = 1; i <= 10; i++) {
+      cache.put(createEntry(i));
+    }
+    assertEquals(cache.count(), 5);
+    assertEquals(cache.size(), 500);
+    assertEquals(cache.evictions(), 5);
+    for (int i = 1; i <= 5; i++) {
+      assertNull(cache.getRaw(i));
+    }
+    for (int i = 6; i <= 10; i++) {
+      assertNotNull(cache.getRaw(i));
+    }
+  }
+
+  /**
+   * Tests that pinning the cache evicts and excludes entries below the pinned index.
+   */
+  public void testPin() {
+    EntryCache cache = new EntryCache(1000);
+    for (int i = 1; i <= 5; i++) {
+      cache.put(createEntry(i));
+    }
+    cache.pin(4);
+    assertEquals(cache.pinnedIndex(), 4);
+    assertEquals(cache.count(), 2);
+    assertNull(cache.getRaw(3));
+    cache.put(createEntry(2));
+    assertNull(cache.getRaw(2));
+    assertNotNull(cache.getRaw(4));
+
+    cache.pin(0);
+    cache.put(createEntry(2));
+    assertNotNull(cache.getRaw(2));
+  }
+
+  /**
+   * Tests truncating the cache.
+   */
+  public void testTruncate() {
+    EntryCache cache = new EntryCache(1000);
+    for (int i = 1; i <= 5; i++) {
+      cache.put(createEntry(i));
+      cache.put(createTypedEntry(i));
+    }
+    cache.truncate(3);
+    assertEquals(cache.count(), 6);
+    assertEquals(cache.size(), 600);
+    assertNotNull(cache.get(3));
+    assertNull(cache.get(4));
+    assertNull(cache.getRaw(4));
+
+    cache.clear();
+    assertEquals(cache.count(), 0);
+    assertEquals(cache.size(), 0);
+  }
+
+  /**
+   * Tests that entries are not cached when the cache is disabled.
+   */
+  public void testDisabled() {
+    EntryCache cache = new EntryCache(0);
+    cache.put(createEntry(1));
+    assertEquals(cache.count(), 0);
+    assertNull(cache.getRaw(1));
+  }
+
+}
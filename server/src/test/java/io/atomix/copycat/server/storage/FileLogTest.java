@@ -15,10 +15,13 @@
  */
 package io.atomix.copycat.server.storage;
 
+import io.atomix.catalyst.buffer.FileBuffer;
 import io.atomix.copycat.server.storage.entry.Entry;
 import org.testng.annotations.Factory;
 import org.testng.annotations.Test;
 
+import java.io.File;
+
 import static org.testng.Assert.*;
 
 /**
@@ -58,6 +61,101 @@ public class FileLogTest extends LogTest {
     }
   }
 
+  /**
+   * Tests that segment indexes are sealed on close and reopened when the log is recovered.
+   */
+  public void testRecoverFromSealedIndex() {
+    appendEntries(entriesPerSegment * 5);
+    log.close();
+
+    assertTrue(storage.directory().listFiles(f -> SegmentFile.isIndexFile(logId, f)).length > 0);
+
+    try (Log log = createLog()) {
+      for (Segment segment : log.segments.segments()) {
+        assertTrue(segment.isSealed());
+      }
+      assertEquals(log.length(), entriesPerSegment * 5);
+      for (long i = log.firstIndex(); i <= log.lastIndex(); i++) {
+        try (Entry entry = log.get(i)) {
+          assertEquals(entry.getIndex(), i);
+          assertEquals(entry.getTerm(), 1);
+        }
+      }
+
+      // Appending to the last segment unseals its index.
+      try (TestEntry entry = log.create(TestEntry.class)) {
+        entry.setTerm(2);
+        assertEquals(log.append(entry), entriesPerSegment * 5 + 1);
+      }
+      assertFalse(log.segments.lastSegment().isSealed());
+      assertEquals(log.term(entriesPerSegment * 5 + 1), 2);
+    }
+
+    try (Log log = createLog()) {
+      assertEquals(log.length(), entriesPerSegment * 5 + 1);
+      assertEquals(log.term(entriesPerSegment * 5), 1);
+      assertEquals(log.term(entriesPerSegment * 5 + 1), 2);
+    }
+  }
+
+  /**
+   * Tests recovery of a log by scanning segments when index files are missing.
+   */
+  public void testRecoverWithoutIndexFiles() {
+    appendEntries(entriesPerSegment * 5);
+    log.close();
+
+    for (File file : storage.directory().listFiles(f -> SegmentFile.isIndexFile(logId, f))) {
+      assertTrue(file.delete());
+    }
+
+    try (Log log = createLog()) {
+      assertEquals(log.length(), entriesPerSegment * 5);
+      for (long i = log.firstIndex(); i <= log.lastIndex(); i++) {
+        try (Entry entry = log.get(i)) {
+          assertEquals(entry.getIndex(), i);
+          assertEquals(entry.getTerm(), 1);
+        }
+      }
+    }
+  }
+
+  /**
+   * Tests that segments are rolled over into preallocated segment files.
+   */
+  public void testPreallocateSegments() {
+    appendEntries(entriesPerSegment * 5);
+
+    // Segments following the first segment are created in files preallocated to the maximum segment size.
+    for (Segment segment : log.segments.segments()) {
+      if (segment.descriptor().id() > 1) {
+        assertTrue(segment.file().file().length() >= Math.min(storage.maxSegmentSize(), SegmentManager.MAX_PREALLOCATED_SIZE));
+      }
+    }
+
+    long nextId = log.segments.lastSegment().descriptor().id() + 1;
+    log.close();
+    assertFalse(SegmentFile.createSegmentFile(logId, storage.directory(), nextId, 1).exists());
+  }
+
+  /**
+   * Tests that preallocated segment files that were never used are deleted when the log is recovered.
+   */
+  public void testRecoverWithPreallocatedSegment() {
+    appendEntries(entriesPerSegment * 2);
+    long nextId = log.segments.lastSegment().descriptor().id() + 1;
+    log.close();
+
+    // Use a segment ID that will not be preallocated again when the log is reopened.
+    File file = SegmentFile.createSegmentFile(logId, storage.directory(), nextId + 1, 1);
+    FileBuffer.allocate(file, SegmentManager.MAX_PREALLOCATED_SIZE).close();
+
+    try (Log log = createLog()) {
+      assertFalse(file.exists());
+      assertEquals(log.length(), entriesPerSegment * 2);
+    }
+  }
+
   /**
    * Tests recovery of a log after compaction.
    */
@@ -94,6 +192,71 @@ public class FileLogTest extends LogTest {
     }
   }
 
+  /**
+   * Tests that released entries are recovered from segment release files and compacted without being released again.
+   */
+  public void testRecoverReleasedEntries() {
+    appendEntries(entriesPerSegment * 5);
+    for (long i = 1; i <= entriesPerSegment * 5; i++) {
+      if (i % 3 == 0 || i % 3 == 1) {
+        log.release(i);
+      }
+    }
+    long releaseCount = log.segments.segments().stream().mapToLong(Segment::releaseCount).sum();
+    log.close();
+
+    log = createLog();
+    assertEquals(log.segments.segments().stream().mapToLong(Segment::releaseCount).sum(), releaseCount);
+    for (long i = 1; i <= entriesPerSegment * 5; i++) {
+      assertEquals(log.segments.segment(i).isLive(i), i % 3 == 2);
+    }
+
+    log.commit(entriesPerSegment * 5).compactor().minorIndex(entriesPerSegment * 5).compact().join();
+    for (long i = 1; i <= entriesPerSegment * 4; i++) {
+      assertEquals(log.contains(i), i % 3 == 2);
+    }
+
+    // Release files are deleted along with the segments that were replaced by compaction.
+    assertEquals(storage.directory().listFiles(f -> f.getName().startsWith(logId) && f.getName().endsWith(".release")).length, log.segments.segments().size());
+  }
+
+  /**
+   * Tests that segments written with one checksum type are recovered and read after the checksum type is changed.
+   */
+  public void testRecoverWithChangedChecksumType() {
+    appendEntries(entriesPerSegment * 2);
+    log.close();
+
+    storage = tempStorageBuilder()
+      .withMaxSegmentSize(Integer.MAX_VALUE)
+      .withMaxEntriesPerSegment(entriesPerSegment)
+      .withStorageLevel(storageLevel())
+      .withChecksumType(ChecksumType.CRC32C)
+      .build();
+
+    log = createLog();
+    assertEquals(log.segments.firstSegment().descriptor().checksumType(), ChecksumType.CRC32);
+    for (long i = log.firstIndex(); i <= log.lastIndex(); i++) {
+      try (Entry entry = log.get(i)) {
+        assertEquals(entry.getIndex(), i);
+      }
+    }
+
+    // Entries appended to new segments are checksummed with the new checksum type.
+    appendEntries(entriesPerSegment + 1);
+    assertEquals(log.segments.lastSegment().descriptor().checksumType(), ChecksumType.CRC32C);
+    log.close();
+
+    try (Log log = createLog()) {
+      assertEquals(log.length(), entriesPerSegment * 3 + 1);
+      for (long i = log.firstIndex(); i <= log.lastIndex(); i++) {
+        try (Entry entry = log.get(i)) {
+          assertEquals(entry.getIndex(), i);
+        }
+      }
+    }
+  }
+
   /**
    * Tests recovering from an inconsistent disk.
    */
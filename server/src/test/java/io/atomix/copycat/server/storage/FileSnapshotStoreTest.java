@@ -44,8 +44,8 @@ public class FileSnapshotStoreTest extends AbstractSnapshotStoreTest {
   /**
    * Returns a new snapshot store.
    */
-  protected SnapshotStore createSnapshotStore() {
-    Storage storage = Storage.builder()
+  protected SnapshotStore createSnapshotStore(Storage.Builder builder) {
+    Storage storage = builder
       .withStorageLevel(StorageLevel.DISK)
       .withDirectory(new File(String.format("target/test-logs/%s", testId)))
       .build();
@@ -71,6 +71,21 @@ public class FileSnapshotStoreTest extends AbstractSnapshotStoreTest {
     assertEquals(store.currentSnapshot().index(), 1);
   }
 
+  /**
+   * Tests loading a chain of delta snapshots.
+   */
+  public void testStoreLoadDeltaSnapshot() {
+    SnapshotStore store = createSnapshotStore();
+    writeSnapshot(store.createSnapshot(1), 1);
+    writeSnapshot(store.createSnapshot(2, 1), 2);
+    store.close();
+
+    store = createSnapshotStore();
+    assertEquals(store.currentSnapshot().index(), 2);
+    assertEquals(store.currentSnapshot().base(), 1);
+    assertEquals(store.chain(store.currentSnapshot()).size(), 2);
+  }
+
   @BeforeMethod
   @AfterMethod
   protected void cleanupStorage() throws IOException {
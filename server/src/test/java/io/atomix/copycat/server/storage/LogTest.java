@@ -16,10 +16,16 @@
 package io.atomix.copycat.server.storage;
 
 import io.atomix.copycat.server.storage.compaction.Compaction;
+import io.atomix.copycat.server.storage.entry.Entry;
+import io.atomix.copycat.server.storage.entry.RawEntry;
 import org.testng.annotations.Test;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.testng.Assert.*;
 
@@ -79,6 +85,198 @@ public abstract class LogTest extends AbstractLogTest {
     }
   }
 
+  /**
+   * Asserts that raw entries can be read from and appended to the log without reserialization.
+   */
+  public void testGetAndAppendRaw() {
+    List<Long> indexes = appendEntries(entriesPerSegment * 3);
+    List<Entry> entries = new ArrayList<>();
+    for (long index : indexes) {
+      Entry entry = log.getRaw(index);
+      assertTrue(entry instanceof RawEntry);
+      assertEquals(entry.getIndex(), index);
+      assertEquals(entry.getTerm(), 1);
+      entries.add(entry);
+    }
+
+    // Truncate the log and append the raw entries back to it.
+    log.truncate(0);
+    assertTrue(log.isEmpty());
+    for (Entry entry : entries) {
+      assertEquals(log.append(entry), entry.getIndex());
+    }
+
+    // Assert that the raw entries can be read as typed entries.
+    for (long index : indexes) {
+      TestEntry entry = log.get(index);
+      assertEquals(entry.getIndex(), index);
+      assertEquals(entry.getTerm(), 1);
+      assertEquals(entry.getPadding().length, entryPadding);
+    }
+  }
+
+  /**
+   * Tests appending and reading entries with each checksum type, with and without read verification.
+   */
+  public void testChecksumTypes() {
+    for (ChecksumType checksumType : ChecksumType.values()) {
+      for (boolean verify : new boolean[]{true, false}) {
+        log.close();
+        storage.deleteLog(logId);
+        storage = tempStorageBuilder()
+          .withMaxSegmentSize(Integer.MAX_VALUE)
+          .withMaxEntriesPerSegment(entriesPerSegment)
+          .withStorageLevel(storageLevel())
+          .withChecksumType(checksumType)
+          .withVerifyChecksumsOnRead(verify)
+          .withEntryCacheSize(0)
+          .build();
+        log = createLog();
+
+        List<Long> indexes = appendEntries(entriesPerSegment * 2);
+        assertEquals(log.segments.lastSegment().descriptor().checksumType(), checksumType);
+        for (long index : indexes) {
+          try (TestEntry entry = log.get(index)) {
+            assertEquals(entry.getIndex(), index);
+            assertEquals(entry.getPadding().length, entryPadding);
+          }
+          RawEntry raw = (RawEntry) log.getRaw(index);
+          assertEquals(raw.checksumType(), checksumType);
+          raw.release();
+        }
+
+        // Raw entries checksummed with a different checksum type are checksummed again when they're appended.
+        RawEntry raw;
+        try (TestEntry entry = log.get(log.lastIndex())) {
+          raw = RawEntry.of(entry, log.serializer()).setIndex(log.lastIndex() + 1);
+        }
+        assertEquals(raw.checksumType(), ChecksumType.CRC32);
+        assertEquals(log.append(raw), indexes.size() + 1);
+        try (TestEntry entry = log.get(indexes.size() + 1)) {
+          assertEquals(entry.getPadding().length, entryPadding);
+        }
+      }
+    }
+  }
+
+  /**
+   * Asserts that a log reader reads entries sequentially across segments.
+   */
+  public void testReader() {
+    List<Long> indexes = appendEntries(entriesPerSegment * 3);
+    try (LogReader reader = log.createReader(1)) {
+      for (long index : indexes) {
+        assertTrue(reader.hasNext());
+        assertEquals(reader.nextIndex(), index);
+        try (TestEntry entry = reader.next()) {
+          assertEquals(entry.getIndex(), index);
+          assertEquals(entry.getTerm(), 1);
+        }
+      }
+      assertFalse(reader.hasNext());
+
+      // Append entries and assert that the reader continues from where it left off.
+      appendEntries(entriesPerSegment);
+      assertTrue(reader.hasNext());
+      assertEquals(reader.next().getIndex(), indexes.size() + 1);
+    }
+  }
+
+  /**
+   * Asserts that a raw log reader reads raw entries.
+   */
+  public void testRawReader() {
+    List<Long> indexes = appendEntries(entriesPerSegment * 3);
+    try (LogReader reader = log.createRawReader(1)) {
+      for (long index : indexes) {
+        Entry entry = reader.next();
+        assertTrue(entry instanceof RawEntry);
+        assertEquals(entry.getIndex(), index);
+        assertEquals(entry, log.getRaw(index));
+        entry.release();
+      }
+    }
+  }
+
+  /**
+   * Asserts that raw entries read by one reader are read from the entry cache by other readers.
+   */
+  public void testRawReaderCache() {
+    List<Long> indexes = appendEntries(entriesPerSegment * 3);
+    try (LogReader reader = log.createRawReader(1)) {
+      for (long index : indexes) {
+        reader.next().release();
+      }
+    }
+
+    long hits = log.cache().hits();
+    try (LogReader reader = log.createRawReader(1)) {
+      for (long index : indexes) {
+        Entry entry = reader.next();
+        assertTrue(entry instanceof RawEntry);
+        assertEquals(entry.getIndex(), index);
+        entry.release();
+      }
+      assertFalse(reader.hasNext());
+    }
+    assertEquals(log.cache().hits() - hits, indexes.size());
+  }
+
+  /**
+   * Asserts that a log reader can be reset to any index.
+   */
+  public void testReaderReset() {
+    appendEntries(entriesPerSegment * 3);
+    try (LogReader reader = log.createReader(1)) {
+      assertEquals(reader.next().getIndex(), 1);
+      assertEquals(reader.next().getIndex(), 2);
+      assertEquals(reader.reset(2).next().getIndex(), 2);
+      assertEquals(reader.reset(entriesPerSegment * 2).next().getIndex(), entriesPerSegment * 2);
+      assertEquals(reader.next().getIndex(), entriesPerSegment * 2 + 1);
+      assertEquals(reader.reset(1).next().getIndex(), 1);
+    }
+  }
+
+  /**
+   * Asserts that a log reader returns null for entries that have been cleaned from the log.
+   */
+  public void testReaderCleanGet() {
+    appendEntries(entriesPerSegment * 3);
+    for (int i = entriesPerSegment; i < entriesPerSegment * 2; i++) {
+      log.release(i);
+    }
+    log.commit(entriesPerSegment * 2).compactor().minorIndex(entriesPerSegment * 2);
+    try (LogReader reader = log.createReader(1)) {
+      for (int i = 1; i <= entriesPerSegment * 3; i++) {
+        Entry entry = reader.next();
+        if (i >= entriesPerSegment && i < entriesPerSegment * 2) {
+          assertNull(entry);
+        } else {
+          assertEquals(entry.getIndex(), i);
+        }
+      }
+    }
+  }
+
+  /**
+   * Asserts that a log reader detects truncation of the log.
+   */
+  public void testReaderTruncate() {
+    appendEntries(entriesPerSegment * 3);
+    try (LogReader reader = log.createReader(1)) {
+      for (int i = 1; i <= entriesPerSegment; i++) {
+        reader.next();
+      }
+      log.truncate(entriesPerSegment);
+      TestEntry entry = log.create(TestEntry.class).setTerm(2);
+      log.append(entry);
+      entry.release();
+      TestEntry result = reader.next();
+      assertEquals(result.getIndex(), entriesPerSegment + 1);
+      assertEquals(result.getTerm(), 2);
+    }
+  }
+
   @Test(expectedExceptions = IllegalStateException.class)
   public void appendEntryShouldThrowWhenClosed() throws Exception {
     log.close();
@@ -150,6 +348,121 @@ public abstract class LogTest extends AbstractLogTest {
     assertEquals(log.segments.commitIndex(), 3);
   }
 
+  /**
+   * Tests that committing entries flushes the log asynchronously when flushing on commit.
+   */
+  public void testFlushOnCommit() throws Exception {
+    log.close();
+    storage = tempStorageBuilder()
+      .withMaxSegmentSize(Integer.MAX_VALUE)
+      .withMaxEntriesPerSegment(entriesPerSegment)
+      .withStorageLevel(storageLevel())
+      .withGroupCommit()
+      .withGroupCommitBatchSize(100)
+      .withFlushOnCommit()
+      .build();
+    log = createLog();
+
+    appendEntries(5);
+    assertEquals(log.flushedIndex(), 0);
+
+    // Block the storage thread to ensure committing entries does not wait for the flush. Memory logs don't
+    // have a storage thread and are flushed synchronously.
+    boolean async = storageLevel() != StorageLevel.MEMORY;
+    CountDownLatch latch = new CountDownLatch(1);
+    if (async) {
+      log.segments.runAsync(() -> {
+        try {
+          latch.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+    }
+
+    try {
+      log.commit(3);
+      if (async) {
+        assertEquals(log.flushedIndex(), 0);
+        assertEquals(log.durableCommitIndex(), 0);
+      }
+    } finally {
+      latch.countDown();
+    }
+
+    // Once the flush started by the commit is complete, the committed entries are durable.
+    assertEquals(log.flushAsync(3).get(5, TimeUnit.SECONDS).longValue(), 5);
+    assertEquals(log.flushedIndex(), 5);
+    assertEquals(log.durableCommitIndex(), 3);
+    assertEquals(log.flushCount(), 1);
+  }
+
+  /**
+   * Tests that the flushed index tracks the last index when group commit is disabled.
+   */
+  public void testFlushedIndexWithoutGroupCommit() {
+    appendEntries(5);
+    assertEquals(log.flushedIndex(), 5);
+    assertFalse(log.needsFlush());
+  }
+
+  /**
+   * Tests that group commit flushes entries in batches.
+   */
+  public void testGroupCommit() {
+    log.close();
+    storage = tempStorageBuilder()
+      .withMaxSegmentSize(Integer.MAX_VALUE)
+      .withMaxEntriesPerSegment(entriesPerSegment)
+      .withStorageLevel(storageLevel())
+      .withGroupCommit()
+      .withGroupCommitBatchSize(10)
+      .build();
+    log = createLog();
+
+    appendEntries(5);
+    assertEquals(log.flushedIndex(), 0);
+    assertTrue(log.needsFlush());
+    log.flush();
+    assertEquals(log.flushedIndex(), 5);
+    assertFalse(log.needsFlush());
+
+    // Reaching the batch size should force a flush in the background. Flushes are completed in order, so the
+    // batch flush is complete once a subsequent flush is complete.
+    appendEntries(10);
+    assertEquals(log.flushAsync().join().longValue(), 15);
+    assertEquals(log.flushedIndex(), 15);
+    assertEquals(log.flushCount(), 3);
+
+    appendEntries(3);
+    assertEquals(log.flushedIndex(), 15);
+    log.truncate(12);
+    assertEquals(log.flushedIndex(), 12);
+  }
+
+  /**
+   * Tests flushing the log asynchronously.
+   */
+  public void testFlushAsync() {
+    log.close();
+    storage = tempStorageBuilder()
+      .withMaxSegmentSize(Integer.MAX_VALUE)
+      .withMaxEntriesPerSegment(entriesPerSegment)
+      .withStorageLevel(storageLevel())
+      .withGroupCommit()
+      .build();
+    log = createLog();
+
+    appendEntries(entriesPerSegment * 2 + 1);
+    CompletableFuture<Long> future = log.flushAsync();
+    appendEntries(1);
+    assertEquals(future.join().longValue(), entriesPerSegment * 2 + 1);
+    assertEquals(log.flushedIndex(), entriesPerSegment * 2 + 1);
+    assertTrue(log.needsFlush());
+    assertEquals(log.flushAsync().join().longValue(), entriesPerSegment * 2 + 2);
+    assertFalse(log.needsFlush());
+  }
+
   /**
    * Asserts that {@link Log#contains(long)} works as expected across segments and after compaction.
    */
@@ -30,8 +30,8 @@ public class MemorySnapshotStoreTest extends AbstractSnapshotStoreTest {
   /**
    * Returns a new snapshot store.
    */
-  protected SnapshotStore createSnapshotStore() {
-    Storage storage = Storage.builder()
+  protected SnapshotStore createSnapshotStore(Storage.Builder builder) {
+    Storage storage = builder
       .withStorageLevel(StorageLevel.MEMORY)
       .build();
     return new SnapshotStore("test", storage, new Serializer());
@@ -18,6 +18,7 @@ package io.atomix.copycat.server.storage;
 import io.atomix.copycat.server.storage.compaction.Compaction;
 import org.testng.annotations.Test;
 
+import java.time.Duration;
 import java.util.concurrent.CountDownLatch;
 
 import static org.testng.Assert.*;
@@ -72,6 +73,189 @@ public class MinorCompactionTest extends AbstractLogTest {
     }
   }
 
+  /**
+   * Tests that adjacent under-filled segments are merged by minor compaction.
+   */
+  public void testMergeUnderfilledSegments() throws Throwable {
+    writeEntries(31);
+    for (long index = 1; index <= 30; index++) {
+      log.release(index);
+    }
+    log.commit(31).compactor().minorIndex(31);
+
+    // The first compaction removes the quorum entries, leaving each segment half full.
+    log.compactor().compact(Compaction.MINOR).join();
+    assertEquals(log.segments.segments().size(), 4);
+    assertEquals(log.segments.segment(1).count(), 5);
+
+    // The second compaction merges the first two half full segments into a single segment.
+    log.compactor().compact(Compaction.MINOR).join();
+    assertEquals(log.segments.segments().size(), 3);
+    assertEquals(log.segments.segment(1).count(), 10);
+    assertEquals(log.segments.segment(1).lastIndex(), 20);
+    assertEquals(log.length(), 31L);
+
+    for (long index = 1; index <= 30; index++) {
+      if (index % 2 == 0) {
+        assertTrue(log.contains(index));
+      } else {
+        assertFalse(log.contains(index));
+      }
+    }
+    try (TestEntry entry = log.get(31)) {
+      assertNotNull(entry);
+    }
+  }
+
+  /**
+   * Tests that segments replaced by compaction are not deleted until readers release them.
+   */
+  public void testRetiredSegmentReferences() throws Throwable {
+    writeEntries(31);
+    for (long index = 21; index < 28; index++) {
+      log.release(index);
+    }
+    log.commit(31).compactor().minorIndex(31);
+
+    Segment segment = log.segments.segment(22);
+    LogReader reader = log.createReader(22);
+    try (TestEntry entry = reader.next()) {
+      assertNotNull(entry);
+    }
+    assertEquals(segment.references(), 2);
+
+    log.compactor().compact(Compaction.MINOR).join();
+    assertNotSame(log.segments.segment(21), segment);
+    assertTrue(segment.isRetired());
+    assertTrue(segment.isOpen());
+    assertEquals(segment.references(), 1);
+
+    // The reader moves on to the compacted segment, releasing the retired segment.
+    try (TestEntry entry = reader.next()) {
+      assertNull(entry);
+    }
+    assertFalse(segment.isOpen());
+    assertFalse(segment.acquire());
+    reader.close();
+  }
+
+  /**
+   * Tests that compacted segments are compressed when compaction compression is enabled.
+   */
+  public void testCompressedMinorCompaction() throws Throwable {
+    log.close();
+    storage = tempStorageBuilder()
+      .withMaxEntriesPerSegment(10)
+      .withCompactionCompression(CompressionType.LZ4)
+      .withCompressionBlockSize(256)
+      .build();
+    log = createLog();
+
+    writeEntries(31);
+    for (long index = 21; index < 28; index++) {
+      log.release(index);
+    }
+    log.commit(31).compactor().minorIndex(31);
+
+    CountDownLatch latch = new CountDownLatch(1);
+    log.compactor().compact(Compaction.MINOR).thenRun(latch::countDown);
+    latch.await();
+
+    assertEquals(log.segments.segment(21).descriptor().compressionType(), CompressionType.LZ4);
+    assertEquals(log.segments.segment(1).descriptor().compressionType(), CompressionType.NONE);
+    assertEquals(log.segments.lastSegment().descriptor().compressionType(), CompressionType.NONE);
+    assertCompacted(log);
+    log.close();
+
+    // Reopen the log to rebuild the block and offset indexes from the compressed segments.
+    log = createLog();
+    assertEquals(log.length(), 31L);
+    assertCompacted(log);
+  }
+
+  /**
+   * Tests that compaction is throttled to the configured compaction rate and reports its progress.
+   */
+  public void testThrottledMinorCompaction() throws Throwable {
+    log.close();
+    storage = tempStorageBuilder()
+      .withMaxEntriesPerSegment(10)
+      .withCompactionRate(1024)
+      .build();
+    log = createLog();
+
+    for (int i = 0; i < 31; i++) {
+      try (TestEntry entry = log.create(TestEntry.class)) {
+        entry.setTerm(1);
+        entry.setPadding(128);
+        log.append(entry);
+      }
+    }
+    for (long index = 1; index <= 10; index++) {
+      log.release(index);
+    }
+    log.commit(31).compactor().minorIndex(31);
+
+    log.compactor().compact(Compaction.MINOR).join();
+    assertTrue(log.compactor().compactedBytes() > 1024);
+    assertTrue(log.compactor().throttledTime() > 0);
+    assertEquals(log.compactor().progress(), 1.0);
+    assertEquals(log.compactor().remainingBytes(), 0);
+    assertFalse(log.contains(1));
+  }
+
+  /**
+   * Tests that scheduled compaction is deferred while log flushes are slow and is eventually forced to run.
+   */
+  public void testCompactionBackoff() throws Throwable {
+    log.close();
+    storage = tempStorageBuilder()
+      .withMaxEntriesPerSegment(10)
+      .withMinorCompactionInterval(Duration.ofMillis(50))
+      .withCompactionBackoffFlushLatency(Duration.ofNanos(1))
+      .build();
+    log = createLog();
+
+    assertFalse(log.compactor().isBackingOff());
+    writeEntries(31);
+    log.flush();
+    assertTrue(log.compactor().isBackingOff());
+
+    for (long index = 21; index < 28; index++) {
+      log.release(index);
+    }
+    log.commit(31).compactor().minorIndex(31);
+
+    // Every flush is slower than the back-off latency, so scheduled compactions are deferred until one is forced.
+    long completed = log.compactor().completedCompactions();
+    long deadline = System.currentTimeMillis() + 10000;
+    while (log.compactor().completedCompactions() == completed && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertTrue(log.compactor().isBackingOff());
+    assertTrue(log.compactor().deferredCompactions() >= 3);
+    assertTrue(log.compactor().completedCompactions() > completed);
+    assertEquals(log.compactor().backoffTime(), 0);
+    assertCompacted(log);
+  }
+
+  /**
+   * Asserts that the given log contains only the entries that were not released.
+   */
+  private void assertCompacted(Log log) {
+    for (long index = 1; index <= 31; index++) {
+      if (index >= 21 && index < 28 && index % 2 != 0) {
+        assertFalse(log.contains(index));
+      } else {
+        assertTrue(log.contains(index));
+        try (TestEntry entry = log.get(index)) {
+          assertNotNull(entry);
+          assertEquals(entry.getIndex(), index);
+        }
+      }
+    }
+  }
+
   /**
    * Writes a set of session entries to the log.
    */
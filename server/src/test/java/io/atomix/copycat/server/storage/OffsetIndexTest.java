@@ -17,6 +17,7 @@ package io.atomix.copycat.server.storage;
 
 import io.atomix.catalyst.buffer.HeapBuffer;
 import io.atomix.copycat.server.storage.index.DelegatingOffsetIndex;
+import io.atomix.copycat.server.storage.index.MappedOffsetIndex;
 import io.atomix.copycat.server.storage.index.OffsetIndex;
 import org.testng.annotations.Test;
 
@@ -136,4 +137,62 @@ public class OffsetIndexTest {
     assertEquals(index.truncate(1), 30);
   }
 
+
+  /**
+   * Tests looking up sequential and skipped offsets in a mapped offset index.
+   */
+  public void testMappedIndexPosition() {
+    OffsetIndex index = new MappedOffsetIndex(HeapBuffer.allocate(MappedOffsetIndex.size(16)));
+    index.index(0, 0);
+    index.index(1, 40);
+    assertEquals(index.position(1), 40);
+    assertEquals(index.find(1), 1);
+    index.index(5, 80);
+    assertEquals(index.position(0), 0);
+    assertEquals(index.position(1), 40);
+    assertEquals(index.position(5), 80);
+    assertEquals(index.find(5), 2);
+    assertEquals(index.position(3), -1);
+    assertFalse(index.contains(3));
+    assertEquals(index.size(), 3);
+    assertEquals(index.lastOffset(), 5);
+  }
+
+  /**
+   * Tests reopening a mapped offset index over existing entries.
+   */
+  public void testMappedIndexReopen() {
+    HeapBuffer buffer = HeapBuffer.allocate(MappedOffsetIndex.size(16));
+    OffsetIndex index = new MappedOffsetIndex(buffer);
+    index.index(0, 0);
+    index.index(2, 40);
+    index.index(3, 80);
+
+    OffsetIndex reopened = new MappedOffsetIndex(buffer, 3);
+    assertEquals(reopened.size(), 3);
+    assertEquals(reopened.lastOffset(), 3);
+    assertEquals(reopened.position(2), 40);
+    assertEquals(reopened.position(3), 80);
+    assertEquals(reopened.find(3), 2);
+  }
+
+  /**
+   * Tests truncating a mapped offset index.
+   */
+  public void testMappedIndexTruncate() {
+    OffsetIndex index = new MappedOffsetIndex(HeapBuffer.allocate(MappedOffsetIndex.size(16)));
+    index.index(0, 0);
+    index.index(1, 40);
+    index.index(4, 80);
+    index.index(5, 120);
+    assertEquals(index.truncate(2), 80);
+    assertEquals(index.lastOffset(), 2);
+    assertEquals(index.size(), 2);
+    assertEquals(index.position(4), -1);
+    index.index(3, 80);
+    assertEquals(index.position(3), 80);
+    assertEquals(index.truncate(-1), 0);
+    assertTrue(index.isEmpty());
+  }
+
 }
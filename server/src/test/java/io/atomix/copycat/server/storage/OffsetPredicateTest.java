@@ -15,6 +15,7 @@
  */
 package io.atomix.copycat.server.storage;
 
+import io.atomix.catalyst.buffer.HeapBuffer;
 import io.atomix.copycat.server.storage.util.OffsetPredicate;
 import org.testng.annotations.Test;
 
@@ -44,4 +45,36 @@ public class OffsetPredicateTest {
     assertFalse(cleaner.test(2048L));
   }
 
+  /**
+   * Tests that released offsets are restored from the predicate buffer.
+   */
+  public void testReopenOffsetPredicate() {
+    HeapBuffer buffer = HeapBuffer.allocate(OffsetPredicate.size(1024), OffsetPredicate.size(1024));
+    OffsetPredicate predicate = new OffsetPredicate(buffer);
+    assertTrue(predicate.release(1));
+    assertTrue(predicate.release(64));
+    assertTrue(predicate.release(1023));
+    assertFalse(predicate.release(64));
+    assertEquals(predicate.count(), 3);
+
+    OffsetPredicate reopened = new OffsetPredicate(buffer);
+    assertEquals(reopened.count(), 3);
+    assertFalse(reopened.test(1L));
+    assertFalse(reopened.test(64L));
+    assertFalse(reopened.test(1023L));
+    assertTrue(reopened.test(0L));
+    assertTrue(reopened.test(2048L));
+
+    OffsetPredicate copy = reopened.copy();
+    assertTrue(copy.release(2048));
+    assertEquals(copy.count(), 4);
+    assertEquals(reopened.count(), 3);
+
+    try {
+      reopened.release(1024);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
 }
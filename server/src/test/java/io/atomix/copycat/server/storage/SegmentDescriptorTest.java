@@ -133,6 +133,60 @@ public class SegmentDescriptorTest {
     assertTrue(descriptor.locked());
   }
 
+  /**
+   * Tests persisting and copying the segment checksum type.
+   */
+  public void testDescriptorChecksumType() {
+    assertEquals(SegmentDescriptor.builder().build().checksumType(), ChecksumType.CRC32);
+
+    Buffer buffer = FileBuffer.allocate(file, SegmentDescriptor.BYTES);
+    SegmentDescriptor descriptor = SegmentDescriptor.builder(buffer)
+      .withId(2)
+      .withVersion(3)
+      .withIndex(1025)
+      .withChecksumType(ChecksumType.XXHASH64)
+      .build();
+    assertEquals(descriptor.checksumType(), ChecksumType.XXHASH64);
+    buffer.close();
+
+    descriptor = new SegmentDescriptor(FileBuffer.allocate(file, SegmentDescriptor.BYTES));
+    assertEquals(descriptor.checksumType(), ChecksumType.XXHASH64);
+    descriptor.close();
+
+    descriptor = SegmentDescriptor.builder()
+      .withId(2)
+      .withChecksumType(ChecksumType.CRC32C)
+      .build()
+      .copyTo(FileBuffer.allocate(file, SegmentDescriptor.BYTES));
+    assertEquals(descriptor.checksumType(), ChecksumType.CRC32C);
+    descriptor.close();
+
+    descriptor = new SegmentDescriptor(FileBuffer.allocate(file, SegmentDescriptor.BYTES));
+    assertEquals(descriptor.checksumType(), ChecksumType.CRC32C);
+    descriptor.close();
+  }
+
+  /**
+   * Tests persisting and copying the segment compression type.
+   */
+  public void testDescriptorCompressionType() {
+    assertEquals(SegmentDescriptor.builder().build().compressionType(), CompressionType.NONE);
+
+    SegmentDescriptor descriptor = SegmentDescriptor.builder()
+      .withId(2)
+      .withChecksumType(ChecksumType.CRC32C)
+      .withCompressionType(CompressionType.LZ4)
+      .build()
+      .copyTo(FileBuffer.allocate(file, SegmentDescriptor.BYTES));
+    assertEquals(descriptor.compressionType(), CompressionType.LZ4);
+    descriptor.close();
+
+    descriptor = new SegmentDescriptor(FileBuffer.allocate(file, SegmentDescriptor.BYTES));
+    assertEquals(descriptor.compressionType(), CompressionType.LZ4);
+    assertEquals(descriptor.checksumType(), ChecksumType.CRC32C);
+    descriptor.close();
+  }
+
   /**
    * Deletes the descriptor file.
    */
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package io.atomix.copycat.server.storage;
+
+import io.atomix.catalyst.buffer.HeapBuffer;
+import io.atomix.copycat.server.storage.util.TermIndex;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Term index test.
+ *
+ * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
+ */
+@Test
+public class TermIndexTest {
+
+  /**
+   * Tests indexing and looking up terms.
+   */
+  public void testIndexAndLookup() {
+    TermIndex index = new TermIndex();
+    assertEquals(index.term(), 0);
+    assertEquals(index.lookup(0), 0);
+
+    index.index(0, 1);
+    index.index(1, 1);
+    index.index(5, 2);
+    index.index(10, 4);
+    assertEquals(index.size(), 3);
+    assertEquals(index.term(), 4);
+    assertEquals(index.lookup(0), 1);
+    assertEquals(index.lookup(4), 1);
+    assertEquals(index.lookup(5), 2);
+    assertEquals(index.lookup(9), 2);
+    assertEquals(index.lookup(10), 4);
+    assertEquals(index.lookup(100), 4);
+  }
+
+  /**
+   * Tests that the index grows beyond its initial capacity.
+   */
+  public void testIndexManyTerms() {
+    TermIndex index = new TermIndex();
+    for (int i = 0; i < 1000; i++) {
+      index.index(i * 2, i + 1);
+    }
+    assertEquals(index.size(), 1000);
+    for (int i = 0; i < 2000; i++) {
+      assertEquals(index.lookup(i), i / 2 + 1);
+    }
+  }
+
+  /**
+   * Tests truncating the index.
+   */
+  public void testTruncate() {
+    TermIndex index = new TermIndex();
+    index.index(0, 1);
+    index.index(5, 2);
+    index.index(10, 3);
+    index.truncate(7);
+    assertEquals(index.term(), 2);
+    assertEquals(index.lookup(12), 2);
+    index.index(8, 3);
+    assertEquals(index.lookup(7), 2);
+    assertEquals(index.lookup(8), 3);
+    index.truncate(-1);
+    assertEquals(index.size(), 0);
+    assertEquals(index.lookup(8), 0);
+  }
+
+  /**
+   * Tests reopening an index over an existing buffer.
+   */
+  public void testReopen() {
+    HeapBuffer buffer = HeapBuffer.allocate(1024);
+    TermIndex index = new TermIndex(buffer, 0);
+    index.index(0, 1);
+    index.index(3, 2);
+
+    TermIndex reopened = new TermIndex(buffer, index.size());
+    assertEquals(reopened.term(), 2);
+    assertEquals(reopened.lookup(2), 1);
+    assertEquals(reopened.lookup(3), 2);
+  }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.test;
+
+import io.atomix.catalyst.concurrent.SingleThreadContext;
+import io.atomix.catalyst.concurrent.ThreadContext;
+import io.atomix.catalyst.serializer.Serializer;
+import io.atomix.copycat.server.storage.ChecksumType;
+import io.atomix.copycat.server.storage.Log;
+import io.atomix.copycat.server.storage.Storage;
+import io.atomix.copycat.server.storage.StorageLevel;
+import io.atomix.copycat.server.storage.entry.Entry;
+import io.atomix.copycat.server.storage.entry.InitializeEntry;
+import io.atomix.copycat.server.storage.util.StorageSerialization;
+
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Log entry checksum benchmark.
+ * <p>
+ * Measures append and read throughput of small entries for each {@link ChecksumType}, with and without checksum
+ * verification on reads. Entries are written to {@link StorageLevel#MEMORY} storage with the entry cache disabled
+ * so the cost of checksumming isn't hidden by disk I/O or cached reads.
+ *
+ * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
+ */
+public class ChecksumBenchmark implements Runnable {
+
+  /**
+   * Runs the benchmark.
+   */
+  public static void main(String[] args) {
+    new ChecksumBenchmark().run();
+  }
+
+  private static final int ENTRIES = 1024 * 256;
+  private static final int ITERATIONS = 5;
+  private static final long DURATION = TimeUnit.SECONDS.toMillis(2);
+
+  @Override
+  public void run() {
+    for (ChecksumType checksumType : ChecksumType.values()) {
+      for (boolean verify : new boolean[]{true, false}) {
+        runBenchmark(checksumType, verify);
+      }
+    }
+  }
+
+  /**
+   * Runs the benchmark for the given checksum type.
+   */
+  private void runBenchmark(ChecksumType checksumType, boolean verify) {
+    Storage storage = Storage.builder()
+      .withStorageLevel(StorageLevel.MEMORY)
+      .withDirectory(new File("target/benchmark-logs"))
+      .withChecksumType(checksumType)
+      .withVerifyChecksumsOnRead(verify)
+      .withEntryCacheSize(0)
+      .build();
+
+    Serializer serializer = new Serializer().resolve(new StorageSerialization());
+    ThreadContext context = new SingleThreadContext("benchmark-%d", serializer);
+
+    long appends = 0;
+    long reads = 0;
+    for (int i = 0; i < ITERATIONS; i++) {
+      Log log = CompletableFuture.supplyAsync(() -> storage.openLog("benchmark"), context.executor()).join();
+      appends += CompletableFuture.supplyAsync(() -> runAppends(log), context.executor()).join();
+      reads += CompletableFuture.supplyAsync(() -> runReads(log), context.executor()).join();
+      CompletableFuture.runAsync(log::close, context.executor()).join();
+    }
+
+    System.out.println(String.format("checksumType: %s, verifyOnRead: %b, append: %d entries/sec, read: %d entries/sec",
+      checksumType, verify, appends / ITERATIONS, reads / ITERATIONS));
+    context.close();
+  }
+
+  /**
+   * Appends entries to the log, returning the number of appends per second.
+   */
+  private long runAppends(Log log) {
+    long startTime = System.nanoTime();
+    for (int i = 0; i < ENTRIES; i++) {
+      try (InitializeEntry entry = log.create(InitializeEntry.class)) {
+        entry.setTerm(1).setTimestamp(System.currentTimeMillis());
+        log.append(entry);
+      }
+    }
+    long runTime = System.nanoTime() - startTime;
+    return ENTRIES * TimeUnit.SECONDS.toNanos(1) / runTime;
+  }
+
+  /**
+   * Reads entries from the log sequentially, returning the number of reads per second.
+   */
+  private long runReads(Log log) {
+    long count = 0;
+    long index = 1;
+    long startTime = System.nanoTime();
+    long endTime = startTime + TimeUnit.MILLISECONDS.toNanos(DURATION);
+    while (System.nanoTime() < endTime) {
+      for (int i = 0; i < 1024; i++) {
+        Entry entry = log.get(index);
+        if (entry != null) {
+          entry.release();
+        }
+        index = index < ENTRIES ? index + 1 : 1;
+      }
+      count += 1024;
+    }
+    long runTime = System.nanoTime() - startTime;
+    return count * TimeUnit.SECONDS.toNanos(1) / runTime;
+  }
+
+}
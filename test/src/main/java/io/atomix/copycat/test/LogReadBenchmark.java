@@ -0,0 +1,173 @@
+/*
+ * Copyright 2017-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.test;
+
+import io.atomix.catalyst.concurrent.SingleThreadContext;
+import io.atomix.catalyst.concurrent.ThreadContext;
+import io.atomix.catalyst.serializer.Serializer;
+import io.atomix.copycat.server.storage.Log;
+import io.atomix.copycat.server.storage.Storage;
+import io.atomix.copycat.server.storage.StorageLevel;
+import io.atomix.copycat.server.storage.entry.Entry;
+import io.atomix.copycat.server.storage.entry.InitializeEntry;
+import io.atomix.copycat.server.storage.util.StorageSerialization;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Log read throughput benchmark.
+ * <p>
+ * Measures the throughput of concurrent sequential reads from a log, simulating a leader's appender
+ * replicating entries to a follower that is catching up while the state machine applies entries.
+ *
+ * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
+ */
+public class LogReadBenchmark implements Runnable {
+
+  /**
+   * Runs the benchmark.
+   */
+  public static void main(String[] args) {
+    new LogReadBenchmark().run();
+  }
+
+  private static final int ENTRIES = 1024 * 256;
+  private static final int ITERATIONS = 5;
+  private static final long DURATION = TimeUnit.SECONDS.toMillis(5);
+  private static final StorageLevel[] STORAGE_LEVELS = new StorageLevel[]{StorageLevel.MEMORY, StorageLevel.MAPPED, StorageLevel.DISK};
+
+  @Override
+  public void run() {
+    for (StorageLevel level : STORAGE_LEVELS) {
+      try {
+        runBenchmark(level);
+      } catch (Exception e) {
+        e.printStackTrace();
+        return;
+      }
+    }
+  }
+
+  /**
+   * Runs the benchmark for the given storage level.
+   */
+  private void runBenchmark(StorageLevel level) throws Exception {
+    deleteLogs();
+
+    Storage storage = Storage.builder()
+      .withStorageLevel(level)
+      .withDirectory(new File("target/benchmark-logs"))
+      .build();
+
+    Serializer serializer = new Serializer().resolve(new StorageSerialization());
+    ThreadContext context = new SingleThreadContext("benchmark-%d", serializer);
+    Log log = CompletableFuture.supplyAsync(() -> storage.openLog("benchmark"), context.executor()).join();
+
+    // Populate the log on the log's thread.
+    CompletableFuture.runAsync(() -> {
+      for (int i = 0; i < ENTRIES; i++) {
+        try (InitializeEntry entry = log.create(InitializeEntry.class)) {
+          entry.setTerm(1).setTimestamp(System.currentTimeMillis());
+          log.append(entry);
+        }
+      }
+      log.flush();
+    }, context.executor()).join();
+
+    long single = 0;
+    long concurrent = 0;
+    for (int i = 0; i < ITERATIONS; i++) {
+      single += runReaders(log, 1);
+      concurrent += runReaders(log, 2);
+    }
+
+    System.out.println(String.format("storageLevel: %s, single reader: %d reads/sec, appender and state machine: %d reads/sec",
+      level, single / ITERATIONS, concurrent / ITERATIONS));
+
+    CompletableFuture.runAsync(log::close, context.executor()).join();
+    context.close();
+    deleteLogs();
+  }
+
+  /**
+   * Runs the given number of concurrent readers against the log, returning the total reads per second.
+   */
+  private long runReaders(Log log, int readers) throws Exception {
+    AtomicBoolean running = new AtomicBoolean(true);
+    LongAdder reads = new LongAdder();
+
+    Thread[] threads = new Thread[readers];
+    for (int i = 0; i < readers; i++) {
+      // Each reader starts at a different position in the log, scanning forward and wrapping around.
+      long start = 1 + (long) ENTRIES / readers * i;
+      threads[i] = new Thread(() -> {
+        long index = start;
+        long count = 0;
+        while (running.get()) {
+          Entry entry = log.get(index);
+          if (entry != null) {
+            entry.release();
+          }
+          index = index < ENTRIES ? index + 1 : 1;
+          count++;
+        }
+        reads.add(count);
+      });
+    }
+
+    long startTime = System.currentTimeMillis();
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    Thread.sleep(DURATION);
+    running.set(false);
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    long runTime = System.currentTimeMillis() - startTime;
+    return reads.sum() * 1000 / runTime;
+  }
+
+  /**
+   * Deletes the benchmark logs.
+   */
+  private void deleteLogs() throws IOException {
+    Path directory = Paths.get("target/benchmark-logs/");
+    if (Files.exists(directory)) {
+      Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+          Files.delete(file);
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+          Files.delete(dir);
+          return FileVisitResult.CONTINUE;
+        }
+      });
+    }
+  }
+
+}
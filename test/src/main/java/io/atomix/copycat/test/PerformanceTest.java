@@ -62,6 +62,7 @@ public class PerformanceTest implements Runnable {
   }
 
   private static final int ITERATIONS = 10;
+  private static final int[] APPEND_WINDOWS = new int[]{1, 2, 4, 8, 16};
 
   private static final int TOTAL_OPERATIONS = 100000;
   private static final int WRITE_RATIO = 5;
@@ -77,6 +78,8 @@ public class PerformanceTest implements Runnable {
   private static final String[] KEYS = new String[1024];
   private final Random random = new Random();
   private final List<Long> iterations = new ArrayList<>();
+  private final Map<Integer, Long> windowRunTimes = new LinkedHashMap<>();
+  private int appendWindow;
   private final AtomicInteger totalOperations = new AtomicInteger();
   private final AtomicInteger writeCount = new AtomicInteger();
   private final AtomicInteger readCount = new AtomicInteger();
@@ -89,18 +92,27 @@ public class PerformanceTest implements Runnable {
 
   @Override
   public void run() {
-    for (int i = 0; i < ITERATIONS; i++) {
-      try {
-        iterations.add(runIteration());
-      } catch (Exception e) {
-        e.printStackTrace();
-        return;
+    for (int window : APPEND_WINDOWS) {
+      appendWindow = window;
+      iterations.clear();
+      for (int i = 0; i < ITERATIONS; i++) {
+        try {
+          iterations.add(runIteration());
+        } catch (Exception e) {
+          e.printStackTrace();
+          return;
+        }
       }
+
+      System.out.println("Completed " + ITERATIONS + " iterations with append window " + window);
+      long averageRunTime = (long) iterations.stream().mapToLong(v -> v).average().getAsDouble();
+      System.out.println(String.format("averageRunTime: %dms", averageRunTime));
+      windowRunTimes.put(window, averageRunTime);
     }
 
-    System.out.println("Completed " + ITERATIONS + " iterations");
-    long averageRunTime = (long) iterations.stream().mapToLong(v -> v).average().getAsDouble();
-    System.out.println(String.format("averageRunTime: %dms", averageRunTime));
+    System.out.println("Throughput by append window:");
+    windowRunTimes.forEach((window, runTime) -> System.out.println(String.format("window: %d, averageRunTime: %dms, throughput: %d ops/sec",
+      window, runTime, runTime > 0 ? TOTAL_OPERATIONS * 1000L / runTime : 0)));
 
     try {
       shutdown();
@@ -277,6 +289,7 @@ public class PerformanceTest implements Runnable {
         .withDirectory(new File(String.format("target/performance-logs/%d", member.address().hashCode())))
         .withCompactionThreads(1)
         .build())
+      .withMaxAppendsPerFollower(appendWindow)
       .withStateMachine(PerformanceStateMachine::new);
 
     CopycatServer server = builder.build();
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2017-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.test;
+
+import io.atomix.copycat.server.storage.util.TermIndex;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Term index lookup benchmark.
+ * <p>
+ * Compares lookups in the {@link TermIndex} against lookups in a synchronized {@link TreeMap} based index,
+ * for both sequential lookups in the most recent term and random lookups across all terms, with one and two
+ * concurrent readers.
+ *
+ * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
+ */
+public class TermIndexBenchmark implements Runnable {
+
+  /**
+   * Runs the benchmark.
+   */
+  public static void main(String[] args) {
+    new TermIndexBenchmark().run();
+  }
+
+  private static final int OFFSETS = 1024 * 1024;
+  private static final int TERMS = 1024;
+  private static final int ITERATIONS = 5;
+  private static final long DURATION = TimeUnit.SECONDS.toMillis(2);
+
+  @Override
+  public void run() {
+    TermIndex termIndex = new TermIndex();
+    TreeMapTermIndex treeMapIndex = new TreeMapTermIndex();
+    for (int i = 0; i < TERMS; i++) {
+      termIndex.index((long) i * (OFFSETS / TERMS), i + 1);
+      treeMapIndex.index((long) i * (OFFSETS / TERMS), i + 1);
+    }
+
+    long lastTermStart = (long) (TERMS - 1) * (OFFSETS / TERMS);
+    for (int readers = 1; readers <= 2; readers++) {
+      System.out.println(String.format("readers: %d, sequential: TermIndex %d lookups/sec, TreeMap %d lookups/sec",
+        readers,
+        runBenchmark(termIndex::lookup, readers, lastTermStart),
+        runBenchmark(treeMapIndex::lookup, readers, lastTermStart)));
+      System.out.println(String.format("readers: %d, random: TermIndex %d lookups/sec, TreeMap %d lookups/sec",
+        readers,
+        runBenchmark(termIndex::lookup, readers, -1),
+        runBenchmark(treeMapIndex::lookup, readers, -1)));
+    }
+  }
+
+  /**
+   * Runs lookups with the given number of readers, returning the average number of lookups per second.
+   * <p>
+   * If {@code start} is non-negative, readers look up offsets sequentially from the given offset. Otherwise,
+   * readers look up pseudo-random offsets across the index.
+   */
+  private long runBenchmark(LongUnaryOperator lookup, int readers, long start) {
+    long total = 0;
+    for (int i = 0; i < ITERATIONS; i++) {
+      total += runReaders(lookup, readers, start);
+    }
+    return total / ITERATIONS;
+  }
+
+  /**
+   * Runs the given number of concurrent readers, returning the total lookups per second.
+   */
+  private long runReaders(LongUnaryOperator lookup, int readers, long start) {
+    AtomicBoolean running = new AtomicBoolean(true);
+    LongAdder lookups = new LongAdder();
+
+    Thread[] threads = new Thread[readers];
+    for (int i = 0; i < readers; i++) {
+      long seed = i + 1;
+      threads[i] = new Thread(() -> {
+        long count = 0;
+        long offset = start;
+        long random = seed;
+        long sum = 0;
+        while (running.get()) {
+          for (int j = 0; j < 1024; j++) {
+            if (start >= 0) {
+              offset = offset < OFFSETS - 1 ? offset + 1 : start;
+            } else {
+              random ^= random << 13;
+              random ^= random >>> 7;
+              random ^= random << 17;
+              offset = (random & Long.MAX_VALUE) % OFFSETS;
+            }
+            sum += lookup.applyAsLong(offset);
+          }
+          count += 1024;
+        }
+        lookups.add(count);
+        if (sum == 0) {
+          System.out.println("unexpected sum");
+        }
+      });
+    }
+
+    long startTime = System.currentTimeMillis();
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    try {
+      Thread.sleep(DURATION);
+      running.set(false);
+      for (Thread thread : threads) {
+        thread.join();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+    long runTime = System.currentTimeMillis() - startTime;
+    return lookups.sum() * 1000 / runTime;
+  }
+
+  /**
+   * Term index backed by a synchronized {@link TreeMap} of boxed offsets and terms.
+   */
+  private static final class TreeMapTermIndex {
+    private final TreeMap<Long, Long> terms = new TreeMap<>();
+
+    synchronized void index(long offset, long term) {
+      if (lookup(offset) != term) {
+        terms.put(offset, term);
+      }
+    }
+
+    synchronized long lookup(long offset) {
+      Map.Entry<Long, Long> entry = terms.floorEntry(offset);
+      return entry != null ? entry.getValue() : 0;
+    }
+  }
+
+}